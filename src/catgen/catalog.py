@@ -23,6 +23,7 @@ VoltDB catalog code generator.
 from catalog_utils import *
 from string import Template
 from subprocess import Popen
+import zlib
 
 #
 # Code generation (shared).
@@ -58,7 +59,7 @@ def javaobjectify( x ):
     elif x[-1] == '?': return x.rstrip('?')
     else: raise Exception( 'bad type: ' + x )
 
-def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
+def genjava( classes, javaOnlyClasses, prepath, postpath, package, spec ):
     ##########
     # SETUP
     ##########
@@ -73,6 +74,12 @@ def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
     os.system( interp( "cp $prepath/CatalogDiffEngine.java $postpath", locals() ) )
     os.system( interp( "cp $prepath/FilteredCatalogDiffEngine.java $postpath", locals() ) )
 
+    # the binary catalog encoding is positional, stamp it with the spec it was generated from
+    spec_checksum = '0x%08x' % (zlib.crc32( spec ) & 0xffffffff)
+    catalogpath = postpath + "/Catalog.java"
+    catalogsrc = open( catalogpath ).read().replace( '$spec_checksum', spec_checksum )
+    open( catalogpath, 'w' ).write( catalogsrc )
+
     ##########
     # WRITE THE SOURCE FILES
     ##########
@@ -88,6 +95,9 @@ def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
         write (gpl_header)
         write (auto_gen_warning)
         write('package', package + ';\n')
+        write('import java.io.DataInput;')
+        write('import java.io.DataOutput;')
+        write('import java.io.IOException;\n')
 
         if cls.has_comment():
             write('/**\n *', cls.comment)
@@ -181,6 +191,7 @@ def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
             if field.has_comment():
                 write('    /** SETTER:', field.comment, '*/')
             write( interp( '    public void set$methname($ftype value) {', locals() ) )
+            write(         '        catalogWillModify();' )
             if field.type[-1] == '?':
                 write( interp( '        m_$fname.set(value);', locals() ) )
             else:
@@ -192,7 +203,8 @@ def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
         write(                     '    void set(String field, String value) {' )
         write(                     '        if ((field == null) || (value == null)) {' )
         write(                     '            throw new CatalogException("Null value where it shouldn\'t be.");' )
-        write(                     '        }\n' )
+        write(                     '        }' )
+        write(                     '        catalogWillModify();\n' )
 
         write(                     '        switch (field) {' )
         for field in cls.fields:
@@ -244,6 +256,38 @@ def genjava( classes, javaOnlyClasses, prepath, postpath, package ):
                     write( interp( '        other.m_$fname.copyFrom(m_$fname);', locals() ) )
         write(                     '    }\n' )
 
+        # writeFieldsBinary
+        write(                     '    @Override' )
+        write(                     '    void writeFieldsBinary(DataOutput out) throws IOException {' )
+        for field in cls.fields:
+            ftype = javatypify( field.type )
+            fname = field.name
+            if ftype == "int":
+                write( interp(     '        out.writeInt(m_$fname);', locals() ) )
+            elif ftype == "boolean":
+                write( interp(     '        out.writeBoolean(m_$fname);', locals() ) )
+            elif ftype == "String":
+                write( interp(     '        writeStringBinary(out, m_$fname);', locals() ) )
+            elif field.type[-1] == '?':
+                write( interp(     '        writeStringBinary(out, m_$fname.getPath());', locals() ) )
+        write(                     '    }\n' )
+
+        # readFieldsBinary
+        write(                     '    @Override' )
+        write(                     '    void readFieldsBinary(DataInput in) throws IOException {' )
+        for field in cls.fields:
+            ftype = javatypify( field.type )
+            fname = field.name
+            if ftype == "int":
+                write( interp(     '        m_$fname = in.readInt();', locals() ) )
+            elif ftype == "boolean":
+                write( interp(     '        m_$fname = in.readBoolean();', locals() ) )
+            elif ftype == "String":
+                write( interp(     '        m_$fname = readStringBinary(in);', locals() ) )
+            elif field.type[-1] == '?':
+                write( interp(     '        m_$fname.setUnresolved(readStringBinary(in));', locals() ) )
+        write(                     '    }\n' )
+
         # equals
         write(             '    public boolean equals(Object obj) {' )
         write(             '        // this isn\'t really the convention for null handling' )
@@ -550,8 +594,9 @@ def main():
     java_prepath = 'in/javasrc'
     java_postpath = 'out/javasrc'
     f =  file( specpath )
-    classes, javaOnlyClasses = parse( f.read() )
-    genjava( classes, javaOnlyClasses, java_prepath, java_postpath, javapkg )
+    spec = f.read()
+    classes, javaOnlyClasses = parse( spec )
+    genjava( classes, javaOnlyClasses, java_prepath, java_postpath, javapkg, spec )
     gencpp( classes, javaOnlyClasses, cpp_prepath, cpp_postpath )
 
 main()
@@ -21,11 +21,22 @@
 
 package org.voltdb.catalog;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import com.google_voltpatches.common.cache.Cache;
 import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.collect.MapMaker;
 import com.google_voltpatches.common.io.LineReader;
 
 /**
@@ -37,6 +48,10 @@ public class Catalog extends CatalogType {
 
     public static final char MAP_SEPARATOR = '#';
 
+    // checksum of the catalog spec the binary encoding was generated from,
+    // filled in by the catalog generator
+    static final int BINARY_SPEC_CHECKSUM = $spec_checksum;
+
     //private final HashMap<String, CatalogType> m_pathCache = new HashMap<String, CatalogType>();
     //private final PatriciaTrie<CatalogType> m_pathCache = new PatriciaTrie<>();
     Cache<String, CatalogType> m_pathCache = CacheBuilder.newBuilder().maximumSize(8).build();
@@ -45,6 +60,12 @@ public class Catalog extends CatalogType {
 
     CatalogMap<Cluster> m_clusters;
 
+    // copies of this catalog that may still share parts of it, see CatalogMap.copyFrom()
+    // (weak keys are compared by identity)
+    private final Set<Catalog> m_sharedCopies =
+        Collections.newSetFromMap(new MapMaker().weakKeys().<Catalog, Boolean>makeMap());
+    private volatile boolean m_hasSharedCopies = false;
+
     /**
      * Create a new Catalog hierarchy.
      */
@@ -64,6 +85,11 @@ public class Catalog extends CatalogType {
         return this;
     }
 
+    @Override
+    void catalogWillModify() {
+        willModify();
+    }
+
     @Override
     public String getCatalogPath() {
         return "/";
@@ -226,6 +252,54 @@ public class Catalog extends CatalogType {
         return sb.toString();
     }
 
+    /**
+     * Serialize the catalog to a compact binary representation that
+     * {@link #deserializeBinary(byte[])} reads much faster than
+     * {@link #execute(String)} parses the commands from {@link #serialize()}.
+     * The encoding is only readable by code generated from the same catalog spec.
+     * @return The binary representation of the catalog.
+     */
+    public byte[] serializeBinary() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(BINARY_SPEC_CHECKSUM);
+            writeTreeBinary(out);
+            out.flush();
+        } catch (IOException e) {
+            // writes to a byte array don't fail
+            throw new CatalogException(e.getMessage());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Create a catalog from the output of {@link #serializeBinary()}.
+     * @param bytes The binary representation of a catalog.
+     * @return The new catalog.
+     */
+    public static Catalog deserializeBinary(byte[] bytes) {
+        Catalog catalog = new Catalog();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            int checksum = in.readInt();
+            if (checksum != BINARY_SPEC_CHECKSUM) {
+                throw new CatalogException(String.format(
+                        "Binary catalog was written for catalog spec %08x, this is %08x",
+                        checksum, BINARY_SPEC_CHECKSUM));
+            }
+            catalog.readTreeBinary(in);
+        } catch (IOException e) {
+            throw new CatalogException("Truncated binary catalog: " + e.getMessage());
+        }
+        return catalog;
+    }
+
+    /**
+     * Copy this catalog. The copy shares the contents of this catalog and
+     * only copies the parts that get used, see {@link CatalogMap}. Changes
+     * to this catalog are never visible in the copy.
+     */
     public Catalog deepCopy() {
         Catalog copy = new Catalog();
         // Note that CatalogType.deepCopy isn't called on the catalog node.
@@ -236,6 +310,35 @@ public class Catalog extends CatalogType {
         return copy;
     }
 
+    synchronized void addSharedCopy(Catalog copy) {
+        if (copy != this) {
+            m_sharedCopies.add(copy);
+            m_hasSharedCopies = true;
+        }
+    }
+
+    /**
+     * Called before any change to this catalog. Copies still sharing parts
+     * of it take their own copies of everything first.
+     */
+    void willModify() {
+        if (m_hasSharedCopies) {
+            materializeSharedCopies();
+        }
+    }
+
+    private void materializeSharedCopies() {
+        List<Catalog> copies;
+        synchronized (this) {
+            copies = new ArrayList<Catalog>(m_sharedCopies);
+            m_sharedCopies.clear();
+            m_hasSharedCopies = false;
+        }
+        for (Catalog copy : copies) {
+            copy.m_clusters.materializeAll();
+        }
+    }
+
     /** GETTER: The set of the clusters in this catalog */
     public CatalogMap<Cluster> getClusters() {
         return m_clusters;
@@ -273,6 +376,16 @@ public class Catalog extends CatalogType {
         // also not used as Catalog overrides the calling method of CatalogType
     }
 
+    @Override
+    void writeFieldsBinary(DataOutput out) {
+        // no fields to write
+    }
+
+    @Override
+    void readFieldsBinary(DataInput in) {
+        // no fields to read
+    }
+
     @Override
     public boolean equals(Object obj) {
         // this isn't really the convention for null handling
@@ -1198,6 +1198,11 @@ public class CatalogDiffEngine {
         assert(prevMap != null);
         assert(newMap != null);
 
+        // a copy still sharing the items of the map it was copied from has no changes
+        if (newMap.sharesItemsWith(prevMap)) {
+            return;
+        }
+
         // in previous, not in new
         for (CatalogType prevType : prevMap) {
             String name = prevType.getTypeName();
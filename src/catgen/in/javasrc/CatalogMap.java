@@ -32,11 +32,18 @@ import java.util.TreeMap;
  * catalog commands and execute them on the root Catalog instance. By
  * generating commands, transactional safety is easier to assure.
  *
+ * A map copied by {@link Catalog#deepCopy()} shares the items of the map it
+ * was copied from until the copy is first used. Only then are its direct
+ * children copied, and their own child maps are again shared, so copying
+ * a catalog only costs as much as the parts of the copy that get used.
+ *
  * @param <T> The subclass of CatalogType that this map will contain.
  */
 public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
 
     TreeMap<String, T> m_items = null;
+    // map whose items this map shares until they are copied on first use
+    volatile CatalogMap<T> m_copySource = null;
     Class<T> m_cls;
     Catalog m_catalog;
     CatalogType m_parent;
@@ -82,11 +89,13 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @return The item found in the map, or null if not found
      */
     public T get(String name) {
+        materialize();
         if (m_items == null) return null;
         return m_items.get(name.toUpperCase());
     }
 
     public T getExact(String name) {
+        materialize();
         if (m_items == null) return null;
         return m_items.get(name);
     }
@@ -97,6 +106,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @return The item found in the map, or null if not found
      */
     public T getIgnoreCase(String name) {
+        materialize();
         if (m_items == null) return null;
         return m_items.get(name.toUpperCase());
     }
@@ -106,6 +116,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @return The number of items in the map
      */
     public int size() {
+        materialize();
         if (m_items == null) return 0;
         return m_items.size();
     }
@@ -115,6 +126,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @return A boolean indicating whether the map is empty
      */
     public boolean isEmpty() {
+        materialize();
         if (m_items == null) return true;
         return (m_items.size() == 0);
     }
@@ -125,6 +137,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      */
     @Override
     public Iterator<T> iterator() {
+        materialize();
         if (m_items == null) {
             m_items = new TreeMap<String, T>();
         }
@@ -139,6 +152,8 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @return The newly created CatalogType instance
      */
     public T add(String name) {
+        m_catalog.willModify();
+        materialize();
         try {
             if (m_items == null) {
                 m_items = new TreeMap<String, T>();
@@ -170,6 +185,8 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
      * @param name The name of the object to remove.
      */
     public void delete(String name) {
+        m_catalog.willModify();
+        materialize();
         try {
             String mapKey = name.toUpperCase();
             if ((m_items == null) || (m_items.containsKey(mapKey) == false)) {
@@ -196,18 +213,79 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
         }
     }
 
+    /**
+     * Make this map a copy of the given map. The items are shared until this
+     * map is first used, and a change to the catalog of the given map copies
+     * them before it is made.
+     */
     @SuppressWarnings("unchecked")
     void copyFrom(CatalogMap<? extends CatalogType> catalogMap) {
-        CatalogMap<T> castedMap = (CatalogMap<T>) catalogMap;
-        m_hasComputedOrder = castedMap.m_hasComputedOrder;
-        if (castedMap.m_items == null) {
+        CatalogMap<T> source = (CatalogMap<T>) catalogMap;
+        // share with the map that owns the items, not with another copy of it, so a
+        // chain of catalog copies doesn't keep every catalog in the chain reachable
+        CatalogMap<T> owner = source.m_copySource;
+        if (owner != null) {
+            owner.m_catalog.addSharedCopy(m_catalog);
+            source.m_catalog.addSharedCopy(m_catalog);
+            m_copySource = owner;
+        }
+        else {
+            source.m_catalog.addSharedCopy(m_catalog);
+            m_copySource = source;
+        }
+    }
+
+    /**
+     * True if this map still shares its items with the given map, or the two
+     * share the items of a third map, which means they have the same contents.
+     */
+    boolean sharesItemsWith(CatalogMap<? extends CatalogType> other) {
+        CatalogMap<T> source = m_copySource;
+        CatalogMap<? extends CatalogType> otherSource = other.m_copySource;
+        return (source != null && (source == other || source == otherSource)) ||
+               (otherSource != null && otherSource == this);
+    }
+
+    /**
+     * Copy the shared items, if any. Children of the copied items share their
+     * own child maps in turn.
+     */
+    void materialize() {
+        if (m_copySource != null) {
+            copySharedItems();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void copySharedItems() {
+        CatalogMap<T> source = m_copySource;
+        if (source == null) {
             return;
         }
+        source.materialize();
+        m_hasComputedOrder = source.m_hasComputedOrder;
+        if (source.m_items != null) {
+            TreeMap<String, T> items = new TreeMap<String, T>();
+            for (Entry<String, T> e : source.m_items.entrySet()) {
+                items.put(e.getKey(), (T) e.getValue().deepCopy(m_catalog, this));
+            }
+            m_items = items;
+        }
+        m_copySource = null;
+    }
+
+    /**
+     * Copy the shared items of this map and of every map below it.
+     */
+    void materializeAll() {
+        materialize();
         if (m_items == null) {
-            m_items = new TreeMap<String, T>();
+            return;
         }
-        for (Entry<String, T> e : castedMap.m_items.entrySet()) {
-            m_items.put(e.getKey(), (T) e.getValue().deepCopy(m_catalog, this));
+        for (T item : m_items.values()) {
+            for (String childCollection : item.getChildCollections()) {
+                item.getCollection(childCollection).materializeAll();
+            }
         }
     }
 
@@ -226,6 +304,9 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
         @SuppressWarnings("unchecked")
         CatalogMap<T> other = (CatalogMap<T>) obj;
 
+        if (sharesItemsWith(other))
+            return true;
+
         if (other.size() != size())
             return false;
 
@@ -247,6 +328,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
 
     @Override
     public int hashCode() {
+        materialize();
         if (m_items == null) return 0;
 
         // based on implementation of equals
@@ -266,6 +348,7 @@ public final class CatalogMap<T extends CatalogType> implements Iterable<T> {
     }
 
     void recomputeRelativeIndexes() {
+        materialize();
         if (m_items == null) return;
 
         // assign a relative index to every child item
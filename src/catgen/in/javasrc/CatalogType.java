@@ -21,8 +21,13 @@
 
 package org.voltdb.catalog;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.reflect.Field;
 
+import com.google_voltpatches.common.base.Charsets;
+
 
 /**
  * The base class for all objects in the Catalog. CatalogType instances all
@@ -172,6 +177,16 @@ public abstract class CatalogType implements Comparable<CatalogType> {
         return m_parentMap.m_catalog;
     }
 
+    /**
+     * Called before any field of this item changes. Items that were never added
+     * to a catalog, like the system procedure stand-ins, have no copies to protect.
+     */
+    void catalogWillModify() {
+        if (m_parentMap != null) {
+            m_parentMap.m_catalog.willModify();
+        }
+    }
+
     /**
      * Get the index of this catalog node relative to its
      * siblings
@@ -287,6 +302,58 @@ public abstract class CatalogType implements Comparable<CatalogType> {
 
     abstract void copyFields(CatalogType obj);
 
+    /**
+     * Write the values of the fields, not the child collections, in the
+     * order of {@link #getFields()}. References are written as paths.
+     */
+    abstract void writeFieldsBinary(DataOutput out) throws IOException;
+
+    abstract void readFieldsBinary(DataInput in) throws IOException;
+
+    void writeTreeBinary(DataOutput out) throws IOException {
+        writeFieldsBinary(out);
+        for (String childCollection : getChildCollections()) {
+            CatalogMap<? extends CatalogType> map = getCollection(childCollection);
+            out.writeInt(map.size());
+            for (CatalogType child : map) {
+                writeStringBinary(out, child.m_typename);
+                child.writeTreeBinary(out);
+            }
+        }
+    }
+
+    void readTreeBinary(DataInput in) throws IOException {
+        readFieldsBinary(in);
+        for (String childCollection : getChildCollections()) {
+            CatalogMap<? extends CatalogType> map = getCollection(childCollection);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                map.add(readStringBinary(in)).readTreeBinary(in);
+            }
+        }
+    }
+
+    static void writeStringBinary(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // not writeUTF, plans can be longer than 64k
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readStringBinary(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
     CatalogType deepCopy(Catalog catalog, CatalogMap<? extends CatalogType> parentMap) {
 
         CatalogType copy = null;
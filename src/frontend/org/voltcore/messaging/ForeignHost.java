@@ -23,6 +23,8 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -65,6 +67,21 @@ public class ForeignHost {
     private final AtomicInteger m_deadReportsCount = new AtomicInteger(0);
 
     public static final int POISON_PILL = -1;
+    // destination count of a frame that holds a batch of messages
+    public static final int MESSAGE_BATCH = -2;
+    // destination count of a batched message going from the same source to the same destinations as the previous one
+    private static final int SAME_ROUTE = -1;
+
+    /*
+     * Messages sent while the network thread hasn't picked up the previous ones
+     * are added to the same batch, which goes out as a single frame. A batch is
+     * sealed once it holds this many bytes or messages so frames stay well under
+     * the receiver's maximum message length while the network thread lags.
+     */
+    static final int BATCH_MAX_BYTES = Integer.getInteger("HOST_MESSAGE_BATCH_MAX_BYTES", 2 * 1024 * 1024);
+    static final int BATCH_MAX_MESSAGES = Integer.getInteger("HOST_MESSAGE_BATCH_MAX_MESSAGES", 4096);
+    private final Object m_batchLock = new Object();
+    private MessageBatch m_pendingBatch = null;
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
@@ -197,42 +214,18 @@ public class ForeignHost {
             return;
         }
 
-        m_network.enqueue(
-                new DeferredSerialization() {
-                    @Override
-                    public final void serialize(final ByteBuffer buf) throws IOException {
-                        buf.putInt(buf.capacity() - 4);
-                        buf.putLong(message.m_sourceHSId);
-                        buf.putInt(destinations.length);
-                        for (int ii = 0; ii < destinations.length; ii++) {
-                            buf.putLong(destinations[ii]);
-                        }
-                        message.flattenToBuffer(buf);
-                        buf.flip();
-                    }
-
-                    @Override
-                    public final void cancel() {
-                    /*
-                     * Can this be removed?
-                     */
-                    }
-
-                    @Override
-                    public String toString() {
-                        return message.getClass().getName();
-                    }
-
-                    @Override
-                    public int getSerializedSize() {
-                        final int len = 4            /* length prefix */
-                                + 8            /* source hsid */
-                                + 4            /* destinationCount */
-                                + 8 * destinations.length  /* destination list */
-                                + message.getSerializedSize();
-                        return len;
-                    }
-                });
+        synchronized (m_batchLock) {
+            if (m_pendingBatch == null) {
+                m_pendingBatch = new MessageBatch();
+                // Enqueued with the lock held so a batch started after the previous one
+                // was sealed can't go out ahead of it. This only hands the batch to
+                // the network thread's task queue.
+                m_network.enqueue(m_pendingBatch);
+            }
+            if (!m_pendingBatch.add(destinations, message)) {
+                m_pendingBatch = null;
+            }
+        }
 
         long current_time = EstTime.currentTimeMillis();
         long current_delta = current_time - m_lastMessageMillis.get();
@@ -265,6 +258,121 @@ public class ForeignHost {
     }
 
 
+    /**
+     * The messages sent to this host since the network thread last serialized queued writes,
+     * up to BATCH_MAX_BYTES or BATCH_MAX_MESSAGES.
+     * A batch of one message is framed as [length][source hsid][destination count][destinations][message].
+     * A larger batch is framed as [length][message count][MESSAGE_BATCH] followed by
+     * [destination count][source hsid][destinations][message length][message] per message,
+     * where a destination count of SAME_ROUTE stands for the source and destinations of
+     * the previous message.
+     */
+    private class MessageBatch implements DeferredSerialization {
+        private final ArrayList<VoltMessage> m_messages = new ArrayList<VoltMessage>(4);
+        private final ArrayList<long[]> m_destinations = new ArrayList<long[]>(4);
+        private int m_messageSizes[];
+        private int m_serializedSize;
+        private int m_unbatchedSize;
+        private int m_addedSize;
+
+        /**
+         * Called with m_batchLock held
+         * @return false if the batch is full and must not take more messages
+         */
+        private boolean add(long destinations[], VoltMessage message) {
+            m_messages.add(message);
+            m_destinations.add(destinations);
+            m_addedSize += 4 + 8 + 8 * destinations.length + 4 + message.getSerializedSize();
+            return m_addedSize < BATCH_MAX_BYTES && m_messages.size() < BATCH_MAX_MESSAGES;
+        }
+
+        private boolean sameRoute(int index) {
+            return index > 0 &&
+                    m_messages.get(index).m_sourceHSId == m_messages.get(index - 1).m_sourceHSId &&
+                    Arrays.equals(m_destinations.get(index), m_destinations.get(index - 1));
+        }
+
+        @Override
+        public int getSerializedSize() throws IOException {
+            // No more messages can join once the network thread has picked up the batch
+            synchronized (m_batchLock) {
+                if (m_pendingBatch == this) {
+                    m_pendingBatch = null;
+                }
+            }
+
+            final int count = m_messages.size();
+            m_messageSizes = new int[count];
+            m_unbatchedSize = 0;
+            m_serializedSize = count == 1 ? 0 : 4 + 8 + 4;
+            for (int ii = 0; ii < count; ii++) {
+                final int destCount = m_destinations.get(ii).length;
+                m_messageSizes[ii] = m_messages.get(ii).getSerializedSize();
+                m_unbatchedSize += 4 + 8 + 4 + 8 * destCount + m_messageSizes[ii];
+                if (count == 1) {
+                    m_serializedSize = m_unbatchedSize;
+                } else {
+                    m_serializedSize += 4 + (sameRoute(ii) ? 0 : 8 + 8 * destCount) + 4 + m_messageSizes[ii];
+                }
+            }
+            return m_serializedSize;
+        }
+
+        @Override
+        public void serialize(final ByteBuffer buf) throws IOException {
+            buf.putInt(buf.capacity() - 4);
+            final int count = m_messages.size();
+            if (count == 1) {
+                final VoltMessage message = m_messages.get(0);
+                final long destinations[] = m_destinations.get(0);
+                buf.putLong(message.m_sourceHSId);
+                buf.putInt(destinations.length);
+                for (int ii = 0; ii < destinations.length; ii++) {
+                    buf.putLong(destinations[ii]);
+                }
+                message.flattenToBuffer(buf);
+                buf.flip();
+                return;
+            }
+
+            buf.putLong(count);
+            buf.putInt(MESSAGE_BATCH);
+            for (int ii = 0; ii < count; ii++) {
+                final VoltMessage message = m_messages.get(ii);
+                if (sameRoute(ii)) {
+                    buf.putInt(SAME_ROUTE);
+                } else {
+                    final long destinations[] = m_destinations.get(ii);
+                    buf.putInt(destinations.length);
+                    buf.putLong(message.m_sourceHSId);
+                    for (int jj = 0; jj < destinations.length; jj++) {
+                        buf.putLong(destinations[jj]);
+                    }
+                }
+                buf.putInt(m_messageSizes[ii]);
+                // messages expect to fill the buffer they are flattened to
+                final int messageEnd = buf.position() + m_messageSizes[ii];
+                buf.limit(messageEnd);
+                message.flattenToBuffer(buf.slice());
+                buf.limit(buf.capacity());
+                buf.position(messageEnd);
+            }
+            buf.flip();
+            m_network.recordBatchWritten(count, m_unbatchedSize - m_serializedSize);
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public String toString() {
+            return m_messages.size() == 1 ?
+                    m_messages.get(0).getClass().getName() :
+                    "Batch of " + m_messages.size() + " messages";
+        }
+    }
+
     String hostnameAndIPAndPort() {
         return m_network.getHostnameAndIPAndPort();
     }
@@ -344,6 +452,12 @@ public class ForeignHost {
             return;
         }
 
+        if (destCount == MESSAGE_BATCH) {
+            // the source field of a batch frame holds the number of messages
+            handleBatch(in, (int)sourceHSId);
+            return;
+        }
+
         recvDests = new long[destCount];
         for (int i = 0; i < destCount; i++) {
             recvDests[i] = in.getLong();
@@ -351,7 +465,43 @@ public class ForeignHost {
 
         final VoltMessage message =
             m_hostMessenger.getMessageFactory().createMessageFromBuffer(in, sourceHSId);
+        handleMessage(message, recvDests, destCount);
+    }
+
+    /*
+     * Decode a batch frame in place, bounding each message with the buffer's limit.
+     * The destinations array is only replaced when a message is routed differently
+     * from the one before it, so no one may hold on to it after delivery.
+     */
+    private void handleBatch(ByteBuffer in, int messageCount) throws IOException {
+        final int frameLimit = in.limit();
+        long sourceHSId = 0;
+        long recvDests[] = null;
+        int destCount = 0;
+        for (int ii = 0; ii < messageCount; ii++) {
+            final int routeCount = in.getInt();
+            if (routeCount != SAME_ROUTE) {
+                destCount = routeCount;
+                sourceHSId = in.getLong();
+                if (recvDests == null || recvDests.length < destCount) {
+                    recvDests = new long[destCount];
+                }
+                for (int jj = 0; jj < destCount; jj++) {
+                    recvDests[jj] = in.getLong();
+                }
+            }
+            final int messageSize = in.getInt();
+            final int messageEnd = in.position() + messageSize;
+            in.limit(messageEnd);
+            final VoltMessage message =
+                m_hostMessenger.getMessageFactory().createMessageFromBuffer(in, sourceHSId);
+            in.limit(frameLimit);
+            in.position(messageEnd);
+            handleMessage(message, recvDests, destCount);
+        }
+    }
 
+    private void handleMessage(VoltMessage message, long recvDests[], int destCount) {
         // ENG-1608.  We sniff for SiteFailureMessage here so
         // that a node will participate in the failure resolution protocol
         // even if it hasn't directly witnessed a node fault.
@@ -389,6 +539,10 @@ public class ForeignHost {
         message.put(errBytes);
         message.putInt(cause);
         message.flip();
+        // messages sent after the poison pill must not go out ahead of it in an earlier batch
+        synchronized (m_batchLock) {
+            m_pendingBatch = null;
+        }
         m_network.enqueue(message);
     }
 
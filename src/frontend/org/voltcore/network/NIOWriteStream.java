@@ -24,6 +24,7 @@ import java.nio.channels.SelectionKey;
 import java.util.ArrayDeque;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -65,6 +66,13 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
 
     private final int m_maxQueuedWritesBeforeBackpressure = 100;
 
+    /**
+     * Most buffers handed to the channel in a single gathering write
+     */
+    private static final int MAX_GATHERED_BUFFERS = 16;
+    private final BBContainer m_gatherContainers[] = new BBContainer[MAX_GATHERED_BUFFERS];
+    private final ByteBuffer m_gatherBuffers[] = new ByteBuffer[MAX_GATHERED_BUFFERS];
+
     private final Runnable m_offBackPressureCallback;
     private final Runnable m_onBackPressureCallback;
 
@@ -342,17 +350,22 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
                     buffer = m_currentWriteBuffer.b();
                 }
 
-                rc = channel.write(buffer);
+                if (!m_queuedBuffers.isEmpty()) {
+                    rc = gatheringWrite(channel);
+                } else {
+                    rc = channel.write(buffer);
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
+                    //Discard the buffer back to a pool if no data remains
+                    if (!buffer.hasRemaining()) {
+                        m_currentWriteBuffer.discard();
+                        m_currentWriteBuffer = null;
+                        m_messagesWritten++;
+                    }
+                }
+                if (m_currentWriteBuffer != null) {
                     if (!m_hadBackPressure) {
                         backpressureStarted();
                     }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
                 }
                 bytesWritten += rc;
 
@@ -378,4 +391,50 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
         }
         return bytesWritten;
     }
+
+    /**
+     * Write the current buffer and as many of the queued buffers as fit in one gathering write.
+     * Buffers that were written completely are discarded and the first one with data left
+     * becomes the current buffer. Buffers the write didn't reach go back on the queue
+     * in the unflipped state they were queued in.
+     */
+    private long gatheringWrite(final GatheringByteChannel channel) throws IOException {
+        int count = 1;
+        m_gatherContainers[0] = m_currentWriteBuffer;
+        m_gatherBuffers[0] = m_currentWriteBuffer.b();
+        while (count < MAX_GATHERED_BUFFERS && !m_queuedBuffers.isEmpty()) {
+            final BBContainer cont = m_queuedBuffers.poll();
+            cont.b().flip();
+            m_gatherContainers[count] = cont;
+            m_gatherBuffers[count] = cont.b();
+            count++;
+        }
+
+        long rc = 0;
+        int written = 0;
+        try {
+            rc = channel.write(m_gatherBuffers, 0, count);
+            m_currentWriteBuffer = null;
+            while (written < count && !m_gatherBuffers[written].hasRemaining()) {
+                m_gatherContainers[written].discard();
+                m_messagesWritten++;
+                written++;
+            }
+            if (written < count) {
+                m_currentWriteBuffer = m_gatherContainers[written];
+            }
+        } finally {
+            for (int ii = count - 1; ii > written; ii--) {
+                final ByteBuffer buf = m_gatherBuffers[ii];
+                buf.position(buf.limit());
+                buf.limit(buf.capacity());
+                m_queuedBuffers.offerFirst(m_gatherContainers[ii]);
+            }
+            for (int ii = 0; ii < count; ii++) {
+                m_gatherContainers[ii] = null;
+                m_gatherBuffers[ii] = null;
+            }
+        }
+        return rc;
+    }
 }
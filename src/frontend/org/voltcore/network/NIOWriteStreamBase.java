@@ -27,6 +27,7 @@ import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.RateLimitedLogger;
 
 /**
@@ -106,6 +107,13 @@ public abstract class NIOWriteStreamBase {
             processedWrites++;
             final int serializedSize = ds.getSerializedSize();
             if (serializedSize == DeferredSerialization.EMPTY_MESSAGE_LENGTH) continue;
+            if (ds instanceof GatheringDeferredSerialization) {
+                final BBContainer containers[] = ((GatheringDeferredSerialization)ds).serializeToContainers();
+                if (containers != null) {
+                    bytesQueued += queueContainers(pool, containers, serializedSize, ds);
+                    continue;
+                }
+            }
             BBContainer outCont = m_queuedBuffers.peekLast();
             ByteBuffer outbuf = null;
             if (outCont == null || !outCont.b().hasRemaining()) {
@@ -134,28 +142,64 @@ public abstract class NIOWriteStreamBase {
                 checkSloppySerialization(buf, ds);
                 buf.position(0);
                 bytesQueued += buf.remaining();
-                while (buf.hasRemaining()) {
-                    if (!outbuf.hasRemaining()) {
-                        outCont = pool.acquire();
-                        outbuf = outCont.b();
-                        outbuf.clear();
-                        m_queuedBuffers.offer(outCont);
-                    }
-                    if (outbuf.remaining() >= buf.remaining()) {
-                        outbuf.put(buf);
-                    } else {
-                        final int oldLimit = buf.limit();
-                        buf.limit(buf.position() + outbuf.remaining());
-                        outbuf.put(buf);
-                        buf.limit(oldLimit);
-                    }
-                }
+                copyToQueuedBuffers(pool, buf);
             }
         }
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
 
+    /*
+     * Copy a buffer into the pooled buffers at the end of the queue
+     */
+    private void copyToQueuedBuffers(final NetworkDBBPool pool, final ByteBuffer buf) {
+        BBContainer outCont = m_queuedBuffers.peekLast();
+        ByteBuffer outbuf = outCont == null ? null : outCont.b();
+        while (buf.hasRemaining()) {
+            if (outbuf == null || !outbuf.hasRemaining()) {
+                outCont = pool.acquire();
+                outbuf = outCont.b();
+                outbuf.clear();
+                m_queuedBuffers.offer(outCont);
+            }
+            if (outbuf.remaining() >= buf.remaining()) {
+                outbuf.put(buf);
+            } else {
+                final int oldLimit = buf.limit();
+                buf.limit(buf.position() + outbuf.remaining());
+                outbuf.put(buf);
+                buf.limit(oldLimit);
+            }
+        }
+    }
+
+    /*
+     * Queue the containers of a gathering serialization. Direct buffers go on the
+     * queue as is so they reach the socket without a copy, heap buffers are copied
+     * into pooled buffers like any other message.
+     */
+    private int queueContainers(final NetworkDBBPool pool, final BBContainer containers[],
+                                final int serializedSize, final DeferredSerialization ds) {
+        int bytesQueued = 0;
+        for (int ii = 0; ii < containers.length; ii++) {
+            final BBContainer cont = containers[ii];
+            final ByteBuffer buf = cont.b();
+            bytesQueued += buf.remaining();
+            if (buf.isDirect()) {
+                //Queued buffers are flipped when they are written, leave this one as if it was just filled
+                buf.position(buf.limit());
+                m_queuedBuffers.offer(cont);
+            } else {
+                copyToQueuedBuffers(pool, buf);
+                cont.discard();
+            }
+        }
+        if (bytesQueued != serializedSize) {
+            reportSloppySerialization(ds);
+        }
+        return bytesQueued;
+    }
+
     private static final boolean ASSERT_ON;
     static {
         boolean assertOn = false;
@@ -169,16 +213,20 @@ public abstract class NIOWriteStreamBase {
      */
     private void checkSloppySerialization(ByteBuffer buf, DeferredSerialization ds) {
         if (buf.limit() != buf.capacity()) {
-            if (ASSERT_ON) {
-                networkLog.fatal("Sloppy serialization size for message class " + ds);
-                System.exit(-1);
-            }
-            RateLimitedLogger.tryLogForMessage(
-                    System.currentTimeMillis(),
-                    1, TimeUnit.HOURS,
-                    networkLog,
-                    Level.WARN, "Sloppy serialization size for message class %s", ds);
+            reportSloppySerialization(ds);
+        }
+    }
+
+    private void reportSloppySerialization(DeferredSerialization ds) {
+        if (ASSERT_ON) {
+            networkLog.fatal("Sloppy serialization size for message class " + ds);
+            System.exit(-1);
         }
+        RateLimitedLogger.tryLogForMessage(
+                System.currentTimeMillis(),
+                1, TimeUnit.HOURS,
+                networkLog,
+                Level.WARN, "Sloppy serialization size for message class %s", ds);
     }
 
     /**
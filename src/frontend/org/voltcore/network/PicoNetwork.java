@@ -105,6 +105,14 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
     private final ConcurrentLinkedQueue<Runnable> m_tasks = new ConcurrentLinkedQueue<Runnable>();
     private volatile boolean m_shouldStop = false;//volatile boolean is sufficient
     private long m_messagesRead;
+
+    /*
+     * Messages the host messaging layer coalesced into batches, only touched by the network thread
+     */
+    private long m_batchesWritten = 0;
+    private long m_batchedMessagesWritten = 0;
+    private long m_batchBytesSaved = 0;
+    private final long m_lastBatchStats[] = new long[3];
     private int m_interestOps = 0;
     private final SocketChannel m_sc;
     private final SelectionKey m_key;
@@ -376,6 +384,7 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
             final long read = m_readStream.getBytesRead(interval);
             final long writeInfo[] = m_writeStream.getBytesAndMessagesWritten(interval);
             final long messagesRead = m_messagesRead;
+            final long batchInfo[] = getBatchStats(interval);
             retval.put(
                     m_ih.connectionId(),
                     Pair.of(
@@ -384,7 +393,10 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1]}));
+                                    writeInfo[1],
+                                    batchInfo[0],
+                                    batchInfo[1],
+                                    batchInfo[2]}));
             retval.put(
                     -1L,
                     Pair.of(
@@ -393,10 +405,37 @@ public class PicoNetwork implements Runnable, Connection, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    batchInfo[0],
+                                    batchInfo[1],
+                                    batchInfo[2] }));
             return retval;
     }
 
+    private long[] getBatchStats(boolean interval) {
+        final long current[] = new long[] { m_batchesWritten, m_batchedMessagesWritten, m_batchBytesSaved };
+        if (!interval) {
+            return current;
+        }
+        final long delta[] = new long[current.length];
+        for (int ii = 0; ii < current.length; ii++) {
+            delta[ii] = current[ii] - m_lastBatchStats[ii];
+            m_lastBatchStats[ii] = current[ii];
+        }
+        return delta;
+    }
+
+    /**
+     * Record a batch of messages that was framed as a single write, and the bytes
+     * that saved over framing each message separately. Must be called from the network
+     * thread, which is where queued writes are serialized.
+     */
+    public void recordBatchWritten(int messageCount, int bytesSaved) {
+        m_batchesWritten++;
+        m_batchedMessagesWritten += messageCount;
+        m_batchBytesSaved += bytesSaved;
+    }
+
     @Override
     public Future<Map<Long, Pair<String, long[]>>> getIOStats(final boolean interval) {
         Callable<Map<Long, Pair<String, long[]>>> task = new Callable<Map<Long, Pair<String, long[]>>>() {
@@ -508,7 +508,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                     read,
                                     messagesRead,
                                     writeInfo[0],
-                                    writeInfo[1] }));
+                                    writeInfo[1],
+                                    0,
+                                    0,
+                                    0 }));
         }
         retval.put(
                 -1L,
@@ -518,7 +521,10 @@ class VoltNetwork implements Runnable, IOStatsIntf
                                 totalRead,
                                 totalMessagesRead,
                                 totalWritten,
-                                totalMessagesWritten }));
+                                totalMessagesWritten,
+                                0,
+                                0,
+                                0 }));
         return retval;
     }
 
@@ -0,0 +1,142 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+/**
+ * Concurrent map from primitive longs to objects, for hot paths keyed by handles or ids
+ * where boxing the key and allocating an entry per insert shows up as garbage.
+ *
+ * The map is split into lock striped segments, each a {@link LongHashMap}, so puts and
+ * removes allocate nothing unless a segment has to grow. Null values are not allowed.
+ */
+public class ConcurrentLongHashMap<V> {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final LongHashMap<V>[] m_stripes;
+    private final int m_stripeShift;
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_STRIPES, 256);
+    }
+
+    /**
+     * @param stripes  number of independently locked segments, rounded up to a power of two
+     * @param expectedSize  number of entries to size the map for initially
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashMap(int stripes, int expectedSize) {
+        if (stripes < 1 || stripes > (1 << 16) || expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid stripes " + stripes + " or expected size " + expectedSize);
+        }
+        int stripeBits = 0;
+        while ((1 << stripeBits) < stripes) {
+            stripeBits++;
+        }
+        m_stripeShift = 64 - stripeBits;
+        m_stripes = new LongHashMap[1 << stripeBits];
+        final int perStripe = expectedSize >> stripeBits;
+        for (int ii = 0; ii < m_stripes.length; ii++) {
+            m_stripes[ii] = new LongHashMap<V>(perStripe);
+        }
+    }
+
+    /*
+     * The high bits of the hash select the stripe, the stripe uses the low bits for the slot
+     */
+    private LongHashMap<V> stripeFor(long key) {
+        return m_stripeShift == 64 ? m_stripes[0] : m_stripes[(int)(LongHashMap.hash(key) >>> m_stripeShift)];
+    }
+
+    public V get(long key) {
+        final LongHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value for the key or null
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        final LongHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    /**
+     * @return the removed value or null if the key wasn't present
+     */
+    public V remove(long key) {
+        final LongHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LongHashMap<V> stripe : m_stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (LongHashMap<V> stripe : m_stripes) {
+            synchronized (stripe) {
+                if (stripe.size() > 0) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Snapshot of the keys. Each stripe is copied atomically but the map as a whole is not,
+     * entries added or removed concurrently may or may not be included.
+     */
+    public long[] keys() {
+        long[] keys = new long[size()];
+        int count = 0;
+        for (LongHashMap<V> stripe : m_stripes) {
+            synchronized (stripe) {
+                if (count + stripe.size() > keys.length) {
+                    long[] grown = new long[(count + stripe.size()) * 2];
+                    System.arraycopy(keys, 0, grown, 0, count);
+                    keys = grown;
+                }
+                count = stripe.copyKeys(keys, count);
+            }
+        }
+        if (count == keys.length) {
+            return keys;
+        }
+        final long[] retval = new long[count];
+        System.arraycopy(keys, 0, retval, 0, count);
+        return retval;
+    }
+}
@@ -0,0 +1,39 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.io.IOException;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * A deferred serialization that can hand parts of its message to the write stream
+ * as existing buffers so they are written to the socket without being copied.
+ */
+public interface GatheringDeferredSerialization extends DeferredSerialization {
+    /**
+     * Serialize the message as an ordered list of containers holding
+     * {@link #getSerializedSize()} bytes between them, each with position 0
+     * and limit equal to capacity. The write stream takes ownership of the containers.
+     * Heap buffers are copied into network buffers and discarded immediately, direct
+     * buffers are queued as is and discarded once they have been written.
+     *
+     * @return the containers, or null to fall back to {@link #serialize(java.nio.ByteBuffer)}
+     */
+    BBContainer[] serializeToContainers() throws IOException;
+}
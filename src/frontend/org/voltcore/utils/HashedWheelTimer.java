@@ -0,0 +1,201 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Timer for large numbers of short timeouts that are usually cancelled, such as per request
+ * timeouts. Timeouts are hashed by deadline into a wheel of buckets that a single thread
+ * sweeps one bucket per tick. Scheduling is a CAS onto a pending stack and allocates nothing,
+ * the caller's {@link Timeout} is itself the list node.
+ *
+ * There is no cancellation. A timeout stays on the wheel until its deadline and the expire
+ * callback is expected to check whether the work it guards already completed. Expiration is
+ * accurate to one tick. Callbacks run on the timer thread and should be quick.
+ */
+public class HashedWheelTimer {
+    private static final VoltLogger LOG = new VoltLogger("HOST");
+
+    public static abstract class Timeout {
+        private long m_deadlineNanos;
+        private Timeout m_next;
+
+        /**
+         * Invoked on the timer thread once the deadline has passed
+         */
+        protected abstract void expire(long nowNanos);
+    }
+
+    private final long m_tickNanos;
+    private final int m_mask;
+    private final Timeout[] m_wheel;
+    private final long m_startNanos = System.nanoTime();
+    private final AtomicReference<Timeout> m_pending = new AtomicReference<Timeout>();
+    private final Thread m_thread;
+
+    //Set by the timer thread before it parks with nothing scheduled
+    private volatile boolean m_idle = false;
+    private volatile boolean m_shutdown = false;
+
+    //Only touched by the timer thread
+    private long m_tick = 0;
+    private int m_scheduled = 0;
+
+    //How late the timer thread was in starting to process a tick
+    private volatile long m_lastTickLagNanos = 0;
+    private volatile long m_maxTickLagNanos = 0;
+
+    /**
+     * @param tickNanos  resolution of the timer
+     * @param wheelSize  number of buckets, rounded up to a power of two. Timeouts more than
+     *                   tickNanos * wheelSize out are swept over once per revolution until due.
+     */
+    public HashedWheelTimer(String name, long tickNanos, int wheelSize) {
+        if (tickNanos <= 0 || wheelSize < 1 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid tick " + tickNanos + " or wheel size " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        m_tickNanos = tickNanos;
+        m_mask = size - 1;
+        m_wheel = new Timeout[size];
+        m_thread = CoreUtils.getThreadFactory(name).newThread(new Runnable() {
+            @Override
+            public void run() {
+                runTimer();
+            }
+        });
+    }
+
+    public void start() {
+        m_thread.start();
+    }
+
+    /**
+     * Stop the timer thread. Timeouts that haven't expired yet are dropped.
+     */
+    public void shutdown() throws InterruptedException {
+        m_shutdown = true;
+        LockSupport.unpark(m_thread);
+        if (Thread.currentThread() != m_thread) {
+            m_thread.join();
+        }
+    }
+
+    /**
+     * Expire the timeout after delayNanos. A Timeout instance can only be
+     * scheduled once.
+     */
+    public void schedule(Timeout timeout, long delayNanos) {
+        timeout.m_deadlineNanos = System.nanoTime() + delayNanos;
+        Timeout head;
+        do {
+            head = m_pending.get();
+            timeout.m_next = head;
+        } while (!m_pending.compareAndSet(head, timeout));
+        if (m_idle) {
+            LockSupport.unpark(m_thread);
+        }
+    }
+
+    public long getLastTickLagNanos() {
+        return m_lastTickLagNanos;
+    }
+
+    public long getMaxTickLagNanos() {
+        return m_maxTickLagNanos;
+    }
+
+    private void runTimer() {
+        long tickDeadline = m_startNanos + m_tickNanos;
+        while (!m_shutdown) {
+            long now = System.nanoTime();
+            if (m_scheduled == 0 && m_pending.get() == null) {
+                //Nothing to time out, sleep until something is scheduled instead of ticking
+                m_idle = true;
+                if (m_pending.get() == null) {
+                    LockSupport.park(this);
+                }
+                m_idle = false;
+                now = System.nanoTime();
+                m_tick = (now - m_startNanos) / m_tickNanos;
+                tickDeadline = m_startNanos + (m_tick + 1) * m_tickNanos;
+                continue;
+            }
+            if (now < tickDeadline) {
+                LockSupport.parkNanos(this, tickDeadline - now);
+                continue;
+            }
+
+            final long lag = now - tickDeadline;
+            m_lastTickLagNanos = lag;
+            if (lag > m_maxTickLagNanos) {
+                m_maxTickLagNanos = lag;
+            }
+
+            transferPending();
+            expireBucket(now);
+            m_tick++;
+            tickDeadline += m_tickNanos;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout = m_pending.getAndSet(null);
+        while (timeout != null) {
+            final Timeout next = timeout.m_next;
+            //Anything already due goes in the bucket about to be expired
+            final long tick = Math.max(m_tick, (timeout.m_deadlineNanos - m_startNanos) / m_tickNanos);
+            final int index = (int)(tick & m_mask);
+            timeout.m_next = m_wheel[index];
+            m_wheel[index] = timeout;
+            m_scheduled++;
+            timeout = next;
+        }
+    }
+
+    private void expireBucket(long now) {
+        final int index = (int)(m_tick & m_mask);
+        Timeout timeout = m_wheel[index];
+        Timeout remaining = null;
+        while (timeout != null) {
+            final Timeout next = timeout.m_next;
+            if (timeout.m_deadlineNanos - now <= 0) {
+                timeout.m_next = null;
+                m_scheduled--;
+                try {
+                    timeout.expire(now);
+                } catch (Throwable t) {
+                    LOG.error("Exception expiring timeout", t);
+                }
+            } else {
+                //Due on a later revolution of the wheel
+                timeout.m_next = remaining;
+                remaining = timeout;
+            }
+            timeout = next;
+        }
+        m_wheel[index] = remaining;
+    }
+}
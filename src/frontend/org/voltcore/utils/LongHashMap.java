@@ -0,0 +1,217 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map from primitive longs to objects for bookkeeping that is owned by a single thread,
+ * like the transaction and handle tracking in the initiators and the client interface.
+ *
+ * An open addressing table with linear probing and backward shift deletion, so puts and
+ * removes don't box the key or allocate an entry, only growing the table allocates.
+ * Null values are not allowed, a null slot marks it as free. Not thread safe,
+ * see {@link ConcurrentLongHashMap} for the striped, locked version.
+ */
+public class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] m_keys;
+    private Object[] m_values;
+    private int m_mask;
+    private int m_size;
+
+    public LongHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize  number of entries to size the map for initially
+     */
+    public LongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Invalid expected size " + expectedSize);
+        }
+        //Keep the table at most half full
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_mask = capacity - 1;
+    }
+
+    /*
+     * Handles and ids are mostly sequential, spread them with a multiplicative hash.
+     * The low bits select the slot, ConcurrentLongHashMap uses the high bits for the stripe.
+     */
+    static long hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        for (int ii = ((int)hash(key)) & m_mask; m_values[ii] != null; ii = (ii + 1) & m_mask) {
+            if (m_keys[ii] == key) {
+                return (V)m_values[ii];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the previous value for the key or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        int ii = ((int)hash(key)) & m_mask;
+        for (; m_values[ii] != null; ii = (ii + 1) & m_mask) {
+            if (m_keys[ii] == key) {
+                final V previous = (V)m_values[ii];
+                m_values[ii] = value;
+                return previous;
+            }
+        }
+        m_keys[ii] = key;
+        m_values[ii] = value;
+        if (++m_size * 2 > m_values.length) {
+            rehash(m_values.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value or null if the key wasn't present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        for (int ii = ((int)hash(key)) & m_mask; m_values[ii] != null; ii = (ii + 1) & m_mask) {
+            if (m_keys[ii] == key) {
+                final V previous = (V)m_values[ii];
+                shiftBack(ii);
+                m_size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    public void clear() {
+        if (m_size > 0) {
+            Arrays.fill(m_values, null);
+            m_size = 0;
+        }
+    }
+
+    /**
+     * Snapshot of the keys in no particular order, the map can be modified while
+     * walking the result.
+     */
+    public long[] keys() {
+        final long[] keys = new long[m_size];
+        copyKeys(keys, 0);
+        return keys;
+    }
+
+    /**
+     * Snapshot of the values in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        final List<V> values = new ArrayList<V>(m_size);
+        for (int ii = 0; ii < m_values.length; ii++) {
+            if (m_values[ii] != null) {
+                values.add((V)m_values[ii]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Copy the keys into the array starting at offset, which must have room for all of them
+     * @return the offset past the last key copied
+     */
+    int copyKeys(long[] keys, int offset) {
+        for (int ii = 0; ii < m_values.length; ii++) {
+            if (m_values[ii] != null) {
+                keys[offset++] = m_keys[ii];
+            }
+        }
+        return offset;
+    }
+
+    /*
+     * Close the gap left at slot free by moving back any later entry in the
+     * probe run that would no longer be reachable from its home slot
+     */
+    private void shiftBack(int free) {
+        int ii = free;
+        for (;;) {
+            ii = (ii + 1) & m_mask;
+            if (m_values[ii] == null) {
+                break;
+            }
+            final int home = ((int)hash(m_keys[ii])) & m_mask;
+            //Move the entry unless its home lies cyclically in (free, ii]
+            final boolean reachable = free <= ii ? (free < home && home <= ii) : (free < home || home <= ii);
+            if (!reachable) {
+                m_keys[free] = m_keys[ii];
+                m_values[free] = m_values[ii];
+                free = ii;
+            }
+        }
+        m_values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        final long[] oldKeys = m_keys;
+        final Object[] oldValues = m_values;
+        m_keys = new long[capacity];
+        m_values = new Object[capacity];
+        m_mask = capacity - 1;
+        for (int ii = 0; ii < oldValues.length; ii++) {
+            if (oldValues[ii] != null) {
+                int slot = ((int)hash(oldKeys[ii])) & m_mask;
+                while (m_values[slot] != null) {
+                    slot = (slot + 1) & m_mask;
+                }
+                m_keys[slot] = oldKeys[ii];
+                m_values[slot] = oldValues[ii];
+            }
+        }
+    }
+}
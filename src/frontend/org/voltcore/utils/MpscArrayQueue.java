@@ -0,0 +1,116 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded array ring buffer for many producers and a single consumer.
+ * Offering an element does not allocate. offer() fails instead of blocking
+ * when the ring is full, so the caller decides what to do with the overflow.
+ *
+ * Each slot carries a sequence number. A slot is free for the producer that claimed
+ * tail position t when its sequence is t, and holds an element for the consumer
+ * at head position h when its sequence is h + 1.
+ *
+ * poll() must only ever be called from one thread at a time.
+ */
+public class MpscArrayQueue<T> {
+    private final int m_mask;
+    private final AtomicReferenceArray<T> m_slots;
+    private final AtomicLongArray m_sequences;
+    private final AtomicLong m_tail = new AtomicLong();
+    private final AtomicLong m_head = new AtomicLong();
+
+    /**
+     * @param capacity  rounded up to the next power of two
+     */
+    public MpscArrayQueue(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ring buffer capacity " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        m_mask = size - 1;
+        m_slots = new AtomicReferenceArray<T>(size);
+        m_sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            m_sequences.set(i, i);
+        }
+    }
+
+    public int capacity() {
+        return m_mask + 1;
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        for (;;) {
+            final long tail = m_tail.get();
+            final int index = (int)(tail & m_mask);
+            final long delta = m_sequences.get(index) - tail;
+            if (delta == 0) {
+                if (m_tail.compareAndSet(tail, tail + 1)) {
+                    m_slots.lazySet(index, element);
+                    // publishes the element to the consumer
+                    m_sequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (delta < 0) {
+                return false;
+            }
+            // another producer claimed this position first, retry with the new tail
+        }
+    }
+
+    /**
+     * Single consumer only.
+     * @return the oldest element or null if the ring is empty
+     */
+    public T poll() {
+        final long head = m_head.get();
+        final int index = (int)(head & m_mask);
+        if (m_sequences.get(index) != head + 1) {
+            return null;
+        }
+        final T element = m_slots.get(index);
+        m_slots.lazySet(index, null);
+        // hand the slot back to the producer that will wrap around to it
+        m_sequences.lazySet(index, head + m_mask + 1);
+        m_head.lazySet(head + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        final long head = m_head.get();
+        return m_sequences.get((int)(head & m_mask)) != head + 1;
+    }
+
+    public int size() {
+        return (int)Math.max(0, m_tail.get() - m_head.get());
+    }
+}
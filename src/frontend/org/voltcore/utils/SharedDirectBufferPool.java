@@ -0,0 +1,163 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Pool of DirectByteBuffers that can be shared by several readers. A buffer goes back
+ * to the pool when the last reference to it is released.
+ *
+ * Buffers are plain DirectByteBuffers and not BBContainers, so a buffer whose references
+ * are never all released is not an error. It is simply never reused and its memory is
+ * reclaimed by the garbage collector like any other DirectByteBuffer.
+ */
+public class SharedDirectBufferPool {
+
+    // smallest size class is 64k, largest pooled size class is 1 << MAX_POOLED_SHIFT
+    private static final int MIN_SHIFT = 16;
+    private static final int MAX_POOLED_SHIFT = 24;
+
+    private final int m_maxBuffersPerSize;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] m_pools;
+    private final AtomicInteger[] m_pooledCounts;
+
+    private final AtomicLong m_allocations = new AtomicLong();
+    private final AtomicLong m_reuses = new AtomicLong();
+
+    /**
+     * A buffer from the pool with a count of outstanding references.
+     * It starts with one reference owned by the caller of {@link SharedDirectBufferPool#acquire(int)}.
+     */
+    public final class SharedBuffer {
+        private final ByteBuffer m_buffer;
+        private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+        private SharedBuffer(ByteBuffer buffer) {
+            m_buffer = buffer;
+        }
+
+        public ByteBuffer b() {
+            return m_buffer;
+        }
+
+        public SharedBuffer retain() {
+            final int refs = m_refCount.getAndIncrement();
+            assert(refs > 0) : "Retained a released shared buffer";
+            return this;
+        }
+
+        public void release() {
+            final int refs = m_refCount.decrementAndGet();
+            assert(refs >= 0) : "Released a shared buffer too many times";
+            if (refs == 0) {
+                recycle(m_buffer);
+            }
+        }
+
+        public int refCount() {
+            return m_refCount.get();
+        }
+
+        /**
+         * Wrap a region of this buffer in a container. One reference is handed over from
+         * the caller to the container and is released when the container is discarded.
+         */
+        public BBContainer containerFor(ByteBuffer region) {
+            return new BBContainer(region) {
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    release();
+                }
+            };
+        }
+    }
+
+    /**
+     * @param maxBuffersPerSize  number of free buffers kept for each power of two size class
+     */
+    @SuppressWarnings("unchecked")
+    public SharedDirectBufferPool(int maxBuffersPerSize) {
+        m_maxBuffersPerSize = maxBuffersPerSize;
+        m_pools = new ConcurrentLinkedQueue[MAX_POOLED_SHIFT - MIN_SHIFT + 1];
+        m_pooledCounts = new AtomicInteger[m_pools.length];
+        for (int i = 0; i < m_pools.length; i++) {
+            m_pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            m_pooledCounts[i] = new AtomicInteger();
+        }
+    }
+
+    private static int sizeClass(int capacity) {
+        final int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1 << MIN_SHIFT) - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    /**
+     * Get a buffer with at least the requested capacity. The returned buffer has its
+     * position at 0 and its limit at the requested size. The contents are not cleared.
+     */
+    public SharedBuffer acquire(int size) {
+        final int sizeClass = sizeClass(size);
+        ByteBuffer buffer = null;
+        if (sizeClass < m_pools.length) {
+            buffer = m_pools[sizeClass].poll();
+        }
+        if (buffer != null) {
+            m_pooledCounts[sizeClass].decrementAndGet();
+            m_reuses.incrementAndGet();
+        } else {
+            buffer = ByteBuffer.allocateDirect(sizeClass < m_pools.length ? 1 << (sizeClass + MIN_SHIFT) : size);
+            m_allocations.incrementAndGet();
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return new SharedBuffer(buffer);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        final int sizeClass = sizeClass(buffer.capacity());
+        if (sizeClass >= m_pools.length || buffer.capacity() != 1 << (sizeClass + MIN_SHIFT)) {
+            return;
+        }
+        if (m_pooledCounts[sizeClass].incrementAndGet() > m_maxBuffersPerSize) {
+            m_pooledCounts[sizeClass].decrementAndGet();
+            return;
+        }
+        m_pools[sizeClass].offer(buffer);
+    }
+
+    /**
+     * @return number of buffers allocated because none was free in the pool
+     */
+    public long getAllocationCount() {
+        return m_allocations.get();
+    }
+
+    /**
+     * @return number of buffers handed out again after being released
+     */
+    public long getReuseCount() {
+        return m_reuses.get();
+    }
+}
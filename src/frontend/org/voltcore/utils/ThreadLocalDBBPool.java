@@ -0,0 +1,179 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * Size classed pools of DirectByteBuffers for short lived serialization buffers, one pool
+ * per thread. As with NetworkDBBPool the owning thread takes buffers from and returns them
+ * to its pool without synchronization. A container discarded by another thread hands its
+ * buffer back through a concurrent queue that the owner drains the next time it allocates.
+ *
+ * Every container returned by {@link #allocate(int)} must be discarded exactly once. Requests
+ * larger than the largest size class are allocated directly and not pooled. Each pool keeps
+ * at most THREAD_LOCAL_DBB_BYTES of free buffers, anything beyond that is left to the
+ * garbage collector like any other DirectByteBuffer.
+ */
+public class ThreadLocalDBBPool {
+
+    // smallest size class is 256 bytes, largest pooled size class is 1 << MAX_POOLED_SHIFT
+    private static final int MIN_SHIFT = 8;
+    private static final int MAX_POOLED_SHIFT = 17;
+    private static final long MAX_POOLED_BYTES = Long.getLong("THREAD_LOCAL_DBB_BYTES", 1024 * 1024 * 4);
+
+    private static final AtomicLong s_hits = new AtomicLong();
+    private static final AtomicLong s_misses = new AtomicLong();
+    private static final AtomicLong s_outstandingBytes = new AtomicLong();
+
+    private static final ThreadLocal<ThreadLocalDBBPool> s_pools = new ThreadLocal<ThreadLocalDBBPool>() {
+        @Override
+        protected ThreadLocalDBBPool initialValue() {
+            return new ThreadLocalDBBPool(MAX_POOLED_BYTES);
+        }
+    };
+
+    private final Thread m_owner = Thread.currentThread();
+    private final long m_maxPooledBytes;
+    private final ArrayDeque<ByteBuffer>[] m_free;
+    // bytes held in m_free, only touched by the owner
+    private long m_pooledBytes = 0;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> m_returned = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicLong m_returnedBytes = new AtomicLong();
+
+    private final class PooledContainer extends BBContainer {
+        private final ByteBuffer m_buffer;
+
+        private PooledContainer(ByteBuffer buffer) {
+            super(buffer);
+            m_buffer = buffer;
+        }
+
+        @Override
+        public void discard() {
+            checkDoubleFree();
+            s_outstandingBytes.addAndGet(-m_buffer.capacity());
+            recycle(m_buffer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    ThreadLocalDBBPool(long maxPooledBytes) {
+        m_maxPooledBytes = maxPooledBytes;
+        m_free = new ArrayDeque[MAX_POOLED_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < m_free.length; i++) {
+            m_free[i] = new ArrayDeque<ByteBuffer>();
+        }
+    }
+
+    /**
+     * Get a big endian DirectByteBuffer from the calling thread's pool with at least the
+     * requested capacity. The buffer has its position at 0 and its limit at the requested
+     * size. The contents are not cleared.
+     */
+    public static BBContainer allocate(int size) {
+        return s_pools.get().acquire(size);
+    }
+
+    private static int sizeClass(int capacity) {
+        final int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1 << MIN_SHIFT) - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    BBContainer acquire(int size) {
+        final int sizeClass = sizeClass(size);
+        ByteBuffer buffer = null;
+        if (sizeClass < m_free.length) {
+            if (m_returnedBytes.get() > 0) {
+                drainReturned();
+            }
+            buffer = m_free[sizeClass].poll();
+        }
+        if (buffer != null) {
+            m_pooledBytes -= buffer.capacity();
+            s_hits.incrementAndGet();
+        } else {
+            buffer = ByteBuffer.allocateDirect(sizeClass < m_free.length ? 1 << (sizeClass + MIN_SHIFT) : size);
+            s_misses.incrementAndGet();
+        }
+        buffer.clear();
+        buffer.limit(size);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        s_outstandingBytes.addAndGet(buffer.capacity());
+        return new PooledContainer(buffer);
+    }
+
+    private void recycle(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (capacity > 1 << MAX_POOLED_SHIFT) {
+            return;
+        }
+        if (Thread.currentThread() == m_owner) {
+            recycleLocal(buffer);
+        } else if (m_returnedBytes.addAndGet(capacity) <= m_maxPooledBytes) {
+            m_returned.offer(buffer);
+        } else {
+            m_returnedBytes.addAndGet(-capacity);
+        }
+    }
+
+    private void recycleLocal(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (m_pooledBytes + capacity > m_maxPooledBytes) {
+            return;
+        }
+        m_pooledBytes += capacity;
+        m_free[sizeClass(capacity)].push(buffer);
+    }
+
+    private void drainReturned() {
+        ByteBuffer buffer;
+        while ((buffer = m_returned.poll()) != null) {
+            m_returnedBytes.addAndGet(-buffer.capacity());
+            recycleLocal(buffer);
+        }
+    }
+
+    /**
+     * @return number of allocations served from a pool
+     */
+    public static long getHitCount() {
+        return s_hits.get();
+    }
+
+    /**
+     * @return number of allocations that had to allocate a new buffer
+     */
+    public static long getMissCount() {
+        return s_misses.get();
+    }
+
+    /**
+     * @return capacity in bytes of all buffers handed out and not yet discarded
+     */
+    public static long getOutstandingBytes() {
+        return s_outstandingBytes.get();
+    }
+}
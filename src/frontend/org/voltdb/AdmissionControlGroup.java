@@ -125,15 +125,66 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
         };
     }
 
+    /**
+     * Factory to make a threadsafe version of the ACG. This is used by the
+     * in-process client sessions, which submit work from arbitrary threads
+     * rather than from the network thread that owns a regular group.
+     */
+    public static AdmissionControlGroup makeThreadSafeACG(int maxBytes, int maxRequests) {
+        return new AdmissionControlGroup(maxBytes, maxRequests) {
+            @Override
+            public synchronized void addMember(ACGMember member) {
+                super.addMember(member);
+            }
+            @Override
+            public synchronized void removeMember(ACGMember member) {
+                super.removeMember(member);
+            }
+            @Override
+            public synchronized void increaseBackpressure(int messageSize) {
+                super.increaseBackpressure(messageSize);
+            }
+            @Override
+            public synchronized void reduceBackpressure(int messageSize) {
+                super.reduceBackpressure(messageSize);
+            }
+            @Override
+            public synchronized boolean hasBackPressure() {
+                return super.hasBackPressure();
+            }
+            @Override
+            public synchronized boolean queue(int bytes) {
+                return super.queue(bytes);
+            }
+            @Override
+            public synchronized void logTransactionCompleted(
+                    long connectionId,
+                    String connectionHostname,
+                    String procedureName,
+                    long deltaNanos,
+                    byte status) {
+                super.logTransactionCompleted(connectionId, connectionHostname, procedureName, deltaNanos, status);
+            }
+            @Override
+            boolean shouldCheckThreadIdAssertion() {
+                return false;
+            }
+        };
+    }
+
+    boolean shouldCheckThreadIdAssertion() {
+        return true;
+    }
+
     public void addMember(ACGMember member)
     {
-        assert(m_expectedThreadId == Thread.currentThread().getId());
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         m_members.add(member);
     }
 
     public void removeMember(ACGMember member)
     {
-        assert(m_expectedThreadId == Thread.currentThread().getId());
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         m_members.remove(member);
         m_connectionStates.remove(member.connectionId());
     }
@@ -145,7 +196,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
      */
     public void increaseBackpressure(int messageSize)
     {
-        assert(m_expectedThreadId == Thread.currentThread().getId());
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (messageSize < 1) {
             throw new IllegalArgumentException("Message size must be > 0 but was " + messageSize);
         }
@@ -205,7 +256,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
      */
     public void reduceBackpressure(int messageSize)
     {
-        assert(m_expectedThreadId == Thread.currentThread().getId());
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (messageSize < 1) {
             throw new IllegalArgumentException("Message size must be > 0 but was " + messageSize);
         }
@@ -20,6 +20,11 @@ package org.voltdb;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -29,9 +34,12 @@ import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Deployment;
+import org.voltdb.catalog.PlanFragment;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
+import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
+import org.voltdb.common.Constants;
 import org.voltdb.compiler.PlannerTool;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.utils.CatalogUtil;
@@ -84,6 +92,8 @@ public class CatalogContext {
 
     // Some people may be interested in the JAXB rather than the raw deployment bytes.
     private DeploymentType m_memoizedDeployment;
+    private Map<String, byte[]> m_memoizedProcedureFingerprints;
+    private byte[] m_memoizedClassFingerprint;
 
     public CatalogContext(
             long transactionId,
@@ -346,4 +356,74 @@ public class CatalogContext {
     {
         return catalogHash;
     }
+
+    /**
+     * SHA-1 over the definition of a user procedure: its statements and their plans.
+     * A runner built from one catalog can keep running under another that gives
+     * its procedure the same fingerprint and has the same jar classes, see
+     * {@link #getClassFingerprint()}. Memoized.
+     * @return the fingerprint, or null if there is no such user procedure
+     */
+    public synchronized byte[] getProcedureFingerprint(String procName)
+    {
+        if (m_memoizedProcedureFingerprints == null) {
+            Map<String, byte[]> fingerprints = new HashMap<String, byte[]>();
+            for (Procedure proc : procedures) {
+                if (proc.getTypeName().startsWith("@")) {
+                    continue;
+                }
+                StringBuilder sb = new StringBuilder();
+                sb.append(proc.getClassname()).append('\0')
+                  .append(proc.getLanguage()).append('\0')
+                  .append(proc.getHasjava()).append(proc.getReadonly())
+                  .append(proc.getSinglepartition()).append(proc.getEverysite())
+                  .append(proc.getPartitionparameter()).append('\0');
+                if (proc.getPartitiontable() != null) {
+                    sb.append(proc.getPartitiontable().getTypeName());
+                }
+                for (Statement stmt : proc.getStatements()) {
+                    sb.append('\0').append(stmt.getTypeName()).append('\0').append(stmt.getSqltext());
+                    for (PlanFragment frag : stmt.getFragments()) {
+                        sb.append('\0').append(frag.getPlanhash());
+                    }
+                }
+                MessageDigest md = sha1();
+                md.update(sb.toString().getBytes(Constants.UTF8ENCODING));
+                fingerprints.put(proc.getTypeName(), md.digest());
+            }
+            m_memoizedProcedureFingerprints = fingerprints;
+        }
+        return m_memoizedProcedureFingerprints.get(procName);
+    }
+
+    /**
+     * SHA-1 over the classes in the jar. Procedure classes can use any of them,
+     * so a runner can only outlive its catalog if they are all unchanged. Memoized.
+     */
+    public synchronized byte[] getClassFingerprint()
+    {
+        if (m_memoizedClassFingerprint == null) {
+            MessageDigest md = sha1();
+            // the jarfile iterates in key order
+            for (Entry<String, byte[]> e : m_jarfile.entrySet()) {
+                if (e.getKey().endsWith(".class")) {
+                    md.update(e.getKey().getBytes(Constants.UTF8ENCODING));
+                    md.update(e.getValue());
+                }
+            }
+            m_memoizedClassFingerprint = md.digest();
+        }
+        return m_memoizedClassFingerprint;
+    }
+
+    private static MessageDigest sha1()
+    {
+        MessageDigest md = null;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            VoltDB.crashLocalVoltDB("Bad JVM has no SHA-1 hash.", true, e);
+        }
+        return md;
+    }
 }
@@ -68,8 +68,10 @@ import org.voltcore.network.VoltPort;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.network.WriteStream;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.AuthSystem.AuthProvider;
@@ -238,6 +240,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     };
 
+    /*
+     * In-process client sessions (the HTTP/JSON API) submit work from whatever thread
+     * serves the request, so they share a thread-safe ACG of their own rather than
+     * borrowing a network thread's.
+     */
+    private final AdmissionControlGroup m_internalSessionACG =
+            AdmissionControlGroup.makeThreadSafeACG(1024 * 1024 * 8, 1000);
+
     // IV2 doesn't use this at all. Leave it here for now for legacy.
     private final int m_allPartitions[];
     private ImmutableMap<Integer, Long> m_localReplicas = ImmutableMap.<Integer, Long>builder().build();
@@ -882,7 +892,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
      * Runs on the network thread to prepare client response. If a transaction needs to be
      * restarted, it will get restarted here.
      */
-    private class ClientResponseWork implements DeferredSerialization {
+    private class ClientResponseWork implements GatheringDeferredSerialization {
         private final ClientInterfaceHandleManager cihm;
         private final InitiateResponseMessage response;
         private final Procedure catProc;
@@ -905,6 +915,12 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             clientResponse.flattenToBuffer(buf);
         }
 
+        @Override
+        public BBContainer[] serializeToContainers()
+        {
+            return clientResponse.flattenToContainers(true);
+        }
+
         @Override
         public void cancel() {
         }
@@ -1158,6 +1174,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         m_adminAcceptor = null;
         m_adminAcceptor = new ClientAcceptor(adminIntf, adminPort, messenger.getNetwork(), true);
         m_invocationValidator = new InvocationValidator(replicationRole);
+        m_allACGs.add(m_internalSessionACG);
 
         m_mailbox = new LocalMailbox(messenger,  messenger.getHSIdForLocalSite(HostMessenger.CLIENT_INTERFACE_SITE_ID)) {
             LinkedBlockingQueue<VoltMessage> m_d = new LinkedBlockingQueue<VoltMessage>();
@@ -1184,7 +1201,13 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     if (cihm != null) {
                         //Pass it to the network thread like a ninja
                         //Only the network can use the CIHM
-                        cihm.connection.writeStream().fastEnqueue(new ClientResponseWork(response, cihm, procedure));
+                        ClientResponseWork work = new ClientResponseWork(response, cihm, procedure);
+                        if (cihm.batchesResponses()) {
+                            ClientResponseBatch.deliver(cihm, work);
+                        }
+                        else {
+                            cihm.connection.writeStream().fastEnqueue(work);
+                        }
                     }
                 } else if (message instanceof BinaryPayloadMessage) {
                     handlePartitionFailOver((BinaryPayloadMessage)message);
@@ -1287,9 +1310,31 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
      * Tell the clientInterface about a connection adapter.
      */
     public void bindAdapter(final Connection adapter, final ClientInterfaceRepairCallback repairCallback) {
+        bindAdapter(adapter, repairCallback, true, AdmissionControlGroup.getDummy());
+    }
+
+    void bindAdapter(final Connection adapter, final ClientInterfaceRepairCallback repairCallback,
+            boolean isAdmin, AdmissionControlGroup acg) {
         m_cihm.put(adapter.connectionId(),
-                ClientInterfaceHandleManager.makeThreadSafeCIHM(true, adapter, repairCallback,
-                    AdmissionControlGroup.getDummy()));
+                ClientInterfaceHandleManager.makeThreadSafeCIHM(isAdmin, adapter, repairCallback, acg));
+    }
+
+    /**
+     * Forget a connection adapter, releasing whatever it still has outstanding.
+     */
+    void unbindAdapter(final Connection adapter) {
+        ClientInterfaceHandleManager cihm = m_cihm.remove(adapter.connectionId());
+        if (cihm != null) {
+            cihm.freeOutstandingTxns();
+        }
+    }
+
+    /**
+     * Create a session that submits invocations directly into this ClientInterface on
+     * behalf of an already authenticated user, without a client connection.
+     */
+    public InternalClientSession createInternalClientSession(String username, boolean isAdmin, String name) {
+        return new InternalClientSession(this, new ClientInputHandler(username, isAdmin), name, m_internalSessionACG);
     }
 
     // if this ClientInterface's site ID is the lowest non-execution site ID
@@ -21,18 +21,14 @@ import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
+import org.voltcore.utils.LongHashMap;
 import org.voltdb.iv2.MpInitiator;
 
-import com.google_voltpatches.common.collect.ImmutableMap;
-import com.google_voltpatches.common.collect.ImmutableMap.Builder;
-
 /**
  * This manages per-partition handles used to identify responses for
  * work done in IV2.  Since the work generated for a partition at each client interface
@@ -63,9 +59,13 @@ public class ClientInterfaceHandleManager
 
     private volatile boolean m_wantsTopologyUpdates = false;
 
+    // Responses waiting to go to the connection together, see ClientResponseBatch
+    final Object m_responseBatchLock = new Object();
+    ClientResponseBatch m_pendingResponses = null;
+
     private HandleGenerator m_shortCircuitHG = new HandleGenerator(SHORT_CIRCUIT_PART_ID);
 
-    private final Map<Long, Iv2InFlight> m_shortCircuitReads = new HashMap<Long, Iv2InFlight>();
+    private final LongHashMap<Iv2InFlight> m_shortCircuitReads = new LongHashMap<Iv2InFlight>();
 
     private static class HandleGenerator
     {
@@ -131,8 +131,7 @@ public class ClientInterfaceHandleManager
         }
     }
 
-    private ImmutableMap<Integer, PartitionData> m_partitionStuff =
-            new Builder<Integer, PartitionData>().build();
+    private final LongHashMap<PartitionData> m_partitionStuff = new LongHashMap<PartitionData>();
 
     ClientInterfaceHandleManager(boolean isAdmin, Connection connection, ClientInterfaceRepairCallback repairCallback, AdmissionControlGroup acg)
     {
@@ -186,6 +185,12 @@ public class ClientInterfaceHandleManager
             {
                 return false;
             }
+
+            @Override
+            boolean batchesResponses()
+            {
+                return false;
+            }
         };
     }
 
@@ -215,10 +220,7 @@ public class ClientInterfaceHandleManager
         PartitionData partitionStuff = m_partitionStuff.get(partitionId);
         if (partitionStuff == null) {
             partitionStuff = new PartitionData(partitionId);
-            m_partitionStuff =
-                    new Builder<Integer, PartitionData>().
-                        putAll(m_partitionStuff).
-                        put(partitionId, partitionStuff).build();
+            m_partitionStuff.put(partitionId, partitionStuff);
         }
 
         long ciHandle =
@@ -447,14 +449,11 @@ public class ClientInterfaceHandleManager
          * MP short circuit reads can be remote, which necessitate repair
          */
         if (partitionId == MpInitiator.MP_INIT_PID) {
-            Iterator<Map.Entry<Long, Iv2InFlight>> itr =
-                    m_shortCircuitReads.entrySet().iterator();
-            while (itr.hasNext()) {
-                Map.Entry<Long, Iv2InFlight> e = itr.next();
-                Iv2InFlight entry = e.getValue();
+            for (long ciHandle : m_shortCircuitReads.keys()) {
+                Iv2InFlight entry = m_shortCircuitReads.get(ciHandle);
 
                 if (entry.m_initiatorHSId != initiatorHSId) {
-                    itr.remove();
+                    m_shortCircuitReads.remove(ciHandle);
                     retval.add(entry);
                     m_outstandingTxns--;
                     m_acg.reduceBackpressure(entry.m_messageSize);
@@ -486,6 +485,12 @@ public class ClientInterfaceHandleManager
         return true;
     }
 
+    // Internal adapters serialize each response as it is enqueued and expect
+    // one per buffer, so only network connections get their responses batched.
+    boolean batchesResponses() {
+        return true;
+    }
+
     public void setWantsTopologyUpdates(boolean wantsTopologyUpdates) {
         m_wantsTopologyUpdates = wantsTopologyUpdates;
     }
@@ -0,0 +1,226 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.GatheringDeferredSerialization;
+
+/**
+ * Responses bound for one client connection that are handed to its write stream
+ * as a single deferred serialization. Sites add responses to the connection's
+ * pending batch and only the response that starts a batch enqueues it, so the
+ * network thread gets one task per batch instead of one per response, and the
+ * responses are serialized back to back into the same network buffers.
+ *
+ * A batch stops taking responses when the network thread sizes it, when it holds
+ * MAX_RESPONSES, or when it is enqueued after CLIENT_RESPONSE_BATCH_WINDOW_MICROS.
+ * With the default window of 0 it is enqueued right away and takes whatever
+ * arrives before the network thread gets to it.
+ *
+ * Batches of a connection are enqueued in the order they were started, which
+ * keeps the responses of each partition in order.
+ */
+class ClientResponseBatch implements GatheringDeferredSerialization {
+
+    static final long WINDOW_MICROS = Long.getLong("CLIENT_RESPONSE_BATCH_WINDOW_MICROS", 0);
+    static final int MAX_RESPONSES = Integer.getInteger("CLIENT_RESPONSE_BATCH_MAX_RESPONSES", 256);
+
+    private final ClientInterfaceHandleManager m_cihm;
+    private final ArrayList<GatheringDeferredSerialization> m_responses =
+            new ArrayList<GatheringDeferredSerialization>();
+    // guarded by the CIHM's batch lock
+    private boolean m_sealed = false;
+    private boolean m_enqueued = false;
+    // sizes of the responses, only touched by the network thread once sealed
+    private int m_sizes[];
+
+    private ClientResponseBatch(ClientInterfaceHandleManager cihm) {
+        m_cihm = cihm;
+    }
+
+    /**
+     * Hand a response to the connection, adding it to the pending batch if there
+     * is one still open.
+     */
+    static void deliver(ClientInterfaceHandleManager cihm, GatheringDeferredSerialization response) {
+        synchronized (cihm.m_responseBatchLock) {
+            ClientResponseBatch batch = cihm.m_pendingResponses;
+            if (batch != null && !batch.m_sealed) {
+                batch.m_responses.add(response);
+                if (batch.m_responses.size() >= MAX_RESPONSES) {
+                    batch.enqueueLocked();
+                    cihm.m_pendingResponses = null;
+                }
+                return;
+            }
+            batch = new ClientResponseBatch(cihm);
+            batch.m_responses.add(response);
+            cihm.m_pendingResponses = batch;
+            if (WINDOW_MICROS <= 0) {
+                batch.enqueueLocked();
+            }
+            else {
+                batch.scheduleEnqueue();
+            }
+        }
+    }
+
+    private void scheduleEnqueue() {
+        VoltDB.instance().schedulePriorityWork(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (m_cihm.m_responseBatchLock) {
+                    if (m_cihm.m_pendingResponses == ClientResponseBatch.this) {
+                        m_cihm.m_pendingResponses = null;
+                    }
+                    enqueueLocked();
+                }
+            }
+        }, WINDOW_MICROS, 0, TimeUnit.MICROSECONDS);
+    }
+
+    /*
+     * Enqueued while holding the batch lock so that a batch started after this
+     * one can't overtake it on the way to the network thread.
+     */
+    private void enqueueLocked() {
+        if (m_enqueued) {
+            return;
+        }
+        m_enqueued = true;
+        m_cihm.connection.writeStream().fastEnqueue(this);
+    }
+
+    /**
+     * Runs on the network thread. Closes the batch and sizes every response,
+     * which also does their handle bookkeeping and restarts.
+     */
+    @Override
+    public int getSerializedSize() throws IOException {
+        synchronized (m_cihm.m_responseBatchLock) {
+            m_sealed = true;
+            if (m_cihm.m_pendingResponses == this) {
+                m_cihm.m_pendingResponses = null;
+            }
+        }
+        m_sizes = new int[m_responses.size()];
+        int total = 0;
+        for (int i = 0; i < m_sizes.length; i++) {
+            m_sizes[i] = m_responses.get(i).getSerializedSize();
+            if (m_sizes[i] != DeferredSerialization.EMPTY_MESSAGE_LENGTH) {
+                total += m_sizes[i];
+            }
+        }
+        return total == 0 ? DeferredSerialization.EMPTY_MESSAGE_LENGTH : total;
+    }
+
+    /**
+     * Responses that carry pooled result buffers pass them through as is, the
+     * ones in between are serialized into shared heap segments. If none carries
+     * pooled buffers, fall back to serializing the whole batch into network buffers.
+     */
+    @Override
+    public BBContainer[] serializeToContainers() throws IOException {
+        BBContainer gathered[][] = null;
+        for (int i = 0; i < m_sizes.length; i++) {
+            if (m_sizes[i] == DeferredSerialization.EMPTY_MESSAGE_LENGTH) {
+                continue;
+            }
+            BBContainer containers[] = m_responses.get(i).serializeToContainers();
+            if (containers != null) {
+                if (gathered == null) {
+                    gathered = new BBContainer[m_sizes.length][];
+                }
+                gathered[i] = containers;
+            }
+        }
+        if (gathered == null) {
+            return null;
+        }
+
+        ArrayList<BBContainer> result = new ArrayList<BBContainer>();
+        int i = 0;
+        while (i < m_sizes.length) {
+            if (gathered[i] != null) {
+                for (BBContainer c : gathered[i]) {
+                    result.add(c);
+                }
+                i++;
+                continue;
+            }
+            // serialize the run of plain responses up to the next gathered one
+            int end = i;
+            int runSize = 0;
+            while (end < m_sizes.length && gathered[end] == null) {
+                if (m_sizes[end] != DeferredSerialization.EMPTY_MESSAGE_LENGTH) {
+                    runSize += m_sizes[end];
+                }
+                end++;
+            }
+            if (runSize > 0) {
+                ByteBuffer heap = ByteBuffer.allocate(runSize);
+                serializeRange(heap, i, end);
+                heap.flip();
+                result.add(DBBPool.wrapBB(heap));
+            }
+            i = end;
+        }
+        return result.toArray(new BBContainer[result.size()]);
+    }
+
+    @Override
+    public void serialize(ByteBuffer buf) throws IOException {
+        serializeRange(buf, 0, m_sizes.length);
+    }
+
+    /*
+     * Each response writes its own length prefix from the capacity of the buffer
+     * it's given, so give each one a slice of exactly its size.
+     */
+    private void serializeRange(ByteBuffer buf, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            final int size = m_sizes[i];
+            if (size == DeferredSerialization.EMPTY_MESSAGE_LENGTH) {
+                continue;
+            }
+            final int oldLimit = buf.limit();
+            buf.limit(buf.position() + size);
+            m_responses.get(i).serialize(buf.slice());
+            buf.position(buf.limit());
+            buf.limit(oldLimit);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        for (GatheringDeferredSerialization response : m_responses) {
+            response.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClientResponseBatch of " + m_responses.size();
+    }
+}
@@ -19,11 +19,16 @@ package org.voltdb;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
@@ -210,6 +215,78 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
      * @return buf to allow call chaining.
      */
     public ByteBuffer flattenToBuffer(ByteBuffer buf) {
+        flattenHeaderToBuffer(buf);
+        for (VoltTable vt : results)
+        {
+            vt.flattenToBuffer(buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Serialize the response for a gathering write. Tables backed by pooled direct
+     * buffers are returned as containers over those buffers so they are never copied,
+     * everything else is serialized into heap buffers that sit between them.
+     * The containers take over the tables' references to their pooled buffers.
+     *
+     * @param lengthPrefix  precede the response with its serialized length
+     * @return the containers in write order, or null if no table is backed by a pooled buffer
+     */
+    public BBContainer[] flattenToContainers(boolean lengthPrefix) {
+        SharedBuffer pooled[] = null;
+        for (int i = 0; i < results.length; i++) {
+            final SharedBuffer buffer = PrivateVoltTableFactory.detachPooledBuffer(results[i]);
+            if (buffer != null) {
+                if (pooled == null) {
+                    pooled = new SharedBuffer[results.length];
+                }
+                pooled[i] = buffer;
+            }
+        }
+        if (pooled == null) {
+            return null;
+        }
+
+        final int serializedSize = getSerializedSize();
+        int heapSize = serializedSize + (lengthPrefix ? 4 : 0);
+        for (int i = 0; i < results.length; i++) {
+            if (pooled[i] != null) {
+                heapSize -= results[i].getSerializedSize() - 4;
+            }
+        }
+        final ByteBuffer heap = ByteBuffer.allocate(heapSize);
+        if (lengthPrefix) {
+            heap.putInt(serializedSize);
+        }
+        flattenHeaderToBuffer(heap);
+
+        final ArrayList<BBContainer> containers = new ArrayList<BBContainer>(results.length * 2 + 1);
+        int segmentStart = 0;
+        for (int i = 0; i < results.length; i++) {
+            if (pooled[i] == null) {
+                results[i].flattenToBuffer(heap);
+                continue;
+            }
+            final ByteBuffer tableData = PrivateVoltTableFactory.getTableDataReference(results[i]);
+            heap.putInt(tableData.remaining());
+            containers.add(heapSegment(heap, segmentStart));
+            segmentStart = heap.position();
+            containers.add(pooled[i].containerFor(tableData.slice()));
+        }
+        if (heap.position() > segmentStart) {
+            containers.add(heapSegment(heap, segmentStart));
+        }
+        return containers.toArray(new BBContainer[containers.size()]);
+    }
+
+    private static BBContainer heapSegment(ByteBuffer heap, int start) {
+        final ByteBuffer segment = heap.duplicate();
+        segment.position(start);
+        segment.limit(heap.position());
+        return DBBPool.wrapBB(segment.slice());
+    }
+
+    private void flattenHeaderToBuffer(ByteBuffer buf) {
         assert setProperly;
         buf.put((byte)0); //version
         buf.putLong(clientHandle);
@@ -239,11 +316,6 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             buf.putInt(m_hash.intValue());
         }
         buf.putShort((short)results.length);
-        for (VoltTable vt : results)
-        {
-            vt.flattenToBuffer(buf);
-        }
-        return buf;
     }
 
     @Override
@@ -292,24 +364,7 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
-            js.object();
-
-            js.key(JSON_STATUS_KEY);
-            js.value(status);
-            js.key(JSON_APPSTATUS_KEY);
-            js.value(appStatus);
-            js.key(JSON_STATUSSTRING_KEY);
-            js.value(statusString);
-            js.key(JSON_APPSTATUSSTRING_KEY);
-            js.value(appStatusString);
-            js.key(JSON_RESULTS_KEY);
-            js.array();
-            for (VoltTable o : results) {
-                js.value(o);
-            }
-            js.endArray();
-
-            js.endObject();
+            toJSONString(js);
         }
         catch (JSONException e) {
             e.printStackTrace();
@@ -318,6 +373,35 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
         return js.toString();
     }
 
+    /**
+     * Write the JSON representation of this response to the given writer,
+     * streaming each result table rather than building the response as a string.
+     */
+    public void toJSONString(JSONWriter js) throws JSONException {
+        js.object();
+
+        js.key(JSON_STATUS_KEY);
+        js.value(status);
+        js.key(JSON_APPSTATUS_KEY);
+        js.value(appStatus);
+        js.key(JSON_STATUSSTRING_KEY);
+        js.value(statusString);
+        js.key(JSON_APPSTATUSSTRING_KEY);
+        js.value(appStatusString);
+        js.key(JSON_RESULTS_KEY);
+        js.array();
+        for (VoltTable o : results) {
+            if (o == null) {
+                js.value(null);
+            } else {
+                o.toJSONString(js);
+            }
+        }
+        js.endArray();
+
+        js.endObject();
+    }
+
     /**
      * @return MD5 hash as int of the tables in the result. Only hashes first bits of big results.
      */
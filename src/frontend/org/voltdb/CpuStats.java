@@ -22,15 +22,23 @@ import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.ProcStatsCollector;
 
 public class CpuStats extends StatsSource {
 
     //Note com.sun here
     com.sun.management.OperatingSystemMXBean m_osBean;
+    final ProcStatsCollector m_procStats;
 
     public CpuStats() {
+        this(ProcStatsCollector.instance);
+    }
+
+    public CpuStats(ProcStatsCollector procStats) {
         super(false);
+        m_procStats = procStats;
         m_osBean = (com.sun.management.OperatingSystemMXBean )ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
     }
 
@@ -65,11 +73,36 @@ public class CpuStats extends StatsSource {
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
         columns.add(new VoltTable.ColumnInfo("PERCENT_USED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PERCENT_USER", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PERCENT_SYSTEM", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("IO_READ_BYTES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("IO_WRITE_BYTES", VoltType.BIGINT));
     }
 
     @Override
     protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
         rowValues[columnNameToIndex.get("PERCENT_USED")] = Math.round(m_osBean.getProcessCpuLoad() * 100);
+
+        // The split between user and system time comes from the last two procfs samples,
+        // scaled to all cores like PERCENT_USED. Everything is -1 without procfs.
+        final ProcStatsCollector.Sample latest = m_procStats.getLatest();
+        final ProcStatsCollector.Sample previous = m_procStats.getPrevious(1);
+        long user = -1, system = -1;
+        if (latest != null && previous != null) {
+            final long elapsed = (latest.timestamp - previous.timestamp) * CoreUtils.availableProcessors();
+            user = Math.round(ProcStatsCollector.percent(previous.userMs, latest.userMs, elapsed));
+            system = Math.round(ProcStatsCollector.percent(previous.systemMs, latest.systemMs, elapsed));
+        }
+        rowValues[columnNameToIndex.get("PERCENT_USER")] = user;
+        rowValues[columnNameToIndex.get("PERCENT_SYSTEM")] = system;
+        rowValues[columnNameToIndex.get("VOLUNTARY_CONTEXT_SWITCHES")] =
+                latest == null ? -1 : latest.voluntaryContextSwitches;
+        rowValues[columnNameToIndex.get("INVOLUNTARY_CONTEXT_SWITCHES")] =
+                latest == null ? -1 : latest.involuntaryContextSwitches;
+        rowValues[columnNameToIndex.get("IO_READ_BYTES")] = latest == null ? -1 : latest.readBytes;
+        rowValues[columnNameToIndex.get("IO_WRITE_BYTES")] = latest == null ? -1 : latest.writeBytes;
         super.updateStatsRow(rowKey, rowValues);
     }
 
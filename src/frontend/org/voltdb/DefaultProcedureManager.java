@@ -23,6 +23,8 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.voltdb.CatalogContext.ProcedurePartitionInfo;
 import org.voltdb.catalog.Catalog;
@@ -34,6 +36,8 @@ import org.voltdb.catalog.Database;
 import org.voltdb.catalog.ProcParameter;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.compiler.PlannerTool;
+import org.voltdb.compiler.StatementCompiler;
 import org.voltdb.types.ConstraintType;
 import org.voltdb.utils.CatalogUtil;
 
@@ -50,6 +54,8 @@ import org.voltdb.utils.CatalogUtil;
 public class DefaultProcedureManager {
 
     Map<String, Procedure> m_defaultProcMap = new HashMap<>();
+    // compiled default procs, shared by every site running under this catalog
+    final ConcurrentMap<String, Procedure> m_compiledProcs = new ConcurrentHashMap<>();
 
     final Database m_db;
     // fake db makes it easy to create procedures that aren't
@@ -153,6 +159,25 @@ public class DefaultProcedureManager {
         }
     }
 
+    /**
+     * Plan a default procedure, or return the plan an earlier caller got. The
+     * compiled procedure isn't rooted in the real catalog and nothing modifies
+     * it afterwards, so every site can build its runner from the same instance.
+     */
+    public Procedure compileDefaultProcedure(PlannerTool plannerTool, Procedure defaultProc) {
+        Procedure compiled = m_compiledProcs.get(defaultProc.getTypeName());
+        if (compiled == null) {
+            // racing sites may both plan it, the plans are equivalent
+            compiled = StatementCompiler.compileDefaultProcedure(
+                    plannerTool, defaultProc, sqlForDefaultProc(defaultProc));
+            Procedure existing = m_compiledProcs.putIfAbsent(defaultProc.getTypeName(), compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        return compiled;
+    }
+
     public String sqlForDefaultProc(Procedure defaultProc) {
         String name = defaultProc.getClassname();
         String[] parts = name.split("\\.");
@@ -204,6 +204,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             stringer.key("tableName").value(tableName.toUpperCase());
             stringer.key("isReplicated").value(isReplicated);
             stringer.key("isCompressed").value(true);
+            stringer.key("compressionCodec").value(CompressionService.SNAPSHOT_CODEC.getName());
             stringer.key("checksumType").value("CRC32C");
             stringer.key("timestamp").value(timestamp);
             /*
@@ -434,7 +435,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
              * that is 16 bytes, but 4 of those are done by CompressionService
              */
             cont.b().position(12);
-            compressionTask = CompressionService.compressAndCRC32cBufferAsync(tupleData, cont);
+            compressionTask = CompressionService.compressAndCRC32cBufferAsync(
+                    CompressionService.SNAPSHOT_CODEC, tupleData, cont);
         }
         final Future<BBContainer> compressionTaskFinal = compressionTask;
 
@@ -558,6 +560,9 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
     }
 
+    @Override
+    public void reportRemainingRows(int tableId, long remainingRows) {}
+
     @Override
     public String toString() {
         return m_file.toString();
@@ -393,4 +393,7 @@ public class DeprecatedDefaultSnapshotDataTarget implements SnapshotDataTarget {
     public int getInContainerRowCount(BBContainer tupleData) {
         return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
     }
+
+    @Override
+    public void reportRemainingRows(int tableId, long remainingRows) {}
 }
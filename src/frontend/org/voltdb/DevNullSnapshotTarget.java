@@ -90,4 +90,7 @@ public class DevNullSnapshotTarget implements SnapshotDataTarget {
     public int getInContainerRowCount(BBContainer tupleData) {
         return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
     }
+
+    @Override
+    public void reportRemainingRows(int tableId, long remainingRows) {}
 }
@@ -66,6 +66,16 @@ public class ElasticHashinator extends TheHashinator {
      */
     private final long m_tokens;
     private final int m_tokenCount;
+
+    /*
+     * Flat lookup table from the top bits of a hash to the index of the last token at or below
+     * the smallest hash with those bits. A lookup reads the table and scans forward over the one
+     * or two tokens in the bucket instead of binary searching the whole ring. Null if the ring
+     * doesn't start at Integer.MIN_VALUE, then lookups fall back to the binary search.
+     */
+    private static final int MAX_TOKEN_INDEX_BITS = 16;
+    private final int m_tokenIndex[];
+    private final int m_tokenIndexShift;
     private final Cleaner m_cleaner;
 
     private final Supplier<byte[]> m_configBytes;
@@ -107,6 +117,8 @@ public class ElasticHashinator extends TheHashinator {
                 : updateRaw(configBytes));
         m_tokens = p.getFirst();
         m_tokenCount = p.getSecond();
+        m_tokenIndexShift = 32 - tokenIndexBits(m_tokenCount);
+        m_tokenIndex = buildTokenIndex(m_tokens, m_tokenCount, m_tokenIndexShift);
         m_cleaner = Cleaner.create(this, new Deallocator(m_tokens, m_tokenCount * 8));
         m_configBytes = !cooked ? Suppliers.ofInstance(configBytes) : m_configBytesSupplier;
         m_cookedBytes = cooked ? Suppliers.ofInstance(configBytes) : m_cookedBytesSupplier;
@@ -146,6 +158,8 @@ public class ElasticHashinator extends TheHashinator {
             ii++;
         }
         m_tokenCount = tokens.size();
+        m_tokenIndexShift = 32 - tokenIndexBits(m_tokenCount);
+        m_tokenIndex = buildTokenIndex(m_tokens, m_tokenCount, m_tokenIndexShift);
         m_configBytes = m_configBytesSupplier;
         m_cookedBytes = m_cookedBytesSupplier;
     }
@@ -199,8 +213,15 @@ public class ElasticHashinator extends TheHashinator {
      * it wraps around to the last token in the ring closest to Long.MAX_VALUE
      */
     public int partitionForToken(int hash) {
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        if (m_tokenIndex == null) {
+            long token = getTokenPtr(hash);
+            return Bits.unsafe.getInt(token + 4);
+        }
+        int ii = m_tokenIndex[(hash ^ Integer.MIN_VALUE) >>> m_tokenIndexShift];
+        while (ii + 1 < m_tokenCount && Bits.unsafe.getInt(m_tokens + 8L * (ii + 1)) <= hash) {
+            ii++;
+        }
+        return Bits.unsafe.getInt(m_tokens + 8L * ii + 4);
     }
 
     /**
@@ -260,6 +281,26 @@ public class ElasticHashinator extends TheHashinator {
         return partitionForToken(token);
     }
 
+    @Override
+    public void pHashinateLongs(long[] values, int count, int[] partitions) {
+        for (int ii = 0; ii < count; ii++) {
+            final long value = values[ii];
+            partitions[ii] = value == Long.MIN_VALUE ? 0 : partitionForToken(MurmurHash3.hash3_x64_128(value));
+        }
+    }
+
+    @Override
+    public void pHashToPartitions(VoltType type, Object[] values, int count, int[] partitions) {
+        for (int ii = 0; ii < count; ii++) {
+            final byte[] bytes = valueToBytes(values[ii]);
+            if (bytes == null) {
+                partitions[ii] = 0;
+            } else {
+                partitions[ii] = partitionForToken(MurmurHash3.hash3_x64_128(ByteBuffer.wrap(bytes), 0, bytes.length, 0));
+            }
+        }
+    }
+
     @Override
     public HashinatorConfig pGetCurrentConfig() {
         return new HashinatorConfig(HashinatorType.ELASTIC, m_configBytes.get(), m_tokens, m_tokenCount) {
@@ -478,6 +519,31 @@ public class ElasticHashinator extends TheHashinator {
         return Pair.of(tokens, numEntries);
     }
 
+    /**
+     * Buckets for the token index, about one token per bucket.
+     */
+    private static int tokenIndexBits(int tokenCount) {
+        final int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, tokenCount - 1));
+        return Math.max(1, Math.min(MAX_TOKEN_INDEX_BITS, bits));
+    }
+
+    private static int[] buildTokenIndex(long tokens, int tokenCount, int shift) {
+        if (tokenCount == 0 || Bits.unsafe.getInt(tokens) != Integer.MIN_VALUE) {
+            return null;
+        }
+        final int index[] = new int[1 << (32 - shift)];
+        int ii = 0;
+        for (int bucket = 0; bucket < index.length; bucket++) {
+            // smallest hash in the bucket, buckets are in unsigned order so flip the sign bit
+            final int bucketStart = (bucket << shift) ^ Integer.MIN_VALUE;
+            while (ii + 1 < tokenCount && Bits.unsafe.getInt(tokens + 8L * (ii + 1)) <= bucketStart) {
+                ii++;
+            }
+            index[bucket] = ii;
+        }
+        return index;
+    }
+
     private long getTokenPtr(int hash) {
         int min = 0;
         int max = m_tokenCount - 1;
@@ -18,8 +18,11 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.http.HttpServletResponse;
@@ -27,6 +30,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.server.Request;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONWriter;
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.EstTime;
@@ -36,8 +41,8 @@ import org.voltdb.client.AuthenticatedConnectionCache;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientAuthHashScheme;
 import org.voltdb.client.ClientResponse;
-import org.voltdb.client.NoConnectionsException;
 import org.voltdb.client.ProcedureCallback;
+import org.voltdb.security.AuthenticationRequest;
 import org.voltdb.utils.Base64;
 import org.voltdb.utils.Encoder;
 
@@ -50,6 +55,18 @@ public class HTTPClientInterface {
     static final int CACHE_TARGET_SIZE = 10;
     private final AtomicBoolean m_shouldUpdateCatalog = new AtomicBoolean(false);
 
+    // JSON API calls go straight into the local ClientInterface through one
+    // in-process session per user and admin mode, the connection cache above
+    // is only used by the admin listener handlers that need a real Client.
+    private final ConcurrentHashMap<String, InternalClientSession> m_sessions =
+            new ConcurrentHashMap<String, InternalClientSession>();
+    // Hashed passwords that passed authentication since the last catalog update,
+    // so a BCrypt check isn't paid on every request.
+    private final ConcurrentHashMap<String, byte[]> m_verifiedCredentials =
+            new ConcurrentHashMap<String, byte[]>();
+    private final static String ADMIN_SUFFIX = ":++__ADMIN__++";
+    private final static long DEFAULT_ADMISSION_TIMEOUT_MS = 2 * 60 * 1000;
+
     public static final String PARAM_USERNAME = "User";
     public static final String PARAM_PASSWORD = "Password";
     public static final String PARAM_HASHEDPASSWORD = "Hashedpassword";
@@ -63,7 +80,7 @@ public class HTTPClientInterface {
         m_timeout = seconds * 1000;
     }
 
-    class JSONProcCallback implements ProcedureCallback {
+    class JSONProcCallback implements ProcedureCallback, SimpleClientResponseAdapter.Callback {
 
         final Request m_request;
         final Continuation m_continuation;
@@ -79,18 +96,20 @@ public class HTTPClientInterface {
         }
 
         @Override
-        public void clientCallback(ClientResponse clientResponse) throws Exception {
-            ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = rimpl.toJSONString();
-
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            if (m_jsonp != null) {
-                msg = String.format("%s( %s )", m_jsonp, msg);
-            }
+        public void handleResponse(ClientResponse response) {
+            clientCallback(response);
+        }
 
-            m_request.setAttribute("result", msg);
-            if (!m_continuation.isInitial()) try {
+        /*
+         * Runs on whatever thread delivered the response, so only park the response
+         * and let the resumed request do the JSON encoding on a Jetty thread.
+         */
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            m_request.setAttribute("result", clientResponse);
+            // Resuming while the initial dispatch is still running is fine, it redispatches
+            // once process() returns. In-process calls can respond before that happens.
+            try {
                 m_continuation.resume();
             } catch (IllegalStateException e) {
                 // Thrown when we shut down the server via the JSON/HTTP (web studio) API
@@ -106,21 +125,39 @@ public class HTTPClientInterface {
         m_timeoutResponse = r.toJSONString();
     }
 
+    /**
+     * Stream the response straight into the servlet writer, which flushes to the
+     * connection as its buffer fills, instead of materializing the whole JSON
+     * text for big result sets.
+     */
+    static void writeJSONResponse(Writer out, ClientResponseImpl result, String jsonp)
+            throws IOException, JSONException
+    {
+        // handle jsonp pattern
+        // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
+        if (jsonp != null) {
+            out.write(jsonp);
+            out.write("( ");
+        }
+        result.toJSONString(new JSONWriter(out));
+        if (jsonp != null) {
+            out.write(" )");
+        }
+    }
+
     public void process(Request request, HttpServletResponse response) {
-        AuthenticationResult authResult = null;
         boolean suspended = false;
-        boolean forceClose = false;
         Continuation continuation = ContinuationSupport.getContinuation(request);
         if (m_timeout > 0) {
             continuation.setTimeout(m_timeout);
         }
-        String result = (String )request.getAttribute("result");
+        ClientResponseImpl result = (ClientResponseImpl) request.getAttribute("result");
         if (result != null) {
             try {
                 response.setStatus(HttpServletResponse.SC_OK);
                 request.setHandled(true);
-                response.getWriter().print(result);
-            } catch (IllegalStateException | IOException e){
+                writeJSONResponse(response.getWriter(), result, (String) request.getAttribute("jsonp"));
+            } catch (IllegalStateException | IOException | JSONException e){
                // Thrown when we shut down the server via the JSON/HTTP (web studio) API
                // Essentially we're closing everything down from underneath the HTTP request.
                 m_log.warn("JSON failed to send response: ", e);
@@ -161,9 +198,16 @@ public class HTTPClientInterface {
                 return;
             }
 
-            authResult = authenticate(request);
-            if (!authResult.isAuthenticated()) {
-                String msg = authResult.m_message;
+            InternalClientSession session = null;
+            String authMessage = null;
+            try {
+                session = getSession(request);
+            } catch (IOException e) {
+                authMessage = e.getMessage();
+                m_rate_limited_log.log("JSON interface exception: " + authMessage, EstTime.currentTimeMillis());
+            }
+            if (session == null) {
+                String msg = authMessage != null ? authMessage : "Server is not accepting work at this time.";
                 ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
                 msg = rimpl.toJSONString();
                 if (jsonp != null) {
@@ -177,9 +221,14 @@ public class HTTPClientInterface {
                 return;
             }
 
+            if (jsonp != null) {
+                request.setAttribute("jsonp", jsonp);
+            }
+            request.setAttribute("SQLSUBMITTED", Boolean.TRUE);
             continuation.suspend(response);
             suspended = true;
             JSONProcCallback cb = new JSONProcCallback(request, continuation, jsonp);
+            final long admissionTimeout = m_timeout > 0 ? m_timeout : DEFAULT_ADMISSION_TIMEOUT_MS;
             boolean success;
             if (params != null) {
                 ParameterSet paramSet = null;
@@ -198,23 +247,16 @@ public class HTTPClientInterface {
                     continuation.complete();
                     return;
                 }
-                success = authResult.m_client.callProcedure(cb, procName, paramSet.toArray());
+                success = session.callProcedure(cb, admissionTimeout, procName, paramSet.toArray());
             }
             else {
-                success = authResult.m_client.callProcedure(cb, procName);
+                success = session.callProcedure(cb, admissionTimeout, procName);
             }
             if (!success) {
                 throw new Exception("Server is not accepting work at this time.");
             }
-            if (jsonp != null) {
-                request.setAttribute("jsonp", jsonp);
-            }
-            request.setAttribute("SQLSUBMITTED", Boolean.TRUE);
         } catch (Exception e) {
             String msg = e.getMessage();
-            if (e instanceof IOException || e instanceof NoConnectionsException) {
-                forceClose = true;
-            }
             m_rate_limited_log.log("JSON interface exception: " + msg, EstTime.currentTimeMillis());
             ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
             msg = rimpl.toJSONString();
@@ -229,13 +271,23 @@ public class HTTPClientInterface {
                     continuation.complete();
                 }
             } catch (IOException e1) {} // Ignore this as browser must have closed.
-        } finally {
-            releaseClient(authResult, forceClose);
         }
     }
 
-    private AuthenticationResult getAuthenticationResult(Request request) {
-        boolean adminMode = false;
+    /**
+     * Credentials supplied with a request, from the Authorization header or the
+     * request parameters. m_error is set if they can't be used.
+     */
+    private static class Credentials {
+        String m_username = null;
+        String m_password = null;
+        byte[] m_hashedPassword = null;
+        boolean m_adminMode = false;
+        String m_error = null;
+    }
+
+    private Credentials getCredentials(Request request) {
+        Credentials creds = new Credentials();
 
         String username = null;
         String hashedPassword = null;
@@ -270,11 +322,60 @@ public class HTTPClientInterface {
             password = request.getParameter(PARAM_PASSWORD);
         }
         String admin = request.getParameter(PARAM_ADMIN);
+        creds.m_username = username;
+        creds.m_password = password;
+
+        // check for admin mode
+        if (admin != null) {
+            if (admin.compareToIgnoreCase("true") == 0) {
+                creds.m_adminMode = true;
+            }
+        }
+
+        // The SHA-1 hash of the password
+        byte[] hashedPasswordBytes = null;
+
+        if (password != null) {
+            try {
+                // Create a MessageDigest every time because MessageDigest is not thread safe (ENG-5438)
+                MessageDigest md = MessageDigest.getInstance(ClientAuthHashScheme.getDigestScheme(ClientAuthHashScheme.HASH_SHA256));
+                hashedPasswordBytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                creds.m_error = "JVM doesn't support SHA-1 hashing. Please use a supported JVM" + e;
+                return creds;
+            }
+        }
+        // note that HTTP Var "Hashedpassword" has a higher priority
+        // Hashedassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded)
+        // OR
+        // Hashedassword must be a 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)
+        if (hashedPassword != null) {
+            if (hashedPassword.length() != 40 && hashedPassword.length() != 64) {
+                creds.m_error = "Hashedpassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded). "
+                        + "or 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)";
+                return creds;
+            }
+            try {
+                hashedPasswordBytes = Encoder.hexDecode(hashedPassword);
+            }
+            catch (Exception e) {
+                creds.m_error = "Hashedpassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded). "
+                        + "or 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)";
+                return creds;
+            }
+        }
+
+        assert((hashedPasswordBytes == null) || (hashedPasswordBytes.length == 20) || (hashedPasswordBytes.length == 32));
+        creds.m_hashedPassword = hashedPasswordBytes;
+        return creds;
+    }
 
-        // first check for a catalog update and purge the cached connections
-        // if one has happened since we were here last
+    // first check for a catalog update and purge the cached connections and
+    // credentials if one has happened since we were here last
+    private void checkForCatalogUpdate() {
         if (m_shouldUpdateCatalog.compareAndSet(true, false))
         {
+            m_verifiedCredentials.clear();
             if (m_connections != null) {
                 m_connections.closeAll();
                 // Just null the old object so we'll create a new one with
@@ -282,6 +383,15 @@ public class HTTPClientInterface {
                 m_connections = null;
             }
         }
+    }
+
+    private AuthenticationResult getAuthenticationResult(Request request) {
+        Credentials creds = getCredentials(request);
+        if (creds.m_error != null) {
+            return new AuthenticationResult(null, creds.m_adminMode, creds.m_username, creds.m_error);
+        }
+
+        checkForCatalogUpdate();
 
         if (m_connections == null) {
             Configuration config = VoltDB.instance().getConfig();
@@ -304,55 +414,82 @@ public class HTTPClientInterface {
             m_connections = new AuthenticatedConnectionCache(10, clientInterface, port, adminInterface, adminPort);
         }
 
-        // check for admin mode
-        if (admin != null) {
-            if (admin.compareToIgnoreCase("true") == 0) {
-                adminMode = true;
+        try {
+            // get a connection to localhost from the pool
+            Client client = m_connections.getClient(creds.m_username, creds.m_password, creds.m_hashedPassword, creds.m_adminMode);
+            if (client != null) {
+                return new AuthenticationResult(client, creds.m_adminMode, creds.m_username, "");
             }
+            return new AuthenticationResult(null, creds.m_adminMode, creds.m_username, "Failed to get client.");
+        } catch (IOException ex) {
+            return new AuthenticationResult(null, creds.m_adminMode, creds.m_username, ex.getMessage());
         }
+    }
 
-        // The SHA-1 hash of the password
-        byte[] hashedPasswordBytes = null;
+    /**
+     * Authenticate the request against the local auth system and return the in-process
+     * session for its user, or null if this node can't take work yet.
+     * @throws IOException with the reason if authentication fails
+     */
+    InternalClientSession getSession(Request request) throws IOException {
+        Credentials creds = getCredentials(request);
+        if (creds.m_error != null) {
+            throw new IOException(creds.m_error);
+        }
 
-        if (password != null) {
-            try {
-                // Create a MessageDigest every time because MessageDigest is not thread safe (ENG-5438)
-                MessageDigest md = MessageDigest.getInstance(ClientAuthHashScheme.getDigestScheme(ClientAuthHashScheme.HASH_SHA256));
-                hashedPasswordBytes = md.digest(password.getBytes(StandardCharsets.UTF_8));
-            } catch (Exception e) {
-                return new AuthenticationResult(null, adminMode, username, "JVM doesn't support SHA-1 hashing. Please use a supported JVM" + e);
-            }
+        VoltDBInterface instance = VoltDB.instance();
+        ClientInterface ci = instance.getClientInterface();
+        if (ci == null) {
+            return null;
         }
-        // note that HTTP Var "Hashedpassword" has a higher priority
-        // Hashedassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded)
-        // OR
-        // Hashedassword must be a 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)
-        if (hashedPassword != null) {
-            if (hashedPassword.length() != 40 && hashedPassword.length() != 64) {
-                return new AuthenticationResult(null, adminMode, username, "Hashedpassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded). "
-                        + "or 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)");
+        if (instance.rejoining()) {
+            throw new IOException("Failed to authenticate to rejoining node");
+        }
+
+        checkForCatalogUpdate();
+
+        final AuthSystem authSystem = instance.getCatalogContext().authSystem;
+        String username = creds.m_username;
+        if (!authSystem.isSecurityEnabled()) {
+            // Every name is the same unauthenticated user, don't make a session per name
+            username = "";
+        }
+        else {
+            if (username == null || username.trim().isEmpty()) {
+                throw new IOException("Authentication rejected");
             }
-            try {
-                hashedPasswordBytes = Encoder.hexDecode(hashedPassword);
+            if (username.endsWith(ADMIN_SUFFIX)) {
+                throw new IOException("User name cannot end with " + ADMIN_SUFFIX);
             }
-            catch (Exception e) {
-                return new AuthenticationResult(null, adminMode, username, "Hashedpassword must be a 40-byte hex-encoded SHA-1 hash (20 bytes unencoded). "
-                        + "or 64-byte hex-encoded SHA-256 hash (32 bytes unencoded)");
+            byte[] hashedPassword = creds.m_hashedPassword;
+            if (hashedPassword == null) {
+                hashedPassword = new byte[0];
+            }
+            byte[] verified = m_verifiedCredentials.get(username);
+            if (verified == null || !MessageDigest.isEqual(verified, hashedPassword)) {
+                ClientAuthHashScheme scheme = (creds.m_hashedPassword == null ?
+                        ClientAuthHashScheme.HASH_SHA256 : ClientAuthHashScheme.getByUnencodedLength(hashedPassword.length));
+                AuthenticationRequest arq = authSystem.new HashAuthenticationRequest(username, hashedPassword, scheme);
+                if (!arq.authenticate(scheme)) {
+                    throw new IOException("Authentication rejected");
+                }
+                m_verifiedCredentials.put(username, Arrays.copyOf(hashedPassword, hashedPassword.length));
             }
         }
 
-        assert((hashedPasswordBytes == null) || (hashedPasswordBytes.length == 20) || (hashedPasswordBytes.length == 32));
-
-        try {
-            // get a connection to localhost from the pool
-            Client client = m_connections.getClient(username, password, hashedPasswordBytes, adminMode);
-            if (client != null) {
-                return new AuthenticationResult(client, adminMode, username, "");
+        final String key = creds.m_adminMode ? username + ADMIN_SUFFIX : username;
+        InternalClientSession session = m_sessions.get(key);
+        if (session == null) {
+            InternalClientSession newSession =
+                    ci.createInternalClientSession(username, creds.m_adminMode, "HTTPClientInterface");
+            session = m_sessions.putIfAbsent(key, newSession);
+            if (session == null) {
+                session = newSession;
+            } else {
+                newSession.close();
             }
-            return new AuthenticationResult(null, adminMode, username, "Failed to get client.");
-        } catch (IOException ex) {
-            return new AuthenticationResult(null, adminMode, username, ex.getMessage());
         }
+        return session;
     }
 
     //Remember to call releaseClient if you authenticate which will close admin clients and refcount-- others.
@@ -69,6 +69,8 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MESSAGES_PER_BATCH", VoltType.FLOAT));
+        columns.add(new ColumnInfo("BATCH_BYTES_SAVED", VoltType.BIGINT));
 
     }
 
@@ -83,6 +85,10 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        // only host to host connections batch messages
+        rowValues[columnNameToIndex.get("MESSAGES_PER_BATCH")] =
+            counters[4] == 0 ? 0.0 : (double)counters[5] / counters[4];
+        rowValues[columnNameToIndex.get("BATCH_BYTES_SAVED")] = counters[6];
         super.updateStatsRow(rowKey, rowValues);
     }
 
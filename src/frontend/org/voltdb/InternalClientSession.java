@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.voltdb.ClientInterface.ClientInputHandler;
+
+/**
+ * An in-process stand-in for an authenticated client connection. Invocations are
+ * handed to {@link ClientInterface} as if they had been read off a socket, and
+ * responses come back through a {@link SimpleClientResponseAdapter} instead of a
+ * write stream, so callers like the HTTP/JSON API don't pay for a loopback
+ * connection, a second round of wire serialization and an extra network hop.
+ *
+ * Sessions are thread-safe. All sessions share the ClientInterface's internal
+ * admission control group, and callers block while it signals backpressure.
+ */
+public class InternalClientSession implements AdmissionControlGroup.ACGMember {
+
+    private final ClientInterface m_ci;
+    private final ClientInputHandler m_handler;
+    private final SimpleClientResponseAdapter m_adapter;
+    private final AdmissionControlGroup m_acg;
+    private boolean m_hasBackpressure = false;
+    private boolean m_closed = false;
+
+    InternalClientSession(ClientInterface ci, ClientInputHandler handler, String name, AdmissionControlGroup acg) {
+        m_ci = ci;
+        m_handler = handler;
+        m_adapter = new SimpleClientResponseAdapter(handler.connectionId(), name);
+        m_acg = acg;
+        m_ci.bindAdapter(m_adapter, null, handler.isAdmin(), m_acg);
+        m_acg.addMember(this);
+    }
+
+    public boolean isAdmin() {
+        return m_handler.isAdmin();
+    }
+
+    /**
+     * Submit a procedure invocation. The callback is invoked on the thread that
+     * delivers the response, so it should hand any heavy lifting elsewhere.
+     *
+     * @param timeoutMs how long to wait for admission under backpressure
+     * @return false if the invocation couldn't be admitted before the timeout
+     * or the session has been closed
+     */
+    public boolean callProcedure(SimpleClientResponseAdapter.Callback callback, long timeoutMs,
+            String procName, Object... params) throws Exception
+    {
+        if (!awaitAdmission(timeoutMs)) {
+            return false;
+        }
+
+        StoredProcedureInvocation task = new StoredProcedureInvocation();
+        task.setProcName(procName);
+        task.setParams(params);
+        task.setClientHandle(m_adapter.registerCallback(callback));
+
+        ByteBuffer buf = ByteBuffer.allocate(task.getSerializedSize());
+        task.flattenToBuffer(buf);
+        buf.flip();
+
+        final ClientResponseImpl error = m_ci.handleRead(buf, m_handler, m_adapter);
+        if (error != null) {
+            // Same path as ClientInputHandler.handleMessage, so the callback gets it
+            ByteBuffer errorBuf = ByteBuffer.allocate(error.getSerializedSize() + 4);
+            errorBuf.putInt(errorBuf.capacity() - 4);
+            error.flattenToBuffer(errorBuf).flip();
+            m_adapter.enqueue(errorBuf);
+        }
+        return true;
+    }
+
+    private synchronized boolean awaitAdmission(long timeoutMs) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (m_hasBackpressure && !m_closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return !m_closed;
+    }
+
+    /**
+     * Stop accepting invocations and release anything still outstanding.
+     */
+    public void close() {
+        synchronized (this) {
+            if (m_closed) {
+                return;
+            }
+            m_closed = true;
+            notifyAll();
+        }
+        m_acg.removeMember(this);
+        m_ci.unbindAdapter(m_adapter);
+    }
+
+    @Override
+    public synchronized void onBackpressure() {
+        m_hasBackpressure = true;
+    }
+
+    @Override
+    public synchronized void offBackpressure() {
+        m_hasBackpressure = false;
+        notifyAll();
+    }
+
+    @Override
+    public long connectionId() {
+        return m_adapter.connectionId();
+    }
+}
@@ -17,7 +17,9 @@
 
 package org.voltdb;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -29,7 +31,6 @@ import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.compiler.Language;
 import org.voltdb.compiler.PlannerTool;
-import org.voltdb.compiler.StatementCompiler;
 import org.voltdb.groovy.GroovyScriptProcedureDelegate;
 import org.voltdb.utils.LogKeys;
 
@@ -43,6 +44,8 @@ public class LoadedProcedureSet {
     ImmutableMap<String, ProcedureRunner> procs = ImmutableMap.<String, ProcedureRunner>builder().build();
     // cached default procs
     Map<String, ProcedureRunner> m_defaultProcCache = new HashMap<>();
+    // user procedures built on first use, when loading lazily
+    Map<String, ProcedureRunner> m_lazyProcCache = new HashMap<>();
 
     // map of sysproc fragment ids to system procedures.
     final HashMap<Long, ProcedureRunner> m_registeredSysProcPlanFragments =
@@ -52,15 +55,27 @@ public class LoadedProcedureSet {
     CatalogSpecificPlanner m_csp = null;
     PlannerTool m_plannerTool = null;
     DefaultProcedureManager m_defaultProcManager = null;
+    CatalogContext m_catalogContext = null;
     final long m_siteId;
     final int m_siteIndex;
     final SiteProcedureConnection m_site;
+    final boolean m_lazyUserProcs;
 
     public LoadedProcedureSet(SiteProcedureConnection site, ProcedureRunnerFactory runnerFactory, long siteId, int siteIndex) {
+        this(site, runnerFactory, siteId, siteIndex, false);
+    }
+
+    /**
+     * @param lazyUserProcs build user procedure runners on first use instead of
+     * all of them on load. For sites that only ever run a few of them.
+     */
+    public LoadedProcedureSet(SiteProcedureConnection site, ProcedureRunnerFactory runnerFactory, long siteId, int siteIndex,
+            boolean lazyUserProcs) {
         m_runnerFactory = runnerFactory;
         m_siteId = siteId;
         m_siteIndex = siteIndex;
         m_site = site;
+        m_lazyUserProcs = lazyUserProcs;
     }
 
    public ProcedureRunner getSysproc(long fragmentId) {
@@ -83,18 +98,72 @@ public class LoadedProcedureSet {
     {
         // default proc caches clear on catalog update
         m_defaultProcCache.clear();
+        m_lazyProcCache.clear();
 
+        m_catalogContext = catalogContext;
         m_defaultProcManager = catalogContext.m_defaultProcs;
         m_csp = csp;
         m_plannerTool = catalogContext.m_ptool;
         m_registeredSysProcPlanFragments.clear();
-        ImmutableMap.Builder<String, ProcedureRunner> builder =
+        ImmutableMap.Builder<String, ProcedureRunner> builder = m_lazyUserProcs ?
+                ImmutableMap.<String, ProcedureRunner>builder() :
                 loadProceduresFromCatalog(catalogContext, backendTarget);
         loadSystemProcedures(catalogContext, backendTarget, builder);
         procs = builder.build();
 
     }
 
+    /**
+     * Names of the user procedures that have a runner built. Only call this
+     * while the site is idle.
+     */
+    public Set<String> getLoadedUserProcedureNames()
+    {
+        Set<String> names = new HashSet<String>(m_lazyProcCache.keySet());
+        for (String procName : procs.keySet()) {
+            if (!procName.startsWith("@")) {
+                names.add(procName);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Switch to a catalog with the same jar classes and the same fingerprint for
+     * every user procedure in {@link #getLoadedUserProcedureNames()}, keeping the
+     * runners already built. The other user procedures load from the new catalog
+     * on first use.
+     * Sysprocs and default procs are reloaded, they depend on the rest of the catalog.
+     * @see CatalogContext#getProcedureFingerprint(String)
+     */
+    public void rebindProcedures(
+            CatalogContext catalogContext,
+            BackendTarget backendTarget,
+            CatalogSpecificPlanner csp)
+    {
+        assert(Arrays.equals(catalogContext.getClassFingerprint(),
+                             m_catalogContext.getClassFingerprint()));
+        m_defaultProcCache.clear();
+
+        m_catalogContext = catalogContext;
+        m_defaultProcManager = catalogContext.m_defaultProcs;
+        m_csp = csp;
+        m_plannerTool = catalogContext.m_ptool;
+        m_registeredSysProcPlanFragments.clear();
+        ImmutableMap.Builder<String, ProcedureRunner> builder = ImmutableMap.<String, ProcedureRunner>builder();
+        for (Entry<String, ProcedureRunner> e : procs.entrySet()) {
+            if (!e.getKey().startsWith("@")) {
+                e.getValue().setCatalogSpecificPlanner(csp);
+                builder.put(e.getKey(), e.getValue());
+            }
+        }
+        for (ProcedureRunner runner : m_lazyProcCache.values()) {
+            runner.setCatalogSpecificPlanner(csp);
+        }
+        loadSystemProcedures(catalogContext, backendTarget, builder);
+        procs = builder.build();
+    }
+
     private ImmutableMap.Builder<String, ProcedureRunner> loadProceduresFromCatalog(
             CatalogContext catalogContext,
             BackendTarget backendTarget) {
@@ -109,53 +178,55 @@ public class LoadedProcedureSet {
                 continue;
             }
 
-            ProcedureRunner runner = null;
-            VoltProcedure procedure = null;
-            if (proc.getHasjava()) {
-                final String className = proc.getClassname();
+            builder.put(proc.getTypeName().intern(), loadProcedure(catalogContext, proc));
+        }
+        return builder;
+    }
 
-                Language lang;
-                try {
-                    lang = Language.valueOf(proc.getLanguage());
-                } catch (IllegalArgumentException e) {
-                    // default to java for earlier compiled catalogs
-                    lang = Language.JAVA;
-                }
+    private ProcedureRunner loadProcedure(CatalogContext catalogContext, Procedure proc) {
+        VoltProcedure procedure = null;
+        if (proc.getHasjava()) {
+            final String className = proc.getClassname();
+
+            Language lang;
+            try {
+                lang = Language.valueOf(proc.getLanguage());
+            } catch (IllegalArgumentException e) {
+                // default to java for earlier compiled catalogs
+                lang = Language.JAVA;
+            }
 
-                Class<?> procClass = null;
-                try {
-                    procClass = catalogContext.classForProcedure(className);
-                }
-                catch (final ClassNotFoundException e) {
-                    if (className.startsWith("org.voltdb.")) {
-                        VoltDB.crashLocalVoltDB("VoltDB does not support procedures with package names " +
-                                                        "that are prefixed with \"org.voltdb\". Please use a different " +
-                                                        "package name and retry. Procedure name was " + className + ".",
-                                                        false, null);
-                    }
-                    else {
-                        VoltDB.crashLocalVoltDB("VoltDB was unable to load a procedure (" +
-                                                 className + ") it expected to be in the " +
-                                                "catalog jarfile and will now exit.", false, null);
-                    }
-                }
-                try {
-                    procedure = lang.accept(procedureInstantiator, procClass);
+            Class<?> procClass = null;
+            try {
+                procClass = catalogContext.classForProcedure(className);
+            }
+            catch (final ClassNotFoundException e) {
+                if (className.startsWith("org.voltdb.")) {
+                    VoltDB.crashLocalVoltDB("VoltDB does not support procedures with package names " +
+                                                    "that are prefixed with \"org.voltdb\". Please use a different " +
+                                                    "package name and retry. Procedure name was " + className + ".",
+                                                    false, null);
                 }
-                catch (final Exception e) {
-                    hostLog.l7dlog( Level.WARN, LogKeys.host_ExecutionSite_GenericException.name(),
-                                    new Object[] { m_siteId, m_siteIndex }, e);
+                else {
+                    VoltDB.crashLocalVoltDB("VoltDB was unable to load a procedure (" +
+                                             className + ") it expected to be in the " +
+                                            "catalog jarfile and will now exit.", false, null);
                 }
             }
-            else {
-                procedure = new ProcedureRunner.StmtProcedure();
+            try {
+                procedure = lang.accept(procedureInstantiator, procClass);
+            }
+            catch (final Exception e) {
+                hostLog.l7dlog( Level.WARN, LogKeys.host_ExecutionSite_GenericException.name(),
+                                new Object[] { m_siteId, m_siteIndex }, e);
             }
-
-            assert(procedure != null);
-            runner = m_runnerFactory.create(procedure, proc, m_csp);
-            builder.put(proc.getTypeName().intern(), runner);
         }
-        return builder;
+        else {
+            procedure = new ProcedureRunner.StmtProcedure();
+        }
+
+        assert(procedure != null);
+        return m_runnerFactory.create(procedure, proc, m_csp);
     }
 
     private static Language.CheckedExceptionVisitor<VoltProcedure, Class<?>, Exception> procedureInstantiator =
@@ -226,17 +297,29 @@ public class LoadedProcedureSet {
         // Check the procs from the catalog
         ProcedureRunner pr = procs.get(procName);
 
+        // if loading lazily, build user procs on first use
+        if (pr == null && m_lazyUserProcs) {
+            pr = m_lazyProcCache.get(procName);
+            if (pr == null && !procName.startsWith("@")) {
+                Procedure catProc = m_catalogContext.procedures.get(procName);
+                if (catProc != null) {
+                    pr = loadProcedure(m_catalogContext, catProc);
+                    m_lazyProcCache.put(procName, pr);
+                }
+            }
+        }
+
         // if not there, check the default proc cache
         if (pr == null) {
             pr = m_defaultProcCache.get(procName);
         }
 
-        // if not in the cache, compile the full default proc and put it in the cache
+        // if not in the cache, get the compiled default proc, shared across
+        // sites, build a runner for it and put it in the cache
         if (pr == null) {
             Procedure catProc = m_defaultProcManager.checkForDefaultProcedure(procName);
             if (catProc != null) {
-                String sqlText = m_defaultProcManager.sqlForDefaultProc(catProc);
-                Procedure newCatProc = StatementCompiler.compileDefaultProcedure(m_plannerTool, catProc, sqlText);
+                Procedure newCatProc = m_defaultProcManager.compileDefaultProcedure(m_plannerTool, catProc);
                 VoltProcedure voltProc = new ProcedureRunner.StmtProcedure();
                 pr = m_runnerFactory.create(voltProc, newCatProc, m_csp);
                 // this will ensure any created fragment tasks know to load the plans
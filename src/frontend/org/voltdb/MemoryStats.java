@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.voltcore.utils.ThreadLocalDBBPool;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.utils.PlatformProperties;
 import org.voltdb.utils.SystemStatsCollector;
@@ -82,6 +83,8 @@ public class MemoryStats extends StatsSource {
         columns.add(new VoltTable.ColumnInfo("POOLEDMEMORY", VoltType.BIGINT));
         columns.add(new VoltTable.ColumnInfo("PHYSICALMEMORY", VoltType.BIGINT));
         columns.add(new VoltTable.ColumnInfo("JAVAMAXHEAP", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("BUFFERPOOLHITPERCENT", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("BUFFERPOOLOUTSTANDING", VoltType.BIGINT));
     }
 
     @Override
@@ -119,6 +122,12 @@ public class MemoryStats extends StatsSource {
         //in kb to make math simpler with other mem values.
         rowValues[columnNameToIndex.get("PHYSICALMEMORY")] = PlatformProperties.getPlatformProperties().ramInMegabytes * 1024;
         rowValues[columnNameToIndex.get("JAVAMAXHEAP")] = Runtime.getRuntime().maxMemory() / 1024;
+        // thread local serialization buffer pools, outstanding in kb like the rest
+        final long hits = ThreadLocalDBBPool.getHitCount();
+        final long allocations = hits + ThreadLocalDBBPool.getMissCount();
+        rowValues[columnNameToIndex.get("BUFFERPOOLHITPERCENT")] =
+            allocations == 0 ? 0.0 : hits * 100.0 / allocations;
+        rowValues[columnNameToIndex.get("BUFFERPOOLOUTSTANDING")] = ThreadLocalDBBPool.getOutstandingBytes() / 1024;
         super.updateStatsRow(rowKey, rowValues);
     }
 
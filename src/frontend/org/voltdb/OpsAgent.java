@@ -57,10 +57,14 @@ public abstract class OpsAgent
     private static final byte JSON_PAYLOAD = 0;
     private static final byte OPS_PAYLOAD = 1;
     private static final byte OPS_DUMMY = 2;
+    // A partial response; more chunks follow from the same host, ending with an OPS_PAYLOAD
+    private static final byte OPS_CHUNK = 3;
 
     // ENG-5125
     private static final int MAX_IN_FLIGHT_REQUESTS = 20;
     static int OPS_COLLECTION_TIMEOUT = 60 * 1000;
+    // Responses with more table bytes than this are sent to the requester in several messages
+    static int OPS_RESPONSE_CHUNK_BYTES = Integer.getInteger("OPS_RESPONSE_CHUNK_BYTES", 1024 * 1024);
 
     private long m_nextRequestId = 0;
     private Mailbox m_mailbox;
@@ -90,7 +94,8 @@ public abstract class OpsAgent
         private int expectedOpsResponses = 0;
         protected VoltTable[] aggregateTables = null;
         protected final long startTime;
-        private final JSONObject request;
+        protected String appStatusString = null;
+        protected final JSONObject request;
         public PendingOpsRequest(
                 OpsSelector selector,
                 String subselector,
@@ -187,9 +192,11 @@ public abstract class OpsAgent
                         handleJSONMessage(obj);
                     }
                 } else if (bpm.m_metadata[0] == OPS_PAYLOAD) {
-                    handleOpsResponse(payload, false);
+                    handleOpsResponse(payload, false, false);
                 } else if (bpm.m_metadata[0] == OPS_DUMMY) {
-                    handleOpsResponse(payload, true);
+                    handleOpsResponse(payload, true, false);
+                } else if (bpm.m_metadata[0] == OPS_CHUNK) {
+                    handleOpsResponse(payload, false, true);
                 }
             }
         } catch (Exception e) {
@@ -201,7 +208,7 @@ public abstract class OpsAgent
 
     }
 
-    private void handleOpsResponse(byte[] payload, boolean dummy) {
+    private void handleOpsResponse(byte[] payload, boolean dummy, boolean partial) {
         ByteBuffer buf = ByteBuffer.wrap(payload);
         Long requestId = buf.getLong();
 
@@ -247,6 +254,9 @@ public abstract class OpsAgent
             }
         }
 
+        // Chunks are merged as they arrive, only the last one from a host completes its response
+        if (partial) return;
+
         request.expectedOpsResponses--;
         if (request.expectedOpsResponses > 0) return;
 
@@ -370,7 +380,7 @@ public abstract class OpsAgent
         }
 
         ClientResponseImpl response =
-            new ClientResponseImpl(statusCode, ClientResponse.UNINITIALIZED_APP_STATUS_CODE, null,
+            new ClientResponseImpl(statusCode, ClientResponse.UNINITIALIZED_APP_STATUS_CODE, request.appStatusString,
                     responseTables, statusString);
         response.setClientHandle(request.clientData);
         ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize() + 4);
@@ -401,6 +411,48 @@ public abstract class OpsAgent
             return;
         }
 
+        int statbytes = 0;
+        for (int i = 0; i < results.length; i++) {
+            statbytes += results[i].getSerializedSize();
+        }
+
+        // Large responses go out in bounded chunks so neither side has to hold a second
+        // copy of the whole result in a single message.
+        if (statbytes > OPS_RESPONSE_CHUNK_BYTES && payloadType == OPS_PAYLOAD) {
+            VoltTable[] chunk = emptyChunk(results);
+            int chunkBytes = 0;
+            for (int i = 0; i < results.length; i++) {
+                results[i].resetRowPosition();
+                while (results[i].advanceRow()) {
+                    if (chunkBytes >= OPS_RESPONSE_CHUNK_BYTES) {
+                        sendOpsPayload(requestId, returnAddress, chunk, OPS_CHUNK);
+                        chunk = emptyChunk(results);
+                        chunkBytes = 0;
+                    }
+                    int before = chunk[i].getSerializedSize();
+                    chunk[i].add(results[i]);
+                    chunkBytes += chunk[i].getSerializedSize() - before;
+                }
+                results[i].resetRowPosition();
+            }
+            sendOpsPayload(requestId, returnAddress, chunk, payloadType);
+            return;
+        }
+
+        sendOpsPayload(requestId, returnAddress, results, payloadType);
+    }
+
+    private static VoltTable[] emptyChunk(VoltTable[] results) {
+        VoltTable[] chunk = new VoltTable[results.length];
+        for (int i = 0; i < results.length; i++) {
+            chunk[i] = results[i].clone(OPS_RESPONSE_CHUNK_BYTES / results.length);
+        }
+        return chunk;
+    }
+
+    private void sendOpsPayload(long requestId, long returnAddress, VoltTable[] results, byte payloadType)
+        throws Exception
+    {
         ByteBuffer[] bufs = new ByteBuffer[results.length];
         int statbytes = 0;
         for (int i = 0; i < results.length; i++) {
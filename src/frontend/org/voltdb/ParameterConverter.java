@@ -209,6 +209,37 @@ public class ParameterConverter {
         }
     }
 
+    /**
+     * The class of the values that {@link #tryToMakeCompatible(Class, Object)}
+     * returns unchanged for a parameter of the given type, or null if every
+     * value needs converting. Resolve it once per parameter, then check values
+     * with {@link #passesThrough(Class, Object)} to skip the conversion.
+     */
+    public static Class<?> passThroughClassFor(final Class<?> expectedClz)
+    {
+        if (expectedClz == long.class) return Long.class;
+        if (expectedClz == int.class) return Integer.class;
+        if (expectedClz == short.class) return Short.class;
+        if (expectedClz == byte.class) return Byte.class;
+        if (expectedClz == double.class) return Double.class;
+        if (expectedClz == String.class) return String.class;
+        if (expectedClz == byte[].class) return byte[].class;
+        return null;
+    }
+
+    /**
+     * @return true if the value would come back from tryToMakeCompatible unchanged.
+     * @param passThroughClz the parameter's {@link #passThroughClassFor(Class)}
+     */
+    public static boolean passesThrough(final Class<?> passThroughClz, final Object param)
+    {
+        if (param == null || param.getClass() != passThroughClz) {
+            return false;
+        }
+        // the null sigil for csv and json loading
+        return passThroughClz != String.class || !param.equals(Constants.CSV_NULL);
+    }
+
     /**
      * Convert the given value to the type given, if possible.
      *
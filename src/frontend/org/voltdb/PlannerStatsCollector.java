@@ -65,6 +65,16 @@ public class PlannerStatsCollector extends StatsSource {
      */
     long m_partitionId;
 
+    /**
+     * Index of the pooled ad hoc planner reporting these stats, or -1 for a site (EE) cache.
+     */
+    final int m_plannerId;
+
+    /**
+     * Number of ad hoc planning requests waiting for a planner when this planner last started work
+     */
+    int m_queueDepth = 0;
+
     /**
      * Cache 1 level
      */
@@ -77,6 +87,15 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cache2Level = 0;
     long m_lastCache2Level = 0;
 
+    /**
+     * Cache sizes in approximate bytes and cumulative evictions, as reported by the
+     * current ad hoc cache. Zero for site (EE) caches.
+     */
+    long m_cache1Bytes = 0;
+    long m_cache2Bytes = 0;
+    long m_cache1Evictions = 0;
+    long m_cache2Evictions = 0;
+
     /**
      * Cache 1 hits
      */
@@ -161,8 +180,28 @@ public class PlannerStatsCollector extends StatsSource {
      * @param siteId  site id
      */
     public PlannerStatsCollector(long siteId) {
+        this(siteId, -1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param siteId     site id
+     * @param plannerId  index of the pooled ad hoc planner, or -1 for a site cache
+     */
+    public PlannerStatsCollector(long siteId, int plannerId) {
         super(false);
         m_siteId = siteId;
+        m_plannerId = plannerId;
+    }
+
+    /**
+     * Called when a pooled planner picks up work.
+     *
+     * @param queueDepth  number of planning requests still waiting behind this one
+     */
+    public void updateQueueDepth(int queueDepth) {
+        m_queueDepth = queueDepth;
     }
 
     /**
@@ -177,6 +216,16 @@ public class PlannerStatsCollector extends StatsSource {
         m_partitionId = partitionId;
     }
 
+    /**
+     * Called after planning to record the size and eviction totals of the ad hoc plan cache.
+     */
+    public void updateCacheUsage(long cache1Bytes, long cache2Bytes, long cache1Evictions, long cache2Evictions) {
+        m_cache1Bytes = cache1Bytes;
+        m_cache2Bytes = cache2Bytes;
+        m_cache1Evictions = cache1Evictions;
+        m_cache2Evictions = cache2Evictions;
+    }
+
     /**
      * Called before doing planning. Starts timer.
      */
@@ -302,6 +351,12 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("PLANNER_ID")] = m_plannerId;
+        rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = m_queueDepth;
+        rowValues[columnNameToIndex.get("CACHE1_BYTES")] = m_cache1Bytes;
+        rowValues[columnNameToIndex.get("CACHE2_BYTES")] = m_cache2Bytes;
+        rowValues[columnNameToIndex.get("CACHE1_EVICTIONS")] = m_cache1Evictions;
+        rowValues[columnNameToIndex.get("CACHE2_EVICTIONS")] = m_cache2Evictions;
     }
 
     /**
@@ -322,6 +377,12 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLANNER_ID",    VoltType.INTEGER));
+        columns.add(new ColumnInfo("QUEUE_DEPTH",   VoltType.INTEGER));
+        columns.add(new ColumnInfo("CACHE1_BYTES",  VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_BYTES",  VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT));
     }
 
     @Override
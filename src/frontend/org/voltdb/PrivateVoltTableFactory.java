@@ -19,6 +19,8 @@ package org.voltdb;
 
 import java.nio.ByteBuffer;
 
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
+
 /**
  * Deliberately awkward access to package-private constructors of
  * VoltTable. End users shouldn't call the constructors, but VoltDB
@@ -42,6 +44,28 @@ public abstract class PrivateVoltTableFactory {
         return vt;
     }
 
+    /**
+     * Create a read only table over a region of a pooled direct buffer. The table
+     * takes over one reference to the pooled buffer from the caller.
+     */
+    public static VoltTable createVoltTableFromPooledBuffer(ByteBuffer backing, SharedBuffer pooled) {
+        assert(backing.isDirect());
+        VoltTable vt = new VoltTable(backing, true);
+        vt.m_pooledBuffer = pooled;
+        return vt;
+    }
+
+    /**
+     * Take the table's reference to the pooled buffer backing it, if it has one.
+     * Only the first caller gets the reference and becomes responsible for releasing it,
+     * and the table must not be read once the reference is released.
+     */
+    public static SharedBuffer detachPooledBuffer(VoltTable vt) {
+        SharedBuffer pooled = vt.m_pooledBuffer;
+        vt.m_pooledBuffer = null;
+        return pooled;
+    }
+
     /**
      * End users should not call this method.
      * Obtain a reference to the table's underlying buffer.
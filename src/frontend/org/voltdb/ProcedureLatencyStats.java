@@ -0,0 +1,194 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.HistogramData;
+import org.HdrHistogram_voltpatches.HistogramIterationValue;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.dtxn.LatencyStats;
+
+/**
+ * Latency percentiles of one procedure at one site, for both execution time and the time
+ * the transaction waited in the site's queues before it started executing.
+ *
+ * Invocations are recorded on the site thread into histograms of microseconds, which
+ * does not allocate. Recording starts with the first PROCEDURELATENCY request, so only
+ * sites and procedures whose latency is looked at hold histograms. Percentiles are only
+ * extracted when the stats are requested.
+ * Reported times are in nanoseconds like the execution times of the PROCEDURE selector.
+ */
+class ProcedureLatencyStats extends SiteStatsSource {
+
+    private final Procedure m_catProc;
+    private final int m_partitionId;
+
+    /*
+     * Allocated by the first stats request. m_queueWaitTimes is assigned last and
+     * publishes both to the site thread, which records nothing until then.
+     */
+    private AbstractHistogram m_executionTimes = null;
+    private volatile AbstractHistogram m_queueWaitTimes = null;
+    private long m_highestTrackableValue;
+
+    /*
+     * Contents of the histograms when interval stats were last collected,
+     * allocated the first time interval stats are requested
+     */
+    private AbstractHistogram m_lastExecutionTimes = null;
+    private AbstractHistogram m_lastQueueWaitTimes = null;
+
+    private long m_invocations = 0;
+    private long m_lastInvocations = 0;
+
+    private boolean m_interval = false;
+
+    public ProcedureLatencyStats(long siteId, int partitionId, Procedure catProc) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_catProc = catProc;
+    }
+
+    /**
+     * Record one invocation if latency stats have been requested. Called on the site thread.
+     * @param executionNanos  time spent executing the procedure
+     * @param queueWaitNanos  time spent queued before execution, or -1 if unknown
+     */
+    public final void recordInvocation(long executionNanos, long queueWaitNanos) {
+        final AbstractHistogram queueWaitTimes = m_queueWaitTimes;
+        if (queueWaitTimes == null) {
+            return;
+        }
+        m_executionTimes.recordValue(toTrackableMicros(executionNanos));
+        if (queueWaitNanos >= 0) {
+            queueWaitTimes.recordValue(toTrackableMicros(queueWaitNanos));
+        }
+        m_invocations++;
+    }
+
+    private long toTrackableMicros(long nanos) {
+        return Math.min(Math.max(nanos / 1000, 0), m_highestTrackableValue);
+    }
+
+    /**
+     * Copy a histogram that may still be recorded into by the site thread.
+     * If interval stats are wanted, subtract what was reported last time and remember
+     * the current contents for next time.
+     */
+    private static AbstractHistogram snapshot(AbstractHistogram live, AbstractHistogram last, boolean interval) {
+        final AbstractHistogram current = live.copy();
+        current.reestablishTotalCount();
+        if (!interval) {
+            return current;
+        }
+        final AbstractHistogram delta = current.copy();
+        for (HistogramIterationValue v : last.getHistogramData().recordedValues()) {
+            delta.recordValueWithCount(v.getValueIteratedTo(), -v.getCountAtValueIteratedTo());
+        }
+        current.copyInto(last);
+        return delta;
+    }
+
+    private void setPercentiles(Object rowValues[], String prefix, AbstractHistogram histogram) {
+        final HistogramData data = histogram.getHistogramData();
+        final boolean empty = data.getTotalCount() == 0;
+        rowValues[columnNameToIndex.get(prefix + "_P50")] = empty ? 0L : data.getValueAtPercentile(50.0) * 1000;
+        rowValues[columnNameToIndex.get(prefix + "_P95")] = empty ? 0L : data.getValueAtPercentile(95.0) * 1000;
+        rowValues[columnNameToIndex.get(prefix + "_P99")] = empty ? 0L : data.getValueAtPercentile(99.0) * 1000;
+        rowValues[columnNameToIndex.get(prefix + "_P999")] = empty ? 0L : data.getValueAtPercentile(99.9) * 1000;
+        rowValues[columnNameToIndex.get(prefix + "_MAX")] = empty ? 0L : data.getMaxValue() * 1000;
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        super.updateStatsRow(rowKey, rowValues);
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
+        rowValues[columnNameToIndex.get("PROCEDURE")] = m_catProc.getClassname();
+
+        long invocations = m_invocations;
+        if (m_interval) {
+            invocations = m_invocations - m_lastInvocations;
+            m_lastInvocations = m_invocations;
+            if (m_lastExecutionTimes == null) {
+                m_lastExecutionTimes = LatencyStats.constructHistogram(false);
+                m_lastQueueWaitTimes = LatencyStats.constructHistogram(false);
+            }
+        }
+        rowValues[columnNameToIndex.get("INVOCATIONS")] = invocations;
+        setPercentiles(rowValues, "EXECUTION",
+                snapshot(m_executionTimes, m_lastExecutionTimes, m_interval));
+        setPercentiles(rowValues, "QUEUE_WAIT",
+                snapshot(m_queueWaitTimes, m_lastQueueWaitTimes, m_interval));
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<VoltTable.ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("PROCEDURE", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("INVOCATIONS", VoltType.BIGINT));
+        for (String prefix : new String[] { "EXECUTION", "QUEUE_WAIT" }) {
+            columns.add(new VoltTable.ColumnInfo(prefix + "_P50", VoltType.BIGINT));
+            columns.add(new VoltTable.ColumnInfo(prefix + "_P95", VoltType.BIGINT));
+            columns.add(new VoltTable.ColumnInfo(prefix + "_P99", VoltType.BIGINT));
+            columns.add(new VoltTable.ColumnInfo(prefix + "_P999", VoltType.BIGINT));
+            columns.add(new VoltTable.ColumnInfo(prefix + "_MAX", VoltType.BIGINT));
+        }
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        if (m_queueWaitTimes == null) {
+            m_executionTimes = LatencyStats.constructHistogram(false);
+            m_highestTrackableValue = m_executionTimes.getHighestTrackableValue();
+            m_queueWaitTimes = LatencyStats.constructHistogram(false);
+        }
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean givenNext = false;
+            @Override
+            public boolean hasNext() {
+                if (givenNext || m_queueWaitTimes == null) {
+                    return false;
+                }
+                return m_interval ? m_invocations - m_lastInvocations > 0 : m_invocations > 0;
+            }
+
+            @Override
+            public Object next() {
+                if (!givenNext) {
+                    givenNext = true;
+                    return new Object();
+                }
+                return null;
+            }
+
+            @Override
+            public void remove() {}
+
+        };
+    }
+
+    @Override
+    public String toString() {
+        return m_catProc.getTypeName();
+    }
+}
@@ -21,6 +21,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -102,6 +105,10 @@ public class ProcedureRunner {
     protected final VoltProcedure m_procedure;
     protected Method m_procMethod;
     protected Class<?>[] m_paramTypes;
+    // run() bound to the procedure and taking the parameter array, null to use m_procMethod
+    protected MethodHandle m_procHandle;
+    // per parameter, the class of arguments that need no conversion
+    protected Class<?>[] m_passThroughClasses;
 
     // per txn state (are reset after call)
     //
@@ -119,7 +126,8 @@ public class ProcedureRunner {
     //
     protected final SiteProcedureConnection m_site;
     protected final SystemProcedureExecutionContext m_systemProcedureContext;
-    protected final CatalogSpecificPlanner m_csp;
+    // replaced when the runner is carried over to a new catalog
+    protected CatalogSpecificPlanner m_csp;
 
     // per procedure state and catalog info
     //
@@ -218,10 +226,21 @@ public class ProcedureRunner {
                 StatsSelector.PROCEDURE,
                 site.getCorrespondingSiteId(),
                 m_statsCollector);
+        VoltDB.instance().getStatsAgent().registerStatsSource(
+                StatsSelector.PROCEDURELATENCY,
+                site.getCorrespondingSiteId(),
+                m_statsCollector.getLatencyStats());
 
         reflect();
     }
 
+    /**
+     * Tell the stats which System.nanoTime() the next invocation was queued at.
+     */
+    public void setQueuedTime(long queuedTime) {
+        m_statsCollector.setQueuedTime(queuedTime);
+    }
+
     public Procedure getCatalogProcedure() {
         return m_catProc;
     }
@@ -304,6 +323,9 @@ public class ProcedureRunner {
             }
 
             for (int i = 0; i < m_paramTypes.length; i++) {
+                if (ParameterConverter.passesThrough(m_passThroughClasses[i], paramList[i])) {
+                    continue;
+                }
                 try {
                     paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
                     // check the result type in an assert
@@ -327,7 +349,18 @@ public class ProcedureRunner {
                             log.trace("invoking... procMethod=" + m_procMethod.getName() + ", class=" + m_procMethod.getDeclaringClass().getName());
                         }
                         try {
-                            Object rawResult = m_procMethod.invoke(m_procedure, paramList);
+                            Object rawResult;
+                            if (m_procHandle != null) {
+                                try {
+                                    rawResult = (Object) m_procHandle.invokeExact(paramList);
+                                } catch (Throwable t) {
+                                    // Same as what reflection reports for an exception thrown by run()
+                                    throw new InvocationTargetException(t);
+                                }
+                            }
+                            else {
+                                rawResult = m_procMethod.invoke(m_procedure, paramList);
+                            }
                             results = getResultsFromRawResults(rawResult);
                         } catch (IllegalAccessException e) {
                             // If reflection fails, invoke the same error handling that other exceptions do
@@ -531,6 +564,14 @@ public class ProcedureRunner {
         m_appStatusString = statusString;
     }
 
+    /**
+     * Plan ad hoc SQL queued by the procedure against a new catalog. Only valid
+     * when the procedure itself is unchanged by the catalog update.
+     */
+    void setCatalogSpecificPlanner(CatalogSpecificPlanner csp) {
+        m_csp = csp;
+    }
+
     public void setProcNameToLoadForFragmentTasks(String procName) {
         if (procName != null) {
             m_procNameToLoadForFragmentTasks = procName.getBytes(Charsets.UTF_8);
@@ -814,13 +855,13 @@ public class ProcedureRunner {
 
     private final ParameterSet getCleanParams(SQLStmt stmt, Object... inArgs) {
         final int numParamTypes = stmt.statementParamJavaTypes.length;
-        final byte stmtParamTypes[] = stmt.statementParamJavaTypes;
         final Object[] args = new Object[numParamTypes];
         if (inArgs.length != numParamTypes) {
             throw new VoltAbortException(
                     "Number of arguments provided was " + inArgs.length  +
                     " where " + numParamTypes + " was expected for statement " + stmt.getText());
         }
+        Object[] nullValues = null;
         for (int ii = 0; ii < numParamTypes; ii++) {
             // this handles non-null values
             if (inArgs[ii] != null) {
@@ -828,33 +869,53 @@ public class ProcedureRunner {
                 continue;
             }
             // this handles null values
+            if (nullValues == null) {
+                nullValues = getStatementParamNullValues(stmt);
+            }
+            args[ii] = nullValues[ii];
+        }
+
+        return ParameterSet.fromArrayNoCopy(args);
+    }
+
+    /**
+     * The NULL representation of each of the statement's parameters, worked out
+     * on first use and kept with the statement.
+     */
+    private static Object[] getStatementParamNullValues(SQLStmt stmt) {
+        if (stmt.statementParamNullValues != null) {
+            return stmt.statementParamNullValues;
+        }
+        final byte stmtParamTypes[] = stmt.statementParamJavaTypes;
+        final Object[] nullValues = new Object[stmtParamTypes.length];
+        for (int ii = 0; ii < stmtParamTypes.length; ii++) {
             VoltType type = VoltType.get(stmtParamTypes[ii]);
             if (type == VoltType.TINYINT) {
-                args[ii] = Byte.MIN_VALUE;
+                nullValues[ii] = Byte.MIN_VALUE;
             } else if (type == VoltType.SMALLINT) {
-                args[ii] = Short.MIN_VALUE;
+                nullValues[ii] = Short.MIN_VALUE;
             } else if (type == VoltType.INTEGER) {
-                args[ii] = Integer.MIN_VALUE;
+                nullValues[ii] = Integer.MIN_VALUE;
             } else if (type == VoltType.BIGINT) {
-                args[ii] = Long.MIN_VALUE;
+                nullValues[ii] = Long.MIN_VALUE;
             } else if (type == VoltType.FLOAT) {
-                args[ii] = VoltType.NULL_FLOAT;
+                nullValues[ii] = VoltType.NULL_FLOAT;
             } else if (type == VoltType.TIMESTAMP) {
-                args[ii] = new TimestampType(Long.MIN_VALUE);
+                nullValues[ii] = new TimestampType(Long.MIN_VALUE);
             } else if (type == VoltType.STRING) {
-                args[ii] = VoltType.NULL_STRING_OR_VARBINARY;
+                nullValues[ii] = VoltType.NULL_STRING_OR_VARBINARY;
             } else if (type == VoltType.VARBINARY) {
-                args[ii] = VoltType.NULL_STRING_OR_VARBINARY;
+                nullValues[ii] = VoltType.NULL_STRING_OR_VARBINARY;
             } else if (type == VoltType.DECIMAL) {
-                args[ii] = VoltType.NULL_DECIMAL;
+                nullValues[ii] = VoltType.NULL_DECIMAL;
             } else {
                 throw new VoltAbortException("Unknown type " + type +
                         " can not be converted to NULL representation for arg " + ii +
                         " for SQL stmt: " + stmt.getText());
             }
         }
-
-        return ParameterSet.fromArrayNoCopy(args);
+        stmt.statementParamNullValues = nullValues;
+        return nullValues;
     }
 
     public void initSQLStmt(SQLStmt stmt, Statement catStmt) {
@@ -884,6 +945,7 @@ public class ProcedureRunner {
 
         int numStatementParamJavaTypes = catStmt.getParameters().size();
         stmt.statementParamJavaTypes = new byte[numStatementParamJavaTypes];
+        stmt.statementParamNullValues = null;
         for (StmtParameter param : catStmt.getParameters()) {
             stmt.statementParamJavaTypes[param.getIndex()] = (byte)param.getJavatype();
             // ??? How does the SQLStmt successfully handle IN LIST queries without
@@ -942,6 +1004,17 @@ public class ProcedureRunner {
             if (m_procMethod == null && m_language == Language.JAVA) {
                 throw new RuntimeException("No \"run\" method found in: " + m_procedure.getClass().getName());
             }
+            if (m_procMethod != null) {
+                m_procHandle = runMethodHandle(m_procMethod, m_procedure);
+            }
+        }
+
+        // resolve the parameter types once instead of on every call
+        if (m_paramTypes != null) {
+            m_passThroughClasses = new Class<?>[m_paramTypes.length];
+            for (int i = 0; i < m_paramTypes.length; i++) {
+                m_passThroughClasses[i] = ParameterConverter.passThroughClassFor(m_paramTypes[i]);
+            }
         }
 
         // iterate through the fields and deal with sql statements
@@ -977,6 +1050,26 @@ public class ProcedureRunner {
         }
     }
 
+    /**
+     * A handle to the procedure's run method that takes the parameters as one
+     * Object[], which the JIT can call directly instead of going through
+     * reflective access and argument checks on each call.
+     * @return null if the method isn't publicly accessible, the caller falls back
+     * to reflection then.
+     */
+    static MethodHandle runMethodHandle(Method run, Object procedure) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(run);
+            if (!Modifier.isStatic(run.getModifiers())) {
+                handle = handle.bindTo(procedure);
+            }
+            return handle.asSpreader(Object[].class, run.getParameterTypes().length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
     private final static Language.Visitor<Class<?>[], ProcedureRunner> parametersTypeRetriever =
             new Language.Visitor<Class<?>[], ProcedureRunner>() {
                 @Override
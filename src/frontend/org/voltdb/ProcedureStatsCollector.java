@@ -71,6 +71,20 @@ class ProcedureStatsCollector extends SiteStatsSource {
      */
     private long m_currentStartTime = -1;
 
+    /**
+     * Time the procedure was last started, taken for every invocation for the latency percentiles
+     */
+    private long m_invocationStartTime;
+
+    /**
+     * Time the current invocation spent queued at the site, -1 if not known
+     */
+    private long m_queueWaitTime = -1;
+    private long m_queuedTime;
+    private boolean m_hasQueuedTime = false;
+
+    private final ProcedureLatencyStats m_latencyStats;
+
     /**
      * Count of the number of aborts (user initiated or DB initiated)
      */
@@ -134,14 +148,37 @@ class ProcedureStatsCollector extends SiteStatsSource {
         super(siteId, false);
         m_partitionId = partitionId;
         m_catProc = catProc;
+        m_latencyStats = new ProcedureLatencyStats(siteId, partitionId, catProc);
+    }
+
+    /**
+     * @return the source of the PROCEDURELATENCY statistics fed by this collector
+     */
+    public ProcedureLatencyStats getLatencyStats() {
+        return m_latencyStats;
+    }
+
+    /**
+     * Called before beginProcedure() with the time the transaction was queued at the site.
+     */
+    public final void setQueuedTime(long queuedTime) {
+        m_queuedTime = queuedTime;
+        m_hasQueuedTime = true;
     }
 
     /**
      * Called when a procedure begins executing. Caches the time the procedure starts.
      */
     public final void beginProcedure() {
+        m_invocationStartTime = System.nanoTime();
+        if (m_hasQueuedTime) {
+            m_queueWaitTime = m_invocationStartTime - m_queuedTime;
+            m_hasQueuedTime = false;
+        } else {
+            m_queueWaitTime = -1;
+        }
         if (m_invocations % timeCollectionInterval == 0) {
-            m_currentStartTime = System.nanoTime();
+            m_currentStartTime = m_invocationStartTime;
         }
     }
 
@@ -154,10 +191,11 @@ class ProcedureStatsCollector extends SiteStatsSource {
             boolean failed,
             VoltTable[] results,
             ParameterSet parameterSet) {
+        final long endTime = System.nanoTime();
+        m_latencyStats.recordInvocation(endTime - m_invocationStartTime, m_queueWaitTime);
         if (m_currentStartTime > 0) {
             // This is a sampled invocation.
             // Update timings and size statistics.
-            final long endTime = System.nanoTime();
             final long delta = endTime - m_currentStartTime;
             if (delta < 0)
             {
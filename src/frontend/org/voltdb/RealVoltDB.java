@@ -116,6 +116,7 @@ import org.voltdb.messaging.VoltDbMessageFactory;
 import org.voltdb.planner.ActivePlanRepository;
 import org.voltdb.rejoin.Iv2RejoinCoordinator;
 import org.voltdb.rejoin.JoinCoordinator;
+import org.voltdb.rejoin.StreamSnapshotStats;
 import org.voltdb.utils.CLibrary;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CatalogUtil.CatalogAndIds;
@@ -124,6 +125,7 @@ import org.voltdb.utils.HTTPAdminListener;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.MiscUtils;
 import org.voltdb.utils.PlatformProperties;
+import org.voltdb.utils.ProcStatsCollector;
 import org.voltdb.utils.SystemStatsCollector;
 import org.voltdb.utils.VoltSampler;
 
@@ -679,12 +681,15 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
 
             BalancePartitionsStatistics rebalanceStats = new BalancePartitionsStatistics();
             getStatsAgent().registerStatsSource(StatsSelector.REBALANCE, 0, rebalanceStats);
+            getStatsAgent().registerStatsSource(StatsSelector.REJOIN, 0, new StreamSnapshotStats());
 
             KSafetyStats kSafetyStats = new KSafetyStats();
             getStatsAgent().registerStatsSource(StatsSelector.KSAFETY, 0, kSafetyStats);
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.THREADCPU,
+                    0, new ThreadCpuStats());
 
             /*
              * Initialize the command log on rejoin and join before configuring the IV2
@@ -1304,6 +1309,16 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                 SystemStatsCollector.asyncSampleSystemNow(true, true);
             }
         }, 0, 6, TimeUnit.MINUTES));
+
+        // procfs samples for CPU and THREADCPU stats
+        if (ProcStatsCollector.instance.isAvailable() && ProcStatsCollector.SAMPLE_INTERVAL_MS > 0) {
+            m_periodicWorks.add(scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    ProcStatsCollector.instance.sample();
+                }
+            }, 0, ProcStatsCollector.SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS));
+        }
         GCInspector.instance.start(m_periodicPriorityWorkThread);
     }
 
@@ -57,6 +57,8 @@ public class SQLStmt {
     byte[] sqlCRC;
 
     byte statementParamJavaTypes[];
+    // NULL value of each parameter, filled in by the ProcedureRunner on first use
+    Object statementParamNullValues[];
 
     Frag aggregator;
     Frag collector;
@@ -173,6 +175,7 @@ public class SQLStmt {
          */
         if (params != null) {
             stmt.statementParamJavaTypes = new byte[params.length];
+            stmt.statementParamNullValues = null;
             for (int i = 0; i < params.length; i++) {
                 stmt.statementParamJavaTypes[i] = params[i].getValue();
             }
@@ -218,4 +218,7 @@ public class SimpleFileSnapshotDataTarget implements SnapshotDataTarget {
     public int getInContainerRowCount(BBContainer tupleData) {
         return SnapshotDataTarget.ROW_COUNT_UNSUPPORTED;
     }
+
+    @Override
+    public void reportRemainingRows(int tableId, long remainingRows) {}
 }
@@ -74,4 +74,12 @@ public interface SnapshotDataTarget {
      *   ROW_COUNT_UNSUPPORTED if the implementor does not support it
      */
     public int getInContainerRowCount(BBContainer tupleData);
+
+    /**
+     * Called after each block is serialized with the number of rows of the table
+     * the source stream still has to go, for targets that report their progress
+     * @param tableId   The catalog tableId
+     * @param remainingRows rows of the table that haven't been serialized yet
+     */
+    public void reportRemainingRows(int tableId, long remainingRows);
 }
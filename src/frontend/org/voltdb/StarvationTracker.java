@@ -52,6 +52,14 @@ public class StarvationTracker extends SiteStatsSource {
 
     private long m_starvationStartTime;
 
+    // time spent in each phase of the queue's wait strategy
+    private long m_spinTime = 0;
+    private long m_lastSpinTime = 0;
+    private long m_yieldTime = 0;
+    private long m_lastYieldTime = 0;
+    private long m_parkTime = 0;
+    private long m_lastParkTime = 0;
+
     private boolean m_interval;
 
     /**
@@ -81,6 +89,15 @@ public class StarvationTracker extends SiteStatsSource {
         m_lastMin = Math.min(m_lastMin, delta);
     }
 
+    /**
+     * Account for how the current starvation period was spent waiting for work.
+     */
+    public void recordWaitPhases(long spinNanos, long yieldNanos, long parkNanos) {
+        m_spinTime += spinNanos;
+        m_yieldTime += yieldNanos;
+        m_parkTime += parkNanos;
+    }
+
     @Override
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
@@ -90,6 +107,9 @@ public class StarvationTracker extends SiteStatsSource {
         columns.add(new ColumnInfo("MIN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("STDDEV", VoltType.BIGINT));
+        columns.add(new ColumnInfo("SPIN_PERCENT", VoltType.FLOAT));
+        columns.add(new ColumnInfo("YIELD_PERCENT", VoltType.FLOAT));
+        columns.add(new ColumnInfo("PARK_PERCENT", VoltType.FLOAT));
     }
 
     @Override
@@ -101,6 +121,12 @@ public class StarvationTracker extends SiteStatsSource {
             final long totalStarvedTime = m_totalTime - m_lastTotalTime;
             final long sumOfSquares = m_sumOfSquares - m_lastSumOfSquares;
             final long uSecs = totalStarvedTime / 1000;
+            final long spinTime = m_spinTime - m_lastSpinTime;
+            final long yieldTime = m_yieldTime - m_lastYieldTime;
+            final long parkTime = m_parkTime - m_lastParkTime;
+            m_lastSpinTime = m_spinTime;
+            m_lastYieldTime = m_yieldTime;
+            m_lastParkTime = m_parkTime;
             m_lastStartTime = now;
             m_lastSumOfSquares = m_sumOfSquares;
             m_lastTotalTime = m_totalTime;
@@ -114,6 +140,9 @@ public class StarvationTracker extends SiteStatsSource {
                 rowValues[columnNameToIndex.get("MIN")] = m_lastMin;
                 rowValues[columnNameToIndex.get("MAX")] = m_lastMax;
                 rowValues[columnNameToIndex.get("STDDEV")] = (long)Math.sqrt(sumOfSquares / count - uSecs * uSecs);
+                rowValues[columnNameToIndex.get("SPIN_PERCENT")] = spinTime / (totalTime / 100.0);
+                rowValues[columnNameToIndex.get("YIELD_PERCENT")] = yieldTime / (totalTime / 100.0);
+                rowValues[columnNameToIndex.get("PARK_PERCENT")] = parkTime / (totalTime / 100.0);
             } else {
                 rowValues[columnNameToIndex.get("COUNT")] = 0L;
                 rowValues[columnNameToIndex.get("PERCENT")] = 0L;
@@ -121,6 +150,9 @@ public class StarvationTracker extends SiteStatsSource {
                 rowValues[columnNameToIndex.get("MIN")] = 0L;
                 rowValues[columnNameToIndex.get("MAX")] = 0L;
                 rowValues[columnNameToIndex.get("STDDEV")] = 0L;
+                rowValues[columnNameToIndex.get("SPIN_PERCENT")] = 0.0;
+                rowValues[columnNameToIndex.get("YIELD_PERCENT")] = 0.0;
+                rowValues[columnNameToIndex.get("PARK_PERCENT")] = 0.0;
             }
         } else {
             final long totalTime = System.nanoTime() - m_startTime;
@@ -132,6 +164,9 @@ public class StarvationTracker extends SiteStatsSource {
                 rowValues[columnNameToIndex.get("MIN")] = m_min;
                 rowValues[columnNameToIndex.get("MAX")] = m_max;
                 rowValues[columnNameToIndex.get("STDDEV")] = (long)Math.sqrt(m_sumOfSquares / m_count - uSecs * uSecs);
+                rowValues[columnNameToIndex.get("SPIN_PERCENT")] = m_spinTime / (totalTime / 100.0);
+                rowValues[columnNameToIndex.get("YIELD_PERCENT")] = m_yieldTime / (totalTime / 100.0);
+                rowValues[columnNameToIndex.get("PARK_PERCENT")] = m_parkTime / (totalTime / 100.0);
             }
             else {
                 rowValues[columnNameToIndex.get("COUNT")] = 0L;
@@ -140,6 +175,9 @@ public class StarvationTracker extends SiteStatsSource {
                 rowValues[columnNameToIndex.get("MIN")] = 0L;
                 rowValues[columnNameToIndex.get("MAX")] = 0L;
                 rowValues[columnNameToIndex.get("STDDEV")] = 0L;
+                rowValues[columnNameToIndex.get("SPIN_PERCENT")] = 0.0;
+                rowValues[columnNameToIndex.get("YIELD_PERCENT")] = 0.0;
+                rowValues[columnNameToIndex.get("PARK_PERCENT")] = 0.0;
             }
         }
         super.updateStatsRow(rowKey, rowValues);
@@ -16,6 +16,7 @@
  */
 package org.voltdb;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
@@ -38,6 +39,13 @@ public class StatsAgent extends OpsAgent
     private final NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>> registeredStatsSources =
             new NonBlockingHashMap<StatsSelector, NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>>();
 
+    // Fingerprints of the rows returned by the last delta request for each selector and result
+    // table, mapped to the cursor of the request that first saw them. Only touched from the
+    // agent's thread.
+    private final Map<String, Map<Long, Long>> m_deltaFirstSeen = new HashMap<String, Map<Long, Long>>();
+    // Forgetting the history only makes the next delta poll resend rows, so just start over
+    private static final int MAX_DELTA_TRACKERS = 256;
+
     public StatsAgent()
     {
         super("StatsAgent");
@@ -67,6 +75,26 @@ public class StatsAgent extends OpsAgent
 
         default:
         }
+
+        // Each host applied top-N to its own rows, cut the union down to the global top-N
+        if (request.aggregateTables != null) {
+            try {
+                StatsResultFilter filter = StatsResultFilter.fromJSON(request.request);
+                if (filter != null) {
+                    for (int i = 0; i < request.aggregateTables.length; i++) {
+                        request.aggregateTables[i] = filter.topN(request.aggregateTables[i]);
+                    }
+                }
+            } catch (Exception e) {
+                hostLog.warn("Unable to apply top-N to stats results for " + request.subselector, e);
+            }
+        }
+    }
+
+    private static boolean isAggregatedSelector(StatsSelector selector) {
+        return selector == StatsSelector.PROCEDUREPROFILE ||
+               selector == StatsSelector.PROCEDUREINPUT ||
+               selector == StatsSelector.PROCEDUREOUTPUT;
     }
 
     private Supplier<Map<String, Boolean>> m_procInfo = getProcInfoSupplier();
@@ -188,6 +216,8 @@ public class StatsAgent extends OpsAgent
         m_procInfo = getProcInfoSupplier();
         registeredStatsSources.put(StatsSelector.PROCEDURE,
                                    new NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>());
+        registeredStatsSources.put(StatsSelector.PROCEDURELATENCY,
+                                   new NonBlockingHashMap<Long, NonBlockingHashSet<StatsSource>>());
     }
 
     @Override
@@ -209,6 +239,19 @@ public class StatsAgent extends OpsAgent
             return;
         }
         String subselector = obj.getString("subselector");
+        final long now = System.currentTimeMillis();
+        String cursor = null;
+        if (obj.optLong(StatsResultFilter.SINCE, -1) >= 0) {
+            if (isAggregatedSelector(StatsSelector.valueOf(subselector))) {
+                sendErrorResponse(c, ClientResponse.GRACEFUL_FAILURE,
+                        "Delta collection is not supported for @Statistics selector " + subselector,
+                        clientHandle);
+                return;
+            }
+            // Hosts stamp newly seen rows with the initiator's clock so one cursor works cluster-wide
+            obj.put(StatsResultFilter.CURSOR, now);
+            cursor = Long.toString(now);
+        }
 
         // Some selectors can provide a single answer based on global data.
         // Intercept them and respond before doing the distributed stuff.
@@ -241,19 +284,28 @@ public class StatsAgent extends OpsAgent
                         subselector,
                         c,
                         clientHandle,
-                        System.currentTimeMillis(),
+                        now,
                         obj);
+        // The cursor for the next delta poll is handed back as the app status string
+        psr.appStatusString = cursor;
         distributeOpsWork(psr, obj);
             }
 
     // Parse the provided parameter set object and fill in subselector and interval into
     // the provided JSONObject.  If there's an error, return that in the String, otherwise
     // return null.  Yes, ugly.  Bang it out, then refactor later.
+    //
+    // Optional trailing arguments narrow what each host sends back:
+    //   3: BIGINT delta cursor, only rows changed after it are returned (negative disables)
+    //   4: INTEGER top-N row count (0 disables)
+    //   5: STRING column the top-N is ordered by, descending
+    //   6: STRING filter of the form COLUMN=VALUE
     private String parseParamsForStatistics(ParameterSet params, JSONObject obj) throws Exception
     {
-        if ((params.toArray().length < 1) || (params.toArray().length > 2)) {
-            return "Incorrect number of arguments to @Statistics (expects 2, received " +
-                    params.toArray().length + ")";
+        Object[] args = params.toArray();
+        if ((args.length < 1) || (args.length > 6)) {
+            return "Incorrect number of arguments to @Statistics (expects 2 to 6, received " +
+                    args.length + ")";
         }
         Object first = params.toArray()[0];
         if (!(first instanceof String)) {
@@ -277,6 +329,36 @@ public class StatsAgent extends OpsAgent
         obj.put("subselector", subselector);
         obj.put("interval", interval);
 
+        if (args.length >= 3 && args[2] != null) {
+            if (!(args[2] instanceof Number)) {
+                return "Third argument to @Statistics must be a BIGINT delta cursor, instead was " + args[2];
+            }
+            obj.put(StatsResultFilter.SINCE, ((Number)args[2]).longValue());
+        }
+        if (args.length >= 4 && args[3] != null) {
+            if (!(args[3] instanceof Number)) {
+                return "Fourth argument to @Statistics must be an INTEGER top-N row count, instead was " + args[3];
+            }
+            int topN = ((Number)args[3]).intValue();
+            if (topN > 0) {
+                if (args.length < 5 || !(args[4] instanceof String) || ((String)args[4]).isEmpty()) {
+                    return "Fifth argument to @Statistics must name the STRING column to order the top-N by";
+                }
+                obj.put(StatsResultFilter.TOP_N, topN);
+                obj.put(StatsResultFilter.ORDER_BY, args[4]);
+            }
+        }
+        if (args.length >= 6 && args[5] != null && !args[5].toString().isEmpty()) {
+            String filter = args[5].toString();
+            int eq = filter.indexOf('=');
+            if (eq <= 0) {
+                return "Sixth argument to @Statistics must be a STRING filter of the form COLUMN=VALUE, instead was " +
+                        filter;
+            }
+            obj.put(StatsResultFilter.FILTER_COLUMN, filter.substring(0, eq).trim());
+            obj.put(StatsResultFilter.FILTER_VALUE, filter.substring(eq + 1));
+        }
+
         return null;
     }
 
@@ -288,6 +370,9 @@ public class StatsAgent extends OpsAgent
             OpsSelector selector = OpsSelector.valueOf(obj.getString("selector").toUpperCase());
             if (selector == OpsSelector.STATISTICS) {
                 results = collectDistributedStats(obj);
+                if (results != null) {
+                    results = applyResultFilter(obj, results);
+                }
             }
             else {
                 hostLog.warn("StatsAgent received a non-STATISTICS OPS selector: " + selector);
@@ -302,6 +387,42 @@ public class StatsAgent extends OpsAgent
         }
     }
 
+    /**
+     * Filter, top-N and delta selection on this host's tables, so rows the client
+     * doesn't want never leave the host.
+     */
+    private VoltTable[] applyResultFilter(JSONObject obj, VoltTable[] results) throws Exception
+    {
+        StatsResultFilter filter = StatsResultFilter.fromJSON(obj);
+        if (filter == null) {
+            return results;
+        }
+        StatsSelector subselector = StatsSelector.valueOf(obj.getString("subselector"));
+        for (int i = 0; i < results.length; i++) {
+            VoltTable table = filter.filter(results[i]);
+            // Rows of aggregated selectors are per site, they can only be cut after aggregation
+            if (!isAggregatedSelector(subselector)) {
+                table = filter.topN(table);
+            }
+            if (filter.isDelta()) {
+                // Pollers using different filters mustn't prune each other's rows
+                String key = subselector.name() + "/" + obj.getBoolean("interval") + "/" + i + "/" +
+                        filter.m_filterColumn + "=" + filter.m_filterValue + "/" + filter.m_topN + "/" + filter.m_orderBy;
+                Map<Long, Long> firstSeen = m_deltaFirstSeen.get(key);
+                if (firstSeen == null) {
+                    if (m_deltaFirstSeen.size() >= MAX_DELTA_TRACKERS) {
+                        m_deltaFirstSeen.clear();
+                    }
+                    firstSeen = new HashMap<Long, Long>();
+                    m_deltaFirstSeen.put(key, firstSeen);
+                }
+                table = filter.delta(table, firstSeen);
+            }
+            results[i] = table;
+        }
+        return results;
+    }
+
     private void collectTopoStats(PendingOpsRequest psr)
     {
         VoltTable[] tables = null;
@@ -369,6 +490,9 @@ public class StatsAgent extends OpsAgent
         case CPU:
             stats = collectCpuStats(interval);
             break;
+        case THREADCPU:
+            stats = collectThreadCpuStats(interval);
+            break;
         case IOSTATS:
             stats = collectIOStats(interval);
             break;
@@ -387,6 +511,9 @@ public class StatsAgent extends OpsAgent
         case PROCEDUREPROFILE:
             stats = collectProcedureStats(interval);
             break;
+        case PROCEDURELATENCY:
+            stats = collectProcedureLatencyStats(interval);
+            break;
         case STARVATION:
             stats = collectStarvationStats(interval);
             break;
@@ -408,6 +535,12 @@ public class StatsAgent extends OpsAgent
         case REBALANCE:
             stats = collectRebalanceStats(interval);
             break;
+        case REJOIN:
+            stats = collectRejoinStats(interval);
+            break;
+        case MPREADPOOL:
+            stats = collectMpReadPoolStats(interval);
+            break;
         case KSAFETY:
             stats = collectKSafetyStats(interval);
             break;
@@ -549,6 +682,19 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectThreadCpuStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable tStats = getStatsAggregate(StatsSelector.THREADCPU, interval, now);
+        if (tStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = tStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectIOStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -614,6 +760,19 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectProcedureLatencyStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable lStats = getStatsAggregate(StatsSelector.PROCEDURELATENCY, interval, now);
+        if (lStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = lStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectStarvationStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -729,6 +888,32 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectRejoinStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable mStats = getStatsAggregate(StatsSelector.REJOIN, interval, now);
+        if (mStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = mStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectMpReadPoolStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable mStats = getStatsAggregate(StatsSelector.MPREADPOOL, interval, now);
+        if (mStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = mStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectKSafetyStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
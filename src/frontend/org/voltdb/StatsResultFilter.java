@@ -0,0 +1,250 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json_voltpatches.JSONObject;
+
+/**
+ * Row selection applied to @Statistics results on each host before they are
+ * shipped to the requesting agent: an equality filter on one column, a top-N
+ * cut ordered descending by one column, and delta tracking so that a poller
+ * only receives rows whose contents changed after its cursor.
+ *
+ * Tables that don't contain the named column pass through untouched, which
+ * keeps multi-table selectors like DR usable with a filter meant for one table.
+ */
+class StatsResultFilter
+{
+    static final String SINCE = "since";
+    static final String CURSOR = "cursor";
+    static final String TOP_N = "topN";
+    static final String ORDER_BY = "orderBy";
+    static final String FILTER_COLUMN = "filterColumn";
+    static final String FILTER_VALUE = "filterValue";
+
+    private static final String TIMESTAMP_COLUMN = "TIMESTAMP";
+
+    final long m_since;
+    final long m_cursor;
+    final int m_topN;
+    final String m_orderBy;
+    final String m_filterColumn;
+    final String m_filterValue;
+
+    private StatsResultFilter(long since, long cursor, int topN, String orderBy,
+            String filterColumn, String filterValue)
+    {
+        m_since = since;
+        m_cursor = cursor;
+        m_topN = topN;
+        m_orderBy = orderBy;
+        m_filterColumn = filterColumn;
+        m_filterValue = filterValue;
+    }
+
+    /**
+     * @return the filter described by the request, or null if the request
+     * asked for plain full results.
+     */
+    static StatsResultFilter fromJSON(JSONObject obj) throws Exception
+    {
+        long since = obj.optLong(SINCE, -1);
+        int topN = obj.optInt(TOP_N, 0);
+        String filterColumn = obj.has(FILTER_COLUMN) ? obj.getString(FILTER_COLUMN) : null;
+        if (since < 0 && topN <= 0 && filterColumn == null) {
+            return null;
+        }
+        return new StatsResultFilter(
+                since,
+                obj.optLong(CURSOR, System.currentTimeMillis()),
+                topN,
+                obj.has(ORDER_BY) ? obj.getString(ORDER_BY) : null,
+                filterColumn,
+                obj.has(FILTER_VALUE) ? obj.getString(FILTER_VALUE) : null);
+    }
+
+    boolean isDelta() {
+        return m_since >= 0;
+    }
+
+    /**
+     * Keep only the rows whose filter column renders as the filter value.
+     */
+    VoltTable filter(VoltTable table)
+    {
+        if (m_filterColumn == null) {
+            return table;
+        }
+        int col = findColumn(table, m_filterColumn);
+        if (col < 0) {
+            return table;
+        }
+        VoltTable result = table.clone(0);
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            Object value = table.get(col, table.getColumnType(col));
+            String rendered = table.wasNull() ? null : String.valueOf(value);
+            if (m_filterValue == null ? rendered == null : m_filterValue.equals(rendered)) {
+                result.add(table);
+            }
+        }
+        table.resetRowPosition();
+        return result;
+    }
+
+    /**
+     * Keep the N rows with the largest values in the order-by column.
+     */
+    VoltTable topN(VoltTable table)
+    {
+        if (m_topN <= 0 || table.getRowCount() <= m_topN) {
+            return table;
+        }
+        final int col = findColumn(table, m_orderBy);
+        if (col < 0) {
+            return table;
+        }
+        final VoltType type = table.getColumnType(col);
+        List<Object[]> rows = new ArrayList<Object[]>(table.getRowCount());
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            rows.add(rowValues(table));
+        }
+        table.resetRowPosition();
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] o1, Object[] o2) {
+                return compareValues(o2[col], o1[col], type);
+            }
+        });
+
+        VoltTable result = table.clone(0);
+        for (int i = 0; i < m_topN; i++) {
+            result.addRow(rows.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Drop the rows that haven't changed since the cursor the client supplied.
+     * firstSeen maps the fingerprint of every row seen by the previous delta
+     * request to the cursor of the request that first saw it. It is rebuilt to
+     * hold only the current rows so it stays bounded by the size of the table.
+     */
+    VoltTable delta(VoltTable table, Map<Long, Long> firstSeen)
+    {
+        int timestampCol = findColumn(table, TIMESTAMP_COLUMN);
+        Map<Long, Long> seenNow = new HashMap<Long, Long>(table.getRowCount() * 2);
+        VoltTable result = table.clone(0);
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            long fingerprint = fingerprint(table, timestampCol);
+            Long seen = firstSeen.get(fingerprint);
+            if (seen == null) {
+                seen = m_cursor;
+            }
+            seenNow.put(fingerprint, seen);
+            if (seen > m_since) {
+                result.add(table);
+            }
+        }
+        table.resetRowPosition();
+        firstSeen.clear();
+        firstSeen.putAll(seenNow);
+        return result;
+    }
+
+    static int findColumn(VoltTable table, String name)
+    {
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            if (table.getColumnName(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object[] rowValues(VoltTableRow row)
+    {
+        Object[] values = new Object[row.getColumnCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(i, row.getColumnType(i));
+            if (row.wasNull()) {
+                values[i] = null;
+            }
+        }
+        return values;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Object v1, Object v2, VoltType type)
+    {
+        // nulls sort below everything so they fall out of a top-N first
+        if (v1 == null || v2 == null) {
+            return v1 == null ? (v2 == null ? 0 : -1) : 1;
+        }
+        if (v1 instanceof Comparable && type != VoltType.VARBINARY) {
+            return ((Comparable)v1).compareTo(v2);
+        }
+        return String.valueOf(v1).compareTo(String.valueOf(v2));
+    }
+
+    /**
+     * 64-bit hash of every column but the collection timestamp, which changes
+     * on each poll without the row having changed.
+     */
+    static long fingerprint(VoltTableRow row, int skipColumn)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < row.getColumnCount(); i++) {
+            if (i == skipColumn) {
+                continue;
+            }
+            Object value = row.get(i, row.getColumnType(i));
+            long v;
+            if (row.wasNull()) {
+                v = 0x9e3779b97f4a7c15L;
+            } else if (value instanceof String) {
+                v = 0;
+                String s = (String)value;
+                for (int c = 0; c < s.length(); c++) {
+                    v = v * 31 + s.charAt(c);
+                }
+            } else if (value instanceof byte[]) {
+                v = Arrays.hashCode((byte[])value);
+            } else if (value instanceof Double || value instanceof Float) {
+                v = Double.doubleToLongBits(((Number)value).doubleValue());
+            } else if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                v = ((Number)value).longValue();
+            } else {
+                v = value.hashCode();
+            }
+            h = (h ^ v) * 0x100000001b3L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+}
@@ -34,6 +34,7 @@ public enum StatsSelector {
     SNAPSHOTSTATUS,
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
+    PROCEDURELATENCY, // latency percentiles of each procedure at each partition
 
     /*
      * DRPARTITION and DRNODE are internal names
@@ -49,6 +50,9 @@ public enum StatsSelector {
 
     TOPO,           // return leader and site info for iv2
     REBALANCE,      // return elastic rebalance progress
+    REJOIN,         // return progress of the stream snapshots sent to rejoining or joining nodes
+    MPREADPOOL,     // return utilization of the MPI's pool of read-only sites
     KSAFETY,         // return ksafety coverage information
-    CPU // Return CPU Stats
+    CPU, // Return CPU Stats
+    THREADCPU // CPU time and context switches of each site thread
 }
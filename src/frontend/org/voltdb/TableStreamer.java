@@ -110,6 +110,10 @@ public class TableStreamer {
             VoltDB.crashLocalVoltDB("Failure while serializing data from table " + m_tableId, false, null);
         }
 
+        for (SnapshotTableTask task : m_tableTasks) {
+            task.m_target.reportRemainingRows(m_tableId, serializeResult.getFirst());
+        }
+
         if (serializeResult.getSecond()[0] > 0) {
             if (rowCountAccumulator != null && rowCountAccumulator.length == 1) {
                 rowCountAccumulator[0] += getTupleDataRowCount(outputBuffers);
@@ -166,6 +166,23 @@ public abstract class TheHashinator {
     abstract public int pHashToPartition(VoltType type, Object obj);
     abstract protected Set<Integer> pGetPartitions();
 
+    /**
+     * Batch versions of pHashinateLong() and pHashToPartition() that fill in the
+     * partitions of the first count values. Implementations with a faster path
+     * for many values override these.
+     */
+    public void pHashinateLongs(long[] values, int count, int[] partitions) {
+        for (int ii = 0; ii < count; ii++) {
+            partitions[ii] = pHashinateLong(values[ii]);
+        }
+    }
+
+    public void pHashToPartitions(VoltType type, Object[] values, int count, int[] partitions) {
+        for (int ii = 0; ii < count; ii++) {
+            partitions[ii] = pHashToPartition(type, values[ii]);
+        }
+    }
+
     /**
      * Returns the configuration signature
      * @return the configuration signature
@@ -306,6 +323,18 @@ public abstract class TheHashinator {
         return instance.get().getSecond().getHashedPartitionForParameter(partitionType, invocationParameter);
     }
 
+    /**
+     * Batch version of {@link #getPartitionForParameter(VoltType, Object)} that fills in
+     * the partitions of the first count parameters.
+     */
+    public static void getPartitionsForParameters(VoltType partitionType, Object[] invocationParameters,
+            int count, int[] partitions)
+            throws VoltTypeException
+    {
+        instance.get().getSecond().getHashedPartitionsForParameters(
+                partitionType, invocationParameters, count, partitions);
+    }
+
     /**
      * Given the type of the targeting partition parameter and an object,
      * coerce the object to the correct type and hash it.
@@ -335,6 +364,25 @@ public abstract class TheHashinator {
      */
     public int getHashedPartitionForParameter(VoltType partitionParamType, Object partitionValue)
             throws VoltTypeException {
+        return hashToPartition(this, partitionParamType, coercePartitionValue(partitionParamType, partitionValue));
+    }
+
+    /**
+     * Batch version of {@link #getHashedPartitionForParameter(VoltType, Object)} that fills in
+     * the partitions of the first count values.
+     */
+    public void getHashedPartitionsForParameters(VoltType partitionParamType, Object[] partitionValues,
+            int count, int[] partitions)
+            throws VoltTypeException {
+        Object values[] = new Object[count];
+        for (int ii = 0; ii < count; ii++) {
+            values[ii] = coercePartitionValue(partitionParamType, partitionValues[ii]);
+        }
+        pHashToPartitions(partitionParamType, values, count, partitions);
+    }
+
+    private static Object coercePartitionValue(VoltType partitionParamType, Object partitionValue)
+            throws VoltTypeException {
         // Special cases:
         // 1) if the user supplied a string for a number column,
         // try to do the conversion. This makes it substantially easier to
@@ -358,8 +406,7 @@ public abstract class TheHashinator {
                 partitionValue = bytesToValue(partitionParamType, (byte[]) partitionValue);
             }
         }
-
-        return hashToPartition(this, partitionParamType, partitionValue);
+        return partitionValue;
     }
 
     /**
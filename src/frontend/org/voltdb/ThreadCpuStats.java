@@ -0,0 +1,88 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.ProcStatsCollector;
+import org.voltdb.utils.ProcStatsCollector.ThreadSample;
+
+/**
+ * One row per thread registered with the ProcStatsCollector, which is the site threads.
+ * Percentages are of one core over the last sample interval, context switch
+ * counts are cumulative since the thread started.
+ */
+public class ThreadCpuStats extends StatsSource {
+
+    final ProcStatsCollector m_procStats;
+    // The samples the current rows are computed from
+    private ProcStatsCollector.Sample m_latest;
+    private ProcStatsCollector.Sample m_previous;
+
+    public ThreadCpuStats() {
+        this(ProcStatsCollector.instance);
+    }
+
+    public ThreadCpuStats(ProcStatsCollector procStats) {
+        super(false);
+        m_procStats = procStats;
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        m_latest = m_procStats.getLatest();
+        m_previous = m_procStats.getPrevious(1);
+        if (m_latest == null) {
+            return Collections.emptyList().iterator();
+        }
+        return Arrays.<Object>asList((Object[])m_latest.threads).iterator();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new VoltTable.ColumnInfo("THREAD_NAME", VoltType.STRING));
+        columns.add(new VoltTable.ColumnInfo("THREAD_ID", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("PERCENT_USER", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("PERCENT_SYSTEM", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final ThreadSample thread = (ThreadSample)rowKey;
+        final ThreadSample before = m_previous == null ? null : m_previous.getThread(thread.tid);
+        long user = -1, system = -1;
+        if (before != null) {
+            final long elapsed = m_latest.timestamp - m_previous.timestamp;
+            user = Math.round(ProcStatsCollector.percent(before.userMs, thread.userMs, elapsed));
+            system = Math.round(ProcStatsCollector.percent(before.systemMs, thread.systemMs, elapsed));
+        }
+        rowValues[columnNameToIndex.get("THREAD_NAME")] = thread.name;
+        rowValues[columnNameToIndex.get("THREAD_ID")] = thread.tid;
+        rowValues[columnNameToIndex.get("PERCENT_USER")] = user;
+        rowValues[columnNameToIndex.get("PERCENT_SYSTEM")] = system;
+        rowValues[columnNameToIndex.get("VOLUNTARY_CONTEXT_SWITCHES")] = thread.voluntaryContextSwitches;
+        rowValues[columnNameToIndex.get("INVOLUNTARY_CONTEXT_SWITCHES")] = thread.involuntaryContextSwitches;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+}
@@ -0,0 +1,151 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google_voltpatches.common.base.Throwables;
+
+/**
+ * Concurrency limit for a single connection that adapts to the cluster round trip time
+ * reported in each response, in place of a fixed max outstanding count.
+ *
+ * The limit follows a gradient between a long term average round trip time, standing in
+ * for the unloaded latency, and a short term average. While the short term latency stays
+ * within TOLERANCE of the long term one the limit keeps growing by about its square root per
+ * response. As the host starts queueing the short term latency climbs, the gradient drops
+ * below one and the limit shrinks toward what the host can turn around without queueing.
+ * Timeouts and lost responses back the limit off multiplicatively. The limit only grows
+ * while the client is actually using at least half of it.
+ *
+ * One instance per connection means one slow host only throttles the work routed to it.
+ * Rate limits and auto tuning from {@link RateLimiter} don't apply.
+ */
+class AdaptiveConcurrencyLimiter extends RateLimiter {
+    static final int INITIAL_LIMIT = 20;
+    static final int MIN_LIMIT = 1;
+    // how much higher short term latency can be than the long term before the limit shrinks
+    static final double TOLERANCE = 1.5;
+    // weight of each new limit estimate
+    static final double SMOOTHING = 0.2;
+    // number of samples averaged by the short and long term round trip times
+    static final int SHORT_WINDOW = 10;
+    static final int LONG_WINDOW = 600;
+    static final double BACKOFF_RATIO = 0.9;
+
+    private final int m_maxLimit;
+    private double m_limit = INITIAL_LIMIT;
+    private double m_shortRttMillis = 0;
+    private double m_longRttMillis = 0;
+    private int m_inflight = 0;
+    private int m_waiters = 0;
+
+    AdaptiveConcurrencyLimiter(int maxLimit) {
+        m_maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        m_limit = Math.min(INITIAL_LIMIT, m_maxLimit);
+    }
+
+    @Override
+    long sendTxnWithOptionalBlockAndReturnCurrentTime(long timestampNanos, long timeoutNanos, boolean ignoreBackpressure)
+            throws TimeoutException {
+        if (ignoreBackpressure) return timestampNanos;
+        synchronized (this) {
+            if (m_inflight < (int)m_limit) {
+                m_inflight++;
+                return timestampNanos;
+            }
+            final long deadlineNanos = timestampNanos + timeoutNanos;
+            m_waiters++;
+            try {
+                while (m_inflight >= (int)m_limit) {
+                    final long remainingNanos = deadlineNanos - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Throwables.propagate(e);
+            } finally {
+                m_waiters--;
+            }
+            m_inflight++;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * @param internalLatency cluster round trip in milliseconds, -1 for a timeout or lost connection
+     */
+    @Override
+    void transactionResponseReceived(long timestampNanos, int internalLatency, boolean ignoreBackpressure) {
+        if (ignoreBackpressure) return;
+        synchronized (this) {
+            final int inflight = m_inflight--;
+            assert(m_inflight >= 0);
+            updateLimit(internalLatency, inflight);
+            if (m_waiters > 0) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void updateLimit(int clusterRttMillis, int inflight) {
+        if (clusterRttMillis < 0) {
+            m_limit = Math.max(MIN_LIMIT, m_limit * BACKOFF_RATIO);
+            return;
+        }
+        // the cluster reports whole milliseconds, anything faster is 1ms
+        final double rtt = Math.max(1, clusterRttMillis);
+        if (m_longRttMillis == 0) {
+            m_shortRttMillis = rtt;
+            m_longRttMillis = rtt;
+        } else {
+            m_shortRttMillis += (rtt - m_shortRttMillis) / SHORT_WINDOW;
+            m_longRttMillis += (rtt - m_longRttMillis) / LONG_WINDOW;
+        }
+        // the long term average lags a sustained drop in latency, let it catch up
+        if (m_longRttMillis / m_shortRttMillis > 2) {
+            m_longRttMillis *= 0.95;
+        }
+        // nothing to learn about a limit the client isn't using
+        if (inflight < m_limit / 2) return;
+
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * m_longRttMillis / m_shortRttMillis));
+        final double newLimit = m_limit * gradient + Math.sqrt(m_limit);
+        m_limit = Math.max(MIN_LIMIT, Math.min(m_maxLimit, m_limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    @Override
+    synchronized int[] getLimits() {
+        return new int[] { Integer.MAX_VALUE, (int)m_limit };
+    }
+
+    synchronized int getInflight() {
+        return m_inflight;
+    }
+
+    @Override
+    public synchronized void debug() {
+        System.out.printf("Adaptive limit is %d of max %d with %d outstanding\n",
+                (int)m_limit, m_maxLimit, m_inflight);
+        System.out.printf("Short term cluster round trip is %.2fms and long term is %.2fms\n",
+                m_shortRttMillis, m_longRttMillis);
+    }
+}
@@ -0,0 +1,121 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * Runs procedure callbacks away from the client's network threads so a slow callback
+ * doesn't stop responses for other transactions from being read.
+ *
+ * Unordered, all threads share one queue. Ordered, each thread has its own queue and
+ * a partition always maps to the same thread so its callbacks run in the order the
+ * responses arrived. Callbacks without a known partition all go to the first thread.
+ */
+class CallbackExecutor {
+    private final ExecutorService m_lanes[];
+    private final AtomicInteger m_queueDepth = new AtomicInteger(0);
+    private final AtomicInteger m_maxQueueDepth = new AtomicInteger(0);
+
+    //Set on this executor's threads so a callback that closes the client doesn't wait on itself,
+    //and one that calls the client synchronously is refused instead of waiting on itself
+    private final ThreadLocal<Boolean> m_isCallbackThread = new ThreadLocal<Boolean>();
+
+    CallbackExecutor(int threads, boolean orderedPerPartition) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Callback executor needs at least one thread, " + threads + " specified");
+        }
+        if (orderedPerPartition) {
+            m_lanes = new ExecutorService[threads];
+            for (int ii = 0; ii < threads; ii++) {
+                m_lanes[ii] = createExecutor(1);
+            }
+        } else {
+            m_lanes = new ExecutorService[] { createExecutor(threads) };
+        }
+    }
+
+    private ExecutorService createExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                CoreUtils.getThreadFactory("VoltDB Client Callback")) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                m_isCallbackThread.set(Boolean.TRUE);
+                m_queueDepth.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * @param partition  partition the procedure was routed to or -1 if not known,
+     *                   only used when callbacks are ordered
+     */
+    void execute(int partition, Runnable callback) {
+        final int depth = m_queueDepth.incrementAndGet();
+        int max;
+        while (depth > (max = m_maxQueueDepth.get())) {
+            if (m_maxQueueDepth.compareAndSet(max, depth)) break;
+        }
+        final ExecutorService lane = m_lanes[partition >= 0 ? partition % m_lanes.length : 0];
+        try {
+            lane.execute(callback);
+        } catch (RejectedExecutionException e) {
+            //Shutting down, don't lose the callback
+            m_queueDepth.decrementAndGet();
+            callback.run();
+        }
+    }
+
+    /**
+     * @return true if the current thread is one of this executor's callback threads
+     */
+    boolean isCallbackThread() {
+        return m_isCallbackThread.get() != null;
+    }
+
+    int getQueueDepth() {
+        return Math.max(0, m_queueDepth.get());
+    }
+
+    int getMaxQueueDepth() {
+        return m_maxQueueDepth.get();
+    }
+
+    /**
+     * Run callbacks that are already queued, then stop the threads
+     */
+    void shutdown() throws InterruptedException {
+        for (ExecutorService lane : m_lanes) {
+            lane.shutdown();
+        }
+        if (isCallbackThread()) {
+            return;
+        }
+        for (ExecutorService lane : m_lanes) {
+            lane.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -50,6 +50,9 @@ public class ClientConfig {
     boolean m_reconnectOnConnectionLoss;
     long m_initialConnectionRetryIntervalMS = DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS;
     long m_maxConnectionRetryIntervalMS = DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS;
+    int m_callbackThreads = 0;
+    boolean m_adaptiveConcurrencyLimit = false;
+    boolean m_orderedCallbacks = false;
 
     /**
      * <p>Configuration for a client with no authentication credentials that will
@@ -328,6 +331,44 @@ public class ClientConfig {
         m_autoTuneTargetInternalLatency = targetLatency;
     }
 
+    /**
+     * <p>Limit outstanding transactions separately for each connected host with a limit that
+     * adapts to the cluster round trip times reported in the responses from that host, instead
+     * of the fixed client wide limits. The limit grows while latency holds steady and shrinks when
+     * the host starts to queue work, so one slow host only throttles the transactions routed to it.</p>
+     *
+     * <p>When on, {@link #setMaxOutstandingTxns(int)} caps each host's limit and the settings of
+     * {@link #setMaxTransactionsPerSecond(int)} and {@link #enableAutoTune()} are ignored.
+     * Default is off.</p>
+     *
+     * @param on Enable or disable adaptive concurrency limits.
+     */
+    public void setAdaptiveConcurrencyLimit(boolean on) {
+        m_adaptiveConcurrencyLimit = on;
+    }
+
+    /**
+     * <p>Run procedure callbacks on a pool of callback threads instead of the client's network
+     * thread, so a slow callback doesn't hold up reading the responses for other transactions.
+     * By default callbacks run on the network thread.</p>
+     *
+     * <p>With orderedPerPartition each callback thread has its own queue, and callbacks for
+     * procedures routed to the same partition are always run by the same thread in the order
+     * the responses were received. The partition is only known when client affinity is on and
+     * the topology has been received, all other callbacks are run in order by the first thread.</p>
+     *
+     * @param threads Number of callback threads, 0 runs callbacks on the network thread.
+     * @param orderedPerPartition Keep callbacks for the same partition in order.
+     */
+    public void setCallbackExecutor(int threads, boolean orderedPerPartition) {
+        if (threads < 0) {
+            throw new IllegalArgumentException(
+                    "Callback threads can't be negative, " + threads + " was specified");
+        }
+        m_callbackThreads = threads;
+        m_orderedCallbacks = orderedPerPartition;
+    }
+
     /**
      * <p>Enable Kerberos authentication with the provided subject credentials<p>
      * @param subject
@@ -102,7 +102,9 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
                 config.m_procedureCallTimeoutNanos,
                 config.m_connectionResponseTimeoutMS,
                 config.m_useClientAffinity,
-                config.m_subject);
+                config.m_subject,
+                config.m_callbackThreads,
+                config.m_orderedCallbacks);
         m_distributer.addClientStatusListener(m_listener);
         String username = config.m_username;
         if (config.m_subject != null) {
@@ -129,7 +131,10 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
         }
         assert(config.m_maxOutstandingTxns > 0);
         m_blessedThreadIds.addAll(m_distributer.getThreadIds());
-        if (config.m_autoTune) {
+        if (config.m_adaptiveConcurrencyLimit) {
+            m_distributer.enableAdaptiveConcurrencyLimit(config.m_maxOutstandingTxns);
+        }
+        else if (config.m_autoTune) {
             m_distributer.m_rateLimiter.enableAutoTuning(
                     config.m_autoTuneTargetInternalLatency);
         }
@@ -253,7 +258,7 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
             throw new NoConnectionsException("Client instance is shutdown");
         }
 
-        if (m_blessedThreadIds.contains(Thread.currentThread().getId())) {
+        if (isCallbackThread()) {
             throw new IOException("Can't invoke a procedure synchronously from with the client callback thread " +
                     " without deadlocking the client library");
         }
@@ -491,12 +496,21 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
         return callProcedure(callback, "@UpdateClasses", jarbytes, classesToDelete);
     }
 
+    /*
+     * The network threads and the callback executor's threads run callbacks, a synchronous
+     * call or a drain on one of them would wait for a callback it is holding up
+     */
+    private boolean isCallbackThread() {
+        return m_blessedThreadIds.contains(Thread.currentThread().getId()) ||
+               m_distributer.isCallbackExecutorThread();
+    }
+
     @Override
     public void drain() throws InterruptedException {
         if (m_isShutdown) {
             return;
         }
-        if (m_blessedThreadIds.contains(Thread.currentThread().getId())) {
+        if (isCallbackThread()) {
             throw new RuntimeException("Can't invoke backpressureBarrier from within the client callback thread " +
                     " without deadlocking the client library");
         }
@@ -700,7 +714,7 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
 
     @Override
     public int[] getThroughputAndOutstandingTxnLimits() {
-        return m_distributer.m_rateLimiter.getLimits();
+        return m_distributer.getLimits();
     }
 
     @Override
@@ -739,6 +753,16 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
 
     }
 
+    //Hidden method for getPartitionsForParameters
+    public void getPartitionsForParameters(byte typeValue, Object[] values, int count, int[] partitions) {
+        m_distributer.getPartitionsForParameters(typeValue, values, count, partitions);
+    }
+
+    //Hidden method to check if a procedure is known to be single partition.
+    public boolean isSinglePartitionProcedure(String procName) {
+        return m_distributer.isSinglePartitionProcedure(procName);
+    }
+
     public HashinatorLiteType getHashinatorType() {
         return m_distributer.getHashinatorType();
     }
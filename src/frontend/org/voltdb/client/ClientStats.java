@@ -58,6 +58,16 @@ public class ClientStats {
     long m_invocationErrors;
     long m_invocationTimeouts;
 
+    // worst lag seen by the client's timeout timer, a gauge rather than a counter
+    long m_maxTimeoutTimerLagNanos;
+
+    // callbacks run on the callback executor and their total wait from response to callback
+    long m_callbacksQueued;
+    long m_callbackDelayNanos;
+    // callback executor queue, gauges like the timer lag
+    int m_callbackQueueDepth;
+    int m_maxCallbackQueueDepth;
+
     // cumulative latency measured by client, used to calculate avg. lat.
     long m_roundTripTimeNanos;
     // cumulative latency measured by the cluster, used to calculate avg lat.
@@ -111,6 +121,13 @@ public class ClientStats {
         m_invocationAborts = other.m_invocationAborts;
         m_invocationErrors = other.m_invocationErrors;
         m_invocationTimeouts = other.m_invocationTimeouts;
+        m_maxTimeoutTimerLagNanos = other.m_maxTimeoutTimerLagNanos;
+        synchronized (other) {
+            m_callbacksQueued = other.m_callbacksQueued;
+            m_callbackDelayNanos = other.m_callbackDelayNanos;
+        }
+        m_callbackQueueDepth = other.m_callbackQueueDepth;
+        m_maxCallbackQueueDepth = other.m_maxCallbackQueueDepth;
         m_roundTripTimeNanos = other.m_roundTripTimeNanos;
         m_clusterRoundTripTime = other.m_clusterRoundTripTime;
         m_latencyHistogram = other.m_latencyHistogram.copy();
@@ -139,6 +156,11 @@ public class ClientStats {
         retval.m_invocationAborts = newer.m_invocationAborts - older.m_invocationAborts;
         retval.m_invocationErrors = newer.m_invocationErrors - older.m_invocationErrors;
         retval.m_invocationTimeouts = newer.m_invocationTimeouts - older.m_invocationTimeouts;
+        retval.m_maxTimeoutTimerLagNanos = newer.m_maxTimeoutTimerLagNanos;
+        retval.m_callbacksQueued = newer.m_callbacksQueued - older.m_callbacksQueued;
+        retval.m_callbackDelayNanos = newer.m_callbackDelayNanos - older.m_callbackDelayNanos;
+        retval.m_callbackQueueDepth = newer.m_callbackQueueDepth;
+        retval.m_maxCallbackQueueDepth = newer.m_maxCallbackQueueDepth;
 
         retval.m_roundTripTimeNanos = newer.m_roundTripTimeNanos - older.m_roundTripTimeNanos;
         retval.m_clusterRoundTripTime = newer.m_clusterRoundTripTime - older.m_clusterRoundTripTime;
@@ -187,6 +209,12 @@ public class ClientStats {
         m_invocationAborts += other.m_invocationAborts;
         m_invocationErrors += other.m_invocationErrors;
         m_invocationTimeouts += other.m_invocationTimeouts;
+        m_maxTimeoutTimerLagNanos = Math.max(m_maxTimeoutTimerLagNanos, other.m_maxTimeoutTimerLagNanos);
+        m_callbacksQueued += other.m_callbacksQueued;
+        m_callbackDelayNanos += other.m_callbackDelayNanos;
+        // the queue is shared by all connections and procedures
+        m_callbackQueueDepth = Math.max(m_callbackQueueDepth, other.m_callbackQueueDepth);
+        m_maxCallbackQueueDepth = Math.max(m_maxCallbackQueueDepth, other.m_maxCallbackQueueDepth);
 
         m_roundTripTimeNanos += other.m_roundTripTimeNanos;
         m_clusterRoundTripTime += other.m_clusterRoundTripTime;
@@ -198,6 +226,14 @@ public class ClientStats {
         m_bytesReceived += other.m_bytesReceived;
     }
 
+    /*
+     * Callbacks for the same procedure can run concurrently on different callback threads
+     */
+    synchronized void updateCallbackDelay(long delayNanos) {
+        m_callbacksQueued++;
+        m_callbackDelayNanos += delayNanos;
+    }
+
     void update(long roundTripTimeNanos, int clusterRoundTripTime, boolean abort, boolean error, boolean timeout) {
         m_invocationsCompleted++;
         if (abort) m_invocationAborts++;
@@ -334,6 +370,49 @@ public class ClientStats {
         return m_invocationTimeouts;
     }
 
+    /**
+     * Get the largest delay, in microseconds, between when the client's timeout timer
+     * should have processed a tick and when it actually did, since the client was created.
+     * Sub-second procedure timeouts can fire late by up to this much. Unlike the other
+     * values this is not reset by {@link ClientStatsContext#fetchAndResetBaseline()}.
+     *
+     * @return Maximum timeout timer lag in microseconds.
+     */
+    public long getMaxTimeoutTimerLagMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(m_maxTimeoutTimerLagNanos);
+    }
+
+    /**
+     * Get the average time in microseconds from a response being received to its callback
+     * starting to run on the callback executor, for the time period covered by this stats
+     * instance. Zero unless {@link ClientConfig#setCallbackExecutor(int, boolean)} is used.
+     *
+     * @return Average callback queueing delay in microseconds.
+     */
+    public double getAverageCallbackDelayMicros() {
+        if (m_callbacksQueued == 0) return 0;
+        return (m_callbackDelayNanos / (double)m_callbacksQueued) / 1000.0;
+    }
+
+    /**
+     * Get the number of callbacks waiting on the callback executor when this stats
+     * instance was fetched. The queue is shared by all connections and procedures.
+     *
+     * @return Callback queue depth.
+     */
+    public int getCallbackQueueDepth() {
+        return m_callbackQueueDepth;
+    }
+
+    /**
+     * Get the deepest the callback executor queue has been since the client was created.
+     *
+     * @return Maximum callback queue depth.
+     */
+    public int getMaxCallbackQueueDepth() {
+        return m_maxCallbackQueueDepth;
+    }
+
     /**
      * Get the average latency in milliseconds for the time period
      * covered by this stats instance. This is computed by summing the client-measured
@@ -597,6 +676,12 @@ public class ClientStats {
                 m_hostname, m_port));
         sb.append(String.format("    invocations completed/aborted/errors/timeouts: %d/%d/%d/%d\n",
                 m_invocationsCompleted, m_invocationAborts, m_invocationErrors, m_invocationTimeouts));
+        sb.append(String.format("    max timeout timer lag: %dus\n",
+                TimeUnit.NANOSECONDS.toMicros(m_maxTimeoutTimerLagNanos)));
+        if (m_callbacksQueued > 0) {
+            sb.append(String.format("    avg callback delay: %.2fus, callback queue depth/max: %d/%d\n",
+                    getAverageCallbackDelayMicros(), m_callbackQueueDepth, m_maxCallbackQueueDepth));
+        }
         if (m_invocationsCompleted > 0) {
             sb.append(String.format("    avg latency client/internal: %.2f/%d\n",
                     (m_roundTripTimeNanos / (double)m_invocationsCompleted) / 1000000.0, m_clusterRoundTripTime / m_invocationsCompleted));
@@ -23,6 +23,7 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -31,8 +32,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -56,8 +55,13 @@ import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltNetworkPool.IOStatsIntf;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.utils.ConcurrentLongHashMap;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.HashedWheelTimer;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.ThreadLocalDBBPool;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientStatusListenerExt.DisconnectCause;
@@ -130,12 +134,23 @@ class Distributer {
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
+    //When non-zero each connection gets its own adaptive limiter capped at this many outstanding
+    //transactions instead of sharing m_rateLimiter
+    private volatile int m_adaptiveLimitMax = 0;
+
     //private final Timer m_timer;
     private final ScheduledExecutorService m_ex =
         Executors.newSingleThreadScheduledExecutor(
                 CoreUtils.getThreadFactory("VoltDB Client Reaper Thread"));
     ScheduledFuture<?> m_timeoutReaperHandle;
 
+    //Runs response callbacks off the network threads when configured, otherwise null
+    private final CallbackExecutor m_callbackExecutor;
+
+    //Expires calls with sub-second timeouts, longer timeouts are left to the once a second CallExpiration sweep
+    private final HashedWheelTimer m_timeoutTimer =
+        new HashedWheelTimer("VoltDB Client Timeout Timer", TimeUnit.MILLISECONDS.toNanos(1), 1024);
+
     /**
      * Server's instances id. Unique for the cluster
      */
@@ -288,9 +303,9 @@ class Distributer {
                     }
 
                     // for each outstanding procedure
-                    for (final Map.Entry<Long, CallbackBookeeping> e : c.m_callbacks.entrySet()) {
-                        final long handle = e.getKey();
-                        final CallbackBookeeping cb = e.getValue();
+                    for (final long handle : c.m_callbacks.keys()) {
+                        final CallbackBookeeping cb = c.m_callbacks.get(handle);
+                        if (cb == null) continue;
 
                         // if the timeout is expired, call the callback and remove the
                         // bookeeping data
@@ -330,27 +345,58 @@ class Distributer {
         return false;
     }
 
-    class CallbackBookeeping {
-        public CallbackBookeeping(long timestampNanos, ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
+    /*
+     * Doubles as the timer wheel entry for calls with a discrete timeout so scheduling
+     * the timeout doesn't allocate, and as the task that runs the callback on the
+     * callback executor
+     */
+    class CallbackBookeeping extends HashedWheelTimer.Timeout implements Runnable {
+        public CallbackBookeeping(NodeConnection connection, long handle, int partition, long timestampNanos,
+                ProcedureCallback callback, String name, long timeoutNanos, boolean ignoreBackpressure) {
             assert(callback != null);
+            this.connection = connection;
+            this.handle = handle;
+            this.partition = partition;
             this.timestampNanos = timestampNanos;
             this.callback = callback;
             this.name = name;
             this.procedureTimeoutNanos = timeoutNanos;
             this.ignoreBackpressure = ignoreBackpressure;
         }
+        final NodeConnection connection;
+        final long handle;
+        final int partition;
         long timestampNanos;
         //Timeout in ms 0 means use conenction specified procedure timeoutMS.
         final long procedureTimeoutNanos;
         ProcedureCallback callback;
         String name;
         boolean ignoreBackpressure;
+
+        //Set when the response is handed to the callback executor
+        ClientResponseImpl response;
+        long responseNanos;
+
+        @Override
+        protected void expire(long nowNanos) {
+            connection.handleTimedoutCallback(handle, nowNanos);
+        }
+
+        @Override
+        public void run() {
+            connection.updateCallbackDelay(name, System.nanoTime() - responseNanos);
+            final ClientResponseImpl r = response;
+            response = null;
+            connection.invokeResponseCallback(callback, r);
+        }
     }
 
     class NodeConnection extends VoltProtocolHandler implements org.voltcore.network.QueueMonitor {
         private final AtomicInteger m_callbacksToInvoke = new AtomicInteger(0);
-        private final ConcurrentMap<Long, CallbackBookeeping> m_callbacks = new ConcurrentHashMap<Long, CallbackBookeeping>();
+        private final ConcurrentLongHashMap<CallbackBookeeping> m_callbacks = new ConcurrentLongHashMap<CallbackBookeeping>();
         private final NonBlockingHashMap<String, ClientStats> m_stats = new NonBlockingHashMap<String, ClientStats>();
+        private final RateLimiter m_limiter =
+            m_adaptiveLimitMax > 0 ? new AdaptiveConcurrencyLimiter(m_adaptiveLimitMax) : m_rateLimiter;
         private Connection m_connection;
         private volatile boolean m_isConnected = true;
 
@@ -366,7 +412,7 @@ class Distributer {
          * never be rejected such as those submitted from within a callback thread or
          * generated internally
          */
-        public void createWork(final long nowNanos, long handle, String name, ByteBuffer c,
+        public void createWork(final long nowNanos, long handle, int partition, String name, BBContainer c,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeoutNanos) {
             assert(callback != null);
 
@@ -386,13 +432,14 @@ class Distributer {
              * exception to give prompt timeouts
              */
             try {
-                afterRateLimitNanos = m_rateLimiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
+                afterRateLimitNanos = m_limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
                         nowNanos, timeoutNanos, ignoreBackpressure);
             } catch (TimeoutException e) {
                 /*
                  * It's possible we need to timeout because it took too long to get
                  * the transaction out on the wire due to max outstanding
                  */
+                c.discard();
                 final long deltaNanos = Math.max(1, System.nanoTime() - nowNanos);
                     invokeCallbackWithTimeout(name, callback, deltaNanos, afterRateLimitNanos,  timeoutNanos, handle, ignoreBackpressure);
                 return;
@@ -405,7 +452,9 @@ class Distributer {
             assert(callbacksToInvoke >= 0);
 
             //Optimistically submit the task
-            m_callbacks.put(handle, new CallbackBookeeping(nowNanos, callback, name, timeoutNanos, ignoreBackpressure));
+            final CallbackBookeeping cb =
+                new CallbackBookeeping(this, handle, partition, nowNanos, callback, name, timeoutNanos, ignoreBackpressure);
+            m_callbacks.put(handle, cb);
 
             //Schedule the timeout to fire relative to the amount of time
             //spent getting to this point. Might fire immediately
@@ -415,11 +464,12 @@ class Distributer {
             //Schedule an individual timeout if necessary
             //If it is a long op, don't bother scheduling a discrete timeout
             if (timeoutNanos < TimeUnit.SECONDS.toNanos(1) && !isLongOp(name)) {
-                submitDiscreteTimeoutTask(handle, Math.max(0, timeoutRemaining));
+                m_timeoutTimer.schedule(cb, Math.max(0, timeoutRemaining));
             }
 
             //Check for disconnect
             if (!m_isConnected) {
+                c.discard();
                 //Check if the disconnect or expiration already handled the callback
                 if (m_callbacks.remove(handle) == null) return;
                 final ClientResponse r = new ClientResponseImpl(
@@ -437,36 +487,23 @@ class Distributer {
                 assert(remainingToInvoke >= 0);
 
                 //for bookkeeping, but it feels dishonest to call this here
-                m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+                m_limiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
                 return;
             } else {
-                m_connection.writeStream().enqueue(c);
+                m_connection.writeStream().enqueue(new SerializedInvocation(c));
             }
         }
 
-        /*
-         * For high precision timeouts, submit a discrete task to a scheduled
-         * executor service to time out the transaction. The timeout task
-         * when run checks if the task is still present in the concurrent map
-         * of tasks and removes it. If it wins the race to remove the map
-         * then the transaction will be timed out even if a response is received
-         * at the same time.
-         *
-         * This will race with the periodic task that checks lower resolution timeouts
-         * and it is fine, the concurrent map makes sure each callback is handled exactly once
-         */
-        void submitDiscreteTimeoutTask(final long handle, long timeoutNanos) {
-            m_ex.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    handleTimedoutCallback(handle, System.nanoTime());
-                }
-            }, timeoutNanos, TimeUnit.NANOSECONDS);
-        }
-
         /*
          * Factor out the boilerplate involved in checking whether a timed out callback
-         * still exists and needs to be invoked, or has already been handled by another thread
+         * still exists and needs to be invoked, or has already been handled by another thread.
+         *
+         * For high precision timeouts the callback bookkeeping is also scheduled on the
+         * timer wheel, which calls this when it expires. If it wins the race to remove the
+         * callback from the map then the transaction will be timed out even if a response
+         * is received at the same time. This also races with the periodic task that checks
+         * lower resolution timeouts and it is fine, the concurrent map makes sure each
+         * callback is handled exactly once.
          */
         void handleTimedoutCallback(long handle, long nowNanos) {
             //Callback doesn't have to be there, it may have already
@@ -511,7 +548,7 @@ class Distributer {
             final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
             assert(remainingToInvoke >= 0);
 
-            m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+            m_limiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
             updateStatsForTimeout(procName, r.getClientRoundtripNanos(), r.getClusterRoundtrip());
         }
 
@@ -570,6 +607,29 @@ class Distributer {
             stats.update(roundTripNanos, clusterRoundTrip, abort, failure, timeout);
         }
 
+        /*
+         * Called from callback executor threads, the stats for the procedure were already
+         * created by updateStats on the network thread before the callback was queued
+         */
+        private void updateCallbackDelay(String procName, long delayNanos) {
+            final ClientStats stats = m_stats.get(procName);
+            if (stats != null) {
+                stats.updateCallbackDelay(delayNanos);
+            }
+        }
+
+        private void invokeResponseCallback(ProcedureCallback cb, ClientResponseImpl response) {
+            try {
+                cb.clientCallback(response);
+            } catch (Exception e) {
+                uncaughtException(cb, response, e);
+            }
+
+            //Drain needs to know when all callbacks have been invoked
+            final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
+            assert(remainingToInvoke >= 0);
+        }
+
         @Override
         public void handleMessage(ByteBuffer buf, Connection c) {
             long nowNanos = System.nanoTime();
@@ -639,19 +699,19 @@ class Distributer {
                 }
 
                 int clusterRoundTrip = response.getClusterRoundtrip();
-                m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
+                m_limiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
                 updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHash() == null); // make sure it didn't sneak into wire protocol
-                try {
-                    cb.clientCallback(response);
-                } catch (Exception e) {
-                    uncaughtException(cb, response, e);
-                }
 
-                //Drain needs to know when all callbacks have been invoked
-                final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
-                assert(remainingToInvoke >= 0);
+                //Internal calls update topology and stay on the network thread
+                if (m_callbackExecutor != null && handle >= 0) {
+                    stuff.response = response;
+                    stuff.responseNanos = nowNanos;
+                    m_callbackExecutor.execute(stuff.partition, stuff);
+                } else {
+                    invokeResponseCallback(cb, response);
+                }
             }
         }
 
@@ -750,10 +810,10 @@ class Distributer {
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
                 ") was lost before a response was received");
-            for (Map.Entry<Long, CallbackBookeeping> e : m_callbacks.entrySet()) {
+            for (long handle : m_callbacks.keys()) {
                 //Check for race with other threads
-                if (m_callbacks.remove(e.getKey()) == null) continue;
-                final CallbackBookeeping callBk = e.getValue();
+                final CallbackBookeeping callBk = m_callbacks.remove(handle);
+                if (callBk == null) continue;
                 try {
                     callBk.callback.clientCallback(r);
                 }
@@ -765,7 +825,7 @@ class Distributer {
                 final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
                 assert(remainingToInvoke >= 0);
 
-                m_rateLimiter.transactionResponseReceived(System.nanoTime(), -1, callBk.ignoreBackpressure);
+                m_limiter.transactionResponseReceived(System.nanoTime(), -1, callBk.ignoreBackpressure);
             }
         }
 
@@ -851,7 +911,20 @@ class Distributer {
             long connectionResponseTimeoutMS,
             boolean useClientAffinity,
             Subject subject) {
+        this(useMultipleThreads, procedureCallTimeoutNanos, connectionResponseTimeoutMS,
+                useClientAffinity, subject, 0, false);
+    }
+
+    Distributer(
+            boolean useMultipleThreads,
+            long procedureCallTimeoutNanos,
+            long connectionResponseTimeoutMS,
+            boolean useClientAffinity,
+            Subject subject,
+            int callbackThreads,
+            boolean orderedCallbacks) {
         m_useMultipleThreads = useMultipleThreads;
+        m_callbackExecutor = callbackThreads > 0 ? new CallbackExecutor(callbackThreads, orderedCallbacks) : null;
         m_network = new VoltNetworkPool(
                 m_useMultipleThreads ? Math.max(1, CoreUtils.availableProcessors() / 4 ) : 1,
                 1, null, "Client");
@@ -862,6 +935,7 @@ class Distributer {
 
         // schedule the task that looks for timed-out proc calls and connections
         m_timeoutReaperHandle = m_ex.scheduleAtFixedRate(new CallExpiration(), 1, 1, TimeUnit.SECONDS);
+        m_timeoutTimer.start();
         m_subject = subject;
     }
 
@@ -950,9 +1024,9 @@ class Distributer {
             //Subscribe to topology updates before retrieving the current topo
             //so there isn't potential for lost updates
             ProcedureInvocation spi = new ProcedureInvocation(m_sysHandle.getAndDecrement(), "@Subscribe", "TOPOLOGY");
-            final ByteBuffer buf = serializeSPI(spi);
             cxn.createWork(System.nanoTime(),
                     spi.getHandle(),
+                    -1,
                     spi.getProcName(),
                     serializeSPI(spi),
                     new SubscribeCallback(),
@@ -963,6 +1037,7 @@ class Distributer {
             //The handle is specific to topology updates and has special cased handling
             cxn.createWork(System.nanoTime(),
                     spi.getHandle(),
+                    -1,
                     spi.getProcName(),
                     serializeSPI(spi),
                     new TopoUpdateCallback(),
@@ -976,6 +1051,7 @@ class Distributer {
                 //The handle is specific to procedure updates and has special cased handling
                 cxn.createWork(System.nanoTime(),
                         spi.getHandle(),
+                        -1,
                         spi.getProcName(),
                         serializeSPI(spi),
                         new ProcUpdateCallback(),
@@ -1008,6 +1084,8 @@ class Distributer {
 
         NodeConnection cxn = null;
         boolean backpressure = true;
+        //Partition the invocation was routed to, if client affinity knows it
+        int partition = -1;
 
         /*
          * Synchronization is necessary to ensure that m_connections is not modified
@@ -1075,6 +1153,7 @@ class Distributer {
                     // and let the round-robin choice pick a connection
                     cxn = null;
                 }
+                partition = hashedPartition;
                 ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
                 if (stats == null) {
                     stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
@@ -1123,13 +1202,13 @@ class Distributer {
          * createWork synchronizes on an individual connection which allows for more concurrency
          */
         if (cxn != null) {
-            ByteBuffer buf = null;
+            BBContainer buf = null;
             try {
                 buf = serializeSPI(invocation);
             } catch (Exception e) {
                 Throwables.propagate(e);
             }
-            cxn.createWork(nowNanos, invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
+            cxn.createWork(nowNanos, invocation.getHandle(), partition, invocation.getProcName(), buf, cb, ignoreBackpressure, timeoutNanos);
         }
 
         return !backpressure;
@@ -1145,6 +1224,10 @@ class Distributer {
         m_timeoutReaperHandle.cancel(false);
         m_ex.shutdown();
         m_ex.awaitTermination(1, TimeUnit.SECONDS);
+        m_timeoutTimer.shutdown();
+        if (m_callbackExecutor != null) {
+            m_callbackExecutor.shutdown();
+        }
 
         m_network.shutdown();
     }
@@ -1177,6 +1260,29 @@ class Distributer {
         return m_listeners.remove(listener);
     }
 
+    /**
+     * Use an adaptive concurrency limit per connection instead of the shared rate limiter.
+     * Only applies to connections created afterwards.
+     */
+    void enableAdaptiveConcurrencyLimit(int maxOutstanding) {
+        m_adaptiveLimitMax = Math.max(1, maxOutstanding);
+    }
+
+    /**
+     * Max throughput and max outstanding transactions. With adaptive limits there is
+     * no throughput limit and the outstanding limit is the sum of the per connection limits.
+     */
+    int[] getLimits() {
+        if (m_adaptiveLimitMax == 0) {
+            return m_rateLimiter.getLimits();
+        }
+        int outstanding = 0;
+        for (NodeConnection cxn : m_connections) {
+            outstanding += cxn.m_limiter.getLimits()[1];
+        }
+        return new int[] { Integer.MAX_VALUE, outstanding };
+    }
+
     ClientStatsContext createStatsContext() {
         return new ClientStatsContext(this, getStatsSnapshot(), getIOStatsSnapshot(),
                 getAffinityStatsSnapshot());
@@ -1186,10 +1292,17 @@ class Distributer {
         Map<Long, Map<String, ClientStats>> retval =
                 new TreeMap<Long, Map<String, ClientStats>>();
 
+            final long timerLagNanos = m_timeoutTimer.getMaxTickLagNanos();
+            final int callbackQueueDepth = m_callbackExecutor == null ? 0 : m_callbackExecutor.getQueueDepth();
+            final int maxCallbackQueueDepth = m_callbackExecutor == null ? 0 : m_callbackExecutor.getMaxQueueDepth();
             for (NodeConnection conn : m_connections) {
                 Map<String, ClientStats> connMap = new TreeMap<String, ClientStats>();
                 for (Entry<String, ClientStats> e : conn.m_stats.entrySet()) {
-                    connMap.put(e.getKey(), (ClientStats) e.getValue().clone());
+                    final ClientStats stats = (ClientStats) e.getValue().clone();
+                    stats.m_maxTimeoutTimerLagNanos = timerLagNanos;
+                    stats.m_callbackQueueDepth = callbackQueueDepth;
+                    stats.m_maxCallbackQueueDepth = maxCallbackQueueDepth;
+                    connMap.put(e.getKey(), stats);
                 }
                 retval.put(conn.connectionId(), connMap);
             }
@@ -1253,6 +1366,14 @@ class Distributer {
         return m_network.getThreadIds();
     }
 
+    /**
+     * @return true if the current thread runs callbacks for the callback executor.
+     * Its threads come and go with the executor, so they aren't in {@link #getThreadIds()}.
+     */
+    boolean isCallbackExecutorThread() {
+        return m_callbackExecutor != null && m_callbackExecutor.isCallbackThread();
+    }
+
     public List<InetSocketAddress> getConnectedHostList() {
         ArrayList<InetSocketAddress> addressList = new ArrayList<InetSocketAddress>();
         for (NodeConnection conn : m_connections) {
@@ -1361,6 +1482,29 @@ class Distributer {
         return m_hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
+    /**
+     * Batch version of getPartitionForParameter used by the bulk loader. Fills in the
+     * partitions of the first count values, or -1 if the hashinator isn't known yet.
+     */
+    public void getPartitionsForParameters(byte typeValue, Object[] values, int count, int[] partitions) {
+        final HashinatorLite hashinator = m_hashinator;
+        if (hashinator == null) {
+            Arrays.fill(partitions, 0, count, -1);
+            return;
+        }
+        hashinator.getHashedPartitionsForParameters(typeValue, values, count, partitions);
+    }
+
+    /**
+     * Only known once the procedure partitioning has been fetched, which requires client affinity.
+     *
+     * @return true if the procedure is known to be single partition
+     */
+    public synchronized boolean isSinglePartitionProcedure(String procName) {
+        final Procedure procedureInfo = m_procedureInfo.get(procName);
+        return procedureInfo != null && !procedureInfo.multiPart;
+    }
+
     public HashinatorLiteType getHashinatorType() {
         if (m_hashinator == null) {
             return HashinatorLiteType.LEGACY;
@@ -1368,13 +1512,56 @@ class Distributer {
         return m_hashinator.getConfigurationType();
     }
 
-    private ByteBuffer serializeSPI(ProcedureInvocation pi) throws IOException {
-        ByteBuffer buf = ByteBuffer.allocate(pi.getSerializedSize() + 4);
-        buf.putInt(buf.capacity() - 4);
-        pi.flattenToBuffer(buf);
-        buf.flip();
-        return buf;
+    /*
+     * Serialize into a buffer from the calling thread's pool. The buffer goes back to the
+     * pool once the network thread has copied it out, see SerializedInvocation.
+     */
+    private BBContainer serializeSPI(ProcedureInvocation pi) throws IOException {
+        final int size = pi.getSerializedSize() + 4;
+        final BBContainer c = ThreadLocalDBBPool.allocate(size);
+        try {
+            final ByteBuffer buf = c.b();
+            buf.putInt(size - 4);
+            pi.flattenToBuffer(buf);
+            buf.flip();
+        } catch (IOException e) {
+            c.discard();
+            throw e;
+        } catch (RuntimeException e) {
+            c.discard();
+            throw e;
+        }
+        return c;
+    }
+
+    /*
+     * Copies an invocation serialized on the caller's thread into the network
+     * buffers and then discards the pooled buffer it was serialized into
+     */
+    private static final class SerializedInvocation implements DeferredSerialization {
+        private final BBContainer m_container;
+        private final int m_size;
+
+        private SerializedInvocation(BBContainer container) {
+            m_container = container;
+            m_size = container.b().remaining();
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) {
+            buf.put(m_container.b());
+            m_container.discard();
+        }
+
+        @Override
+        public void cancel() {
+            m_container.discard();
+        }
 
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
     }
 
     long getProcedureTimeoutNanos() {
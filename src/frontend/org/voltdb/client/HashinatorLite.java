@@ -71,6 +71,15 @@ public class HashinatorLite {
     private long m_etokens = 0;
     private int m_etokenCount;
 
+    /*
+     * Flat lookup table from the top bits of a hash to the index of the last token at or below
+     * the smallest hash with those bits, same as ElasticHashinator. Null for legacy or if the ring
+     * doesn't start at Integer.MIN_VALUE, then lookups binary search the tokens.
+     */
+    private static final int MAX_TOKEN_INDEX_BITS = 16;
+    private int m_etokenIndex[] = null;
+    private int m_etokenIndexShift;
+
     private final HashinatorLiteType m_type;
 
     public HashinatorLiteType getType() {
@@ -88,6 +97,7 @@ public class HashinatorLite {
             Pair<Long, Integer> p = (cooked ? updateCooked(configBytes) : updateRaw(configBytes));
             m_etokens = p.getFirst();
             m_etokenCount = p.getSecond();
+            buildTokenIndex();
         }
         else {
             catalogPartitionCount = ByteBuffer.wrap(configBytes).getInt();
@@ -214,8 +224,36 @@ public class HashinatorLite {
      * Long.MAX_VALUE
      */
     public int partitionForToken(int hash) {
-        long token = getTokenPtr(hash);
-        return Bits.unsafe.getInt(token + 4);
+        if (m_etokenIndex == null) {
+            long token = getTokenPtr(hash);
+            return Bits.unsafe.getInt(token + 4);
+        }
+        int ii = m_etokenIndex[(hash ^ Integer.MIN_VALUE) >>> m_etokenIndexShift];
+        while (ii + 1 < m_etokenCount && Bits.unsafe.getInt(m_etokens + 8L * (ii + 1)) <= hash) {
+            ii++;
+        }
+        return Bits.unsafe.getInt(m_etokens + 8L * ii + 4);
+    }
+
+    private void buildTokenIndex() {
+        if (m_etokenCount == 0 || Bits.unsafe.getInt(m_etokens) != Integer.MIN_VALUE) {
+            return;
+        }
+        // about one token per bucket
+        final int bits = Math.max(1, Math.min(MAX_TOKEN_INDEX_BITS,
+                32 - Integer.numberOfLeadingZeros(Math.max(1, m_etokenCount - 1))));
+        final int index[] = new int[1 << bits];
+        m_etokenIndexShift = 32 - bits;
+        int ii = 0;
+        for (int bucket = 0; bucket < index.length; bucket++) {
+            // smallest hash in the bucket, buckets are in unsigned order so flip the sign bit
+            final int bucketStart = (bucket << m_etokenIndexShift) ^ Integer.MIN_VALUE;
+            while (ii + 1 < m_etokenCount && Bits.unsafe.getInt(m_etokens + 8L * (ii + 1)) <= bucketStart) {
+                ii++;
+            }
+            index[bucket] = ii;
+        }
+        m_etokenIndex = index;
     }
 
     /**
@@ -234,8 +272,7 @@ public class HashinatorLite {
         if (m_type.equals(HashinatorLiteType.ELASTIC)) {
             ByteBuffer buf = ByteBuffer.wrap(bytes);
             final int hash = MurmurHash3.hash3_x64_128(buf, 0, bytes.length, 0);
-            long token = getTokenPtr(hash);
-            return Bits.unsafe.getInt(token + 4);
+            return partitionForToken(hash);
         } else {
             int hashCode = 0;
             int offset = 0;
@@ -379,7 +416,34 @@ public class HashinatorLite {
     public int getHashedPartitionForParameter(int partitionValueType, Object partitionValue)
             throws VoltTypeException {
         final VoltType partitionParamType = VoltType.get((byte) partitionValueType);
+        return hashToPartition(partitionParamType, coercePartitionValue(partitionParamType, partitionValue));
+    }
+
+    /**
+     * Batch version of {@link #getHashedPartitionForParameter(int, Object)} that fills in
+     * the partitions of the first count values in one pass.
+     *
+     * @throws VoltTypeException
+     */
+    public void getHashedPartitionsForParameters(int partitionValueType, Object[] partitionValues,
+            int count, int[] partitions)
+            throws VoltTypeException {
+        final VoltType partitionParamType = VoltType.get((byte) partitionValueType);
+        final boolean elastic = m_type.equals(HashinatorLiteType.ELASTIC);
+        for (int ii = 0; ii < count; ii++) {
+            final Object value = coercePartitionValue(partitionParamType, partitionValues[ii]);
+            if (elastic) {
+                final byte[] bytes = valueToBytes(value);
+                partitions[ii] = bytes == null ? 0 :
+                    partitionForToken(MurmurHash3.hash3_x64_128(ByteBuffer.wrap(bytes), 0, bytes.length, 0));
+            } else {
+                partitions[ii] = hashToPartition(partitionParamType, value);
+            }
+        }
+    }
 
+    private static Object coercePartitionValue(VoltType partitionParamType, Object partitionValue)
+            throws VoltTypeException {
         // Special cases:
         // 1) if the user supplied a string for a number column,
         // try to do the conversion. This makes it substantially easier to
@@ -403,8 +467,7 @@ public class HashinatorLite {
                 partitionValue = bytesToValue(partitionParamType, (byte[]) partitionValue);
             }
         }
-
-        return hashToPartition(partitionParamType, partitionValue);
+        return partitionValue;
     }
 
     public HashinatorLiteType getConfigurationType() {
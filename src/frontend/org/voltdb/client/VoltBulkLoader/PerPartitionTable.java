@@ -143,6 +143,19 @@ public class PerPartitionTable {
      * drain the queue. The task will drain the queue until it doesn't contain a single batch.
      */
     synchronized void insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
+        queueRow(nextRow);
+    }
+
+    /**
+     * Queue rows that were routed to this partition together.
+     */
+    synchronized void insertRowsInTable(List<VoltBulkLoaderRow> rows) throws InterruptedException {
+        for (VoltBulkLoaderRow row : rows) {
+            queueRow(row);
+        }
+    }
+
+    private void queueRow(final VoltBulkLoaderRow nextRow) throws InterruptedException {
         m_partitionRowQueue.put(nextRow);
         if (m_partitionRowQueue.size() == m_minBatchTriggerSize) {
             m_es.execute(new Runnable() {
@@ -272,6 +272,89 @@ public class VoltBulkLoader {
     public void insertRow(Object rowHandle, Object... fieldList)  throws InterruptedException {
         int partitionId = 0;
         //Find partition to send this row to and put on correct PerPartitionTable.
+        if (!checkRow(rowHandle, fieldList)) {
+            return;
+        }
+        VoltBulkLoaderRow newRow = new VoltBulkLoaderRow(this, rowHandle, fieldList);
+        if (m_isMP) {
+            m_partitionTable[m_firstPartitionTable].insertRowInTable(newRow);
+        }
+        else {
+            try {
+                partitionId = (int)m_clientImpl.getPartitionForParameter(
+                        m_partitionColumnType.getValue(), fieldList[m_partitionedColumnIndex]);
+                m_partitionTable[partitionId].insertRowInTable(newRow);
+            } catch (VoltTypeException e) {
+                generateError(rowHandle, fieldList, e.getMessage());
+                return;
+            }
+        }
+        m_outstandingRowCount.incrementAndGet();
+    }
+
+    /**
+     *  <p>Add a batch of rows to VoltBulkLoader table. The rows are routed to their partitions
+     *  together, which is cheaper than calling insertRow() for each.</p>
+     *
+     * @param rowHandles User supplied objects used to distinguish failed insert attempts, one per row
+     * @param fieldLists Lists of fields, one per row
+     * @throws java.lang.InterruptedException
+     */
+    public void insertRows(Object[] rowHandles, Object[][] fieldLists) throws InterruptedException {
+        if (rowHandles.length != fieldLists.length) {
+            throw new IllegalArgumentException("insertRows received " + rowHandles.length +
+                    " row handles for " + fieldLists.length + " rows");
+        }
+        if (m_isMP) {
+            for (int i = 0; i < fieldLists.length; i++) {
+                insertRow(rowHandles[i], fieldLists[i]);
+            }
+            return;
+        }
+
+        VoltBulkLoaderRow rows[] = new VoltBulkLoaderRow[fieldLists.length];
+        Object partitionValues[] = new Object[fieldLists.length];
+        int count = 0;
+        for (int i = 0; i < fieldLists.length; i++) {
+            if (checkRow(rowHandles[i], fieldLists[i])) {
+                rows[count] = new VoltBulkLoaderRow(this, rowHandles[i], fieldLists[i]);
+                partitionValues[count] = fieldLists[i][m_partitionedColumnIndex];
+                count++;
+            }
+        }
+
+        int partitionIds[] = new int[count];
+        try {
+            m_clientImpl.getPartitionsForParameters(
+                    m_partitionColumnType.getValue(), partitionValues, count, partitionIds);
+        } catch (VoltTypeException e) {
+            // let insertRow() report the rows that can't be partitioned one at a time
+            for (int i = 0; i < count; i++) {
+                insertRow(rows[i].m_rowHandle, rows[i].m_rowData);
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<VoltBulkLoaderRow> rowsByPartition[] = new List[m_partitionTable.length];
+        for (int i = 0; i < count; i++) {
+            List<VoltBulkLoaderRow> partitionRows = rowsByPartition[partitionIds[i]];
+            if (partitionRows == null) {
+                partitionRows = new ArrayList<VoltBulkLoaderRow>();
+                rowsByPartition[partitionIds[i]] = partitionRows;
+            }
+            partitionRows.add(rows[i]);
+        }
+        for (int partitionId = 0; partitionId < rowsByPartition.length; partitionId++) {
+            if (rowsByPartition[partitionId] != null) {
+                m_partitionTable[partitionId].insertRowsInTable(rowsByPartition[partitionId]);
+                m_outstandingRowCount.addAndGet(rowsByPartition[partitionId].size());
+            }
+        }
+    }
+
+    // Report rows with the wrong number of fields and return false
+    private boolean checkRow(Object rowHandle, Object[] fieldList) {
         if (fieldList == null || fieldList.length <= 0) {
             String errMsg;
             if (rowHandle == null)
@@ -279,7 +362,7 @@ public class VoltBulkLoader {
             else
                 errMsg = "Error: insertRow received empty fieldList for row: " + rowHandle.toString();
             generateError(rowHandle, fieldList, errMsg);
-            return;
+            return false;
         }
         if (fieldList.length != m_columnCnt) {
             String errMsg;
@@ -290,23 +373,9 @@ public class VoltBulkLoader {
                 errMsg = "Error: insertRow received incorrect number of columns; " + fieldList.length +
                         " found, " + m_columnCnt + " expected for row: " + rowHandle.toString();
             generateError(rowHandle, fieldList, errMsg);
-            return;
+            return false;
         }
-        VoltBulkLoaderRow newRow = new VoltBulkLoaderRow(this, rowHandle, fieldList);
-        if (m_isMP) {
-            m_partitionTable[m_firstPartitionTable].insertRowInTable(newRow);
-        }
-        else {
-            try {
-                partitionId = (int)m_clientImpl.getPartitionForParameter(
-                        m_partitionColumnType.getValue(), fieldList[m_partitionedColumnIndex]);
-                m_partitionTable[partitionId].insertRowInTable(newRow);
-            } catch (VoltTypeException e) {
-                generateError(rowHandle, fieldList, e.getMessage());
-                return;
-            }
-        }
-        m_outstandingRowCount.incrementAndGet();
+        return true;
     }
 
     /**
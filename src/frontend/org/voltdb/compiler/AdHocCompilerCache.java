@@ -19,9 +19,7 @@ package org.voltdb.compiler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -77,26 +75,28 @@ public class AdHocCompilerCache implements Serializable {
     // PER-INSTANCE AWESOMEC CACHING CODE
     //////////////////////////////////////////////////////////////////////////
 
+    // Default cache sizes in (approximate) bytes, overridable for tuning.
+    static final long DEFAULT_MAX_LITERAL_BYTES = Long.getLong("ADHOC_LITERAL_CACHE_BYTES", 16 * 1024 * 1024);
+    static final long DEFAULT_MAX_CORE_BYTES = Long.getLong("ADHOC_CORE_CACHE_BYTES", 16 * 1024 * 1024);
+
+    // A guess at a typical plan size, used to size the frequency sketches.
+    private static final int TYPICAL_PLAN_BYTES = 2048;
+
     // cache sizes determined at construction time
-    final int MAX_LITERAL_ENTRIES;
-    final int MAX_CORE_ENTRIES;
+    final long MAX_LITERAL_BYTES;
+    final long MAX_CORE_BYTES;
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final WeightedTinyLFUCache<String, AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
-     *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
+     *  to what values to enable its specialized (expression-indexed) plan.
+     *  The lists are never modified once cached; adding a variant caches a new list. */
+    final WeightedTinyLFUCache<String, List<BoundPlan> > m_coreCache;
 
     // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
     long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
     long m_planInsertions = 0;
-    long m_planEvictions = 0;
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -105,49 +105,43 @@ public class AdHocCompilerCache implements Serializable {
      * Constructor with default cache sizes.
      */
     private AdHocCompilerCache() {
-        this(1000, 1000);
+        this(DEFAULT_MAX_LITERAL_BYTES, DEFAULT_MAX_CORE_BYTES);
     }
 
 
     /**
      * Constructor with specific cache sizes is only called directly for testing.
      *
-     * @param maxLiteralEntries cache size for literals
-     * @param maxCoreEntries cache size for parameterized plans
+     * @param maxLiteralBytes cache size for literals
+     * @param maxCoreBytes cache size for parameterized plans
      */
-    AdHocCompilerCache(int maxLiteralEntries, int maxCoreEntries) {
-        MAX_LITERAL_ENTRIES = maxLiteralEntries;
-        MAX_CORE_ENTRIES = maxCoreEntries;
-
-        // an LRU cache map
-        m_literalCache = new LinkedHashMap<String, AdHocPlannedStatement>(MAX_LITERAL_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, AdHocPlannedStatement> eldest) {
-                if (size() > MAX_LITERAL_ENTRIES) {
-                    ++m_literalEvictions;
-                    return true;
-                }
-                return false;
-            }
-        };
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-        };
+    AdHocCompilerCache(long maxLiteralBytes, long maxCoreBytes) {
+        MAX_LITERAL_BYTES = maxLiteralBytes;
+        MAX_CORE_BYTES = maxCoreBytes;
+
+        m_literalCache = new WeightedTinyLFUCache<String, AdHocPlannedStatement>(
+                MAX_LITERAL_BYTES,
+                (int) Math.min(Integer.MAX_VALUE, MAX_LITERAL_BYTES / TYPICAL_PLAN_BYTES),
+                new WeightedTinyLFUCache.Weigher<String, AdHocPlannedStatement>() {
+                    @Override
+                    public int weigh(String sql, AdHocPlannedStatement plan) {
+                        return sql.length() * 2 + plan.getSerializedSize();
+                    }
+                });
+
+        m_coreCache = new WeightedTinyLFUCache<String, List<BoundPlan> >(
+                MAX_CORE_BYTES,
+                (int) Math.min(Integer.MAX_VALUE, MAX_CORE_BYTES / TYPICAL_PLAN_BYTES),
+                new WeightedTinyLFUCache.Weigher<String, List<BoundPlan> >() {
+                    @Override
+                    public int weigh(String parsedToken, List<BoundPlan> boundVariants) {
+                        int weight = parsedToken.length() * 2;
+                        for (BoundPlan boundPlan : boundVariants) {
+                            weight += boundPlan.m_core.getSerializedSize();
+                        }
+                        return weight;
+                    }
+                });
     }
 
     /**
@@ -155,38 +149,23 @@ public class AdHocCompilerCache implements Serializable {
      * Probably shouldn't live past real stats integration.
      */
     synchronized void printStats() {
-        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
-        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+        String line1 = String.format("CACHE STATS - Literals: Hits %d/%d, Inserts %d Evictions %d Bytes %d\n",
+                m_literalCache.hitCount(), m_literalCache.hitCount() + m_literalCache.missCount(),
+                m_literalInsertions, m_literalCache.evictionCount(), m_literalCache.weightedSize());
+        String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d, Inserts %d Evictions %d Bytes %d\n",
+                m_coreCache.hitCount(), m_coreCache.hitCount() + m_coreCache.missCount(),
+                m_planInsertions, m_coreCache.evictionCount(), m_coreCache.weightedSize());
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
-        if (retval != null) {
-            ++m_literalHits;
-        }
-        return retval;
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        return m_literalCache.get(sql);
     }
 
     /**
@@ -194,13 +173,8 @@ public class AdHocCompilerCache implements Serializable {
      * SQL statement
      * @return A CorePlan that needs parameter values to run.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
-        if (retval != null) {
-            ++m_planHits;
-        }
-        return retval;
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        return m_coreCache.get(parsedToken);
     }
 
     /**
@@ -209,7 +183,8 @@ public class AdHocCompilerCache implements Serializable {
      *
      * Note that one goal here is to reduce the number of times two
      * separate plan instances with the same value are input for the
-     * same SQL literal.
+     * same SQL literal. Lookups don't lock, but puts are serialized so
+     * that concurrent planners don't lose each other's plan variants.
      * @param sql               original query text
      * @param parsedToken       massaged query text, possibly with literals purged
      * @param planIn
@@ -232,15 +207,16 @@ public class AdHocCompilerCache implements Serializable {
         BoundPlan matched = null;
         BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
         // deal with the parameterized plan cache first
-        List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
+        List<BoundPlan> boundVariants = m_coreCache.peek(parsedToken);
         if (boundVariants == null) {
-            boundVariants = new ArrayList<BoundPlan>();
+            boundVariants = new ArrayList<BoundPlan>(1);
+            boundVariants.add(unmatched);
             m_coreCache.put(parsedToken, boundVariants);
             // Note that there is an edge case in which more than one plan is getting counted as one
             // "plan insertion". This only happens when two different plans arose from the same parameterized
             // query (token) because one invocation used the correct constants to trigger an expression index and
             // another invocation did not.  These are not counted separately (which would have to happen below
-            // after each call to boundVariants.add) because they are not evicted separately.
+            // after each new variant is cached) because they are not evicted separately.
             // It seems saner to use consistent units when counting insertions vs. evictions.
             ++m_planInsertions;
         } else {
@@ -258,15 +234,19 @@ public class AdHocCompilerCache implements Serializable {
                     plan.setBoundConstants(matched.m_constants);
                 }
             }
-        }
-        if (matched == null) {
-            // Don't count insertions (of possibly repeated tokens) here
-            //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
-            boundVariants.add(unmatched);
+            else {
+                // Don't count insertions (of possibly repeated tokens) here
+                //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
+                // Readers may be iterating the cached list, so cache a copy with the new variant.
+                List<BoundPlan> newVariants = new ArrayList<BoundPlan>(boundVariants.size() + 1);
+                newVariants.addAll(boundVariants);
+                newVariants.add(unmatched);
+                m_coreCache.put(parsedToken, newVariants);
+            }
         }
 
         // then deal with the
-        AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
+        AdHocPlannedStatement cachedPlan = m_literalCache.peek(sql);
         if (cachedPlan == null) {
             m_literalCache.put(sql, plan);
             ++m_literalInsertions;
@@ -307,4 +287,26 @@ public class AdHocCompilerCache implements Serializable {
     public int getCoreCacheSize() {
         return m_coreCache.size();
     }
+
+    /**
+     * @return approximate bytes held by the literal cache
+     */
+    public long getLiteralCacheBytes() {
+        return m_literalCache.weightedSize();
+    }
+
+    /**
+     * @return approximate bytes held by the core (parameterized) cache
+     */
+    public long getCoreCacheBytes() {
+        return m_coreCache.weightedSize();
+    }
+
+    public long getLiteralCacheEvictions() {
+        return m_literalCache.evictionCount();
+    }
+
+    public long getCoreCacheEvictions() {
+        return m_coreCache.evictionCount();
+    }
 }
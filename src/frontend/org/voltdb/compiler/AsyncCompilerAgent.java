@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -59,10 +60,17 @@ public class AsyncCompilerAgent {
     // of Europe, Scandinavia, and the sub-continent.
     AsyncCompilerAgentHelper m_helper = new AsyncCompilerAgentHelper();
 
-    // do work in this executor service
+    // do catalog change work in this executor service
     final ListeningExecutorService m_es =
         CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
 
+    // do ad hoc planning work in this executor service, one thread per pooled planner.
+    // if more than MAX_QUEUE_DEPTH planning requests are waiting, reject new work
+    final LinkedBlockingQueue<Runnable> m_plannerQueue =
+        new LinkedBlockingQueue<Runnable>(MAX_QUEUE_DEPTH);
+    final ListeningExecutorService m_plannerEs =
+        CoreUtils.getListeningExecutorService("Ad Hoc Planner Pool", PlannerTool.POOL_SIZE, m_plannerQueue, null);
+
     // Enable debug hooks when the "asynccompilerdebug" sys prop is set to "true" or "yes".
     private final static MiscUtils.BooleanSystemProperty DEBUG_MODE =
             new MiscUtils.BooleanSystemProperty("asynccompilerdebug");
@@ -75,6 +83,10 @@ public class AsyncCompilerAgent {
     // intended for integration test use. finish planning what's in
     // the queue and terminate the TPE.
     public void shutdown() throws InterruptedException {
+        if (m_plannerEs != null) {
+            m_plannerEs.shutdown();
+            m_plannerEs.awaitTermination(120, TimeUnit.SECONDS);
+        }
         if (m_es != null) {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
@@ -92,8 +104,11 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                // Catalog changes stay serialized on one thread, planning fans out over the pool.
+                final ListeningExecutorService es =
+                        ((LocalObjectMessage)message).payload instanceof CatalogChangeWork ? m_es : m_plannerEs;
                 try {
-                    m_es.submit(new Runnable() {
+                    es.submit(new Runnable() {
                         @Override
                         public void run() {
                             handleMailboxMessage(message);
@@ -259,7 +274,27 @@ public class AsyncCompilerAgent {
                 return;
             }
             final CatalogChangeWork ccw = new CatalogChangeWork(w);
-            dispatchCatalogChangeWork(ccw);
+            // Hand off to the catalog change thread so catalog updates never run concurrently.
+            try {
+                m_es.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            dispatchCatalogChangeWork(ccw);
+                        }
+                        catch (RuntimeException e) {
+                            AsyncCompilerResult errResult =
+                                AsyncCompilerResult.makeErrorResult(ccw,
+                                    String.format("Unexpected async compiler exception for %s: %s",
+                                            ccw.getClass().getName(),
+                                            e.getLocalizedMessage()));
+                            ccw.completionHandler.onCompletion(errResult);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException rejected) {
+                generateErrorResult("Ad Hoc Planner task queue is full. Try again.", ccw);
+            }
         }
     }
 
@@ -289,7 +324,7 @@ public class AsyncCompilerAgent {
     }
 
     public void compileAdHocPlanForProcedure(final AdHocPlannerWork apw) {
-        m_es.submit(new Runnable() {
+        m_plannerEs.submit(new Runnable() {
             @Override
             public void run(){
                 apw.completionHandler.onCompletion(compileAdHocPlan(apw));
@@ -347,7 +382,7 @@ public class AsyncCompilerAgent {
                 partitioning = StatementPartitioning.forceSP();
             }
             try {
-                AdHocPlannedStatement result = ptool.planSql(sqlStatement, partitioning);
+                AdHocPlannedStatement result = ptool.planSql(sqlStatement, partitioning, m_plannerQueue.size());
                 // The planning tool may have optimized for the single partition case
                 // and generated a partition parameter.
                 if (inferSP) {
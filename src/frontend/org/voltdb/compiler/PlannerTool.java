@@ -17,11 +17,15 @@
 
 package org.voltdb.compiler;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltdb.ParameterSet;
 import org.voltdb.PlannerStatsCollector;
 import org.voltdb.PlannerStatsCollector.CacheUse;
@@ -43,41 +47,93 @@ import org.voltdb.utils.Encoder;
 /**
  * Planner tool accepts an already compiled VoltDB catalog and then
  * interactively accept SQL and outputs plans on standard out.
+ *
+ * Planning is done by a small pool of independent planners, each with its
+ * own HSQL session, so that concurrent ad hoc requests don't serialize behind
+ * a single planner. Planners are loaded lazily as concurrent demand requires
+ * and are shared across callers via an idle list.
  */
 public class PlannerTool {
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
+    /**
+     * Maximum number of concurrent planners per catalog. Override with -DADHOC_PLANNER_POOL_SIZE=n.
+     */
+    public static final int POOL_SIZE = Math.max(1, Integer.getInteger("ADHOC_PLANNER_POOL_SIZE",
+            Math.min(4, Math.max(1, CoreUtils.availableProcessors() / 2))));
+
     private final Database m_database;
     private final Cluster m_cluster;
-    private final HSQLInterface m_hsql;
     private final byte[] m_catalogHash;
     private final AdHocCompilerCache m_cache;
-    private static PlannerStatsCollector m_plannerStats;
+    private final String[] m_ddl;
+    private final int m_poolSize;
+
+    // Planners not currently in use. Most recently used at the front to keep warm sessions busy.
+    private final LinkedBlockingDeque<Planner> m_idlePlanners = new LinkedBlockingDeque<Planner>();
+    private final AtomicInteger m_plannerCount = new AtomicInteger(0);
+
+    // Planner stats outlive any one catalog, so there is one collector per pool slot.
+    private static final PlannerStatsCollector[] m_plannerStats = new PlannerStatsCollector[POOL_SIZE];
 
     private static final int AD_HOC_JOINED_TABLE_LIMIT = 5;
 
+    /**
+     * A single planner in the pool. Only one thread uses a planner at a time.
+     */
+    private static class Planner {
+        final int m_id;
+        final HSQLInterface m_hsql;
+        final PlannerStatsCollector m_stats;
+
+        Planner(int id, HSQLInterface hsql, PlannerStatsCollector stats) {
+            m_id = id;
+            m_hsql = hsql;
+            m_stats = stats;
+        }
+    }
+
     public PlannerTool(final Cluster cluster, final Database database, byte[] catalogHash)
+    {
+        this(cluster, database, catalogHash, POOL_SIZE);
+    }
+
+    public PlannerTool(final Cluster cluster, final Database database, byte[] catalogHash, int poolSize)
     {
         assert(cluster != null);
         assert(database != null);
+        assert(poolSize > 0 && poolSize <= POOL_SIZE);
 
         m_database = database;
         m_cluster = cluster;
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        m_poolSize = poolSize;
 
-        // LOAD HSQL
-        m_hsql = HSQLInterface.loadHsqldb();
         String binDDL = m_database.getSchema();
         String ddl = Encoder.decodeBase64AndDecompress(binDDL);
         String[] commands = ddl.split("\n");
+        List<String> decodedCommands = new ArrayList<String>(commands.length);
         for (String command : commands) {
             String decoded_cmd = Encoder.hexDecodeToString(command);
             decoded_cmd = decoded_cmd.trim();
             if (decoded_cmd.length() == 0)
                 continue;
+            decodedCommands.add(decoded_cmd);
+        }
+        m_ddl = decodedCommands.toArray(new String[decodedCommands.size()]);
+
+        // Load the first planner up front so schema problems surface here rather than on first use.
+        m_plannerCount.set(1);
+        m_idlePlanners.offerFirst(createPlanner(0));
+    }
+
+    private Planner createPlanner(int id) {
+        // LOAD HSQL
+        HSQLInterface hsql = HSQLInterface.loadHsqldb();
+        for (String decoded_cmd : m_ddl) {
             try {
-                m_hsql.runDDLCommand(decoded_cmd);
+                hsql.runDDLCommand(decoded_cmd);
             }
             catch (HSQLParseException e) {
                 // need a good error message here
@@ -85,21 +141,66 @@ public class PlannerTool {
             }
         }
 
-        hostLog.debug("hsql loaded");
-
-        // Create and register a singleton planner stats collector, if this is the first time.
-        if (m_plannerStats == null) {
-            synchronized (this.getClass()) {
-                if (m_plannerStats == null) {
-                    final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
-                    // In mock test environments there may be no stats agent.
-                    if (statsAgent != null) {
-                        m_plannerStats = new PlannerStatsCollector(-1);
-                        statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
-                    }
+        hostLog.debug("hsql loaded for planner " + id);
+
+        return new Planner(id, hsql, getPlannerStats(id));
+    }
+
+    /**
+     * Get or create and register the stats collector for a pool slot, if this is the first time.
+     */
+    private static PlannerStatsCollector getPlannerStats(int id) {
+        synchronized (PlannerTool.class) {
+            if (m_plannerStats[id] == null) {
+                final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
+                // In mock test environments there may be no stats agent.
+                if (statsAgent != null) {
+                    m_plannerStats[id] = new PlannerStatsCollector(-1, id);
+                    statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats[id]);
+                }
+            }
+            return m_plannerStats[id];
+        }
+    }
+
+    /**
+     * Take an idle planner, loading a new one if all are busy and the pool
+     * has room to grow, otherwise wait for one to be released.
+     */
+    private Planner acquirePlanner() {
+        Planner planner = m_idlePlanners.pollFirst();
+        if (planner != null) {
+            return planner;
+        }
+        int count;
+        while ((count = m_plannerCount.get()) < m_poolSize) {
+            if (m_plannerCount.compareAndSet(count, count + 1)) {
+                try {
+                    return createPlanner(count);
+                }
+                catch (RuntimeException e) {
+                    m_plannerCount.decrementAndGet();
+                    throw e;
                 }
             }
         }
+        try {
+            return m_idlePlanners.takeFirst();
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for an ad hoc planner", e);
+        }
+    }
+
+    private void releasePlanner(Planner planner) {
+        m_idlePlanners.offerFirst(planner);
+    }
+
+    /**
+     * @return the number of planners currently loaded for this catalog
+     */
+    public int getPlannerCount() {
+        return m_plannerCount.get();
     }
 
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
@@ -110,16 +211,17 @@ public class PlannerTool {
     /**
      * Stripped down compile that is ONLY used to plan default procedures.
      */
-    public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
-        TrivialCostModel costModel = new TrivialCostModel();
-        DatabaseEstimates estimates = new DatabaseEstimates();
-        QueryPlanner planner = new QueryPlanner(
-            sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-            partitioning, m_hsql, estimates, true,
-            AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
-
+    public CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
+        final Planner pooledPlanner = acquirePlanner();
         CompiledPlan plan = null;
         try {
+            TrivialCostModel costModel = new TrivialCostModel();
+            DatabaseEstimates estimates = new DatabaseEstimates();
+            QueryPlanner planner = new QueryPlanner(
+                sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
+                partitioning, pooledPlanner.m_hsql, estimates, true,
+                AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
+
             // do the expensive full planning.
             planner.parse();
             plan = planner.plan();
@@ -128,6 +230,9 @@ public class PlannerTool {
         catch (Exception e) {
             throw new RuntimeException("Error compiling query: " + e.toString(), e);
         }
+        finally {
+            releasePlanner(pooledPlanner);
+        }
 
         if (plan == null) {
             throw new RuntimeException("Null plan received in PlannerTool.planSql");
@@ -136,10 +241,22 @@ public class PlannerTool {
         return plan;
     }
 
-    synchronized AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning) {
+    AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning) {
+        return planSql(sqlIn, partitioning, 0);
+    }
+
+    /**
+     * Plan a statement on the next available planner.
+     *
+     * @param queueDepth  number of planning requests waiting behind this one, for stats
+     */
+    AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning, int queueDepth) {
+        final Planner pooledPlanner = acquirePlanner();
+        final PlannerStatsCollector plannerStats = pooledPlanner.m_stats;
         CacheUse cacheUse = CacheUse.FAIL;
-        if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+        if (plannerStats != null) {
+            plannerStats.updateQueueDepth(queueDepth);
+            plannerStats.startStatsCollection();
         }
         try {
             if ((sqlIn == null) || (sqlIn.length() == 0)) {
@@ -178,7 +295,7 @@ public class PlannerTool {
             DatabaseEstimates estimates = new DatabaseEstimates();
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-                    partitioning, m_hsql, estimates, true,
+                    partitioning, pooledPlanner.m_hsql, estimates, true,
                     AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
 
             CompiledPlan plan = null;
@@ -256,9 +373,12 @@ public class PlannerTool {
             return ahps;
         }
         finally {
-            if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+            if (plannerStats != null) {
+                plannerStats.updateCacheUsage(m_cache.getLiteralCacheBytes(), m_cache.getCoreCacheBytes(),
+                                              m_cache.getLiteralCacheEvictions(), m_cache.getCoreCacheEvictions());
+                plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
             }
+            releasePlanner(pooledPlanner);
         }
     }
 }
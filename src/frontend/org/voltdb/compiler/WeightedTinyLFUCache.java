@@ -0,0 +1,382 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.compiler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent cache bounded by total weight (roughly bytes) that evicts
+ * using a W-TinyLFU policy. New entries land in a small LRU admission window.
+ * Entries that overflow the window only displace an entry of the main
+ * segmented LRU if a frequency sketch says they are used more often than
+ * the main segment's victim, so a burst of large one-off plans can't flush
+ * out a set of small hot ones.
+ *
+ * Reads go straight to a ConcurrentHashMap and never block. The recency and
+ * frequency bookkeeping for a read is skipped when another thread holds the
+ * policy lock, so a hot key may occasionally lose an access. Writes and
+ * evictions are serialized on the policy lock.
+ */
+class WeightedTinyLFUCache<K, V> {
+
+    /**
+     * Computes the weight of an entry, which is fixed while it stays cached.
+     */
+    interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int DEAD = 3;
+
+    private static final class Node<K, V> {
+        final K m_key;
+        volatile V m_value;
+        int m_weight;
+        int m_queue;
+        // just moved out of the window and not yet admitted to the main space
+        boolean m_candidate;
+        Node<K, V> m_prev;
+        Node<K, V> m_next;
+
+        Node(K key, V value, int weight) {
+            m_key = key;
+            m_value = value;
+            m_weight = weight;
+        }
+    }
+
+    /**
+     * Access ordered list with the least recently used entry first.
+     */
+    private static final class AccessQueue<K, V> {
+        final Node<K, V> m_sentinel = new Node<K, V>(null, null, 0);
+        long m_weight = 0;
+
+        AccessQueue() {
+            m_sentinel.m_prev = m_sentinel;
+            m_sentinel.m_next = m_sentinel;
+        }
+
+        void addMru(Node<K, V> node) {
+            node.m_prev = m_sentinel.m_prev;
+            node.m_next = m_sentinel;
+            m_sentinel.m_prev.m_next = node;
+            m_sentinel.m_prev = node;
+            m_weight += node.m_weight;
+        }
+
+        void remove(Node<K, V> node) {
+            node.m_prev.m_next = node.m_next;
+            node.m_next.m_prev = node.m_prev;
+            node.m_prev = null;
+            node.m_next = null;
+            m_weight -= node.m_weight;
+        }
+
+        void moveToMru(Node<K, V> node) {
+            remove(node);
+            addMru(node);
+        }
+
+        Node<K, V> peekLru() {
+            return m_sentinel.m_next == m_sentinel ? null : m_sentinel.m_next;
+        }
+
+        Node<K, V> peekMru() {
+            return m_sentinel.m_prev == m_sentinel ? null : m_sentinel.m_prev;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit access counters. All counters are halved
+     * periodically so that the sketch favors recent popularity.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = new int[] {
+            0x97cb3127, 0xb8dcf9b9, 0xd67a2b4d, 0x8f4d8c91 };
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] m_table;
+        private final int m_mask;
+        private final int m_sampleSize;
+        private int m_additions = 0;
+
+        FrequencySketch(int expectedEntries) {
+            // 16 counters per expected entry keeps collisions rare enough that
+            // a one-off entry doesn't look as popular as a hot one.
+            int width = Integer.highestOneBit(Math.max(256, Math.min(expectedEntries, 1 << 22) * 16) - 1) << 1;
+            m_table = new byte[width];
+            m_mask = width - 1;
+            m_sampleSize = width * 10;
+        }
+
+        private int index(int hash, int i) {
+            // murmur3 finalizer with a different seed per row
+            int h = hash ^ SEEDS[i];
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h & m_mask;
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, m_table[index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                if (m_table[index] < MAX_COUNT) {
+                    m_table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++m_additions >= m_sampleSize) {
+                for (int i = 0; i < m_table.length; i++) {
+                    m_table[i] = (byte) (m_table[i] >>> 1);
+                }
+                m_additions /= 2;
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<K, Node<K, V>> m_map = new ConcurrentHashMap<K, Node<K, V>>();
+    private final ReentrantLock m_lock = new ReentrantLock();
+    private final Weigher<K, V> m_weigher;
+
+    private final long m_maxWeight;
+    private final long m_maxWindowWeight;
+    private final long m_maxProtectedWeight;
+
+    // policy state, guarded by m_lock
+    private final AccessQueue<K, V> m_window = new AccessQueue<K, V>();
+    private final AccessQueue<K, V> m_probation = new AccessQueue<K, V>();
+    private final AccessQueue<K, V> m_protected = new AccessQueue<K, V>();
+    private final FrequencySketch m_sketch;
+
+    private volatile long m_weightedSize = 0;
+    private final AtomicLong m_hits = new AtomicLong();
+    private final AtomicLong m_misses = new AtomicLong();
+    private final AtomicLong m_evictions = new AtomicLong();
+
+    /**
+     * @param maxWeight        total weight the cache may hold
+     * @param expectedEntries  rough number of entries expected at capacity, sizes the sketch
+     * @param weigher          computes the weight of each entry
+     */
+    WeightedTinyLFUCache(long maxWeight, int expectedEntries, Weigher<K, V> weigher) {
+        assert(maxWeight > 0);
+        m_maxWeight = maxWeight;
+        // 1% admission window, main space split 20% probation and 80% protected
+        m_maxWindowWeight = Math.max(1, maxWeight / 100);
+        m_maxProtectedWeight = (long) ((maxWeight - m_maxWindowWeight) * 0.8);
+        m_weigher = weigher;
+        m_sketch = new FrequencySketch(expectedEntries);
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the cached value, or null if the key is not cached
+     */
+    V get(K key) {
+        Node<K, V> node = m_map.get(key);
+        if (node == null) {
+            m_misses.incrementAndGet();
+            return null;
+        }
+        m_hits.incrementAndGet();
+        if (m_lock.tryLock()) {
+            try {
+                onAccess(node);
+            }
+            finally {
+                m_lock.unlock();
+            }
+        }
+        return node.m_value;
+    }
+
+    /**
+     * @return the cached value without counting a hit or miss or recording an access
+     */
+    V peek(K key) {
+        Node<K, V> node = m_map.get(key);
+        return node == null ? null : node.m_value;
+    }
+
+    /**
+     * Cache a value, replacing any current value for the key. A value heavier
+     * than the whole cache is not cached.
+     */
+    void put(K key, V value) {
+        final int weight = m_weigher.weigh(key, value);
+        m_lock.lock();
+        try {
+            m_sketch.increment(spread(key));
+            Node<K, V> node = m_map.get(key);
+            if (node != null) {
+                queueFor(node).m_weight += weight - node.m_weight;
+                node.m_weight = weight;
+                node.m_value = value;
+                onAccess(node);
+            }
+            else {
+                if (weight > m_maxWeight) {
+                    return;
+                }
+                node = new Node<K, V>(key, value, weight);
+                node.m_queue = WINDOW;
+                m_window.addMru(node);
+                m_map.put(key, node);
+            }
+            evict();
+        }
+        finally {
+            m_weightedSize = m_window.m_weight + m_probation.m_weight + m_protected.m_weight;
+            m_lock.unlock();
+        }
+    }
+
+    private AccessQueue<K, V> queueFor(Node<K, V> node) {
+        switch (node.m_queue) {
+        case WINDOW:
+            return m_window;
+        case PROBATION:
+            return m_probation;
+        case PROTECTED:
+            return m_protected;
+        default:
+            throw new IllegalStateException("Evicted cache entry is not in any queue");
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.m_queue == DEAD) {
+            return;
+        }
+        m_sketch.increment(spread(node.m_key));
+        switch (node.m_queue) {
+        case WINDOW:
+            m_window.moveToMru(node);
+            break;
+        case PROBATION:
+            // a second look earns a spot in the protected segment
+            m_probation.remove(node);
+            node.m_queue = PROTECTED;
+            m_protected.addMru(node);
+            while (m_protected.m_weight > m_maxProtectedWeight) {
+                Node<K, V> demoted = m_protected.peekLru();
+                m_protected.remove(demoted);
+                demoted.m_queue = PROBATION;
+                m_probation.addMru(demoted);
+            }
+            break;
+        case PROTECTED:
+            m_protected.moveToMru(node);
+            break;
+        }
+    }
+
+    private void evict() {
+        // Entries overflowing the window become candidates for the main space.
+        while (m_window.m_weight > m_maxWindowWeight) {
+            Node<K, V> node = m_window.peekLru();
+            m_window.remove(node);
+            node.m_queue = PROBATION;
+            node.m_candidate = true;
+            m_probation.addMru(node);
+        }
+
+        while (m_window.m_weight + m_probation.m_weight + m_protected.m_weight > m_maxWeight) {
+            Node<K, V> victim = m_probation.peekLru();
+            if (victim == null) {
+                victim = m_protected.peekLru();
+                if (victim == null) {
+                    victim = m_window.peekLru();
+                }
+                remove(victim);
+                continue;
+            }
+            // A new arrival has to be used more often than the oldest entry on probation to stay.
+            Node<K, V> candidate = m_probation.peekMru();
+            if (candidate == victim || !candidate.m_candidate ||
+                    m_sketch.frequency(spread(candidate.m_key)) > m_sketch.frequency(spread(victim.m_key))) {
+                remove(victim);
+            }
+            else {
+                remove(candidate);
+            }
+        }
+
+        // Whatever candidates are left have been admitted.
+        Node<K, V> node = m_probation.peekMru();
+        while (node != null && node != m_probation.m_sentinel && node.m_candidate) {
+            node.m_candidate = false;
+            node = node.m_prev;
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        queueFor(node).remove(node);
+        node.m_queue = DEAD;
+        m_map.remove(node.m_key, node);
+        m_evictions.incrementAndGet();
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    int size() {
+        return m_map.size();
+    }
+
+    /**
+     * @return total weight of cached entries
+     */
+    long weightedSize() {
+        return m_weightedSize;
+    }
+
+    long hitCount() {
+        return m_hits.get();
+    }
+
+    long missCount() {
+        return m_misses.get();
+    }
+
+    long evictionCount() {
+        return m_evictions.get();
+    }
+}
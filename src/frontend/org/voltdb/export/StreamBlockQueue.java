@@ -27,6 +27,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.utils.BinaryDeque;
 import org.voltdb.utils.BinaryDeque.BinaryDequeTruncator;
+import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.PersistentBinaryDeque;
 import org.voltdb.utils.VoltFile;
 
@@ -57,7 +58,9 @@ public class StreamBlockQueue {
     private final String m_nonce;
 
     public StreamBlockQueue(String path, String nonce) throws java.io.IOException {
-        m_persistentDeque = new PersistentBinaryDeque( nonce, new VoltFile(path), exportLog);
+        final PersistentBinaryDeque pbd = new PersistentBinaryDeque( nonce, new VoltFile(path), exportLog);
+        pbd.setCompressionCodec(CompressionService.EXPORT_OVERFLOW_CODEC);
+        m_persistentDeque = pbd;
         m_nonce = nonce;
     }
 
@@ -49,6 +49,8 @@ public class DuplicateCounter
     final List<Long> m_expectedHSIds;
     final long m_txnId;
     private final String m_storedProcName;
+    // Next counter for the same SP handle, see SpScheduler.addDuplicateCounter
+    DuplicateCounter m_nextForSpHandle = null;
 
     DuplicateCounter(
             long destinationHSId,
@@ -18,11 +18,13 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -37,21 +39,34 @@ import org.voltdb.StarvationTracker;
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
  * to be done while holding its lock.
+ *
+ * The pool starts with INITIAL_POOL_SIZE sites and only adds one when a read
+ * had to wait longer than GROW_WAIT_NANOS for the pool, up to the maximum size.
+ * Sites left idle for IDLE_TIMEOUT_NANOS are retired. Sites load user procedures
+ * on first use, and share compiled default procedures through the catalog
+ * context. A catalog update that leaves the jar classes and the procedures a site
+ * has loaded alone (see CatalogContext.getProcedureFingerprint(String)) moves the
+ * site to the new catalog instead of replacing it.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
-    static int DEFAULT_MAX_POOL_SIZE = 20;
+    static int DEFAULT_MAX_POOL_SIZE = Math.max(20, CoreUtils.availableProcessors() * 2);
     static int INITIAL_POOL_SIZE = 1;
+    static long GROW_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(
+            Long.getLong("MPI_READ_POOL_GROW_WAIT_MICROS", 1000));
+    static long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(
+            Long.getLong("MPI_READ_POOL_IDLE_SECONDS", 60));
 
     class MpRoSiteContext {
         final private BackendTarget m_backend;
         final private SiteTaskerQueue m_queue;
         final private MpRoSite m_site;
-        final private CatalogContext m_catalogContext;
+        private CatalogContext m_catalogContext;
         final private ProcedureRunnerFactory m_prf;
         final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        private long m_idleSinceNanos;
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -66,12 +81,14 @@ class MpRoSitePool {
             m_site = new MpRoSite(m_queue, siteId, backend, m_catalogContext, partitionId);
             m_prf = new ProcedureRunnerFactory();
             m_prf.configure(m_site, m_site.m_sysprocContext);
+            // Only RO MP procedures ever run here, don't build runners for the rest
             m_loadedProcedures = new LoadedProcedureSet(m_site, m_prf,
-                    initiatorMailbox.getHSId(), 0); // Stale constructor arg, fill with bleh
+                    initiatorMailbox.getHSId(), 0, true); // Stale constructor arg, fill with bleh
             m_loadedProcedures.loadProcedures(m_catalogContext, m_backend, csp);
             m_site.setLoadedProcedures(m_loadedProcedures);
             m_siteThread = threadFactory.newThread(m_site);
             m_siteThread.start();
+            m_idleSinceNanos = System.nanoTime();
         }
 
         boolean offer(SiteTasker task) {
@@ -86,6 +103,52 @@ class MpRoSitePool {
             return m_catalogContext.catalogVersion;
         }
 
+        boolean isCurrent(CatalogContext context) {
+            return m_catalogContext == context ||
+                (getCatalogCRC() == context.getCatalogCRC()
+                    && getCatalogVersion() == context.catalogVersion);
+        }
+
+        /**
+         * Can the site run under the new catalog without reloading its procedures?
+         * Only the procedures the site has loaded need to be unchanged, the rest
+         * load from the new catalog when first used. Every jar class must be unchanged,
+         * the loaded ones may use any of them.
+         * HSQL keeps a copy of the schema, so those sites are always replaced.
+         */
+        boolean canRebind(CatalogContext context) {
+            if (m_backend == BackendTarget.HSQLDB_BACKEND ||
+                    !Arrays.equals(m_catalogContext.getClassFingerprint(),
+                                   context.getClassFingerprint())) {
+                return false;
+            }
+            // The site is idle, and any rebind still queued to it was checked against
+            // the same procedures, so compare with the catalog it was last moved to
+            for (String procName : m_loadedProcedures.getLoadedUserProcedureNames()) {
+                byte[] fingerprint = m_catalogContext.getProcedureFingerprint(procName);
+                if (fingerprint == null ||
+                        !Arrays.equals(fingerprint, context.getProcedureFingerprint(procName))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Move the site to the new catalog. The switch is queued so that it
+         * happens on the site thread before whatever it is offered next.
+         */
+        void rebind(final CatalogContext context, final CatalogSpecificPlanner csp) {
+            m_catalogContext = context;
+            m_queue.offer(new SiteTasker.SiteTaskerRunnable() {
+                @Override
+                void run() {
+                    m_site.m_context = context;
+                    m_loadedProcedures.rebindProcedures(context, m_backend, csp);
+                }
+            });
+        }
+
         void shutdown() {
             m_site.startShutdown();
             // Need to unblock the site's run() loop on the take() call on the queue
@@ -100,7 +163,7 @@ class MpRoSitePool {
         }
     }
 
-    // Stack of idle MpRoSites
+    // Stack of idle MpRoSites, most recently used on top
     private Deque<MpRoSiteContext> m_idleSites = new ArrayDeque<MpRoSiteContext>();
     // Active sites, hashed by the txnID they're working on
     private Map<Long, MpRoSiteContext> m_busySites = new HashMap<Long, MpRoSiteContext>();
@@ -115,6 +178,22 @@ class MpRoSitePool {
     private ThreadFactory m_poolThreadFactory;
     private final int m_poolSize;
 
+    // How many sites reads may currently occupy, grows on queue wait
+    private int m_targetSize = INITIAL_POOL_SIZE;
+    // When reads last started backing up behind a full pool, -1 if they aren't
+    private long m_saturatedSinceNanos = -1;
+
+    // Read by MpRoSitePoolStats without the queue lock
+    volatile int m_idleCount;
+    volatile int m_busyCount;
+    volatile int m_statsTargetSize = INITIAL_POOL_SIZE;
+    volatile long m_dispatched = 0;
+    volatile long m_waited = 0;
+    volatile long m_totalWaitNanos = 0;
+    volatile long m_created = 0;
+    volatile long m_retired = 0;
+    volatile long m_rebound = 0;
+
     MpRoSitePool(
             long siteId,
             BackendTarget backend,
@@ -137,20 +216,33 @@ class MpRoSitePool {
         if (poolSize == null) {
             poolSize = DEFAULT_MAX_POOL_SIZE;
         }
-        m_poolSize = poolSize;
+        m_poolSize = Math.max(poolSize, INITIAL_POOL_SIZE);
         tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
 
         // Construct the initial pool
         for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
-            m_idleSites.push(new MpRoSiteContext(m_siteId,
-                        m_backend,
-                        m_catalogContext,
-                        m_partitionId,
-                        m_initiatorMailbox,
-                        m_csp,
-                        m_poolThreadFactory));
+            m_idleSites.push(newSiteContext());
         }
+        updateCounts();
+    }
+
+    private MpRoSiteContext newSiteContext()
+    {
+        m_created++;
+        return new MpRoSiteContext(m_siteId,
+                m_backend,
+                m_catalogContext,
+                m_partitionId,
+                m_initiatorMailbox,
+                m_csp,
+                m_poolThreadFactory);
+    }
 
+    private void updateCounts()
+    {
+        m_idleCount = m_idleSites.size();
+        m_busyCount = m_busySites.size();
+        m_statsTargetSize = m_targetSize;
     }
 
     /**
@@ -160,18 +252,26 @@ class MpRoSitePool {
     {
         m_catalogContext = context;
         m_csp = csp;
-        // Wipe out all the idle sites with stale catalogs.
-        // Non-idle sites will get killed and replaced when they finish
+        // Move the idle sites whose procedures are unchanged to the new catalog and
+        // wipe out the other ones with stale catalogs.
+        // Non-idle sites will get moved or killed when they finish
         // whatever they started before the catalog update
         Iterator<MpRoSiteContext> siterator = m_idleSites.iterator();
         while (siterator.hasNext()) {
             MpRoSiteContext site = siterator.next();
-            if (site.getCatalogCRC() != m_catalogContext.getCatalogCRC()
-                    || site.getCatalogVersion() != m_catalogContext.catalogVersion) {
-                site.shutdown();
-                m_idleSites.remove(site);
+            if (!site.isCurrent(m_catalogContext)) {
+                if (site.canRebind(m_catalogContext)) {
+                    site.rebind(m_catalogContext, m_csp);
+                    m_rebound++;
+                }
+                else {
+                    site.shutdown();
+                    siterator.remove();
+                    m_retired++;
+                }
             }
         }
+        updateCounts();
     }
 
     /**
@@ -196,7 +296,10 @@ class MpRoSitePool {
      */
     boolean canAcceptWork()
     {
-        boolean retval = (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize);
+        boolean retval = m_busySites.size() < m_targetSize;
+        if (!retval && m_saturatedSinceNanos < 0) {
+            m_saturatedSinceNanos = System.nanoTime();
+        }
         return retval;
     }
 
@@ -206,32 +309,79 @@ class MpRoSitePool {
      */
     boolean doWork(long txnId, TransactionTask task)
     {
-        boolean retval = canAcceptWork();
-        if (!retval) {
-            return false;
-        }
         MpRoSiteContext site;
         // Repair case
         if (m_busySites.containsKey(txnId)) {
             site = m_busySites.get(txnId);
         }
         else {
+            boolean retval = canAcceptWork();
+            if (!retval) {
+                return false;
+            }
+            final long now = System.nanoTime();
+            recordWait(task, now);
+            retireIdleSites(now);
             if (m_idleSites.isEmpty()) {
-                m_idleSites.push(new MpRoSiteContext(m_siteId,
-                            m_backend,
-                            m_catalogContext,
-                            m_partitionId,
-                            m_initiatorMailbox,
-                            m_csp,
-                            m_poolThreadFactory));
+                m_idleSites.push(newSiteContext());
             }
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            if (m_busySites.size() < m_targetSize) {
+                // Reads aren't backing up behind the pool anymore
+                m_saturatedSinceNanos = -1;
+            }
+            updateCounts();
         }
         site.offer(task);
         return true;
     }
 
+    /**
+     * Account for the time the read spent waiting for a site, which is the part
+     * of its time in the queue since the pool last filled up. Time spent behind
+     * writes doesn't count, the pool is empty then. Grow the pool by one each time
+     * a read waited too long.
+     */
+    private void recordWait(TransactionTask task, long now)
+    {
+        long waitNanos = 0;
+        if (m_saturatedSinceNanos >= 0) {
+            waitNanos = now - Math.max(task.m_queuedTime, m_saturatedSinceNanos);
+        }
+        m_dispatched++;
+        if (waitNanos > 0) {
+            m_waited++;
+            m_totalWaitNanos += waitNanos;
+        }
+        if (waitNanos > GROW_WAIT_NANOS && m_targetSize < m_poolSize) {
+            m_targetSize++;
+            if (tmLog.isDebugEnabled()) {
+                tmLog.debug("Growing MPI read pool to " + m_targetSize + " sites after a read waited "
+                        + TimeUnit.NANOSECONDS.toMicros(waitNanos) + "us");
+            }
+        }
+    }
+
+    /**
+     * Shut down the sites at the bottom of the idle stack that haven't been used
+     * for IDLE_TIMEOUT_NANOS, keeping at least INITIAL_POOL_SIZE sites around,
+     * and shrink the target size with them.
+     */
+    private void retireIdleSites(long now)
+    {
+        MpRoSiteContext oldest = m_idleSites.peekLast();
+        while (oldest != null
+                && now - oldest.m_idleSinceNanos > IDLE_TIMEOUT_NANOS
+                && m_idleSites.size() + m_busySites.size() > INITIAL_POOL_SIZE) {
+            m_idleSites.pollLast().shutdown();
+            m_retired++;
+            oldest = m_idleSites.peekLast();
+        }
+        m_targetSize = Math.max(INITIAL_POOL_SIZE,
+                Math.min(m_targetSize, m_idleSites.size() + m_busySites.size()));
+    }
+
     /**
      * Inform the pool that the work associated with the given txnID is complete
      */
@@ -242,15 +392,35 @@ class MpRoSitePool {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
         }
         // check the catalog versions, only push back onto idle if the catalog hasn't changed
+        // or the procedures the site loaded didn't change with it,
         // otherwise, just let it get garbage collected and let doWork() construct new ones for the
         // pool with the updated catalog.
-        if (site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
-                && site.getCatalogVersion() == m_catalogContext.catalogVersion) {
+        boolean keep = true;
+        if (!site.isCurrent(m_catalogContext)) {
+            if (site.canRebind(m_catalogContext)) {
+                site.rebind(m_catalogContext, m_csp);
+                m_rebound++;
+            }
+            else {
+                site.shutdown();
+                m_retired++;
+                keep = false;
+            }
+        }
+        if (keep) {
+            site.m_idleSinceNanos = System.nanoTime();
             m_idleSites.push(site);
         }
-        else {
-            site.shutdown();
+        if (m_busySites.isEmpty()) {
+            m_saturatedSinceNanos = -1;
         }
+        retireIdleSites(System.nanoTime());
+        updateCounts();
+    }
+
+    int getMaxSize()
+    {
+        return m_poolSize;
     }
 
     void shutdown()
@@ -0,0 +1,119 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * @Statistics MPREADPOOL. Utilization of the pool of sites the MPI runs
+ * multi-partition reads on: its current, target and maximum sizes, how many
+ * reads had to wait for a site and for how long, and how many sites were
+ * created, retired or moved to a new catalog. One row per MPI.
+ */
+public class MpRoSitePoolStats extends SiteStatsSource {
+
+    private final MpRoSitePool m_pool;
+
+    private boolean m_interval;
+    private long m_lastDispatched = 0;
+    private long m_lastWaited = 0;
+    private long m_lastTotalWaitNanos = 0;
+
+    MpRoSitePoolStats(long siteId, MpRoSitePool pool) {
+        super(siteId, false);
+        m_pool = pool;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("IDLE_SITES", VoltType.INTEGER));
+        columns.add(new ColumnInfo("BUSY_SITES", VoltType.INTEGER));
+        columns.add(new ColumnInfo("TARGET_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("READS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WAITED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG_WAIT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("CREATED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("RETIRED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REBOUND", VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        long dispatched = m_pool.m_dispatched;
+        long waited = m_pool.m_waited;
+        long totalWaitNanos = m_pool.m_totalWaitNanos;
+        if (m_interval) {
+            final long d = dispatched - m_lastDispatched;
+            final long w = waited - m_lastWaited;
+            final long t = totalWaitNanos - m_lastTotalWaitNanos;
+            m_lastDispatched = dispatched;
+            m_lastWaited = waited;
+            m_lastTotalWaitNanos = totalWaitNanos;
+            dispatched = d;
+            waited = w;
+            totalWaitNanos = t;
+        }
+        rowValues[columnNameToIndex.get("IDLE_SITES")] = m_pool.m_idleCount;
+        rowValues[columnNameToIndex.get("BUSY_SITES")] = m_pool.m_busyCount;
+        rowValues[columnNameToIndex.get("TARGET_SIZE")] = m_pool.m_statsTargetSize;
+        rowValues[columnNameToIndex.get("MAX_SIZE")] = m_pool.getMaxSize();
+        rowValues[columnNameToIndex.get("READS")] = dispatched;
+        rowValues[columnNameToIndex.get("WAITED")] = waited;
+        // microseconds, over the reads that waited at all
+        rowValues[columnNameToIndex.get("AVG_WAIT")] = waited > 0 ? (totalWaitNanos / waited) / 1000 : 0L;
+        rowValues[columnNameToIndex.get("CREATED")] = m_pool.m_created;
+        rowValues[columnNameToIndex.get("RETIRED")] = m_pool.m_retired;
+        rowValues[columnNameToIndex.get("REBOUND")] = m_pool.m_rebound;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+}
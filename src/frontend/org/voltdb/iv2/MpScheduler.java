@@ -19,12 +19,10 @@ package org.voltdb.iv2;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.json_voltpatches.JSONException;
@@ -33,6 +31,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.Mailbox;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.LongHashMap;
 import org.voltdb.CatalogContext;
 import org.voltdb.CatalogSpecificPlanner;
 import org.voltdb.CommandLog;
@@ -60,10 +59,10 @@ public class MpScheduler extends Scheduler
     // null if running community, fallback to MpProcedureTask
     private static final Constructor<?> NpProcedureTaskConstructor = loadNpProcedureTaskClass();
 
-    private final Map<Long, TransactionState> m_outstandingTxns =
-        new HashMap<Long, TransactionState>();
-    private final Map<Long, DuplicateCounter> m_duplicateCounters =
-        new HashMap<Long, DuplicateCounter>();
+    private final LongHashMap<TransactionState> m_outstandingTxns =
+        new LongHashMap<TransactionState>();
+    private final LongHashMap<DuplicateCounter> m_duplicateCounters =
+        new LongHashMap<DuplicateCounter>();
 
     private final List<Long> m_iv2Masters;
     private final Map<Integer, Long> m_partitionMasters;
@@ -127,18 +126,20 @@ public class MpScheduler extends Scheduler
         // Stolen from SpScheduler.  Need to update the duplicate counters associated with any EveryPartitionTasks
         // Cleanup duplicate counters and collect DONE counters
         // in this list for further processing.
-        List<Long> doneCounters = new LinkedList<Long>();
-        for (Entry<Long, DuplicateCounter> entry : m_duplicateCounters.entrySet()) {
-            DuplicateCounter counter = entry.getValue();
+        long[] doneCounters = new long[m_duplicateCounters.size()];
+        int doneCount = 0;
+        for (long txnId : m_duplicateCounters.keys()) {
+            DuplicateCounter counter = m_duplicateCounters.get(txnId);
             int result = counter.updateReplicas(m_iv2Masters);
             if (result == DuplicateCounter.DONE) {
-                doneCounters.add(entry.getKey());
+                doneCounters[doneCount++] = txnId;
             }
         }
 
         // Maintain the CI invariant that responses arrive in txnid order.
-        Collections.sort(doneCounters);
-        for (Long key : doneCounters) {
+        Arrays.sort(doneCounters, 0, doneCount);
+        for (int ii = 0; ii < doneCount; ii++) {
+            long key = doneCounters[ii];
             DuplicateCounter counter = m_duplicateCounters.remove(key);
             VoltMessage resp = counter.getLastResponse();
             if (resp != null && resp instanceof InitiateResponseMessage) {
@@ -108,6 +108,7 @@ abstract public class ProcedureTask extends TransactionTask
                 // Check partitioning of single-partition and n-partition transactions.
                 if (runner.checkPartition(m_txnState, siteConnection.getCurrentHashinator())) {
                     runner.setupTransaction(m_txnState);
+                    runner.setQueuedTime(m_queuedTime);
                     cr = runner.call(callerParams);
 
                     m_txnState.setHash(cr.getHash());
@@ -88,6 +88,7 @@ import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.MinimumRatioMaintainer;
+import org.voltdb.utils.ProcStatsCollector;
 
 import vanilla.java.affinity.impl.PosixJNAAffinity;
 
@@ -533,6 +534,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     public void run()
     {
         Thread.currentThread().setName("Iv2ExecutionSite: " + CoreUtils.hsIdToString(m_siteId));
+        ProcStatsCollector.instance.registerCurrentThread("Site " + CoreUtils.hsIdToString(m_siteId));
         if (m_coreBindIds != null) {
             PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindIds);
         }
@@ -600,7 +602,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         try {
             shutdown();
         } finally {
-            CompressionService.releaseThreadLocal();        }
+            CompressionService.releaseThreadLocal();
+            ProcStatsCollector.instance.unregisterCurrentThread();
+        }
     }
 
     ParticipantTransactionState global_replay_mpTxn = null;
@@ -17,47 +17,218 @@
 
 package org.voltdb.iv2;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.MpscArrayQueue;
 import org.voltdb.StarvationTracker;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * Any thread may offer tasks, only the site thread may take or poll them.
+ * How the site thread waits for work when the queue is empty is chosen by
+ * the SITE_WAIT_STRATEGY system property, see {@link WaitStrategy}.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    /**
+     * How the site thread waits when there is nothing to do. Every strategy begins
+     * by spinning on the queue for SITE_SPIN_MICROS (QUEUE_SPIN_MICROS if unset).
+     */
+    public static enum WaitStrategy {
+        /** Never give up the core. Lowest latency for sites pinned to dedicated cores. */
+        BUSY_SPIN,
+        /** Spin, then Thread.yield() until work arrives. */
+        SPIN_YIELD,
+        /**
+         * Spin, yield for SITE_YIELD_MICROS, then park for increasing periods from
+         * SITE_PARK_MIN_MICROS up to SITE_PARK_MAX_MICROS. Producers wake the site early.
+         */
+        SPIN_PARK,
+        /** Spin, then park until a producer offers a task. The default. */
+        BLOCKING
+    }
+
+    static final WaitStrategy DEFAULT_WAIT_STRATEGY =
+            WaitStrategy.valueOf(System.getProperty("SITE_WAIT_STRATEGY", WaitStrategy.BLOCKING.name()));
+    static final long DEFAULT_SPIN_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("SITE_SPIN_MICROS",
+                    (int)TimeUnit.NANOSECONDS.toMicros(CoreUtils.QUEUE_SPIN_MICROSECONDS)));
+    static final long DEFAULT_YIELD_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("SITE_YIELD_MICROS", 50));
+    static final long DEFAULT_PARK_MIN_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("SITE_PARK_MIN_MICROS", 10));
+    static final long DEFAULT_PARK_MAX_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger("SITE_PARK_MAX_MICROS", 1000));
+    // 0 keeps the unbounded linked queue, otherwise tasks go through a ring of this size
+    static final int DEFAULT_RING_CAPACITY = Integer.getInteger("SITE_QUEUE_RING_CAPACITY", 0);
+
+    private final WaitStrategy m_waitStrategy;
+    private final long m_spinNanos;
+    private final long m_yieldNanos;
+    private final long m_parkMinNanos;
+    private final long m_parkMaxNanos;
+
+    // Exactly one of m_tasks and m_ring is used
+    private final LinkedTransferQueue<SiteTasker> m_tasks;
+    private final MpscArrayQueue<SiteTasker> m_ring;
+    // Tasks offered while the ring was full. While it holds anything every offer
+    // goes here as well, so tasks from one producer are never reordered.
+    private final ConcurrentLinkedQueue<SiteTasker> m_overflow;
+    private final AtomicInteger m_overflowCount;
+
+    // The site thread while it is parked waiting for work, null otherwise
+    private volatile Thread m_parkedThread;
+
     private StarvationTracker m_starvationTracker;
 
+    public SiteTaskerQueue()
+    {
+        this(DEFAULT_WAIT_STRATEGY, DEFAULT_SPIN_NANOS, DEFAULT_YIELD_NANOS,
+             DEFAULT_PARK_MIN_NANOS, DEFAULT_PARK_MAX_NANOS, DEFAULT_RING_CAPACITY);
+    }
+
+    SiteTaskerQueue(WaitStrategy waitStrategy, long spinNanos, long yieldNanos,
+                    long parkMinNanos, long parkMaxNanos, int ringCapacity)
+    {
+        m_waitStrategy = waitStrategy;
+        m_spinNanos = spinNanos;
+        m_yieldNanos = yieldNanos;
+        m_parkMinNanos = Math.max(1, parkMinNanos);
+        m_parkMaxNanos = Math.max(m_parkMinNanos, parkMaxNanos);
+        if (ringCapacity > 0) {
+            m_tasks = null;
+            m_ring = new MpscArrayQueue<SiteTasker>(ringCapacity);
+            m_overflow = new ConcurrentLinkedQueue<SiteTasker>();
+            m_overflowCount = new AtomicInteger();
+        } else {
+            m_tasks = new LinkedTransferQueue<SiteTasker>();
+            m_ring = null;
+            m_overflow = null;
+            m_overflowCount = null;
+        }
+    }
+
     public boolean offer(SiteTasker task)
     {
-        return m_tasks.offer(task);
+        if (m_ring == null) {
+            m_tasks.offer(task);
+        } else if (m_overflowCount.get() > 0 || !m_ring.offer(task)) {
+            m_overflowCount.incrementAndGet();
+            m_overflow.offer(task);
+        }
+        final Thread parked = m_parkedThread;
+        if (parked != null) {
+            LockSupport.unpark(parked);
+        }
+        return true;
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
-        if (task == null) {
-            m_starvationTracker.beginStarvation();
-        } else {
+        SiteTasker task = poll();
+        if (task != null) {
             return task;
         }
+        m_starvationTracker.beginStarvation();
+        final long start = System.nanoTime();
+        // when the yield and park phases began, 0 if they were never reached
+        long yieldStart = 0;
+        long parkStart = 0;
         try {
-            return CoreUtils.queueSpinTake(m_tasks);
+            long now = start;
+            while (m_waitStrategy == WaitStrategy.BUSY_SPIN || now - start < m_spinNanos) {
+                if ((task = poll()) != null) {
+                    return task;
+                }
+                checkInterrupted();
+                now = System.nanoTime();
+            }
+
+            if (m_waitStrategy == WaitStrategy.SPIN_YIELD || m_waitStrategy == WaitStrategy.SPIN_PARK) {
+                yieldStart = now;
+                while (m_waitStrategy == WaitStrategy.SPIN_YIELD || now - yieldStart < m_yieldNanos) {
+                    if ((task = poll()) != null) {
+                        return task;
+                    }
+                    checkInterrupted();
+                    Thread.yield();
+                    now = System.nanoTime();
+                }
+            }
+
+            parkStart = now;
+            long parkNanos = m_parkMinNanos;
+            m_parkedThread = Thread.currentThread();
+            try {
+                for (;;) {
+                    // a task offered before m_parkedThread became visible is seen here
+                    if ((task = poll()) != null) {
+                        return task;
+                    }
+                    checkInterrupted();
+                    if (m_waitStrategy == WaitStrategy.BLOCKING) {
+                        LockSupport.park(this);
+                    } else {
+                        LockSupport.parkNanos(this, parkNanos);
+                        parkNanos = Math.min(parkNanos << 1, m_parkMaxNanos);
+                    }
+                }
+            } finally {
+                m_parkedThread = null;
+            }
         } finally {
+            final long end = System.nanoTime();
+            final long spinEnd = yieldStart != 0 ? yieldStart : (parkStart != 0 ? parkStart : end);
+            final long yieldEnd = yieldStart == 0 ? spinEnd : (parkStart != 0 ? parkStart : end);
+            m_starvationTracker.recordWaitPhases(spinEnd - start, yieldEnd - spinEnd,
+                                                 parkStart != 0 ? end - parkStart : 0);
             m_starvationTracker.endStarvation();
         }
     }
 
+    private static void checkInterrupted() throws InterruptedException
+    {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        return m_tasks.poll();
+        if (m_ring == null) {
+            return m_tasks.poll();
+        }
+        SiteTasker task;
+        while ((task = m_ring.poll()) == null) {
+            if (m_overflowCount.get() == 0 || m_overflow.peek() == null) {
+                return null;
+            }
+            // The overflow head may only run once no older ring task remains. A producer
+            // claims its ring slot before it queues a later task in the overflow, so after
+            // the peek above a claimed but not yet published slot shows up in the size.
+            if (m_ring.size() == 0) {
+                task = m_overflow.poll();
+                m_overflowCount.decrementAndGet();
+                return task;
+            }
+            Thread.yield();
+        }
+        return task;
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        if (m_ring == null) {
+            return m_tasks.isEmpty();
+        }
+        return m_ring.isEmpty() && m_overflowCount.get() == 0;
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
@@ -20,12 +20,10 @@ package org.voltdb.iv2;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -35,6 +33,7 @@ import org.voltcore.messaging.HostMessenger;
 import org.voltcore.messaging.TransactionInfoBaseMessage;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.LongHashMap;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.CommandLog;
 import org.voltdb.CommandLog.DurabilityListener;
@@ -132,13 +131,16 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     long m_sendToHSIds[] = new long[0];
 
     private final TransactionTaskQueue m_pendingTasks;
-    private final Map<Long, TransactionState> m_outstandingTxns =
-        new HashMap<Long, TransactionState>();
-    private final Map<DuplicateCounterKey, DuplicateCounter> m_duplicateCounters =
-        new HashMap<DuplicateCounterKey, DuplicateCounter>();
+    private final LongHashMap<TransactionState> m_outstandingTxns =
+        new LongHashMap<TransactionState>();
+    // Keyed by SP handle. Read-only MP fragments reuse the max tasked SP handle, so
+    // concurrent ones share it; the counters for a handle are chained through
+    // DuplicateCounter.m_nextForSpHandle and told apart by txn id.
+    private final LongHashMap<DuplicateCounter> m_duplicateCounters =
+        new LongHashMap<DuplicateCounter>();
     // MP fragment tasks or completion tasks pending durability
-    private final Map<Long, Queue<TransactionTask>> m_mpsPendingDurability =
-        new HashMap<Long, Queue<TransactionTask>>();
+    private final LongHashMap<Queue<TransactionTask>> m_mpsPendingDurability =
+        new LongHashMap<Queue<TransactionTask>>();
     private CommandLog m_cl;
     private PartitionDRGateway m_drGateway = new PartitionDRGateway();
     private final SnapshotCompletionMonitor m_snapMonitor;
@@ -248,18 +250,20 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         // Cleanup duplicate counters and collect DONE counters
         // in this list for further processing.
         List<DuplicateCounterKey> doneCounters = new LinkedList<DuplicateCounterKey>();
-        for (Entry<DuplicateCounterKey, DuplicateCounter> entry : m_duplicateCounters.entrySet()) {
-            DuplicateCounter counter = entry.getValue();
-            int result = counter.updateReplicas(m_replicaHSIds);
-            if (result == DuplicateCounter.DONE) {
-                doneCounters.add(entry.getKey());
+        for (long spHandle : m_duplicateCounters.keys()) {
+            DuplicateCounter counter = m_duplicateCounters.get(spHandle);
+            for (; counter != null; counter = counter.m_nextForSpHandle) {
+                int result = counter.updateReplicas(m_replicaHSIds);
+                if (result == DuplicateCounter.DONE) {
+                    doneCounters.add(new DuplicateCounterKey(counter.getTxnId(), spHandle));
+                }
             }
         }
 
         // Maintain the CI invariant that responses arrive in txnid order.
         Collections.sort(doneCounters);
         for (DuplicateCounterKey key : doneCounters) {
-            DuplicateCounter counter = m_duplicateCounters.remove(key);
+            DuplicateCounter counter = removeDuplicateCounter(key.m_txnId, key.m_spHandle);
             VoltMessage resp = counter.getLastResponse();
             if (resp != null) {
                 // MPI is tracking deps per partition HSID.  We need to make
@@ -539,7 +543,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 DuplicateCounter counter = new DuplicateCounter(
                         msg.getInitiatorHSId(),
                         msg.getTxnId(), m_replicaHSIds, msg.getStoredProcedureName());
-                m_duplicateCounters.put(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                addDuplicateCounter(newSpHandle, counter);
             }
         }
         else {
@@ -615,7 +619,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         DuplicateCounter counter = new DuplicateCounter(
                 HostMessenger.VALHALLA,
                 message.getTxnId(), expectedHSIds, message.getStoredProcedureName());
-        m_duplicateCounters.put(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        addDuplicateCounter(message.getSpHandle(), counter);
 
         m_uniqueIdGenerator.updateMostRecentlyGeneratedUniqueId(message.getUniqueId());
         // is local repair necessary?
@@ -645,7 +649,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         DuplicateCounter counter = new DuplicateCounter(
                 message.getCoordinatorHSId(), // Assume that the MPI's HSID hasn't changed
                 message.getTxnId(), expectedHSIds, "MP_DETERMINISM_ERROR");
-        m_duplicateCounters.put(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()), counter);
+        addDuplicateCounter(message.getSpHandle(), counter);
 
         // is local repair necessary?
         if (needsRepair.contains(m_mailbox.getHSId())) {
@@ -672,6 +676,45 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
     }
 
+    // Replaces any counter for the same txn and SP handle
+    private void addDuplicateCounter(long spHandle, DuplicateCounter counter)
+    {
+        removeDuplicateCounter(counter.getTxnId(), spHandle);
+        counter.m_nextForSpHandle = m_duplicateCounters.put(spHandle, counter);
+    }
+
+    private DuplicateCounter getDuplicateCounter(long txnId, long spHandle)
+    {
+        DuplicateCounter counter = m_duplicateCounters.get(spHandle);
+        while (counter != null && counter.getTxnId() != txnId) {
+            counter = counter.m_nextForSpHandle;
+        }
+        return counter;
+    }
+
+    private DuplicateCounter removeDuplicateCounter(long txnId, long spHandle)
+    {
+        DuplicateCounter previous = null;
+        DuplicateCounter counter = m_duplicateCounters.get(spHandle);
+        for (; counter != null; previous = counter, counter = counter.m_nextForSpHandle) {
+            if (counter.getTxnId() != txnId) {
+                continue;
+            }
+            if (previous != null) {
+                previous.m_nextForSpHandle = counter.m_nextForSpHandle;
+            }
+            else if (counter.m_nextForSpHandle != null) {
+                m_duplicateCounters.put(spHandle, counter.m_nextForSpHandle);
+            }
+            else {
+                m_duplicateCounters.remove(spHandle);
+            }
+            counter.m_nextForSpHandle = null;
+            return counter;
+        }
+        return null;
+    }
+
     // Pass a response through the duplicate counters.
     public void handleInitiateResponseMessage(InitiateResponseMessage message)
     {
@@ -686,12 +729,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
 
         final long spHandle = message.getSpHandle();
-        final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
-        DuplicateCounter counter = m_duplicateCounters.get(dcKey);
+        DuplicateCounter counter = getDuplicateCounter(message.getTxnId(), spHandle);
         if (counter != null) {
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
-                m_duplicateCounters.remove(dcKey);
+                removeDuplicateCounter(message.getTxnId(), spHandle);
                 m_repairLogTruncationHandle = spHandle;
                 m_mailbox.send(counter.m_destinationId, counter.getLastResponse());
             }
@@ -807,7 +849,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                             msg.getCoordinatorHSId(),
                             msg.getTxnId(), m_replicaHSIds, "MP_DETERMINISM_ERROR");
                 }
-                m_duplicateCounters.put(new DuplicateCounterKey(msg.getTxnId(), newSpHandle), counter);
+                addDuplicateCounter(newSpHandle, counter);
             }
         }
         else {
@@ -927,12 +969,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     public void handleFragmentResponseMessage(FragmentResponseMessage message)
     {
         // Send the message to the duplicate counter, if any
-        DuplicateCounter counter =
-            m_duplicateCounters.get(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+        DuplicateCounter counter = getDuplicateCounter(message.getTxnId(), message.getSpHandle());
         if (counter != null) {
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
-                m_duplicateCounters.remove(new DuplicateCounterKey(message.getTxnId(), message.getSpHandle()));
+                removeDuplicateCounter(message.getTxnId(), message.getSpHandle());
                 m_repairLogTruncationHandle = message.getSpHandle();
                 FragmentResponseMessage resp = (FragmentResponseMessage)counter.getLastResponse();
                 // MPI is tracking deps per partition HSID.  We need to make
@@ -1003,13 +1044,18 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
         hostLog.warn("" + who + ": most recent SP handle: " + getCurrentTxnId() + " " +
                 TxnEgo.txnIdToString(getCurrentTxnId()));
-        hostLog.warn("" + who + ": outstanding txns: " + m_outstandingTxns.keySet() + " " +
-                TxnEgo.txnIdCollectionToString(m_outstandingTxns.keySet()));
+        List<Long> outstandingTxnIds = Longs.asList(m_outstandingTxns.keys());
+        hostLog.warn("" + who + ": outstanding txns: " + outstandingTxnIds + " " +
+                TxnEgo.txnIdCollectionToString(outstandingTxnIds));
         hostLog.warn("" + who + ": TransactionTaskQueue: " + m_pendingTasks.toString());
         if (m_duplicateCounters.size() > 0) {
             hostLog.warn("" + who + ": duplicate counters: ");
-            for (Entry<DuplicateCounterKey, DuplicateCounter> e : m_duplicateCounters.entrySet()) {
-                hostLog.warn("\t" + who + ": " + e.getKey().toString() + ": " + e.getValue().toString());
+            for (long spHandle : m_duplicateCounters.keys()) {
+                DuplicateCounter counter = m_duplicateCounters.get(spHandle);
+                for (; counter != null; counter = counter.m_nextForSpHandle) {
+                    hostLog.warn("\t" + who + ": " + new DuplicateCounterKey(counter.getTxnId(), spHandle) +
+                            ": " + counter.toString());
+                }
             }
         }
     }
@@ -32,6 +32,8 @@ public abstract class TransactionTask extends SiteTasker
     final protected TransactionState m_txnState;
     final protected TransactionTaskQueue m_queue;
     protected ListenableFuture<Object> m_durabilityBackpressureFuture = CoreUtils.COMPLETED_FUTURE;
+    // System.nanoTime() when the task was created, the start of its wait to run at the site
+    final protected long m_queuedTime = System.nanoTime();
 
     public TransactionTask(TransactionState txnState, TransactionTaskQueue queue)
     {
@@ -355,6 +355,21 @@ public class JDBC4ClientConnection implements Closeable {
         }
     }
 
+    /**
+     * Checks whether a procedure is known to run at a single partition. Procedure partitioning is
+     * only known to clients with client affinity, once they have fetched it from the cluster.
+     *
+     * @param procedure
+     *            the name of the procedure.
+     * @return true if the procedure is known to be single partition, false otherwise.
+     */
+    public boolean isSinglePartitionProcedure(String procedure)
+    {
+        Client currentClient = this.client.get();
+        return currentClient instanceof ClientImpl &&
+                ((ClientImpl) currentClient).isSinglePartitionProcedure(procedure);
+    }
+
     /**
      * Executes a procedure asynchronously, returning a Future that can be used by the caller to
      * wait upon completion before processing the server response.
@@ -43,6 +43,17 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
 {
     public static final String COMMIT_THROW_EXCEPTION = "jdbc.committhrowexception";
     public static final String ROLLBACK_THROW_EXCEPTION = "jdbc.rollbackthrowexception";
+    /**
+     * When true, executeBatch() sends every statement of the batch as an asynchronous
+     * invocation and only waits for the responses once all of them have been sent.
+     */
+    public static final String ASYNC_BATCH = "jdbc.asyncbatch";
+    /**
+     * When true, executeUpdate() of a call to a single partition procedure returns
+     * Statement.SUCCESS_NO_INFO without waiting for the response. A failure is thrown
+     * by the next execute call on this connection, or by close().
+     */
+    public static final String ASYNC_AUTOCOMMIT = "jdbc.asyncautocommit";
 
     protected final JDBC4ClientConnection NativeConnection;
     protected final String User;
@@ -50,11 +61,72 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     private Properties props;
     private boolean autoCommit = true;
 
+    protected final boolean asyncBatch;
+    protected final boolean asyncAutoCommit;
+
+    // Asynchronous updates still waiting for a response, and the first failure among them
+    private int pendingAsyncUpdates = 0;
+    private SQLException deferredError = null;
+
     public JDBC4Connection(JDBC4ClientConnection connection, Properties props)
     {
         this.NativeConnection = connection;
         this.props = props;
         this.User = this.props.getProperty("user", "");
+        this.asyncBatch = this.props.getProperty(ASYNC_BATCH, "false").equalsIgnoreCase("true");
+        this.asyncAutoCommit = this.props.getProperty(ASYNC_AUTOCOMMIT, "false").equalsIgnoreCase("true");
+    }
+
+    synchronized void asyncUpdateStarted()
+    {
+        pendingAsyncUpdates++;
+    }
+
+    synchronized void asyncUpdateDone(SQLException error)
+    {
+        pendingAsyncUpdates--;
+        if (error != null && deferredError == null) {
+            deferredError = error;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Throw the first failure of an asynchronous update that has completed since the last check.
+     */
+    synchronized void throwDeferredError() throws SQLException
+    {
+        if (deferredError != null) {
+            SQLException error = deferredError;
+            deferredError = null;
+            throw error;
+        }
+    }
+
+    /**
+     * Wait for all asynchronous updates to complete so the caller sees their effects,
+     * then throw the first failure among them.
+     * @param timeoutSeconds  0 to wait forever
+     */
+    synchronized void awaitAsyncUpdates(int timeoutSeconds) throws SQLException
+    {
+        final long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        try {
+            while (pendingAsyncUpdates > 0) {
+                if (timeoutSeconds <= 0) {
+                    wait();
+                } else {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw SQLError.get(SQLError.CONNECTION_FAILURE, "Timed out waiting for asynchronous updates");
+                    }
+                    wait(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+        }
+        throwDeferredError();
     }
 
     private void checkClosed() throws SQLException
@@ -74,14 +146,24 @@ public class JDBC4Connection implements java.sql.Connection, IVoltDBConnection
     @Override
     public void close() throws SQLException
     {
+        if (isClosed) {
+            return;
+        }
         try
         {
             isClosed = true;
-            JDBC4ClientConnectionPool.dispose(NativeConnection);
+            awaitAsyncUpdates(0);
         }
-        catch(Exception x)
+        finally
         {
-            throw SQLError.get(x);
+            try
+            {
+                JDBC4ClientConnectionPool.dispose(NativeConnection);
+            }
+            catch(Exception x)
+            {
+                throw SQLError.get(x);
+            }
         }
     }
 
@@ -29,11 +29,14 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.parser.JDBCParser;
 import org.voltdb.parser.SQLLexer;
 import org.voltdb.parser.JDBCParser.ParsedCall;
@@ -125,24 +128,7 @@ public class JDBC4Statement implements java.sql.Statement
             {
                 ClientResponse response = e.getClientResponse();
                 if (response != null) {
-                    // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
-                    // for connection problems.
-                    switch (response.getStatus()) {
-                    case ClientResponse.CONNECTION_LOST:
-                        throw SQLError.get(e, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", e.getMessage());
-                    case ClientResponse.CONNECTION_TIMEOUT:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", e.getMessage());
-                    case ClientResponse.SERVER_UNAVAILABLE:
-                        throw SQLError.get(e, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", e.getMessage());
-                    case ClientResponse.USER_ABORT:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "USER_ABORT", e.getMessage());
-                    case ClientResponse.UNEXPECTED_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", e.getMessage());
-                    case ClientResponse.GRACEFUL_FAILURE:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", e.getMessage());
-                    default:
-                        throw SQLError.get(e, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), e.getMessage());
-                    }
+                    throw getResponseException(response, e, e.getMessage());
                 } else {
                     throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
                 }
@@ -153,6 +139,71 @@ public class JDBC4Statement implements java.sql.Statement
             }
         }
 
+        // Map response status to specific JDBC exception, mostly GENERAL_ERROR except
+        // for connection problems.
+        static SQLException getResponseException(ClientResponse response, Throwable cause, String message)
+        {
+            switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_LOST:
+                return SQLError.get(cause, SQLError.CONNECTION_CLOSED, "CONNECTION_LOST", message);
+            case ClientResponse.CONNECTION_TIMEOUT:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_TIMEOUT", message);
+            case ClientResponse.SERVER_UNAVAILABLE:
+                return SQLError.get(cause, SQLError.CONNECTION_FAILURE, "CONNECTION_UNAVAILABLE", message);
+            case ClientResponse.USER_ABORT:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "USER_ABORT", message);
+            case ClientResponse.UNEXPECTED_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "UNEXPECTED_FAILURE", message);
+            case ClientResponse.GRACEFUL_FAILURE:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, "GRACEFUL_FAILURE", message);
+            default:
+                return SQLError.get(cause, SQLError.GENERAL_ERROR, String.format("status=%d", (int)response.getStatus()), message);
+            }
+        }
+
+        /**
+         * Send the query without waiting for the response.
+         * The callback is only called if the query was sent.
+         */
+        protected void executeAsync(JDBC4ClientConnection connection, ProcedureCallback callback) throws SQLException {
+            boolean queued;
+            try
+            {
+                if (this.type == TYPE_EXEC) {
+                    queued = connection.executeAsync(callback, this.sql[0], this.parameters);
+                } else {
+                    queued = connection.executeAsync(callback, "@AdHoc", this.sql[0]);
+                }
+            }
+            catch(IOException e)
+            {
+                throw SQLError.get(e, SQLError.CONNECTION_FAILURE, e.getMessage());
+            }
+            if (!queued) {
+                throw SQLError.get(SQLError.CONNECTION_FAILURE, "Unable to queue the invocation");
+            }
+        }
+
+        /**
+         * @return the number of rows modified by a successful update
+         */
+        static int getUpdateCount(ClientResponse response) throws SQLException
+        {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                throw getResponseException(response, null, response.getStatusString());
+            }
+            return (int) response.getResults()[0].fetchRow(0).getLong(0);
+        }
+
+        /**
+         * @return true for a call to a procedure the client knows to be single partition
+         */
+        public boolean isSinglePartitionCall(JDBC4ClientConnection connection)
+        {
+            return this.type == TYPE_EXEC && this.queryType == TYPE_EXEC &&
+                    connection.isSinglePartitionProcedure(this.sql[0]);
+        }
+
         public static boolean isUpdateResult(VoltTable table)
         {
             return ((table.getColumnName(0).length() == 0 || table.getColumnName(0).equals("modified_tuples"))&& table.getRowCount() == 1 && table.getColumnCount() == 1 && table.getColumnType(0) == VoltType.BIGINT);
@@ -362,9 +413,18 @@ public class JDBC4Statement implements java.sql.Statement
         this.isClosed = true;
     }
 
+    // Wait for this connection's asynchronous updates before anything that may read their effects
+    private void awaitAsyncUpdates() throws SQLException
+    {
+        if (this.sourceConnection.asyncAutoCommit) {
+            this.sourceConnection.awaitAsyncUpdates(this.m_timeout);
+        }
+    }
+
     protected boolean execute(VoltSQL query) throws SQLException
     {
         checkClosed();
+        awaitAsyncUpdates();
         if (query.isQueryOfType(VoltSQL.TYPE_SELECT,VoltSQL.TYPE_EXEC))
         {
             setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
@@ -419,6 +479,10 @@ public class JDBC4Statement implements java.sql.Statement
         if (batch == null || batch.size() == 0) {
             return new int[0];
         }
+        if (this.sourceConnection.asyncBatch) {
+            return executeBatchAsync();
+        }
+        awaitAsyncUpdates();
 
         int[] updateCounts = new int[batch.size()];
         // keep a running total of update counts
@@ -447,8 +511,90 @@ public class JDBC4Statement implements java.sql.Statement
         return updateCounts;
     }
 
+    /**
+     * Send every statement of the batch before waiting for any response, so the whole
+     * batch is pipelined. The client routes each invocation to its partition's master.
+     * Every statement is executed even if some fail, failed ones get EXECUTE_FAILED.
+     */
+    private int[] executeBatchAsync() throws SQLException
+    {
+        // earlier asynchronous updates on the connection must not be overtaken by the batch
+        awaitAsyncUpdates();
+        this.sourceConnection.throwDeferredError();
+        final int count = batch.size();
+        final int[] updateCounts = new int[count];
+        final SQLException[] errors = new SQLException[count];
+        final CountDownLatch responses = new CountDownLatch(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            final int index = i;
+            try
+            {
+                batch.get(i).executeAsync(sourceConnection.NativeConnection, new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse response) {
+                        try {
+                            updateCounts[index] = VoltSQL.getUpdateCount(response);
+                        } catch (SQLException x) {
+                            errors[index] = x;
+                        } catch (RuntimeException x) {
+                            errors[index] = SQLError.get(x);
+                        } finally {
+                            responses.countDown();
+                        }
+                    }
+                });
+            }
+            catch(SQLException x)
+            {
+                // nothing from here on was sent
+                for (int j = i; j < count; j++) {
+                    errors[j] = x;
+                    responses.countDown();
+                }
+                break;
+            }
+        }
+
+        try
+        {
+            if (this.m_timeout > 0) {
+                if (!responses.await(this.m_timeout, TimeUnit.SECONDS)) {
+                    throw SQLError.get(SQLError.CONNECTION_FAILURE, "Timed out waiting for batch responses");
+                }
+            } else {
+                responses.await();
+            }
+        }
+        catch(InterruptedException e)
+        {
+            throw SQLError.get(e, SQLError.GENERAL_ERROR, e.getMessage());
+        }
+
+        SQLException firstError = null;
+        int runningUpdateCount = 0;
+        for (int i = 0; i < count; i++)
+        {
+            if (errors[i] != null) {
+                updateCounts[i] = EXECUTE_FAILED;
+                if (firstError == null) {
+                    firstError = errors[i];
+                }
+            } else {
+                runningUpdateCount += updateCounts[i];
+            }
+        }
+        this.lastUpdateCount = runningUpdateCount;
+        if (firstError != null) {
+            throw new BatchUpdateException(updateCounts, firstError);
+        }
+        return updateCounts;
+    }
+
     protected ResultSet executeQuery(VoltSQL query) throws SQLException
     {
+        awaitAsyncUpdates();
         setCurrentResult(query.execute(this.sourceConnection.NativeConnection, this.m_timeout), -1);
         return this.result;
     }
@@ -467,10 +613,50 @@ public class JDBC4Statement implements java.sql.Statement
 
     protected int executeUpdate(VoltSQL query) throws SQLException
     {
+        if (this.sourceConnection.asyncAutoCommit && query.isSinglePartitionCall(this.sourceConnection.NativeConnection)) {
+            return executeUpdateAsync(query);
+        }
+        awaitAsyncUpdates();
         setCurrentResult(null, (int) query.execute(this.sourceConnection.NativeConnection, this.m_timeout)[0].fetchRow(0).getLong(0));
         return this.lastUpdateCount;
     }
 
+    /**
+     * Send a single partition update and return without waiting for its response.
+     * A failure is reported by a later call on the connection.
+     */
+    private int executeUpdateAsync(VoltSQL query) throws SQLException
+    {
+        final JDBC4Connection connection = this.sourceConnection;
+        connection.throwDeferredError();
+        connection.asyncUpdateStarted();
+        try
+        {
+            query.executeAsync(connection.NativeConnection, new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse response) {
+                    SQLException error = null;
+                    try {
+                        VoltSQL.getUpdateCount(response);
+                    } catch (SQLException x) {
+                        error = x;
+                    } catch (RuntimeException x) {
+                        error = SQLError.get(x);
+                    } finally {
+                        connection.asyncUpdateDone(error);
+                    }
+                }
+            });
+        }
+        catch(SQLException x)
+        {
+            connection.asyncUpdateDone(null);
+            throw x;
+        }
+        setCurrentResult(null, SUCCESS_NO_INFO);
+        return this.lastUpdateCount;
+    }
+
     // Executes the given SQL statement, which may be an INSERT, UPDATE, or DELETE statement or an SQL statement that returns nothing, such as an SQL DDL statement.
     @Override
     public int executeUpdate(String sql) throws SQLException
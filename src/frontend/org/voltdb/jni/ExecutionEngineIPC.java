@@ -792,8 +792,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final long uniqueId,
             final long undoToken)
     {
-        // big endian, not direct
-        final FastSerializer fser = new FastSerializer();
+        // big endian, direct buffer from this thread's pool, discarded once copied to m_data
+        final FastSerializer fser = FastSerializer.pooled(FastSerializer.INITIAL_ALLOCATION);
         try {
             for (int i = 0; i < numFragmentIds; ++i) {
                 // pset can be ByteBuffer or ParameterSet instance
@@ -836,7 +836,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         for (int i = 0; i < numFragmentIds; ++i) {
             m_data.putLong(inputDepIds[i]);
         }
-        m_data.put(fser.getBuffer());
+        m_data.put(fser.getBBContainer().b());
         fser.discard();
 
         try {
@@ -25,6 +25,8 @@ import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
+import org.voltcore.utils.SharedDirectBufferPool;
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
 import org.voltdb.ParameterSet;
 import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.StatsSelector;
@@ -67,6 +69,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
     private static final boolean HOST_TRACE_ENABLED;
 
+    /**
+     * Results of at least this many bytes are copied out of the EE into pooled direct buffers
+     * instead of heap buffers, so that result tables returned to a client can be written to
+     * the socket without being copied again. A negative value (the default) disables this.
+     * Procedures must not hold on to returned result tables after they have returned.
+     */
+    public static final int EE_DIRECT_RESULT_THRESHOLD = Integer.getInteger("EE_DIRECT_RESULT_THRESHOLD", -1);
+    private static final SharedDirectBufferPool RESULT_BUFFER_POOL =
+            new SharedDirectBufferPool(Integer.getInteger("EE_DIRECT_RESULT_POOL_BUFFERS", 16));
+
     static {
         EE_COMPACTION_THRESHOLD = Integer.getInteger("EE_COMPACTION_THRESHOLD", 95);
         if (EE_COMPACTION_THRESHOLD < 0 || EE_COMPACTION_THRESHOLD > 99) {
@@ -328,7 +340,20 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 if (dirty)
                     m_dirty = true;
                 // get a copy of the buffer
-                final ByteBuffer fullBacking = fds.readBuffer(totalSize);
+                SharedBuffer pooledBacking = null;
+                final ByteBuffer fullBacking;
+                if (EE_DIRECT_RESULT_THRESHOLD >= 0 && totalSize >= EE_DIRECT_RESULT_THRESHOLD) {
+                    pooledBacking = RESULT_BUFFER_POOL.acquire(totalSize);
+                    fullBacking = pooledBacking.b();
+                    final ByteBuffer source = fds.buffer();
+                    final int sourceLimit = source.limit();
+                    source.limit(source.position() + totalSize);
+                    fullBacking.put(source);
+                    source.limit(sourceLimit);
+                    fullBacking.flip();
+                } else {
+                    fullBacking = fds.readBuffer(totalSize);
+                }
                 final VoltTable[] results = new VoltTable[batchSize];
                 for (int i = 0; i < batchSize; ++i) {
                     final int numdeps = fullBacking.getInt(); // number of dependencies for this frag
@@ -343,7 +368,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     fullBacking.position(fullBacking.position() + tableSize);
                     tableBacking.limit(tableSize);
 
-                    results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBacking, true);
+                    if (pooledBacking != null) {
+                        results[i] = PrivateVoltTableFactory.createVoltTableFromPooledBuffer(
+                                tableBacking, pooledBacking.retain());
+                    } else {
+                        results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBacking, true);
+                    }
+                }
+                if (pooledBacking != null) {
+                    // the tables hold the remaining references
+                    pooledBacking.release();
                 }
                 return results;
             } catch (final IOException ex) {
@@ -25,6 +25,7 @@ import java.nio.ByteOrder;
 
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.ThreadLocalDBBPool;
 import org.voltdb.ParameterSet;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
@@ -50,6 +51,7 @@ public class FastSerializer implements DataOutput {
     private BBContainer buffer;
     private final BufferGrowCallback callback;
     private final boolean isDirect;
+    private final boolean isPooled;
 
     /**
      * Create a <code>FastSerializer</code> that is BigEndian and uses a HeapByteBuffer
@@ -92,17 +94,42 @@ public class FastSerializer implements DataOutput {
      */
     /** constructor that sets callback object. */
     public FastSerializer(boolean bigEndian, boolean isDirect, BufferGrowCallback callback, int initialAllocation) {
+        this(bigEndian, isDirect, false, callback, initialAllocation);
+    }
+
+    /**
+     * Create a FastSerializer whose direct buffers, including the ones it grows into,
+     * come from the {@link ThreadLocalDBBPool} of the thread doing the writing.
+     * The serializer, or the container returned by getBBContainer(), must be discarded
+     * once the serialized bytes are consumed so the buffer goes back to its pool.
+     */
+    public static FastSerializer pooled(int initialAllocation) {
+        return new FastSerializer(true, true, true, null, initialAllocation);
+    }
+
+    private FastSerializer(boolean bigEndian, boolean isDirect, boolean isPooled,
+                           BufferGrowCallback callback, int initialAllocation) {
         assert(initialAllocation > 0);
         this.isDirect = isDirect;
-        if (isDirect) {
-           buffer = DBBPool.allocateDirect(initialAllocation);
-        } else {
-           buffer = DBBPool.wrapBB(ByteBuffer.allocate(initialAllocation));
-        }
+        this.isPooled = isPooled;
+        buffer = allocate(initialAllocation);
         this.callback = callback;
         buffer.b().order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
     }
 
+    private BBContainer allocate(int capacity) {
+        if (isPooled) {
+            // the size class may be larger than requested, make all of it writable
+            final BBContainer container = ThreadLocalDBBPool.allocate(capacity);
+            container.b().limit(container.b().capacity());
+            return container;
+        } else if (isDirect) {
+            return DBBPool.allocateDirect(capacity);
+        } else {
+            return DBBPool.wrapBB(ByteBuffer.allocate(capacity));
+        }
+    }
+
     public int size() {
         return buffer.b().position();
     }
@@ -124,12 +151,7 @@ public class FastSerializer implements DataOutput {
             }
 
             // Allocate and copy
-            BBContainer next;
-            if (isDirect) {
-                next = DBBPool.allocateDirect(newCapacity);
-            } else {
-                next = DBBPool.wrapBB(ByteBuffer.allocate(newCapacity));
-            }
+            BBContainer next = allocate(newCapacity);
             buffer.b().flip();
             next.b().put(buffer.b());
             assert next.b().remaining() == newRemaining;
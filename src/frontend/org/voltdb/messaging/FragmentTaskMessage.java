@@ -805,13 +805,14 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
         }
 
         // Parameter set block
+        // Like the invocation parameters, these are read only slices of the
+        // message buffer instead of copies.
         for (FragmentData item : m_items) {
             int paramsbytecount = buf.getInt();
-            item.m_parameterSet = ByteBuffer.allocate(paramsbytecount);
             int cachedLimit = buf.limit();
-            buf.limit(buf.position() + item.m_parameterSet.remaining());
-            item.m_parameterSet.put(buf);
-            item.m_parameterSet.flip();
+            buf.limit(buf.position() + paramsbytecount);
+            item.m_parameterSet = buf.slice();
+            buf.position(buf.limit());
             buf.limit(cachedLimit);
         }
 
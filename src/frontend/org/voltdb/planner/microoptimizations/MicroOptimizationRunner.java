@@ -25,19 +25,27 @@ import org.voltdb.planner.CompiledPlan;
 public class MicroOptimizationRunner {
 
     // list all of the micro optimizations here
-    static ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
-    static {
-        // The orders here is important
-        optimizations.add(new PushdownLimits());
-        optimizations.add(new ReplaceWithIndexCounter());
-        optimizations.add(new ReplaceWithIndexLimit());
+    // The optimizations keep the statement being optimized as member state,
+    // so each planner thread gets its own instances.
+    static final ThreadLocal<ArrayList<MicroOptimization>> m_optimizations =
+            new ThreadLocal<ArrayList<MicroOptimization>>() {
+        @Override
+        protected ArrayList<MicroOptimization> initialValue() {
+            ArrayList<MicroOptimization> optimizations = new ArrayList<MicroOptimization>();
+            // The orders here is important
+            optimizations.add(new PushdownLimits());
+            optimizations.add(new ReplaceWithIndexCounter());
+            optimizations.add(new ReplaceWithIndexLimit());
 
-        // Inline aggregation has to be applied after Index counter and Index Limit with MIN/MAX.
-        optimizations.add(new InlineAggregation());
-    }
+            // Inline aggregation has to be applied after Index counter and Index Limit with MIN/MAX.
+            optimizations.add(new InlineAggregation());
+            return optimizations;
+        }
+    };
 
     public static void applyAll(CompiledPlan plan, AbstractParsedStmt parsedStmt)
     {
+        ArrayList<MicroOptimization> optimizations = m_optimizations.get();
         for (int i = 0; i < optimizations.size(); i++) {
             MicroOptimization opt = optimizations.get(i);
             opt.apply(plan, parsedStmt);
@@ -23,12 +23,18 @@ import java.nio.ByteBuffer;
 import org.voltcore.messaging.Subject;
 import org.voltcore.messaging.VoltMessage;
 import org.voltdb.messaging.VoltDbMessageFactory;
+import org.voltdb.utils.CompressionCodec;
 
 /**
  *
  */
 public class RejoinDataMessage extends VoltMessage {
+    // codec id of a block that was sent as is because it didn't compress well
+    public static final byte UNCOMPRESSED_ID = -1;
+
     private long m_targetId = -1;
+    // id of the CompressionCodec that compressed the data
+    private byte m_codecId = CompressionCodec.SNAPPY_ID;
     // compressed snapshot data
     private byte[] m_data = null;
 
@@ -37,8 +43,13 @@ public class RejoinDataMessage extends VoltMessage {
     }
 
     public RejoinDataMessage(long targetId, byte[] data) {
+        this(targetId, CompressionCodec.SNAPPY_ID, data);
+    }
+
+    public RejoinDataMessage(long targetId, byte codecId, byte[] data) {
         m_subject = Subject.DEFAULT.getId();
         m_targetId = targetId;
+        m_codecId = codecId;
         m_data = data;
     }
 
@@ -46,6 +57,10 @@ public class RejoinDataMessage extends VoltMessage {
         return m_targetId;
     }
 
+    public byte getCodecId() {
+        return m_codecId;
+    }
+
     public byte[] getData() {
         return m_data;
     }
@@ -55,6 +70,7 @@ public class RejoinDataMessage extends VoltMessage {
         int msgsize = super.getSerializedSize();
         msgsize +=
                 8 + // m_targetId
+                1 + // m_codecId
                 4 + // data length
                 m_data.length;
         return msgsize;
@@ -63,6 +79,7 @@ public class RejoinDataMessage extends VoltMessage {
     @Override
     protected void initFromBuffer(ByteBuffer buf) throws IOException {
         m_targetId = buf.getLong();
+        m_codecId = buf.get();
         int len = buf.getInt();
         m_data = new byte[len];
         buf.get(m_data);
@@ -72,6 +89,7 @@ public class RejoinDataMessage extends VoltMessage {
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
         buf.put(VoltDbMessageFactory.REJOIN_DATA_ID);
         buf.putLong(m_targetId);
+        buf.put(m_codecId);
         buf.putInt(m_data.length);
         buf.put(m_data);
         buf.limit(buf.position());
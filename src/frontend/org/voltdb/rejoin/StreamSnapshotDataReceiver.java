@@ -28,6 +28,7 @@ import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.Pair;
 import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.utils.CompressionCodec;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.FixedDBBPool;
 
@@ -115,17 +116,23 @@ implements Runnable {
                     ByteBuffer messageBuffer = container.b();
                     messageBuffer.clear();
 
-                    compressionBufferC = compressionBufferQueue.take();
-                    compressionBuffer = compressionBufferC.b();
-                    compressionBuffer.clear();
-                    compressionBuffer.limit(data.length);
-                    compressionBuffer.put(data);
-                    compressionBuffer.flip();
-                    int uncompressedSize =
-                            CompressionService.decompressBuffer(
-                                    compressionBuffer,
-                                    messageBuffer);
-                    messageBuffer.limit(uncompressedSize);
+                    if (dataMsg.getCodecId() == RejoinDataMessage.UNCOMPRESSED_ID) {
+                        messageBuffer.put(data);
+                        messageBuffer.flip();
+                    } else {
+                        compressionBufferC = compressionBufferQueue.take();
+                        compressionBuffer = compressionBufferC.b();
+                        compressionBuffer.clear();
+                        compressionBuffer.limit(data.length);
+                        compressionBuffer.put(data);
+                        compressionBuffer.flip();
+                        int uncompressedSize =
+                                CompressionService.decompressBuffer(
+                                        CompressionCodec.forId(dataMsg.getCodecId()),
+                                        compressionBuffer,
+                                        messageBuffer);
+                        messageBuffer.limit(uncompressedSize);
+                    }
                     m_queue.offer(Pair.of(dataMsg.m_sourceHSId, Pair.of(dataMsg.getTargetId(), container)));
                     success = true;
                 } finally {
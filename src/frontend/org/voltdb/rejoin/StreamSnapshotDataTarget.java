@@ -19,8 +19,11 @@ package org.voltdb.rejoin;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -65,6 +68,11 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     public final static long DEFAULT_WRITE_TIMEOUT_MS = m_rejoinDeathTestMode ? 10000 : Long.getLong("REJOIN_WRITE_TIMEOUT_MS", 60000);
     final static long WATCHDOG_PERIOS_S = 5;
 
+    // A block that compresses to more than this fraction of its size is sent as is,
+    // and so are the next COMPRESSION_PROBE_INTERVAL blocks before compression is tried again.
+    final static double INCOMPRESSIBLE_RATIO = 0.9;
+    final static int COMPRESSION_PROBE_INTERVAL = 16;
+
     // schemas for all the tables on this partition
     private final Map<Integer, byte[]> m_schemas = new HashMap<Integer, byte[]>();
     // HSId of the destination mailbox
@@ -87,6 +95,30 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
     int m_blockIndex = 0;
     private final AtomicReference<Runnable> m_onCloseHandler = new AtomicReference<Runnable>(null);
 
+    // Sent, un-acked blocks whose snapshot buffers were given back early because they
+    // fit in the window. Blocks beyond it keep their buffers until acked, which is
+    // what eventually stops the sites from producing more.
+    private final StreamSnapshotWindow m_window = new StreamSnapshotWindow();
+    private long m_releasedInFlightBytes = 0;
+    private long m_ackedBytes = 0;
+    private long m_ackedRows = 0;
+    // Remaining rows reported by the table streams of the source site, keyed by table id
+    private final Map<Integer, Long> m_remainingRows = new HashMap<Integer, Long>();
+    private final long m_startTimeMillis = System.currentTimeMillis();
+    private volatile long m_endTimeMillis = 0;
+
+    // Blocks left to send uncompressed before probing compression again
+    private final AtomicInteger m_uncompressedBlocksToSkip = new AtomicInteger(0);
+    final AtomicLong m_uncompressedBlocks = new AtomicLong(0);
+    final AtomicLong m_rawBytesSent = new AtomicLong(0);
+
+    // Blocks can go through different sender streams, but the receiver must see the
+    // hashinator and schema blocks before anything that follows them. While such a
+    // control block hasn't been handed to the network, later blocks wait here in
+    // block order and the sender stream that sends it queues them. Guarded by this.
+    private final ArrayDeque<SendWork> m_heldWork = new ArrayDeque<SendWork>();
+    private boolean m_controlBlockInFlight = false;
+
     private final AtomicBoolean m_closed = new AtomicBoolean(false);
 
     public StreamSnapshotDataTarget(long HSId, byte[] hashinatorConfig, Map<Integer, byte[]> schemas,
@@ -106,6 +138,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         m_sender.registerDataTarget(m_targetId);
         m_ackReceiver = ackReceiver;
         m_ackReceiver.setCallback(m_targetId, this);
+        StreamSnapshotStats.register(this);
 
         rejoinLog.debug(String.format("Initializing snapshot stream processor " +
                 "for source site id: %s, and with processorid: %d",
@@ -126,11 +159,22 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
      */
     public static class SendWork {
         BBContainer m_message;
+        final StreamSnapshotDataTarget m_target;
         final long m_targetId;
         final long m_destHSId;
+        final int m_blockIndex;
+        final int m_rowCount;
         final long m_ts;
 
         final boolean m_isEmpty;
+        // hashinator or schema block, the target holds later blocks until it is sent
+        final boolean m_isControlBlock;
+
+        // set by the sender thread before the block goes out, read by the ack receiver
+        volatile int m_sentBytes = 0;
+        volatile long m_sentNanos = 0;
+        // true once the buffer was released ahead of the ack
+        boolean m_released = false;
 
         // A listenable future used to notify a listener when this buffer is discarded
         final SettableFuture<Boolean> m_future;
@@ -140,18 +184,26 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
          */
         SendWork() {
             m_isEmpty = true;
+            m_target = null;
             m_targetId = -1;
             m_destHSId = -1;
+            m_blockIndex = -1;
+            m_rowCount = 0;
             m_ts = -1;
             m_future = null;
+            m_isControlBlock = false;
         }
 
-        SendWork (long targetId, long destHSId,
-                  BBContainer message,
+        SendWork (StreamSnapshotDataTarget target, int blockIndex, int rowCount,
+                  BBContainer message, boolean isControlBlock,
                   SettableFuture<Boolean> future) {
             m_isEmpty = false;
-            m_targetId = targetId;
-            m_destHSId = destHSId;
+            m_isControlBlock = isControlBlock;
+            m_target = target;
+            m_targetId = target.m_targetId;
+            m_destHSId = target.m_destHSId;
+            m_blockIndex = blockIndex;
+            m_rowCount = rowCount;
             m_message = message;
             m_ts = System.currentTimeMillis();
             m_future = future;
@@ -170,50 +222,77 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         }
 
         /**
-         * Compress the data in the BBContainer provided, then package it up in
-         * a RejoinDataMessage instance, and finally hand it off to the messaging
+         * Compress the data in the BBContainer provided, unless recent blocks
+         * of this target didn't compress, then package it up in a
+         * RejoinDataMessage instance, and finally hand it off to the messaging
          * subsystem.
          */
         protected int send(Mailbox mb, MessageFactory msgFactory, BBContainer message) throws IOException {
             final ByteBuffer messageBuffer = message.b();
-            if (messageBuffer.isDirect()) {
-                byte[] data = CompressionService.compressBuffer(messageBuffer);
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, data));
-
-                if (rejoinLog.isTraceEnabled()) {
-                    rejoinLog.trace("Sending direct buffer");
-                }
-
-                return data.length;
-            } else {
-                byte compressedBytes[] =
-                    CompressionService.compressBytes(
+            final int rawLength = messageBuffer.remaining();
+            byte codecId = CompressionService.REJOIN_CODEC.getId();
+            byte data[] = null;
+            if (m_target.m_uncompressedBlocksToSkip.getAndDecrement() <= 0) {
+                m_target.m_uncompressedBlocksToSkip.set(0);
+                if (messageBuffer.isDirect()) {
+                    data = CompressionService.compressBuffer(CompressionService.REJOIN_CODEC, messageBuffer);
+                } else {
+                    data = CompressionService.compressBytes(CompressionService.REJOIN_CODEC,
                             messageBuffer.array(), messageBuffer.position(),
                             messageBuffer.remaining());
-
-                mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, compressedBytes));
-
-                if (rejoinLog.isTraceEnabled()) {
-                    rejoinLog.trace("Sending heap buffer");
                 }
-
-                return compressedBytes.length;
+                if (data.length > rawLength * INCOMPRESSIBLE_RATIO) {
+                    m_target.m_uncompressedBlocksToSkip.set(COMPRESSION_PROBE_INTERVAL);
+                }
             }
-        }
+            if (data == null) {
+                data = new byte[rawLength];
+                messageBuffer.duplicate().get(data);
+                codecId = RejoinDataMessage.UNCOMPRESSED_ID;
+                m_target.m_uncompressedBlocks.incrementAndGet();
+            }
+
+            m_sentBytes = data.length;
+            m_sentNanos = System.nanoTime();
+            m_target.m_rawBytesSent.addAndGet(rawLength);
+            mb.send(m_destHSId, msgFactory.makeDataMessage(m_targetId, codecId, data));
 
-        public synchronized int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
-            // this work has already been discarded
-            if (m_message == null) {
-                return 0;
+            if (rejoinLog.isTraceEnabled()) {
+                rejoinLog.trace("Sending " + (messageBuffer.isDirect() ? "direct" : "heap") + " buffer, codec " + codecId);
             }
 
+            return data.length;
+        }
+
+        public int doWork(Mailbox mb, MessageFactory msgFactory) throws Exception {
+            final int sentBytes;
             try {
-                return send(mb, msgFactory, m_message);
+                synchronized (this) {
+                    // this work has already been discarded
+                    if (m_message == null) {
+                        return 0;
+                    }
+
+                    try {
+                        sentBytes = send(mb, msgFactory, m_message);
+                    } catch (Exception e) {
+                        m_future.set(true);
+                        throw e;
+                    }
+                }
             } finally {
-                // Buffers are only discarded after they are acked. Discarding them here would cause the sender to
-                // generate too much work for the receiver.
-                m_future.set(true);
+                if (m_isControlBlock) {
+                    m_target.controlBlockSent();
+                }
             }
+
+            // Buffers are normally only discarded after they are acked, so the sender doesn't
+            // generate too much work for the receiver. The target lets go of this one now
+            // if it fits in the window. Not under this work's lock, the target's lock is
+            // taken first when acks release buffers.
+            m_target.blockSent(this);
+            m_future.set(true);
+            return sentBytes;
         }
     }
 
@@ -246,8 +325,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             long bytesWritten = 0;
             try {
                 bytesWritten = m_sender.m_bytesSent.get(m_targetId).get();
-                rejoinLog.info(String.format("While sending rejoin data to site %s, %d bytes have been sent in the past %s seconds.",
-                        CoreUtils.hsIdToString(m_destHSId), bytesWritten - m_bytesWrittenSinceConstruction, WATCHDOG_PERIOS_S));
+                rejoinLog.info(String.format("While sending rejoin data to site %s, %d bytes have been sent in the past %s seconds " +
+                        "(window %d bytes, round trip %.1f ms).",
+                        CoreUtils.hsIdToString(m_destHSId), bytesWritten - m_bytesWrittenSinceConstruction, WATCHDOG_PERIOS_S,
+                        getWindowBytes(), getLastRttMillis()));
 
                 checkTimeout(m_writeTimeout);
                 if (m_writeFailed.get() != null) {
@@ -299,31 +380,162 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         }
         m_outstandingWork.clear();
         m_outstandingWorkCount.set(0);
+        m_releasedInFlightBytes = 0;
+        m_heldWork.clear();
+        m_controlBlockInFlight = false;
     }
 
     /**
-     * Synchronized method to handle the arrival of an Ack.
+     * Handle the arrival of an Ack. The window is updated under the lock, the
+     * buffers it frees are discarded after it's dropped.
      * @param blockIndex The index of the block that is being acked.
      */
     @Override
-    public synchronized void receiveAck(int blockIndex) {
+    public void receiveAck(int blockIndex) {
         rejoinLog.trace("Received block ack for index " + String.valueOf(blockIndex));
 
-        m_outstandingWorkCount.decrementAndGet();
-        SendWork work = m_outstandingWork.remove(blockIndex);
+        List<SendWork> toRelease = new ArrayList<SendWork>();
+        synchronized (this) {
+            SendWork work = m_outstandingWork.remove(blockIndex);
+            if (work == null) {
+                // outstanding work was already cleared after a failure
+                return;
+            }
+            m_outstandingWorkCount.decrementAndGet();
+
+            final long now = System.nanoTime();
+            if (work.m_sentNanos != 0) {
+                m_window.onAck(work.m_sentBytes, now - work.m_sentNanos, now);
+                m_ackedBytes += work.m_sentBytes;
+            }
+            m_ackedRows += work.m_rowCount;
+            if (work.m_released) {
+                m_releasedInFlightBytes -= work.m_sentBytes;
+            }
+            // releases the BBContainers and cleans up
+            toRelease.add(work);
+            collectReleasable(toRelease);
+        }
+        for (SendWork work : toRelease) {
+            work.discard();
+        }
+    }
+
+    /**
+     * Called by a sender thread once a block is on its way.
+     */
+    void blockSent(SendWork work) {
+        List<SendWork> toRelease = new ArrayList<SendWork>();
+        synchronized (this) {
+            if (m_outstandingWork.get(work.m_blockIndex) != work) {
+                // already acked, or cleared after a failure
+                return;
+            }
+            collectReleasable(toRelease);
+        }
+        for (SendWork released : toRelease) {
+            released.discard();
+        }
+    }
+
+    /**
+     * Called by a sender thread once a control block is on its way, or was discarded.
+     * Queues the blocks held behind it, up to and including the next control block.
+     */
+    synchronized void controlBlockSent() {
+        m_controlBlockInFlight = false;
+        while (!m_controlBlockInFlight && !m_heldWork.isEmpty()) {
+            dispatch(m_heldWork.poll());
+        }
+    }
+
+    /**
+     * Hand a block to the sender. Must hold the lock on this target.
+     */
+    private void dispatch(SendWork work) {
+        if (work.m_isControlBlock) {
+            m_controlBlockInFlight = true;
+        }
+        m_sender.offer(work);
+    }
+
+    /**
+     * Release buffers of sent blocks, oldest first, while they fit in the window.
+     * Must hold the lock on this target.
+     */
+    private void collectReleasable(List<SendWork> toRelease) {
+        final long window = m_window.getWindowBytes();
+        for (SendWork work : m_outstandingWork.values()) {
+            if (m_releasedInFlightBytes >= window) {
+                break;
+            }
+            if (work.m_released || work.m_sentNanos == 0) {
+                continue;
+            }
+            work.m_released = true;
+            m_releasedInFlightBytes += work.m_sentBytes;
+            toRelease.add(work);
+        }
+    }
+
+    /**
+     * Called by the table streams of the source site with the number of rows of a
+     * table that are still to be sent, used to estimate the time to completion.
+     */
+    @Override
+    public synchronized void reportRemainingRows(int tableId, long remainingRows) {
+        m_remainingRows.put(tableId, Math.max(remainingRows, 0));
+    }
+
+    /**
+     * Snapshot of the progress of this target for the REJOIN statistics.
+     */
+    synchronized StreamSnapshotStats.Progress getProgress() {
+        long remainingRows = 0;
+        for (long rows : m_remainingRows.values()) {
+            remainingRows += rows;
+        }
+        final long end = m_endTimeMillis != 0 ? m_endTimeMillis : System.currentTimeMillis();
+        return new StreamSnapshotStats.Progress(
+                m_targetId,
+                m_destHSId,
+                m_closed.get(),
+                end - m_startTimeMillis,
+                getBytesWritten(),
+                m_rawBytesSent.get(),
+                m_ackedBytes,
+                m_ackedRows,
+                remainingRows,
+                m_outstandingWork.size(),
+                m_window.getWindowBytes(),
+                m_releasedInFlightBytes,
+                m_window.getBytesPerSecond(),
+                m_window.getMinRttNanos(),
+                m_uncompressedBlocks.get(),
+                m_sender.getStreamCount());
+    }
+
+    synchronized long getWindowBytes() {
+        return m_window.getWindowBytes();
+    }
 
-        // releases the BBContainers and cleans up
-        work.discard();
+    synchronized double getLastRttMillis() {
+        return m_window.getLastRttNanos() / (double)TimeUnit.MILLISECONDS.toNanos(1);
     }
 
     /**
-     * Thread that runs send work (sending snapshot blocks). One per node
+     * Runs send work (sending snapshot blocks). One per node, run by
+     * {@link #SENDER_STREAMS} threads that compress and send blocks in parallel.
      */
     public static class SnapshotSender implements Runnable {
+        public final static int SENDER_STREAMS = Math.max(1, Integer.getInteger("REJOIN_SENDER_STREAMS",
+                Math.min(4, CoreUtils.availableProcessors() / 2)));
+
         private final Mailbox m_mb;
         private final MessageFactory m_msgFactory;
         private final LinkedBlockingQueue<SendWork> m_workQueue;
         private final AtomicInteger m_expectedEOFs;
+        private final AtomicInteger m_runningStreams = new AtomicInteger();
 
         final Map<Long, AtomicLong> m_bytesSent;
         final Map<Long, AtomicLong> m_worksSent;
@@ -357,9 +569,30 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             m_workQueue.offer(work);
         }
 
+        /**
+         * Start the sender threads.
+         */
+        public void start(String name)
+        {
+            start(name, SENDER_STREAMS);
+        }
+
+        void start(String name, int streams)
+        {
+            for (int i = 0; i < streams; i++) {
+                new Thread(this, name + " " + i).start();
+            }
+        }
+
+        int getStreamCount()
+        {
+            return m_runningStreams.get();
+        }
+
         @Override
         public void run() {
             rejoinLog.trace("Starting stream sender thread");
+            m_runningStreams.incrementAndGet();
 
             while (true) {
                 SendWork work;
@@ -375,8 +608,10 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                         // Empty work indicates the end of the queue.
                         // The sender is shared by multiple data targets, each of them will
                         // send an end-of-queue work, must wait until all end-of-queue works
-                        // are received before terminating the thread.
-                        if (m_expectedEOFs.decrementAndGet() == 0) {
+                        // are received before terminating the thread. The last one is put
+                        // back for the other sender threads to see.
+                        if (m_expectedEOFs.decrementAndGet() <= 0) {
+                            m_workQueue.offer(work);
                             break;
                         } else {
                             continue;
@@ -391,6 +626,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                     rejoinLog.error("Error sending a recovery stream message", e);
                 }
             }
+            m_runningStreams.decrementAndGet();
             CompressionService.releaseThreadLocal();
             rejoinLog.trace("Stream sender thread exiting");
         }
@@ -451,13 +687,15 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
                 send(StreamSnapshotMessageType.SCHEMA, tableId, schema);
             }
 
+            final int rowCount = getInContainerRowCount(chunkC);
+
             chunk.put((byte) StreamSnapshotMessageType.DATA.ordinal());
             chunk.putInt(m_blockIndex); // put chunk index
             chunk.putInt(tableId); // put table ID
 
             chunk.position(0);
 
-            return send(m_blockIndex++, chunkC);
+            return send(m_blockIndex++, rowCount, chunkC);
         } finally {
             rejoinLog.trace("Finished call to write");
         }
@@ -473,7 +711,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         buf.put(content);
         buf.flip();
 
-        return send(m_blockIndex++, DBBPool.wrapBB(buf));
+        return send(m_blockIndex++, 0, DBBPool.wrapBB(buf), true);
     }
 
     /**
@@ -482,16 +720,25 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
      * m_outstandingWorkCount in sync with m_outstandingWork.
      *
      * @param blockIndex Index useful for ack tracking and debugging
-     * @param schemaContainer Optional schema for table (can be null)
+     * @param rowCount Number of table rows in the block
      * @param chunk Snapshot data to send.
      * @return return a listenable future for the caller to wait until the buffer is sent
      */
-    synchronized ListenableFuture<Boolean> send(int blockIndex, BBContainer chunk) {
+    synchronized ListenableFuture<Boolean> send(int blockIndex, int rowCount, BBContainer chunk) {
+        return send(blockIndex, rowCount, chunk, false);
+    }
+
+    private synchronized ListenableFuture<Boolean> send(int blockIndex, int rowCount, BBContainer chunk,
+                                                        boolean isControlBlock) {
         SettableFuture<Boolean> sendFuture = SettableFuture.create();
-        SendWork sendWork = new SendWork(m_targetId, m_destHSId, chunk, sendFuture);
+        SendWork sendWork = new SendWork(this, blockIndex, rowCount, chunk, isControlBlock, sendFuture);
         m_outstandingWork.put(blockIndex, sendWork);
         m_outstandingWorkCount.incrementAndGet();
-        m_sender.offer(sendWork);
+        if (m_controlBlockInFlight) {
+            m_heldWork.add(sendWork);
+        } else {
+            dispatch(sendWork);
+        }
         return sendFuture;
     }
 
@@ -526,6 +773,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
             // locked so m_closed is true when the ack thread dies
             synchronized(this) {
                 m_closed.set(true);
+                m_endTimeMillis = System.currentTimeMillis();
 
                 assert(m_outstandingWork.size() == 0);
             }
@@ -559,7 +807,7 @@ implements SnapshotDataTarget, StreamSnapshotAckReceiver.AckCallback {
         }
         buf.putInt(m_blockIndex);
         buf.flip();
-        send(m_blockIndex++, DBBPool.wrapBB(buf));
+        send(m_blockIndex++, 0, DBBPool.wrapBB(buf));
 
         // Wait for the ack of the EOS message
         waitForOutstandingWork();
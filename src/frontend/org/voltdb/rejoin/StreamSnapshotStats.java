@@ -0,0 +1,211 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.StatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * @Statistics REJOIN. One row per stream snapshot target on this host, i.e. per
+ * source site sending a partition to a rejoining or joining node. Targets of
+ * the last stream snapshot stay listed after it completes, until the next one
+ * starts.
+ */
+public class StreamSnapshotStats extends StatsSource {
+
+    private static final Map<Long, StreamSnapshotDataTarget> m_targets =
+            new LinkedHashMap<Long, StreamSnapshotDataTarget>();
+
+    static void register(StreamSnapshotDataTarget target)
+    {
+        synchronized (m_targets) {
+            boolean allClosed = true;
+            for (StreamSnapshotDataTarget existing : m_targets.values()) {
+                allClosed &= existing.getProgress().closed;
+            }
+            if (allClosed) {
+                m_targets.clear();
+            }
+            m_targets.put(target.m_targetId, target);
+        }
+    }
+
+    /**
+     * Progress of one target at the time the row was collected.
+     */
+    static class Progress {
+        final long targetId;
+        final long destHSId;
+        final boolean closed;
+        final long elapsedMillis;
+        final long bytesSent;
+        final long rawBytesSent;
+        final long bytesAcked;
+        final long rowsAcked;
+        final long rowsRemaining;
+        final int blocksInFlight;
+        final long windowBytes;
+        final long releasedInFlightBytes;
+        final double deliveryBytesPerSecond;
+        final long minRttNanos;
+        final long uncompressedBlocks;
+        final int streams;
+
+        Progress(long targetId, long destHSId, boolean closed, long elapsedMillis,
+                 long bytesSent, long rawBytesSent, long bytesAcked, long rowsAcked,
+                 long rowsRemaining, int blocksInFlight, long windowBytes,
+                 long releasedInFlightBytes, double deliveryBytesPerSecond,
+                 long minRttNanos, long uncompressedBlocks, int streams)
+        {
+            this.targetId = targetId;
+            this.destHSId = destHSId;
+            this.closed = closed;
+            this.elapsedMillis = elapsedMillis;
+            this.bytesSent = bytesSent;
+            this.rawBytesSent = rawBytesSent;
+            this.bytesAcked = bytesAcked;
+            this.rowsAcked = rowsAcked;
+            this.rowsRemaining = rowsRemaining;
+            this.blocksInFlight = blocksInFlight;
+            this.windowBytes = windowBytes;
+            this.releasedInFlightBytes = releasedInFlightBytes;
+            this.deliveryBytesPerSecond = deliveryBytesPerSecond;
+            this.minRttNanos = minRttNanos;
+            this.uncompressedBlocks = uncompressedBlocks;
+            this.streams = streams;
+        }
+
+        double getPercentageComplete()
+        {
+            if (closed) {
+                return 100.0;
+            }
+            final long total = rowsAcked + rowsRemaining;
+            return total == 0 ? 0.0 : rowsAcked * 100.0 / total;
+        }
+
+        double getMegabytesPerSecond()
+        {
+            return elapsedMillis == 0 ?
+                    0.0 : (bytesSent / (1024.0 * 1024.0)) / (elapsedMillis / 1000.0);
+        }
+
+        /**
+         * Milliseconds left at the row rate seen so far, -1 if nothing was acked yet.
+         */
+        long getEstimatedRemaining()
+        {
+            if (closed) {
+                return 0;
+            }
+            if (rowsAcked == 0 || elapsedMillis == 0) {
+                return -1;
+            }
+            return (long)(rowsRemaining * (elapsedMillis / (double)rowsAcked));
+        }
+    }
+
+    public static interface Constants
+    {
+        public final static String DESTINATION_SITE = "DESTINATION_SITE";
+        public final static String STATUS = "STATUS";
+        public final static String PERCENTAGE_COMPLETE = "PERCENTAGE_COMPLETE";
+        public final static String ROWS_SENT = "ROWS_SENT";
+        public final static String ROWS_REMAINING = "ROWS_REMAINING";
+        public final static String BYTES_SENT = "BYTES_SENT";
+        public final static String UNCOMPRESSED_BYTES_SENT = "UNCOMPRESSED_BYTES_SENT";
+        public final static String MEGABYTES_PER_SECOND = "MEGABYTES_PER_SECOND";
+        public final static String ESTIMATED_REMAINING = "ESTIMATED_REMAINING";
+        public final static String WINDOW_BYTES = "WINDOW_BYTES";
+        public final static String BLOCKS_IN_FLIGHT = "BLOCKS_IN_FLIGHT";
+        public final static String MIN_RTT_MILLIS = "MIN_RTT_MILLIS";
+        public final static String STREAMS = "STREAMS";
+        public final static String UNCOMPRESSED_BLOCKS = "UNCOMPRESSED_BLOCKS";
+    }
+
+    private final Map<Object, Progress> m_collected = new LinkedHashMap<Object, Progress>();
+
+    public StreamSnapshotStats()
+    {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns)
+    {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.DESTINATION_SITE, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.STATUS, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.PERCENTAGE_COMPLETE, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.ROWS_SENT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.ROWS_REMAINING, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.BYTES_SENT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.UNCOMPRESSED_BYTES_SENT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.MEGABYTES_PER_SECOND, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.ESTIMATED_REMAINING, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.WINDOW_BYTES, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.BLOCKS_IN_FLIGHT, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.MIN_RTT_MILLIS, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.STREAMS, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.UNCOMPRESSED_BLOCKS, VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object[] rowValues)
+    {
+        final Progress p = m_collected.get(rowKey);
+        rowValues[columnNameToIndex.get(Constants.DESTINATION_SITE)] = CoreUtils.hsIdToString(p.destHSId);
+        rowValues[columnNameToIndex.get(Constants.STATUS)] = p.closed ? "COMPLETE" : "STREAMING";
+        rowValues[columnNameToIndex.get(Constants.PERCENTAGE_COMPLETE)] = p.getPercentageComplete();
+        rowValues[columnNameToIndex.get(Constants.ROWS_SENT)] = p.rowsAcked;
+        rowValues[columnNameToIndex.get(Constants.ROWS_REMAINING)] = p.rowsRemaining;
+        rowValues[columnNameToIndex.get(Constants.BYTES_SENT)] = p.bytesSent;
+        rowValues[columnNameToIndex.get(Constants.UNCOMPRESSED_BYTES_SENT)] = p.rawBytesSent;
+        rowValues[columnNameToIndex.get(Constants.MEGABYTES_PER_SECOND)] = p.getMegabytesPerSecond();
+        rowValues[columnNameToIndex.get(Constants.ESTIMATED_REMAINING)] = p.getEstimatedRemaining();
+        rowValues[columnNameToIndex.get(Constants.WINDOW_BYTES)] = p.windowBytes;
+        rowValues[columnNameToIndex.get(Constants.BLOCKS_IN_FLIGHT)] = p.blocksInFlight;
+        rowValues[columnNameToIndex.get(Constants.MIN_RTT_MILLIS)] = p.minRttNanos / 1000000.0;
+        rowValues[columnNameToIndex.get(Constants.STREAMS)] = p.streams;
+        rowValues[columnNameToIndex.get(Constants.UNCOMPRESSED_BLOCKS)] = p.uncompressedBlocks;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval)
+    {
+        List<StreamSnapshotDataTarget> targets;
+        synchronized (m_targets) {
+            targets = new ArrayList<StreamSnapshotDataTarget>(m_targets.values());
+        }
+        m_collected.clear();
+        for (StreamSnapshotDataTarget target : targets) {
+            Progress p = target.getProgress();
+            m_collected.put(p.targetId, p);
+        }
+        return new ArrayList<Object>(m_collected.keySet()).iterator();
+    }
+}
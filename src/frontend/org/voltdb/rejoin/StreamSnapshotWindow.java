@@ -0,0 +1,121 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.rejoin;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the number of bytes a stream snapshot target may have on the wire
+ * without holding on to their snapshot buffers, from the acks it receives.
+ * The window tracks WINDOW_GAIN times the bandwidth-delay product, i.e. the
+ * delivery rate measured over each round trip times the lowest round trip
+ * seen recently. While the link isn't saturated the delivery rate follows the
+ * window, so the window keeps growing by the gain every round trip. Once it is,
+ * the rate levels off and so does the window.
+ *
+ * Not thread-safe, the data target calls it under its own lock.
+ */
+class StreamSnapshotWindow {
+    static final long MIN_WINDOW_BYTES = Long.getLong("REJOIN_MIN_WINDOW_BYTES", 4L * 1024 * 1024);
+    static final long MAX_WINDOW_BYTES = Long.getLong("REJOIN_MAX_WINDOW_BYTES", 256L * 1024 * 1024);
+    static final double WINDOW_GAIN = 2.0;
+    // forget the min RTT this often so a path that got slower is noticed
+    static final long MIN_RTT_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long m_minWindow;
+    private final long m_maxWindow;
+
+    private long m_window;
+    private long m_minRttNanos = Long.MAX_VALUE;
+    private long m_minRttStampNanos = 0;
+    private long m_lastRttNanos = 0;
+
+    // delivery rate sampled once per round trip
+    private double m_bytesPerNano = 0;
+    private long m_sampleStartNanos = -1;
+    private long m_sampleBytes = 0;
+
+    StreamSnapshotWindow()
+    {
+        this(MIN_WINDOW_BYTES, MAX_WINDOW_BYTES);
+    }
+
+    StreamSnapshotWindow(long minWindow, long maxWindow)
+    {
+        m_minWindow = minWindow;
+        m_maxWindow = Math.max(minWindow, maxWindow);
+        m_window = m_minWindow;
+    }
+
+    /**
+     * Account for an acked block.
+     * @param bytes bytes the block took on the wire
+     * @param rttNanos time from sending the block to receiving its ack
+     * @param nowNanos when the ack arrived
+     */
+    void onAck(long bytes, long rttNanos, long nowNanos)
+    {
+        m_lastRttNanos = rttNanos;
+        if (rttNanos <= m_minRttNanos || nowNanos - m_minRttStampNanos > MIN_RTT_EXPIRY_NANOS) {
+            m_minRttNanos = Math.max(rttNanos, 1);
+            m_minRttStampNanos = nowNanos;
+        }
+
+        if (m_sampleStartNanos < 0) {
+            // the first ack only starts the clock, its bytes were sent before it
+            m_sampleStartNanos = nowNanos;
+            return;
+        }
+        m_sampleBytes += bytes;
+        final long elapsed = nowNanos - m_sampleStartNanos;
+        if (elapsed < m_minRttNanos || elapsed <= 0) {
+            return;
+        }
+
+        final double rate = m_sampleBytes / (double)elapsed;
+        m_bytesPerNano = m_bytesPerNano == 0 ? rate : 0.75 * m_bytesPerNano + 0.25 * rate;
+        m_sampleStartNanos = nowNanos;
+        m_sampleBytes = 0;
+
+        final long bdp = (long)(m_bytesPerNano * m_minRttNanos * WINDOW_GAIN);
+        m_window = Math.min(m_maxWindow, Math.max(m_minWindow, bdp));
+    }
+
+    long getWindowBytes()
+    {
+        return m_window;
+    }
+
+    /**
+     * @return the smoothed delivery rate in bytes per second
+     */
+    double getBytesPerSecond()
+    {
+        return m_bytesPerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    long getMinRttNanos()
+    {
+        return m_minRttNanos == Long.MAX_VALUE ? 0 : m_minRttNanos;
+    }
+
+    long getLastRttNanos()
+    {
+        return m_lastRttNanos;
+    }
+}
@@ -0,0 +1,205 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Base for the codecs implemented in Java that work on byte arrays. Blocks are
+ * prefixed with the uncompressed length as a 4-byte big endian int so the output
+ * can be sized before it is decompressed, the same way Snappy blocks carry their
+ * length. Direct buffers are staged through per-thread scratch arrays.
+ */
+abstract class ArrayCompressionCodec extends CompressionCodec {
+
+    static final int HEADER_LENGTH = 4;
+
+    private static final ThreadLocal<byte[][]> m_scratch = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] { new byte[1024 * 32], new byte[1024 * 32] };
+        }
+    };
+
+    /**
+     * Upper bound on the size of a compressed block not including the length prefix
+     */
+    abstract int maxBlockLength(int uncompressedLength);
+
+    /**
+     * @return the number of bytes written to dst
+     */
+    abstract int compressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen)
+            throws IOException;
+
+    /**
+     * Decompress exactly dstLen bytes, throwing if the block does not decode to that length
+     */
+    abstract void uncompressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen)
+            throws IOException;
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        return HEADER_LENGTH + maxBlockLength(uncompressedLength);
+    }
+
+    @Override
+    public byte[] compress(byte data[], int offset, int length) throws IOException {
+        final byte output[] = new byte[maxCompressedLength(length)];
+        final int written = compressWithHeader(data, offset, length, output, 0, output.length);
+        return Arrays.copyOf(output, written);
+    }
+
+    @Override
+    public byte[] uncompress(byte data[]) throws IOException {
+        if (data.length < HEADER_LENGTH) {
+            throw new IOException("Truncated " + getName() + " block");
+        }
+        final byte output[] = new byte[checkLength(getInt(data, 0))];
+        uncompressBlock(data, HEADER_LENGTH, data.length - HEADER_LENGTH, output, 0, output.length);
+        return output;
+    }
+
+    @Override
+    public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+        final int length = uncompressed.remaining();
+        final byte input[];
+        final int inputOffset;
+        if (uncompressed.hasArray()) {
+            input = uncompressed.array();
+            inputOffset = uncompressed.arrayOffset() + uncompressed.position();
+        } else {
+            input = scratch(0, length);
+            uncompressed.duplicate().get(input, 0, length);
+            inputOffset = 0;
+        }
+
+        if (compressed.hasArray()) {
+            final int written = compressWithHeader(input, inputOffset, length,
+                    compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+            compressed.limit(compressed.position() + written);
+            return written;
+        }
+        final byte output[] = scratch(1, maxCompressedLength(length));
+        final int written = compressWithHeader(input, inputOffset, length, output, 0, output.length);
+        putAndRewind(compressed, output, written);
+        return written;
+    }
+
+    @Override
+    public int uncompressedLength(ByteBuffer compressed) throws IOException {
+        if (compressed.remaining() < HEADER_LENGTH) {
+            throw new IOException("Truncated " + getName() + " block");
+        }
+        return checkLength(compressed.getInt(compressed.position()));
+    }
+
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+        final int length = uncompressedLength(compressed);
+        if (uncompressed.remaining() < length) {
+            throw new IOException("Output buffer too small for " + length + " uncompressed bytes");
+        }
+        final int blockLength = compressed.remaining() - HEADER_LENGTH;
+        final byte input[];
+        final int inputOffset;
+        if (compressed.hasArray()) {
+            input = compressed.array();
+            inputOffset = compressed.arrayOffset() + compressed.position() + HEADER_LENGTH;
+        } else {
+            input = scratch(0, blockLength);
+            final ByteBuffer dup = compressed.duplicate();
+            dup.position(dup.position() + HEADER_LENGTH);
+            dup.get(input, 0, blockLength);
+            inputOffset = 0;
+        }
+
+        if (uncompressed.hasArray()) {
+            uncompressBlock(input, inputOffset, blockLength,
+                    uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position(), length);
+            uncompressed.limit(uncompressed.position() + length);
+            return length;
+        }
+        final byte output[] = scratch(1, length);
+        uncompressBlock(input, inputOffset, blockLength, output, 0, length);
+        putAndRewind(uncompressed, output, length);
+        return length;
+    }
+
+    private int compressWithHeader(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen)
+            throws IOException {
+        if (dstLen < HEADER_LENGTH) {
+            throw new IOException("Output buffer too small for " + getName() + " block");
+        }
+        putInt(dst, dstOff, srcLen);
+        return HEADER_LENGTH +
+                compressBlock(src, srcOff, srcLen, dst, dstOff + HEADER_LENGTH, dstLen - HEADER_LENGTH);
+    }
+
+    private int checkLength(int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Corrupt " + getName() + " block, negative length " + length);
+        }
+        return length;
+    }
+
+    private static byte[] scratch(int index, int size) {
+        final byte buffers[][] = m_scratch.get();
+        if (buffers[index].length < size) {
+            buffers[index] = new byte[Math.max(buffers[index].length * 2, size)];
+        }
+        return buffers[index];
+    }
+
+    /**
+     * Copy into the buffer at its position, then leave the position where it was and
+     * the limit at the end of the copy, the way Snappy's ByteBuffer methods do
+     */
+    static void putAndRewind(ByteBuffer dst, byte src[], int length) {
+        final int position = dst.position();
+        dst.put(src, 0, length);
+        dst.position(position);
+        dst.limit(position + length);
+    }
+
+    static byte[] arrayOf(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            return buf.array();
+        }
+        final byte copy[] = new byte[buf.remaining()];
+        buf.duplicate().get(copy);
+        return copy;
+    }
+
+    static int arrayOffsetOf(ByteBuffer buf) {
+        return buf.hasArray() ? buf.arrayOffset() + buf.position() : 0;
+    }
+
+    static void putInt(byte dst[], int offset, int value) {
+        dst[offset] = (byte)(value >>> 24);
+        dst[offset + 1] = (byte)(value >>> 16);
+        dst[offset + 2] = (byte)(value >>> 8);
+        dst[offset + 3] = (byte)value;
+    }
+
+    static int getInt(byte src[], int offset) {
+        return ((src[offset] & 0xff) << 24) | ((src[offset + 1] & 0xff) << 16) |
+                ((src[offset + 2] & 0xff) << 8) | (src[offset + 3] & 0xff);
+    }
+}
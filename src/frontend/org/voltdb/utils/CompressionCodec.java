@@ -0,0 +1,126 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.utils.CompressionStrategy;
+
+/**
+ * A block compression codec. Every codec has a stable one byte id that is recorded
+ * next to the data it compresses (snapshot file headers, PBD object flags, rejoin
+ * messages) so a reader can pick the matching codec no matter how the writer
+ * was configured. Snappy is id 0 so data written before codecs were pluggable
+ * is still readable.
+ *
+ * The ByteBuffer methods follow the Snappy conventions the rest of the code
+ * depends on: input is read from position to limit, output is written starting
+ * at the output position, neither position moves, and the output limit is set
+ * to the end of the data that was written.
+ *
+ * Which codec is used for a given stream is picked with a system property naming
+ * the codec, see {@link #fromSystemProperty(String)}.
+ */
+public abstract class CompressionCodec extends CompressionStrategy {
+
+    public static final byte SNAPPY_ID = 0;
+    public static final byte LZ4_ID = 1;
+    public static final byte DEFLATE_ID = 2;
+
+    public static final CompressionCodec SNAPPY = new SnappyCodec();
+    public static final CompressionCodec LZ4 = new LZ4Codec();
+    public static final CompressionCodec DEFLATE = new DeflateCodec();
+
+    //Indexed by codec id
+    private static final CompressionCodec CODECS[] = new CompressionCodec[] { SNAPPY, LZ4, DEFLATE };
+
+    public abstract byte getId();
+
+    public abstract String getName();
+
+    /**
+     * Upper bound on the size of the compressed form of a block of the given length
+     */
+    public abstract int maxCompressedLength(int uncompressedLength);
+
+    public abstract int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException;
+
+    public abstract int uncompressedLength(ByteBuffer compressed) throws IOException;
+
+    public abstract int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException;
+
+    public abstract byte[] compress(byte data[], int offset, int length) throws IOException;
+
+    @Override
+    public byte[] compress(byte data[]) throws IOException {
+        return compress(data, 0, data.length);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    public static CompressionCodec[] all() {
+        return CODECS.clone();
+    }
+
+    /**
+     * Look up the codec that wrote a block
+     * @throws IOException if the id is not one this version knows about
+     */
+    public static CompressionCodec forId(int id) throws IOException {
+        if (id < 0 || id >= CODECS.length) {
+            throw new IOException("Unknown compression codec id " + id);
+        }
+        return CODECS[id];
+    }
+
+    /**
+     * Look up a codec by case insensitive name, e.g. "snappy", "lz4" or "deflate"
+     * @throws IllegalArgumentException if there is no codec with that name
+     */
+    public static CompressionCodec forName(String name) {
+        for (CompressionCodec codec : CODECS) {
+            if (codec.getName().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression codec " + name);
+    }
+
+    /**
+     * Codec named by a system property, Snappy if the property is not set
+     */
+    public static CompressionCodec fromSystemProperty(String property) {
+        final String name = System.getProperty(property);
+        return name == null ? SNAPPY : forName(name);
+    }
+
+    /**
+     * Largest {@link #maxCompressedLength(int)} of any codec, for buffers that
+     * have to be able to hold a block written by whichever codec was configured
+     */
+    public static int maxCompressedLengthAnyCodec(int uncompressedLength) {
+        int max = 0;
+        for (CompressionCodec codec : CODECS) {
+            max = Math.max(max, codec.maxCompressedLength(uncompressedLength));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,102 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate from the JDK, for streams where size on disk or on the wire matters more
+ * than CPU. The level comes from the DEFLATE_COMPRESSION_LEVEL system property and
+ * only affects the writer.
+ */
+final class DeflateCodec extends ArrayCompressionCodec {
+
+    private static final int LEVEL = Integer.getInteger("DEFLATE_COMPRESSION_LEVEL", Deflater.DEFAULT_COMPRESSION);
+
+    private static final ThreadLocal<Deflater> m_deflater = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(LEVEL, true);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> m_inflater = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    DeflateCodec() {}
+
+    @Override
+    public byte getId() {
+        return DEFLATE_ID;
+    }
+
+    @Override
+    public String getName() {
+        return "DEFLATE";
+    }
+
+    @Override
+    int maxBlockLength(int uncompressedLength) {
+        //Stored blocks cost 5 bytes per 16k, leave plenty of room over that
+        return uncompressedLength + (uncompressedLength >>> 10) + 64;
+    }
+
+    @Override
+    int compressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen) throws IOException {
+        final Deflater deflater = m_deflater.get();
+        deflater.reset();
+        deflater.setInput(src, srcOff, srcLen);
+        deflater.finish();
+        int written = 0;
+        while (!deflater.finished()) {
+            if (written == dstLen) {
+                throw new IOException("Output buffer too small for deflate block");
+            }
+            written += deflater.deflate(dst, dstOff + written, dstLen - written);
+        }
+        return written;
+    }
+
+    @Override
+    void uncompressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen) throws IOException {
+        final Inflater inflater = m_inflater.get();
+        inflater.reset();
+        inflater.setInput(src, srcOff, srcLen);
+        int read = 0;
+        try {
+            while (read < dstLen) {
+                final int n = inflater.inflate(dst, dstOff + read, dstLen - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Malformed deflate block", e);
+        }
+        if (read != dstLen) {
+            throw new IOException("Deflate block decoded to " + read + " bytes, expected " + dstLen);
+        }
+    }
+}
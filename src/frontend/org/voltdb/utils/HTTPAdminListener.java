@@ -46,10 +46,11 @@ import org.eclipse.jetty.server.AsyncContinuation;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.server.bio.SocketConnector;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
+import org.eclipse.jetty.server.handler.GzipHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.json_voltpatches.JSONArray;
 import org.json_voltpatches.JSONObject;
@@ -816,12 +817,13 @@ public class HTTPAdminListener {
             throw e;
         }
 
-        // NOW START SocketConnector and create Jetty server but dont start.
-        SocketConnector connector = null;
+        // NOW START SelectChannelConnector and create Jetty server but dont start.
+        SelectChannelConnector connector = null;
         try {
-            // The socket channel connector seems to be faster for our use
-            //SelectChannelConnector connector = new SelectChannelConnector();
-            connector = new SocketConnector();
+            // Idle keep-alive connections sit in the selector instead of each
+            // holding a pool thread, so many polling dashboards don't starve
+            // the pool. Pipelined requests on a connection are served in order.
+            connector = new SelectChannelConnector();
 
             if (intf != null && intf.length() > 0) {
                 connector.setHost(intf);
@@ -829,6 +831,11 @@ public class HTTPAdminListener {
             connector.setPort(port);
             connector.statsReset();
             connector.setName("VoltDB-HTTPD");
+            connector.setMaxIdleTime(Integer.getInteger("HTTP_KEEPALIVE_IDLE_SECONDS", 30) * 1000);
+            // past this many open connections, idle ones are reaped much sooner
+            connector.setLowResourcesConnections(Integer.getInteger("HTTP_LOW_RESOURCES_CONNECTIONS", 10000));
+            connector.setLowResourcesMaxIdleTime(Integer.getInteger("HTTP_LOW_RESOURCES_IDLE_SECONDS", 5) * 1000);
+            connector.setAcceptQueueSize(Integer.getInteger("HTTP_ACCEPT_QUEUE_SIZE", 1024));
             //open the connector here so we know if port is available and Init work can retry with next port.
             connector.open();
             m_server.addConnector(connector);
@@ -841,7 +848,11 @@ public class HTTPAdminListener {
             ContextHandler apiRequestHandler = new ContextHandler("/api/1.0");
             // the default is 200k which well short of out 2M row size limit
             apiRequestHandler.setMaxFormContentSize(HTTPClientInterface.MAX_QUERY_PARAM_SIZE);
-            apiRequestHandler.setHandler(new APIRequestHandler());
+            // compress JSON responses for clients that send Accept-Encoding: gzip
+            GzipHandler apiGzipHandler = new GzipHandler();
+            apiGzipHandler.setMinGzipSize(Integer.getInteger("HTTP_GZIP_MIN_BYTES", 1024));
+            apiGzipHandler.setHandler(new APIRequestHandler());
+            apiRequestHandler.setHandler(apiGzipHandler);
 
             ///catalog
             ContextHandler catalogRequestHandler = new ContextHandler("/catalog");
@@ -875,7 +886,8 @@ public class HTTPAdminListener {
             int poolsize = Integer.getInteger("HTTP_POOL_SIZE", 50);
             int timeout = Integer.getInteger("HTTP_REQUEST_TIMEOUT_SECONDS", 15);
             /*
-             * Don't force us to look at a huge pile of threads
+             * Don't force us to look at a huge pile of threads. With the selector
+             * connector these only run handlers, connections don't pin them.
              */
             final QueuedThreadPool qtp = new QueuedThreadPool(poolsize);
             qtp.setMaxIdleTimeMs(timeout * 1000);
@@ -0,0 +1,215 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+
+/**
+ * LZ4 block format compressor and decompressor in plain Java. The compressor is the
+ * single pass greedy matcher with one hash table that LZ4 uses at its default level, so it
+ * trades some ratio for speed the same way Snappy does, but the blocks it produces
+ * decode faster. The output after the length prefix is a standard LZ4 block.
+ */
+final class LZ4Codec extends ArrayCompressionCodec {
+
+    private static final int MIN_MATCH = 4;
+    //The last match must start at least this far from the end of the input
+    private static final int MF_LIMIT = 12;
+    //The last bytes of a block are always literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    //Skip ahead faster the longer it has been since the last match
+    private static final int SKIP_TRIGGER = 6;
+    private static final int RUN_MASK = 15;
+    //Below this length a byte loop beats the overhead of System.arraycopy
+    private static final int SHORT_COPY = 16;
+
+    LZ4Codec() {}
+
+    @Override
+    public byte getId() {
+        return LZ4_ID;
+    }
+
+    @Override
+    public String getName() {
+        return "LZ4";
+    }
+
+    @Override
+    int maxBlockLength(int uncompressedLength) {
+        return uncompressedLength + uncompressedLength / 255 + 16;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(byte buf[], int offset) {
+        return (buf[offset] & 0xff) | ((buf[offset + 1] & 0xff) << 8) |
+                ((buf[offset + 2] & 0xff) << 16) | ((buf[offset + 3] & 0xff) << 24);
+    }
+
+    private static int writeLength(int length, byte dst[], int dOff) {
+        while (length >= 255) {
+            dst[dOff++] = (byte)255;
+            length -= 255;
+        }
+        dst[dOff++] = (byte)length;
+        return dOff;
+    }
+
+    private static int writeLiterals(byte src[], int anchor, int literalLength, byte dst[], int dOff, int tokenPos) {
+        if (literalLength >= RUN_MASK) {
+            dst[tokenPos] = (byte)(RUN_MASK << 4);
+            dOff = writeLength(literalLength - RUN_MASK, dst, dOff);
+        } else {
+            dst[tokenPos] = (byte)(literalLength << 4);
+        }
+        System.arraycopy(src, anchor, dst, dOff, literalLength);
+        return dOff + literalLength;
+    }
+
+    @Override
+    int compressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen) throws IOException {
+        if (dstLen < maxBlockLength(srcLen)) {
+            throw new IOException("Output buffer too small for LZ4 block");
+        }
+        final int srcEnd = srcOff + srcLen;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        int dOff = dstOff;
+        int anchor = srcOff;
+
+        if (srcLen > MF_LIMIT) {
+            final int table[] = new int[1 << HASH_LOG];
+            //Positions are stored off by one so an empty slot is distinguishable from srcOff
+            int ip = srcOff + 1;
+            int searchMatchCount = 1 << SKIP_TRIGGER;
+            table[hash(readInt(src, srcOff))] = srcOff + 1;
+            while (ip < mfLimit) {
+                final int sequence = readInt(src, ip);
+                final int h = hash(sequence);
+                int ref = table[h] - 1;
+                table[h] = ip + 1;
+                if (ref < srcOff || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    ip += searchMatchCount++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searchMatchCount = 1 << SKIP_TRIGGER;
+
+                //Extend the match backwards into the pending literals
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength]) {
+                    matchLength++;
+                }
+
+                final int tokenPos = dOff;
+                dOff = writeLiterals(src, anchor, ip - anchor, dst, dOff + 1, tokenPos);
+                final int offset = ip - ref;
+                dst[dOff++] = (byte)offset;
+                dst[dOff++] = (byte)(offset >>> 8);
+                final int extra = matchLength - MIN_MATCH;
+                if (extra >= RUN_MASK) {
+                    dst[tokenPos] |= RUN_MASK;
+                    dOff = writeLength(extra - RUN_MASK, dst, dOff);
+                } else {
+                    dst[tokenPos] |= extra;
+                }
+
+                ip += matchLength;
+                anchor = ip;
+                if (ip < mfLimit) {
+                    table[hash(readInt(src, ip - 2))] = ip - 2 + 1;
+                }
+            }
+        }
+
+        return writeLiterals(src, anchor, srcEnd - anchor, dst, dOff + 1, dOff) - dstOff;
+    }
+
+    private static IOException malformed() {
+        return new IOException("Malformed LZ4 block");
+    }
+
+    @Override
+    void uncompressBlock(byte src[], int srcOff, int srcLen, byte dst[], int dstOff, int dstLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int dstEnd = dstOff + dstLen;
+        int sOff = srcOff;
+        int dOff = dstOff;
+        while (true) {
+            if (sOff >= srcEnd) throw malformed();
+            final int token = src[sOff++] & 0xff;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) throw malformed();
+                    b = src[sOff++] & 0xff;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - sOff || literalLength > dstEnd - dOff) throw malformed();
+            System.arraycopy(src, sOff, dst, dOff, literalLength);
+            sOff += literalLength;
+            dOff += literalLength;
+
+            //The last sequence is only literals
+            if (sOff == srcEnd) break;
+
+            if (srcEnd - sOff < 2) throw malformed();
+            final int offset = (src[sOff] & 0xff) | ((src[sOff + 1] & 0xff) << 8);
+            sOff += 2;
+            int ref = dOff - offset;
+            if (offset == 0 || ref < dstOff) throw malformed();
+
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) throw malformed();
+                    b = src[sOff++] & 0xff;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - dOff) throw malformed();
+
+            if (offset >= matchLength && matchLength > SHORT_COPY) {
+                System.arraycopy(dst, ref, dst, dOff, matchLength);
+                dOff += matchLength;
+            } else {
+                //Short matches are cheaper to copy inline, and an overlapping copy
+                //repeats the pattern so it has to go byte by byte anyway
+                final int end = dOff + matchLength;
+                while (dOff < end) {
+                    dst[dOff++] = dst[ref++];
+                }
+            }
+        }
+        if (dOff != dstEnd) {
+            throw new IOException("LZ4 block decoded to " + (dOff - dstOff) + " bytes, expected " + dstLen);
+        }
+    }
+}
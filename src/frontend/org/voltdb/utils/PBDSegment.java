@@ -29,19 +29,29 @@ import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DBBPool.MBBContainer;
 import org.voltdb.utils.BinaryDeque.OutputContainerFactory;
-import org.xerial.snappy.Snappy;
 
 /**
  * Objects placed in the queue are stored in file segments that are up to 64 megabytes.
  * Segments only support appending objects. A segment will throw an IOException if an attempt
- * to insert an object that exceeds the remaining space is made. A segment can be used
- * for reading and writing, but not both at the same time.
+ * to insert an object that exceeds the remaining space is made.
  *
+ * A segment can be read by one thread while another appends to it. The writer publishes
+ * each object by bumping the volatile entry count after the object bytes are in the mapping,
+ * so a reader that observes the count can safely read everything up to it.
+ *
+ * Objects written with FLAG_CHECKSUM carry a CRC32C of the stored bytes after the flags and
+ * are verified as they are polled. Objects without the flag (older files) are read unverified.
+ *
+ * Compressed objects record the id of the codec that compressed them in the second byte
+ * of the flags. Snappy is id zero so objects from before the codec was recorded read back as Snappy.
  */
 class PBDSegment {
     private static final VoltLogger LOG = new VoltLogger("HOST");
 
     public static final int FLAG_COMPRESSED = 1;
+    public static final int FLAG_CHECKSUM = 2;
+    public static final int CODEC_SHIFT = 8;
+    public static final int CODEC_MASK = 0xff << CODEC_SHIFT;
 
     //Avoid unecessary sync with this flag
     private boolean m_syncedSinceLastEdit = true;
@@ -58,18 +68,26 @@ class PBDSegment {
     //Index of the next object to read, not an offset into the file
     //The offset is maintained by the ByteBuffer. Used to determine if there is another object
     int m_objectReadIndex = 0;
-    private int m_bytesRead = 0;
+    private volatile int m_bytesRead = 0;
+
+    //Mirror of the count and size in the segment header, written by the appending thread
+    //after the object bytes. The count is written last and is what readers synchronize on.
+    private volatile int m_numEntries = 0;
+    private volatile int m_size = 0;
+    //End of the last published object, only valid after reading m_numEntries
+    private int m_writePosition = m_segmentHeaderBytes;
 
     //ID of this segment
     final Long m_index;
     static final int m_chunkSize = (1024 * 1024) * 64;
     static final int m_objectHeaderBytes = 8;
+    static final int m_checksumBytes = 4;
     static final int m_segmentHeaderBytes = 8;
 
     static final int COUNT_OFFSET = 0;
     static final int SIZE_OFFSET = 4;
 
-    private boolean m_closed = false;
+    private volatile boolean m_closed = false;
 
     //How many entries that have been polled have from this file have been discarded.
     //Convenient to let PBQ maintain the counter here
@@ -87,11 +105,26 @@ class PBDSegment {
         if (m_fc == null) {
             open(false);
         }
+        return m_numEntries;
+    }
+
+    /*
+     * Pick up changes made to the segment header through another mapping of the file,
+     * parseAndTruncate rewrites the count when it truncates a segment
+     */
+    void reloadNumEntries() throws IOException {
+        if (m_closed) throw new IOException("closed");
+        loadNumEntries();
+    }
+
+    private void loadNumEntries() throws IOException {
         if (m_fc.size() > m_segmentHeaderBytes) {
-            final int numEntries = m_buf.b().getInt(0);
-            return numEntries;
+            final ByteBuffer buf = m_buf.b();
+            m_size = buf.getInt(SIZE_OFFSET);
+            m_numEntries = buf.getInt(COUNT_OFFSET);
         } else {
-            return 0;
+            m_size = 0;
+            m_numEntries = 0;
         }
     }
 
@@ -99,17 +132,27 @@ class PBDSegment {
         final ByteBuffer buf = m_buf.b();
         buf.putInt(0, 0);
         buf.putInt(4, 0);
+        m_size = 0;
+        m_numEntries = 0;
         m_syncedSinceLastEdit = false;
     }
 
     private void incrementNumEntries(int size) throws IOException {
         final ByteBuffer buf = m_buf.b();
-        //First read the existing amount
-        buf.putInt(COUNT_OFFSET, buf.getInt(COUNT_OFFSET) + 1);
-        buf.putInt(SIZE_OFFSET, buf.getInt(SIZE_OFFSET) + size);
+        final int numEntries = m_numEntries + 1;
+        m_size += size;
+        m_writePosition = buf.position();
+        buf.putInt(COUNT_OFFSET, numEntries);
+        buf.putInt(SIZE_OFFSET, m_size);
+        //Publish the object to readers
+        m_numEntries = numEntries;
         m_syncedSinceLastEdit = false;
     }
 
+    static int objectHeaderBytes(int flags) {
+        return (flags & FLAG_CHECKSUM) != 0 ? m_objectHeaderBytes + m_checksumBytes : m_objectHeaderBytes;
+    }
+
     void open(boolean forWrite) throws IOException {
         if (!m_file.exists()) {
             m_syncedSinceLastEdit = false;
@@ -134,6 +177,8 @@ class PBDSegment {
             m_readBuf = m_buf.b().duplicate();
             m_buf.b().position((int) size);
             m_readBuf.position(SIZE_OFFSET + 4);
+            m_writePosition = (int) size;
+            loadNumEntries();
         }
     }
 
@@ -145,7 +190,7 @@ class PBDSegment {
         m_file.delete();
     }
 
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         try {
             if (m_fc != null) {
                 m_fc.close();
@@ -160,17 +205,26 @@ class PBDSegment {
         }
     }
 
-    void sync() throws IOException {
-        if (m_closed) throw new IOException("closed");
+    /*
+     * Synchronized against close so a reader deleting a consumed segment
+     * can't unmap it while the writer is forcing it. Syncing a segment that
+     * has already been deleted is a noop.
+     */
+    synchronized void sync() throws IOException {
+        if (m_closed) return;
         if (!m_syncedSinceLastEdit) {
             m_buf.b().force();
         }
         m_syncedSinceLastEdit = true;
     }
 
+    boolean isClosed() {
+        return m_closed;
+    }
+
     boolean hasMoreEntries() throws IOException {
         if (m_closed) throw new IOException("closed");
-        return m_objectReadIndex < m_buf.b().getInt(COUNT_OFFSET);
+        return m_objectReadIndex < m_numEntries;
     }
 
     boolean isEmpty() throws IOException {
@@ -178,27 +232,39 @@ class PBDSegment {
         return m_discardCount == getNumEntries();
     }
 
-    boolean offer(BBContainer cont, boolean compress) throws IOException {
+    static int compressionFlags(CompressionCodec codec) {
+        return FLAG_COMPRESSED | (codec.getId() << CODEC_SHIFT);
+    }
+
+    static CompressionCodec codecForFlags(int flags) throws IOException {
+        return CompressionCodec.forId((flags & CODEC_MASK) >>> CODEC_SHIFT);
+    }
+
+    /**
+     * @param codec codec to compress the object with, or null to store it uncompressed
+     */
+    boolean offer(BBContainer cont, CompressionCodec codec) throws IOException {
         if (m_closed) throw new IOException("closed");
         final ByteBuffer buf = cont.b();
         final int remaining = buf.remaining();
-        if (remaining < 32 || !buf.isDirect()) compress = false;
-        final int maxCompressedSize = compress ? Snappy.maxCompressedLength(remaining) : remaining;
+        if (remaining < 32 || !buf.isDirect()) codec = null;
+        final int maxCompressedSize = codec != null ? codec.maxCompressedLength(remaining) : remaining;
         final ByteBuffer mbuf = m_buf.b();
-        if (mbuf.remaining() < maxCompressedSize + m_objectHeaderBytes) return false;
+        final int headerBytes = m_objectHeaderBytes + m_checksumBytes;
+        if (mbuf.remaining() < maxCompressedSize + headerBytes) return false;
 
 
         m_syncedSinceLastEdit = false;
         try {
-            //Leave space for length prefix and flags
+            //Leave space for length prefix, flags and checksum
             final int objSizePosition = mbuf.position();
-            mbuf.position(mbuf.position() + m_objectHeaderBytes);
+            final int objPosition = objSizePosition + headerBytes;
+            mbuf.position(objPosition);
 
             int written = maxCompressedSize;
-            if (compress) {
-                //Calculate destination pointer and compress directly to file
-                final long destAddr = m_buf.address() + mbuf.position();
-                written = (int)Snappy.rawCompress(cont.address() + buf.position(), remaining, destAddr);
+            if (codec != null) {
+                //Compress directly to file
+                written = codec.compress(buf, mbuf.duplicate());
                 mbuf.position(mbuf.position() + written);
             } else {
                 mbuf.put(buf);
@@ -207,7 +273,8 @@ class PBDSegment {
             //Record the size of the compressed object and update buffer positions
             //and whether the object was compressed
             mbuf.putInt(objSizePosition, written);
-            mbuf.putInt(objSizePosition + 4, compress ? FLAG_COMPRESSED: 0);
+            mbuf.putInt(objSizePosition + 4, FLAG_CHECKSUM | (codec != null ? compressionFlags(codec) : 0));
+            mbuf.putInt(objSizePosition + 8, DBBPool.getCRC32C(m_buf.address(), objPosition, written));
             buf.position(buf.limit());
             incrementNumEntries(remaining);
         } finally {
@@ -220,33 +287,50 @@ class PBDSegment {
     BBContainer poll(OutputContainerFactory factory) throws IOException {
         if (m_closed) throw new IOException("closed");
         final long mBufAddr = m_buf.address();
+
+        //No more entries to read
+        if (!hasMoreEntries()) {
+            return null;
+        }
+
         if (!m_haveMAdvised) {
-            final ByteBuffer mbuf = m_buf.b();
             m_haveMAdvised = true;
             final long retval = PosixAdvise.madvise(
                     m_buf.address(),
-                    mbuf.position(),
+                    m_writePosition,
                     PosixAdvise.POSIX_MADV_WILLNEED);
             if (retval != 0) {
                 LOG.warn("madvise will need failed: " + retval);
             }
         }
 
-        //No more entries to read
-        if (!hasMoreEntries()) {
-            return null;
-        }
-
-        m_objectReadIndex++;
-
         //Get the length prefix and then read the object
+        final int objectPosition = m_readBuf.position();
         final int nextCompressedLength = m_readBuf.getInt();
         final int nextFlags = m_readBuf.getInt();
+        if ((nextFlags & FLAG_CHECKSUM) != 0) {
+            final int expected = m_readBuf.getInt();
+            final int actual = DBBPool.getCRC32C(mBufAddr, m_readBuf.position(), nextCompressedLength);
+            if (expected != actual) {
+                //Leave the read position on the bad object so it isn't silently skipped
+                m_readBuf.position(objectPosition);
+                throw new IOException("Checksum mismatch for object " + m_objectReadIndex +
+                        " in PBD segment " + m_file);
+            }
+        }
+
+        m_objectReadIndex++;
 
         //Check for compression
-        final boolean compressed = nextFlags == FLAG_COMPRESSED;
+        final boolean compressed = (nextFlags & FLAG_COMPRESSED) != 0;
+        final CompressionCodec codec = compressed ? codecForFlags(nextFlags) : null;
+        ByteBuffer compressedBuf = null;
+        if (compressed) {
+            compressedBuf = m_readBuf.duplicate();
+            compressedBuf.limit(compressedBuf.position() + nextCompressedLength);
+        }
         //Determine the length of the object if uncompressed
-        final int nextUncompressedLength = compressed ? (int)Snappy.uncompressedLength(mBufAddr + m_readBuf.position(), nextCompressedLength) : nextCompressedLength;
+        final int nextUncompressedLength = compressed ? codec.uncompressedLength(compressedBuf) : nextCompressedLength;
         m_bytesRead += nextUncompressedLength;
 
         if (compressed) {
@@ -258,9 +342,7 @@ class PBDSegment {
             retbuf.limit(nextUncompressedLength);
 
             //Uncompress to output buffer
-            final long sourceAddr = mBufAddr + m_readBuf.position();
-            final long destAddr = retcont.address();
-            Snappy.rawUncompress(sourceAddr, nextCompressedLength, destAddr);
+            codec.uncompress(compressedBuf, retbuf);
             m_readBuf.position(m_readBuf.position() + nextCompressedLength);
             return retcont;
         } else {
@@ -293,7 +375,38 @@ class PBDSegment {
      * although incredibly unlikely
      */
     int sizeInBytes() {
-        if (m_closed) throw new RuntimeException("closed");
-        return Math.max(0, m_buf.b().getInt(SIZE_OFFSET) - m_bytesRead);
+        //May be racing with a reader deleting the segment, a deleted segment is empty
+        if (m_closed) return 0;
+        return Math.max(0, m_size - m_bytesRead);
+    }
+
+    /**
+     * Walk the objects in the segment without consuming them, faulting the pages in
+     * and verifying checksums. Safe to run concurrently with other segments.
+     * @return the number of leading objects that are intact, objects from that
+     * index on are torn or corrupt
+     */
+    int countValidEntries() throws IOException {
+        if (m_closed) throw new IOException("closed");
+        final int numEntries = m_numEntries;
+        final long mBufAddr = m_buf.address();
+        final ByteBuffer buf = m_buf.b().duplicate();
+        final int limit = (int)Math.min(buf.capacity(), m_fc.size());
+        buf.position(m_segmentHeaderBytes);
+        for (int ii = 0; ii < numEntries; ii++) {
+            if (limit - buf.position() < m_objectHeaderBytes) return ii;
+            final int length = buf.getInt();
+            final int flags = buf.getInt();
+            final int headerBytes = objectHeaderBytes(flags);
+            if (length < 0 || limit - buf.position() < length + headerBytes - m_objectHeaderBytes) return ii;
+            if ((flags & FLAG_CHECKSUM) != 0) {
+                if (buf.getInt() != DBBPool.getCRC32C(mBufAddr, buf.position(), length)) return ii;
+            } else if (length > 0) {
+                //Fault the pages in ahead of the truncator
+                buf.get(buf.position() + length - 1);
+            }
+            buf.position(buf.position() + length);
+        }
+        return numEntries;
     }
 }
@@ -24,22 +24,30 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DBBPool.MBBContainer;
 import org.voltdb.EELibraryLoader;
-import org.xerial.snappy.Snappy;
 
 import com.google_voltpatches.common.base.Joiner;
 import com.google_voltpatches.common.base.Throwables;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 
 /**
  * A deque that specializes in providing persistence of binary objects to disk. Any object placed
@@ -50,6 +58,11 @@ import com.google_voltpatches.common.base.Throwables;
  * once all objects from the segment have been polled and all the containers returned by poll have been discarded.
  * Push is implemented by creating new segments at the head of the deque containing the objects to be pushed.
  *
+ * The tail and the head are guarded separately. Offer only appends to the write segment under the write lock
+ * and poll/discard only consume finished or partially written segments under the read lock, so a writer never
+ * waits on a reader draining the deque. Operations that restructure the deque (push, close, parseAndTruncate)
+ * take both, always acquiring the write lock first.
+ *
  */
 public class PersistentBinaryDeque implements BinaryDeque {
     private static final VoltLogger LOG = new VoltLogger("HOST");
@@ -78,6 +91,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     public static final OutputContainerFactory UNSAFE_CONTAINER_FACTORY = new UnsafeOutputContainerFactory();
 
+    //Number of threads used to map and verify segments in parallel in parseAndTruncate
+    private static final int PARSE_THREADS =
+            Integer.getInteger("PBD_PARSE_THREADS", Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     /**
      * Processors also log using this facility.
      */
@@ -89,9 +106,16 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     //Segments that are no longer being written to and can be polled
     //These segments are "immutable". They will not be modified until deletion
-    private final Deque<PBDSegment> m_segments = new ArrayDeque<PBDSegment>();
-    private int m_numObjects = 0;
+    //The last segment is the write segment and is only appended to
+    private final ConcurrentLinkedDeque<PBDSegment> m_segments = new ConcurrentLinkedDeque<PBDSegment>();
+    private final AtomicInteger m_numObjects = new AtomicInteger(0);
     private volatile boolean m_closed = false;
+    private volatile CompressionCodec m_compressionCodec = CompressionCodec.SNAPPY;
+
+    //Guards the write segment and rolling over to a new one
+    private final Object m_writeLock = new Object();
+    //Guards read positions in the segments and deletion of consumed segments
+    private final Object m_readLock = new Object();
 
     /**
      * Create a persistent binary deque with the specified nonce and storage
@@ -172,7 +196,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                                     return false;
                                 }
                             }
-                            m_numObjects += qs.getNumEntries();
+                            m_numObjects.addAndGet(qs.getNumEntries());
                             segments.put( index, qs);
                         } catch (IOException e) {
                             throw new RuntimeException(e);
@@ -226,42 +250,67 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void offer(BBContainer object) throws IOException {
+    public void offer(BBContainer object) throws IOException {
         offer(object, true);
     }
 
-    @Override
-    public synchronized void offer(BBContainer object, boolean allowCompression) throws IOException {
-        assertions();
-        if (m_closed) {
-            throw new IOException("Closed");
-        }
+    /**
+     * Codec used for objects offered from now on. Objects already written keep
+     * the codec they were written with and are still readable.
+     */
+    public void setCompressionCodec(CompressionCodec codec) {
+        m_compressionCodec = codec;
+    }
 
-        PBDSegment tail = m_segments.peekLast();
-        //If we are mostly empty, don't do compression, otherwise compress to reduce space and IO
-        final boolean compress = object.b().isDirect() && allowCompression &&
-                (m_segments.size() > 1 || tail.sizeInBytes() > 1024 * 512);
-        if (!tail.offer(object, compress)) {
-            //Check to see if the tail is completely consumed so we can close and delete it
-            if (!tail.hasMoreEntries() && tail.m_discardCount == tail.getNumEntries()) {
-                m_segments.pollLast();
-                tail.closeAndDelete();
+    @Override
+    public void offer(BBContainer object, boolean allowCompression) throws IOException {
+        synchronized (m_writeLock) {
+            if (m_closed) {
+                throw new IOException("Closed");
             }
-            Long nextIndex = tail.m_index + 1;
-            tail = new PBDSegment(nextIndex, new VoltFile(m_path, m_nonce + "." + nextIndex + ".pbd"));
-            tail.open(true);
-            m_segments.offer(tail);
-            final boolean success = tail.offer(object, compress);
-            if (!success) {
-                throw new IOException("Failed to offer object in PBD");
+
+            PBDSegment tail = m_segments.peekLast();
+            //If we are mostly empty, don't do compression, otherwise compress to reduce space and IO
+            final CompressionCodec codec = object.b().isDirect() && allowCompression &&
+                    (m_segments.peekFirst() != tail || tail.sizeInBytes() > 1024 * 512) ? m_compressionCodec : null;
+            //Count the object before it is visible to readers so the count never goes negative
+            incrementNumObjects();
+            boolean success = false;
+            try {
+                if (!tail.offer(object, codec)) {
+                    Long nextIndex = tail.m_index + 1;
+                    final PBDSegment oldTail = tail;
+                    tail = new PBDSegment(nextIndex, new VoltFile(m_path, m_nonce + "." + nextIndex + ".pbd"));
+                    tail.open(true);
+                    m_segments.offer(tail);
+                    //The old tail may already be completely consumed, it won't be the last segment
+                    //any more so a discard won't come along to delete it
+                    synchronized (m_readLock) {
+                        deleteIfConsumed(oldTail);
+                    }
+                    if (!tail.offer(object, codec)) {
+                        throw new IOException("Failed to offer object in PBD");
+                    }
+                }
+                success = true;
+            } finally {
+                if (!success) {
+                    decrementNumObjects();
+                }
             }
         }
-        incrementNumObjects();
-        assertions();
     }
 
     @Override
-    public synchronized void push(BBContainer objects[]) throws IOException {
+    public void push(BBContainer objects[]) throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (m_readLock) {
+                pushInternal(objects);
+            }
+        }
+    }
+
+    private void pushInternal(BBContainer objects[]) throws IOException {
         assertions();
         if (m_closed) {
             throw new IOException("Closed");
@@ -274,7 +323,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
         //that will fit in a single write segment
         int available = PBDSegment.m_chunkSize - 4;
         for (BBContainer object : objects) {
-            int needed = PBDSegment.m_objectHeaderBytes + object.b().remaining();
+            int needed = PBDSegment.m_objectHeaderBytes + PBDSegment.m_checksumBytes + object.b().remaining();
 
             if (available - needed < 0) {
                 if (needed > PBDSegment.m_chunkSize - 4) {
@@ -309,7 +358,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             nextIndex--;
 
             while (currentSegmentContents.peek() != null) {
-                writeSegment.offer(currentSegmentContents.pollFirst(), false);
+                writeSegment.offer(currentSegmentContents.pollFirst(), null);
                 incrementNumObjects();
             }
 
@@ -319,17 +368,14 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized BBContainer poll(OutputContainerFactory ocf) throws IOException {
-        assertions();
-        if (m_closed) {
-            throw new IOException("Closed");
-        }
+    public BBContainer poll(OutputContainerFactory ocf) throws IOException {
+        synchronized (m_readLock) {
+            if (m_closed) {
+                throw new IOException("Closed");
+            }
 
-        BBContainer retcont = null;
-        PBDSegment segment = m_segments.peek();
-        if (segment.hasMoreEntries()) {
-            retcont = segment.poll(ocf);
-        } else {
+            BBContainer retcont = null;
+            PBDSegment segment = null;
             for (PBDSegment s : m_segments) {
                 if (s.hasMoreEntries()) {
                     segment = s;
@@ -337,15 +383,14 @@ public class PersistentBinaryDeque implements BinaryDeque {
                     break;
                 }
             }
-        }
-        if (retcont == null) {
-            return null;
-        }
+            if (retcont == null) {
+                return null;
+            }
 
-        decrementNumObjects();
-        assertions();
-        assert (retcont.b() != null);
-        return wrapRetCont(segment, retcont);
+            decrementNumObjects();
+            assert (retcont.b() != null);
+            return wrapRetCont(segment, retcont);
+        }
     }
 
     private BBContainer wrapRetCont(final PBDSegment segment, final BBContainer retcont) {
@@ -360,67 +405,81 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 }
                 m_discarded = true;
                 retcont.discard();
-                segment.m_discardCount++;
-                assert(m_closed || m_segments.contains(segment));
+                synchronized (m_readLock) {
+                    segment.m_discardCount++;
+                    assert(m_closed || m_segments.contains(segment));
 
-                //Don't do anything else if we are closed
-                if (m_closed) {
-                    return;
-                }
+                    //Don't do anything else if we are closed
+                    if (m_closed) {
+                        return;
+                    }
 
-                //Segment is potentially ready for deletion
-                try {
-                    if (segment.m_discardCount == segment.getNumEntries()) {
-                        if (segment != m_segments.peekLast()) {
-                            m_segments.remove(segment);
-                            segment.closeAndDelete();
-                        }
+                    //Segment is potentially ready for deletion
+                    try {
+                        deleteIfConsumed(segment);
+                    } catch (IOException e) {
+                        LOG.error("Exception closing and deleting PBD segment", e);
                     }
-                } catch (IOException e) {
-                    LOG.error("Exception closing and deleting PBD segment", e);
                 }
             }
         };
     }
 
-    @Override
-    public synchronized void sync() throws IOException {
-        if (m_closed) {
-            throw new IOException("Closed");
+    /*
+     * Delete a segment once every object in it has been polled and discarded,
+     * unless it is still the write segment. Must hold m_readLock.
+     */
+    private void deleteIfConsumed(PBDSegment segment) throws IOException {
+        if (segment.isClosed() || segment == m_segments.peekLast()) {
+            return;
         }
-        for (PBDSegment segment : m_segments) {
-            segment.sync();
+        if (!segment.hasMoreEntries() && segment.m_discardCount == segment.getNumEntries()) {
+            if (m_segments.remove(segment)) {
+                segment.closeAndDelete();
+            }
         }
     }
 
     @Override
-    public synchronized void close() throws IOException {
-        if (m_closed) {
-            return;
-        }
-        m_closed = true;
-        for (PBDSegment segment : m_segments) {
-            segment.close();
+    public void sync() throws IOException {
+        //Only the write lock, segments deleted by readers meanwhile are skipped
+        synchronized (m_writeLock) {
+            if (m_closed) {
+                throw new IOException("Closed");
+            }
+            for (PBDSegment segment : m_segments) {
+                segment.sync();
+            }
         }
-        m_closed = true;
     }
 
     @Override
-    public synchronized boolean isEmpty() throws IOException {
-        assertions();
-        if (m_closed) {
-            throw new IOException("Closed");
+    public void close() throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (m_readLock) {
+                if (m_closed) {
+                    return;
+                }
+                m_closed = true;
+                for (PBDSegment segment : m_segments) {
+                    segment.close();
+                }
+            }
         }
+    }
 
-        PBDSegment segment = m_segments.peek();
-        if (segment == null) {
+    @Override
+    public boolean isEmpty() throws IOException {
+        synchronized (m_readLock) {
+            if (m_closed) {
+                throw new IOException("Closed");
+            }
+
+            for (PBDSegment s : m_segments) {
+                if (s.hasMoreEntries()) return false;
+            }
             return true;
         }
-        if (segment.hasMoreEntries()) return false;
-        for (PBDSegment s : m_segments) {
-            if (segment.hasMoreEntries()) return false;
-        }
-        return true;
     }
 
     /*
@@ -430,7 +489,6 @@ public class PersistentBinaryDeque implements BinaryDeque {
      */
     @Override
     public long sizeInBytes() {
-        assertions();
         long size = 0;
         for (PBDSegment segment : m_segments) {
             size += segment.sizeInBytes();
@@ -439,22 +497,52 @@ public class PersistentBinaryDeque implements BinaryDeque {
     }
 
     @Override
-    public synchronized void closeAndDelete() throws IOException {
-        if (m_closed) return;
-        m_closed = true;
-        for (PBDSegment qs : m_segments) {
-            qs.closeAndDelete();
+    public void closeAndDelete() throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (m_readLock) {
+                if (m_closed) return;
+                m_closed = true;
+                for (PBDSegment qs : m_segments) {
+                    qs.closeAndDelete();
+                }
+            }
         }
     }
 
     @Override
-    public synchronized void parseAndTruncate(BinaryDequeTruncator truncator) throws IOException {
+    public void parseAndTruncate(BinaryDequeTruncator truncator) throws IOException {
+        synchronized (m_writeLock) {
+            synchronized (m_readLock) {
+                parseAndTruncateInternal(truncator);
+            }
+        }
+    }
+
+    private void parseAndTruncateInternal(BinaryDequeTruncator truncator) throws IOException {
         assertions();
         if (m_segments.isEmpty()) {
             m_usageSpecificLog.debug("PBD " + m_nonce + " has no finished segments");
             return;
         }
 
+        /*
+         * Map and verify all the segments in parallel, the truncator is stateful and has to see
+         * the objects in order so it runs on this thread behind the verification. By the time
+         * it reaches a segment its pages are usually resident and its checksums already checked.
+         */
+        final List<PBDSegment> segments = new ArrayList<PBDSegment>(m_segments);
+        final ListeningExecutorService es = CoreUtils.getListeningExecutorService(
+                "PBD Parse " + m_nonce, Math.max(1, Math.min(segments.size(), PARSE_THREADS)));
+        final List<ListenableFuture<Integer>> validEntries = new ArrayList<ListenableFuture<Integer>>(segments.size());
+        for (final PBDSegment segment : segments) {
+            validEntries.add(es.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return segment.countValidEntries();
+                }
+            }));
+        }
+
         /*
          * Iterator all the objects in all the segments and pass them to the truncator
          * When it finds the truncation point
@@ -462,8 +550,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         Long lastSegmentIndex = null;
         BBContainer decompressionBuffer = DBBPool.allocateDirect(1024 * 512);
         try {
-            for (PBDSegment segment : m_segments) {
+            for (int segmentOffset = 0; segmentOffset < segments.size(); segmentOffset++) {
+                final PBDSegment segment = segments.get(segmentOffset);
                 long segmentIndex = segment.m_index;
+                final int validCount = getValidEntries(validEntries.get(segmentOffset));
 
                 File segmentFile = segment.m_file;
                 RandomAccessFile ras = new RandomAccessFile(segmentFile, "rw");
@@ -475,14 +565,27 @@ public class PersistentBinaryDeque implements BinaryDeque {
                     //Get the number of objects and then iterator over them
                     int numObjects = readBuffer.getInt();
                     int size = readBuffer.getInt();
-                    int objectsProcessed = 0;
                     m_usageSpecificLog.debug("PBD " + m_nonce + " has " + numObjects + " objects to parse and truncate");
                     for (int ii = 0; ii < numObjects; ii++) {
+                        final int objectStart = readBuffer.position();
+                        if (ii == validCount) {
+                            //Torn or corrupt object, everything from here on is dropped
+                            LOG.warn("PBD " + m_nonce + " segment " + segmentFile.getName() + " is corrupt at object " +
+                                    ii + " of " + numObjects + ", truncating the deque at that object");
+                            lastSegmentIndex = truncateObjects(segment, fc, numObjects, ii, objectStart);
+                            break;
+                        }
                         final int nextObjectLength = readBuffer.getInt();
                         final int nextObjectFlags = readBuffer.getInt();
-                        final boolean compressed = nextObjectFlags == PBDSegment.FLAG_COMPRESSED;
-                        final int uncompressedLength = compressed ? (int)Snappy.uncompressedLength(buffAddr + readBuffer.position(), nextObjectLength) : nextObjectLength;
-                        objectsProcessed++;
+                        readBuffer.position(objectStart + PBDSegment.objectHeaderBytes(nextObjectFlags));
+                        final boolean compressed = (nextObjectFlags & PBDSegment.FLAG_COMPRESSED) != 0;
+                        final CompressionCodec codec = compressed ? PBDSegment.codecForFlags(nextObjectFlags) : null;
+                        ByteBuffer compressedBuf = null;
+                        if (compressed) {
+                            compressedBuf = readBuffer.duplicate();
+                            compressedBuf.limit(compressedBuf.position() + nextObjectLength);
+                        }
+                        final int uncompressedLength = compressed ? codec.uncompressedLength(compressedBuf) : nextObjectLength;
                         //Copy the next object into a separate heap byte buffer
                         //do the old limit stashing trick to avoid buffer overflow
                         BBContainer nextObject = null;
@@ -493,9 +596,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                                 decompressionBuffer = DBBPool.allocateDirect(uncompressedLength);
                             }
                             nextObject = DBBPool.dummyWrapBB(decompressionBuffer.b());
-                            final long sourceAddr = (buffAddr + readBuffer.position());
-                            final long destAddr = nextObject.address();
-                            Snappy.rawUncompress(sourceAddr, nextObjectLength, destAddr);
+                            codec.uncompress(compressedBuf, nextObject.b());
                             readBuffer.position(readBuffer.position() + nextObjectLength);
                         } else {
                             final int oldLimit = readBuffer.limit();
@@ -513,36 +614,24 @@ public class PersistentBinaryDeque implements BinaryDeque {
                             } else {
                                 //If the returned bytebuffer is empty, remove the object and truncate the file
                                 if (retval.remaining() == 0) {
-                                    if (ii == 0) {
-                                        /*
-                                         * If truncation is occuring at the first object
-                                         * Whammo! Delete the file. Do it by setting the lastSegmentIndex
-                                         * to 1 previous. We may end up with an empty finished segment
-                                         * set.
-                                         */
-                                        lastSegmentIndex = segmentIndex - 1;
-                                    } else {
-                                        addToNumObjects(-(numObjects - (objectsProcessed - 1)));
-                                        //Don't forget to update the number of entries in the file
-                                        ByteBuffer numObjectsBuffer = ByteBuffer.allocate(4);
-                                        numObjectsBuffer.putInt(0, ii);
-                                        fc.position(0);
-                                        while (numObjectsBuffer.hasRemaining()) {
-                                            fc.write(numObjectsBuffer);
-                                        }
-                                        fc.truncate(readBuffer.position() - (nextObjectLength + PBDSegment.m_objectHeaderBytes));
-                                    }
-
+                                    lastSegmentIndex = truncateObjects(segment, fc, numObjects, ii, objectStart);
                                 } else {
-                                    addToNumObjects(-(numObjects - objectsProcessed));
+                                    addToNumObjects(-(numObjects - (ii + 1)));
                                     //Partial object truncation
-                                    ByteBuffer copy = ByteBuffer.allocate(retval.remaining());
+                                    final int length = retval.remaining();
+                                    ByteBuffer copy = ByteBuffer.allocate(length);
                                     copy.put(retval);
                                     copy.flip();
-                                    readBuffer.position(readBuffer.position() - (nextObjectLength + PBDSegment.m_objectHeaderBytes));
-                                    readBuffer.putInt(copy.remaining());
-                                    readBuffer.putInt(0);
+                                    final int flags = nextObjectFlags & PBDSegment.FLAG_CHECKSUM;
+                                    readBuffer.position(objectStart);
+                                    readBuffer.putInt(length);
+                                    readBuffer.putInt(flags);
+                                    readBuffer.position(objectStart + PBDSegment.objectHeaderBytes(flags));
                                     readBuffer.put(copy);
+                                    if (flags != 0) {
+                                        readBuffer.putInt(objectStart + PBDSegment.m_objectHeaderBytes,
+                                                DBBPool.getCRC32C(buffAddr, readBuffer.position() - length, length));
+                                    }
 
                                     readBuffer.putInt(0, ii + 1);
 
@@ -550,11 +639,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
                                      * SHOULD REALLY make a copy of the original and then swap them with renaming
                                      */
                                     fc.truncate(readBuffer.position());
-                                }
-                                //Set last segment and break the loop over this segment
-                                if (lastSegmentIndex == null) {
+                                    segment.reloadNumEntries();
                                     lastSegmentIndex = segmentIndex;
                                 }
+                                //Break the loop over this segment
                                 break;
                             }
                         } finally {
@@ -573,6 +661,13 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
         } finally {
             decompressionBuffer.discard();
+            //Segments may still be being verified and can't be deleted out from under the workers
+            es.shutdownNow();
+            try {
+                es.awaitTermination(365, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
         }
 
         /*
@@ -612,23 +707,64 @@ public class PersistentBinaryDeque implements BinaryDeque {
         assertions();
     }
 
+    /*
+     * Drop the object at index and everything after it in the segment. Returns the index
+     * of the last segment to keep.
+     */
+    private long truncateObjects(PBDSegment segment, FileChannel fc, int numObjects, int index, int objectStart)
+            throws IOException {
+        if (index == 0) {
+            /*
+             * If truncation is occuring at the first object
+             * Whammo! Delete the file. Do it by setting the lastSegmentIndex
+             * to 1 previous. We may end up with an empty finished segment
+             * set.
+             */
+            return segment.m_index - 1;
+        }
+        addToNumObjects(-(numObjects - index));
+        //Don't forget to update the number of entries in the file
+        ByteBuffer numObjectsBuffer = ByteBuffer.allocate(4);
+        numObjectsBuffer.putInt(0, index);
+        fc.position(0);
+        while (numObjectsBuffer.hasRemaining()) {
+            fc.write(numObjectsBuffer);
+        }
+        fc.truncate(objectStart);
+        segment.reloadNumEntries();
+        return segment.m_index;
+    }
+
+    private static int getValidEntries(ListenableFuture<Integer> validEntries) throws IOException {
+        try {
+            return validEntries.get();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
     private void addToNumObjects(int num) {
-        assert(m_numObjects >= 0);
-        m_numObjects += num;
+        assert(m_numObjects.get() >= 0);
+        m_numObjects.addAndGet(num);
     }
     private void incrementNumObjects() {
-        assert(m_numObjects >= 0);
-         m_numObjects++;
+        assert(m_numObjects.get() >= 0);
+        m_numObjects.incrementAndGet();
     }
 
     private void decrementNumObjects() {
-        m_numObjects--;
-        assert(m_numObjects >= 0);
+        final int numObjects = m_numObjects.decrementAndGet();
+        assert(numObjects >= 0);
     }
 
     @Override
     public int getNumObjects() {
-        return m_numObjects;
+        return m_numObjects.get();
     }
 
     @Override
@@ -643,6 +779,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         assertionsOn = assertOn;
     }
 
+    /*
+     * Only meaningful while no offer or poll can be in progress,
+     * i.e. in the constructor or with both locks held
+     */
     private void assertions() {
         if (!assertionsOn || m_closed) return;
         int numObjects = 0;
@@ -653,6 +793,6 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 Throwables.propagate(e);
             }
         }
-        assert(numObjects == m_numObjects);
+        assert(numObjects == m_numObjects.get());
     }
 }
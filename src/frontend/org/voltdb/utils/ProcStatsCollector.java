@@ -0,0 +1,398 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples process and per-thread resource usage by reading procfs directly, without
+ * forking or native code. Each sample reads /proc/self/stat, /proc/self/status,
+ * /proc/self/io and the stat and status files of every registered thread, which takes
+ * tens of microseconds.
+ *
+ * Samples are taken by one thread at PROC_STATS_SAMPLE_INTERVAL_MS and published to a
+ * ring of the last PROC_STATS_HISTORY samples. Readers never block the sampler, they
+ * read the published samples which are immutable.
+ *
+ * Threads that want per-thread numbers (the site threads) register themselves, the
+ * kernel thread id is resolved through /proc/thread-self so this needs Linux 3.17 or later
+ * for per-thread numbers. Process numbers only need procfs.
+ */
+public class ProcStatsCollector {
+
+    public static final int SAMPLE_INTERVAL_MS = Integer.getInteger("PROC_STATS_SAMPLE_INTERVAL_MS", 1000);
+    private static final int HISTORY = Integer.getInteger("PROC_STATS_HISTORY", 60);
+    // USER_HZ, the unit of the times in the stat files. It is fixed at 100 by the Linux ABI.
+    private static final int CLOCK_TICKS_PER_SECOND = Integer.getInteger("PROC_STATS_CLOCK_TICKS", 100);
+
+    // Field numbers from proc(5)
+    private static final int STAT_UTIME = 14;
+    private static final int STAT_STIME = 15;
+
+    private static final byte VMRSS[] = "VmRSS:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VOLUNTARY_CSW[] = "voluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte INVOLUNTARY_CSW[] = "nonvoluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte READ_BYTES[] = "read_bytes:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte WRITE_BYTES[] = "write_bytes:".getBytes(StandardCharsets.US_ASCII);
+
+    public static final ProcStatsCollector instance = new ProcStatsCollector(new File("/proc/self"), HISTORY);
+
+    /**
+     * CPU time and context switches of one thread. Times are in milliseconds,
+     * counters are cumulative since the thread started.
+     */
+    public static class ThreadSample {
+        public final String name;
+        public final int tid;
+        public final long userMs;
+        public final long systemMs;
+        public final long voluntaryContextSwitches;
+        public final long involuntaryContextSwitches;
+
+        ThreadSample(String name, int tid, long userMs, long systemMs,
+                long voluntaryContextSwitches, long involuntaryContextSwitches) {
+            this.name = name;
+            this.tid = tid;
+            this.userMs = userMs;
+            this.systemMs = systemMs;
+            this.voluntaryContextSwitches = voluntaryContextSwitches;
+            this.involuntaryContextSwitches = involuntaryContextSwitches;
+        }
+    }
+
+    /**
+     * One sample of the whole process. Values that could not be read are -1,
+     * /proc/self/io in particular is not readable in some containers.
+     */
+    public static class Sample {
+        public final long timestamp;
+        public final long rss;
+        public final long userMs;
+        public final long systemMs;
+        public final long voluntaryContextSwitches;
+        public final long involuntaryContextSwitches;
+        public final long readBytes;
+        public final long writeBytes;
+        public final ThreadSample threads[];
+
+        Sample(long timestamp, long rss, long userMs, long systemMs,
+                long voluntaryContextSwitches, long involuntaryContextSwitches,
+                long readBytes, long writeBytes, ThreadSample threads[]) {
+            this.timestamp = timestamp;
+            this.rss = rss;
+            this.userMs = userMs;
+            this.systemMs = systemMs;
+            this.voluntaryContextSwitches = voluntaryContextSwitches;
+            this.involuntaryContextSwitches = involuntaryContextSwitches;
+            this.readBytes = readBytes;
+            this.writeBytes = writeBytes;
+            this.threads = threads;
+        }
+
+        /**
+         * @return the thread with the given kernel thread id, or null
+         */
+        public ThreadSample getThread(int tid) {
+            for (ThreadSample t : threads) {
+                if (t.tid == tid) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class RegisteredThread {
+        private final String m_name;
+        private final File m_stat;
+        private final File m_status;
+
+        private RegisteredThread(String name, File taskDir) {
+            m_name = name;
+            m_stat = new File(taskDir, "stat");
+            m_status = new File(taskDir, "status");
+        }
+    }
+
+    private final File m_procDir;
+    private final File m_stat;
+    private final File m_status;
+    private final File m_io;
+    private final boolean m_available;
+    private final Map<Integer, RegisteredThread> m_threads = new ConcurrentHashMap<Integer, RegisteredThread>();
+
+    // Ring of published samples, the count is bumped after the slot is written
+    private final AtomicReferenceArray<Sample> m_ring;
+    private final AtomicLong m_sampleCount = new AtomicLong();
+
+    // Read buffer, only touched while holding the lock on this
+    private final byte m_buffer[] = new byte[8192];
+
+    ProcStatsCollector(File procDir, int history) {
+        m_procDir = procDir;
+        m_stat = new File(procDir, "stat");
+        m_status = new File(procDir, "status");
+        m_io = new File(procDir, "io");
+        m_available = m_stat.canRead() && m_status.canRead();
+        m_ring = new AtomicReferenceArray<Sample>(Math.max(2, history));
+    }
+
+    /**
+     * @return true if procfs is there to be read
+     */
+    public boolean isAvailable() {
+        return m_available;
+    }
+
+    /**
+     * Include the calling thread in samples under the given name.
+     * @return false if the kernel thread id of the caller couldn't be determined
+     */
+    public boolean registerCurrentThread(String name) {
+        final int tid = currentThreadId();
+        if (tid < 0) {
+            return false;
+        }
+        registerThread(tid, name);
+        return true;
+    }
+
+    public void unregisterCurrentThread() {
+        final int tid = currentThreadId();
+        if (tid >= 0) {
+            m_threads.remove(tid);
+        }
+    }
+
+    void registerThread(int tid, String name) {
+        m_threads.put(tid, new RegisteredThread(name, new File(m_procDir, "task" + File.separator + tid)));
+    }
+
+    static int currentThreadId() {
+        try {
+            // Resolves to <pid>/task/<tid>
+            final String link = Files.readSymbolicLink(Paths.get("/proc/thread-self")).toString();
+            return Integer.parseInt(link.substring(link.lastIndexOf('/') + 1));
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Read everything and publish a new sample.
+     * @return the sample or null if the process files couldn't be read
+     */
+    public synchronized Sample sample() {
+        if (!m_available) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        final Sample sample;
+        try {
+            int length = readFile(m_stat, m_buffer);
+            final long userMs = ticksToMs(statField(m_buffer, length, STAT_UTIME));
+            final long systemMs = ticksToMs(statField(m_buffer, length, STAT_STIME));
+
+            length = readFile(m_status, m_buffer);
+            final long rssKb = statusField(m_buffer, length, VMRSS);
+            final long voluntary = statusField(m_buffer, length, VOLUNTARY_CSW);
+            final long involuntary = statusField(m_buffer, length, INVOLUNTARY_CSW);
+
+            long readBytes = -1;
+            long writeBytes = -1;
+            try {
+                length = readFile(m_io, m_buffer);
+                readBytes = statusField(m_buffer, length, READ_BYTES);
+                writeBytes = statusField(m_buffer, length, WRITE_BYTES);
+            } catch (IOException e) {
+                // io accounting is optional
+            }
+
+            sample = new Sample(now, rssKb < 0 ? -1 : rssKb * 1024, userMs, systemMs, voluntary, involuntary,
+                    readBytes, writeBytes, sampleThreads());
+        } catch (IOException e) {
+            return null;
+        }
+
+        final long count = m_sampleCount.get();
+        m_ring.set((int)(count % m_ring.length()), sample);
+        m_sampleCount.set(count + 1);
+        return sample;
+    }
+
+    private ThreadSample[] sampleThreads() {
+        final ArrayList<ThreadSample> threads = new ArrayList<ThreadSample>(m_threads.size());
+        for (Map.Entry<Integer, RegisteredThread> e : m_threads.entrySet()) {
+            final RegisteredThread t = e.getValue();
+            try {
+                int length = readFile(t.m_stat, m_buffer);
+                final long userMs = ticksToMs(statField(m_buffer, length, STAT_UTIME));
+                final long systemMs = ticksToMs(statField(m_buffer, length, STAT_STIME));
+                length = readFile(t.m_status, m_buffer);
+                threads.add(new ThreadSample(t.m_name, e.getKey(), userMs, systemMs,
+                        statusField(m_buffer, length, VOLUNTARY_CSW),
+                        statusField(m_buffer, length, INVOLUNTARY_CSW)));
+            } catch (IOException ex) {
+                // The thread exited without unregistering
+                m_threads.remove(e.getKey());
+            }
+        }
+        return threads.toArray(new ThreadSample[threads.size()]);
+    }
+
+    /**
+     * @return the resident set size in bytes read straight from procfs, or -1
+     */
+    public synchronized long readRSS() {
+        if (!m_available) {
+            return -1;
+        }
+        try {
+            final long rssKb = statusField(m_buffer, readFile(m_status, m_buffer), VMRSS);
+            return rssKb < 0 ? -1 : rssKb * 1024;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the most recent sample, or null if none has been taken
+     */
+    public Sample getLatest() {
+        return getPrevious(0);
+    }
+
+    /**
+     * @param back how many samples before the latest, 0 is the latest
+     * @return the sample or null if it is not in the history
+     */
+    public Sample getPrevious(int back) {
+        final long count = m_sampleCount.get();
+        if (back < 0 || back >= count || back >= m_ring.length() - 1) {
+            return null;
+        }
+        return m_ring.get((int)((count - 1 - back) % m_ring.length()));
+    }
+
+    /**
+     * Percentage of one core used between two readings of a cumulative CPU time
+     */
+    public static double percent(long earlierMs, long laterMs, long elapsedMs) {
+        if (elapsedMs <= 0 || earlierMs < 0 || laterMs < 0) {
+            return 0.0;
+        }
+        return Math.max(0.0, (laterMs - earlierMs) * 100.0 / elapsedMs);
+    }
+
+    private static long ticksToMs(long ticks) {
+        return ticks < 0 ? -1 : ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+    }
+
+    static int readFile(File file, byte buffer[]) throws IOException {
+        final FileInputStream fis = new FileInputStream(file);
+        try {
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = fis.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            return length;
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * Pull a numeric field out of a stat file. The command name in field 2 can contain
+     * spaces and parentheses so counting starts after the last ')'.
+     * @param field the 1-based field number from proc(5), 3 or more
+     * @return the value or -1 if the field isn't there
+     */
+    static long statField(byte buffer[], int length, int field) {
+        int pos = length - 1;
+        while (pos >= 0 && buffer[pos] != ')') {
+            pos--;
+        }
+        if (pos < 0) {
+            return -1;
+        }
+        pos++;
+        for (int current = 2; pos < length; ) {
+            while (pos < length && buffer[pos] == ' ') {
+                pos++;
+            }
+            if (++current == field) {
+                return parseLong(buffer, pos, length);
+            }
+            while (pos < length && buffer[pos] != ' ') {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pull the number following a "key:" at the start of a line in a status or io file
+     * @return the value or -1 if the key isn't there
+     */
+    static long statusField(byte buffer[], int length, byte key[]) {
+        int lineStart = 0;
+        while (lineStart < length) {
+            if (lineStart + key.length <= length && regionMatches(buffer, lineStart, key)) {
+                int pos = lineStart + key.length;
+                while (pos < length && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+                    pos++;
+                }
+                return parseLong(buffer, pos, length);
+            }
+            while (lineStart < length && buffer[lineStart] != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte buffer[], int offset, byte key[]) {
+        for (int ii = 0; ii < key.length; ii++) {
+            if (buffer[offset + ii] != key[ii]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLong(byte buffer[], int pos, int length) {
+        long value = 0;
+        int digits = 0;
+        while (pos < length && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            value = value * 10 + (buffer[pos++] - '0');
+            digits++;
+        }
+        return digits == 0 ? -1 : value;
+    }
+}
@@ -0,0 +1,111 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Snappy, the codec VoltDB has always used. Direct buffers go straight to the
+ * native library, heap buffers go through the array entry points.
+ */
+final class SnappyCodec extends CompressionCodec {
+
+    SnappyCodec() {}
+
+    @Override
+    public byte getId() {
+        return SNAPPY_ID;
+    }
+
+    @Override
+    public String getName() {
+        return "SNAPPY";
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        return Snappy.maxCompressedLength(uncompressedLength);
+    }
+
+    @Override
+    public int compress(ByteBuffer uncompressed, ByteBuffer compressed) throws IOException {
+        if (uncompressed.isDirect() && compressed.isDirect()) {
+            return Snappy.compress(uncompressed, compressed);
+        }
+        final byte input[] = ArrayCompressionCodec.arrayOf(uncompressed);
+        final int inputOffset = ArrayCompressionCodec.arrayOffsetOf(uncompressed);
+        if (compressed.hasArray()) {
+            final int written = Snappy.rawCompress(input, inputOffset, uncompressed.remaining(),
+                    compressed.array(), compressed.arrayOffset() + compressed.position());
+            compressed.limit(compressed.position() + written);
+            return written;
+        }
+        final byte output[] = new byte[maxCompressedLength(uncompressed.remaining())];
+        final int written = Snappy.rawCompress(input, inputOffset, uncompressed.remaining(), output, 0);
+        ArrayCompressionCodec.putAndRewind(compressed, output, written);
+        return written;
+    }
+
+    @Override
+    public int uncompressedLength(ByteBuffer compressed) throws IOException {
+        if (compressed.isDirect()) {
+            return Snappy.uncompressedLength(compressed);
+        }
+        return Snappy.uncompressedLength(compressed.array(),
+                compressed.arrayOffset() + compressed.position(), compressed.remaining());
+    }
+
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+        if (compressed.isDirect() && uncompressed.isDirect()) {
+            return Snappy.uncompress(compressed, uncompressed);
+        }
+        final byte input[] = ArrayCompressionCodec.arrayOf(compressed);
+        final int inputOffset = ArrayCompressionCodec.arrayOffsetOf(compressed);
+        final int length = Snappy.uncompressedLength(input, inputOffset, compressed.remaining());
+        if (uncompressed.remaining() < length) {
+            throw new IOException("Output buffer too small for " + length + " uncompressed bytes");
+        }
+        if (uncompressed.hasArray()) {
+            Snappy.rawUncompress(input, inputOffset, compressed.remaining(),
+                    uncompressed.array(), uncompressed.arrayOffset() + uncompressed.position());
+            uncompressed.limit(uncompressed.position() + length);
+            return length;
+        }
+        final byte output[] = new byte[length];
+        Snappy.rawUncompress(input, inputOffset, compressed.remaining(), output, 0);
+        ArrayCompressionCodec.putAndRewind(uncompressed, output, length);
+        return length;
+    }
+
+    @Override
+    public byte[] compress(byte data[], int offset, int length) throws IOException {
+        final byte output[] = new byte[Snappy.maxCompressedLength(length)];
+        final int written = Snappy.rawCompress(data, offset, length, output, 0);
+        final byte result[] = new byte[written];
+        System.arraycopy(output, 0, result, 0, written);
+        return result;
+    }
+
+    @Override
+    public byte[] uncompress(byte data[]) throws IOException {
+        return Snappy.uncompress(data);
+    }
+}
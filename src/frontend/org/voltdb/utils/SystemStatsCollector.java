@@ -17,10 +17,6 @@
 
 package org.voltdb.utils;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
@@ -47,9 +43,10 @@ public class SystemStatsCollector {
     static final long javamaxheapmem = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
     static long memorysize = 256;
     static int pid = 0;
-    static boolean initialized = false;
-    static GetRSSMode mode = GetRSSMode.PS;
+    static volatile boolean initialized = false;
+    static volatile GetRSSMode mode = GetRSSMode.PS;
     static Thread thread = null;
+    static volatile Datum recent = null;
 
     final static ArrayDeque<Datum> historyL = new ArrayDeque<Datum>(); // every hour
     final static ArrayDeque<Datum> historyM = new ArrayDeque<Datum>(); // every minute
@@ -236,17 +233,20 @@ public class SystemStatsCollector {
         Datum d = generateCurrentSample();
         if (d == null)
             return null;
-        historyS.addLast(d);
-        if (historyS.size() > historySize) historyS.removeFirst();
-        if (medium) {
-            historyM.addLast(d);
-            if (historyM.size() > historySize) historyM.removeFirst();
-        }
-        if (large) {
-            historyL.addLast(d);
-            if (historyL.size() > historySize) historyL.removeFirst();
+        synchronized (SystemStatsCollector.class) {
+            historyS.addLast(d);
+            if (historyS.size() > historySize) historyS.removeFirst();
+            if (medium) {
+                historyM.addLast(d);
+                if (historyM.size() > historySize) historyM.removeFirst();
+            }
+            if (large) {
+                historyL.addLast(d);
+                if (historyL.size() > historySize) historyL.removeFirst();
 
+            }
         }
+        recent = d;
         return d;
     }
 
@@ -255,9 +255,17 @@ public class SystemStatsCollector {
      * @param medium Add result to medium set?
      * @param large Add result to large set?
      */
-    public static synchronized void asyncSampleSystemNow(final boolean medium, final boolean large) {
+    public static void asyncSampleSystemNow(final boolean medium, final boolean large) {
+        if (!initialized) initialize();
+
+        // fast mode doesn't spawn a thread
+        if (mode != GetRSSMode.PS) {
+            sampleSystemNow(medium, large);
+            return;
+        }
+
         // slow mode starts an async thread
-        if (mode == GetRSSMode.PS) {
+        synchronized (SystemStatsCollector.class) {
             if (thread != null) {
                 if (thread.isAlive()) return;
                 else thread = null;
@@ -269,20 +277,13 @@ public class SystemStatsCollector {
             });
             thread.start();
         }
-        // fast mode doesn't spawn a thread
-        else {
-            sampleSystemNow(medium, large);
-        }
     }
 
     /**
      * @return The most recently generated Datum.
      */
-    public static synchronized Datum getRecentSample() {
-        if (historyS.isEmpty()) {
-            return null;
-        }
-        return historyS.getLast();
+    public static Datum getRecentSample() {
+        return recent;
     }
 
     /**
@@ -290,38 +291,35 @@ public class SystemStatsCollector {
      * best way to get the RSS on an ongoing basis.
      */
     private static synchronized void initialize() {
+        if (initialized) return;
         PlatformProperties pp = PlatformProperties.getPlatformProperties();
 
         String processName = java.lang.management.ManagementFactory.getRuntimeMXBean().getName();
         String pidString = processName.substring(0, processName.indexOf('@'));
         pid = Integer.valueOf(pidString);
-        initialized = true;
-
-        // get the RSS and other stats from scraping "ps" from the command line
-        PSScraper.PSData psdata = PSScraper.getPSData(pid);
-        assert(psdata.rss > 0);
 
         // figure out how much memory this thing has
         memorysize = pp.ramInMegabytes;
         assert(memorysize > 0);
 
-        // now try to figure out the best way to get the rss size
-        long rss = -1;
-
-        // try the mac method
-        try {
-            rss = ExecutionEngine.nativeGetRSS();
+        // now try to figure out the best way to get the rss size,
+        // procfs first since it doesn't need the native library
+        long rss = getRSSFromProcFS();
+        if (rss > 0) {
+            mode = GetRSSMode.PROCFS;
+        } else {
+            // try the mac method
+            try {
+                rss = ExecutionEngine.nativeGetRSS();
+            }
+            // This catch is broad to specifically include the UnsatisfiedLinkError that arises when
+            // using the hsqldb backend on linux -- along with any other exceptions that might arise.
+            // Otherwise, the hsql backend would get an annoying report to stdout
+            // as the useless stats thread got needlessly killed.
+            catch (Throwable e) { }
+            if (rss > 0) mode = GetRSSMode.MACOSX_NATIVE;
         }
-        // This catch is broad to specifically include the UnsatisfiedLinkError that arises when
-        // using the hsqldb backend on linux -- along with any other exceptions that might arise.
-        // Otherwise, the hsql backend would get an annoying report to stdout
-        // as the useless stats thread got needlessly killed.
-        catch (Throwable e) { }
-        if (rss > 0) mode = GetRSSMode.MACOSX_NATIVE;
-
-        // try procfs
-        rss = getRSSFromProcFS();
-        if (rss > 0) mode = GetRSSMode.PROCFS;
+        initialized = true;
 
         // notify users if stats collection might be slow
         if (mode == GetRSSMode.PS) {
@@ -337,21 +335,7 @@ public class SystemStatsCollector {
      * around, this will return -1;
      */
     private static long getRSSFromProcFS() {
-        try {
-            File statFile = new File(String.format("/proc/%d/stat", pid));
-            FileInputStream fis = new FileInputStream(statFile);
-            try {
-                BufferedReader r = new BufferedReader(new InputStreamReader(fis));
-                String stats = r.readLine();
-                String[] parts = stats.split(" ");
-                return Long.parseLong(parts[23]) * 4 * 1024;
-            } finally {
-                fis.close();
-            }
-        }
-        catch (Exception e) {
-            return -1;
-        }
+        return ProcStatsCollector.instance.readRSS();
     }
 
     public static synchronized long getRSSMB() {
@@ -497,6 +481,19 @@ public class SystemStatsCollector {
         System.out.printf("%.2f ms per procfs read / %d / %d correct\n",
                 per, correct, repeat);
 
+        // test a full procfs sample with per-thread stats for this thread
+        ProcStatsCollector.instance.registerCurrentThread("main");
+        start = System.currentTimeMillis();
+        correct = 0;
+        for (int i = 0; i < repeat; i++) {
+            ProcStatsCollector.Sample sample = ProcStatsCollector.instance.sample();
+            if (sample != null && sample.threads.length == 1) correct++;
+        }
+        duration = System.currentTimeMillis() - start;
+        per = duration / (double) repeat;
+        System.out.printf("%.2f ms per procfs sample / %d / %d correct\n",
+                per, correct, repeat);
+
         // test mac performance
         start = System.currentTimeMillis();
         correct = 0;
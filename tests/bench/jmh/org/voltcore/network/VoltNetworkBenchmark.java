@@ -0,0 +1,138 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Round trips of length prefixed messages over loopback to a VoltNetwork
+ * that echoes each message back, the same framing clients use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoltNetworkBenchmark {
+
+    @Param({"64", "4096"})
+    int messageSize;
+
+    private VoltNetworkPool m_network;
+    private ServerSocketChannel m_listener;
+    private SocketChannel m_client;
+    private ByteBuffer m_request;
+    private ByteBuffer m_response;
+
+    private static class EchoHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            ByteBuffer reply = ByteBuffer.allocate(message.remaining() + 4);
+            reply.putInt(message.remaining());
+            reply.put(message);
+            reply.flip();
+            c.writeStream().enqueue(reply);
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return null;
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return null;
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        m_network = new VoltNetworkPool(1, 0, null, "Benchmark");
+        m_network.start();
+        m_listener = ServerSocketChannel.open();
+        m_listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        m_client = SocketChannel.open(m_listener.getLocalAddress());
+        m_client.socket().setTcpNoDelay(true);
+        SocketChannel server = m_listener.accept();
+        server.socket().setTcpNoDelay(true);
+        m_network.registerChannel(server, new EchoHandler());
+
+        m_request = ByteBuffer.allocateDirect(messageSize + 4);
+        m_request.putInt(messageSize);
+        m_request.clear();
+        m_response = ByteBuffer.allocateDirect(messageSize + 4);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        m_client.close();
+        m_listener.close();
+        m_network.shutdown();
+    }
+
+    @Benchmark
+    public int roundTrip() throws IOException {
+        m_request.clear();
+        while (m_request.hasRemaining()) {
+            m_client.write(m_request);
+        }
+        m_response.clear();
+        while (m_response.hasRemaining()) {
+            if (m_client.read(m_response) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        return m_response.getInt(0);
+    }
+}
@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Initiator style bookkeeping: a window of outstanding transactions keyed by
+ * increasing txn ids, each put, looked up a couple of times and removed in order.
+ * Compares the boxed HashMap the schedulers used against LongHashMap, run with
+ * -Djmh.args="-prof gc" to see the allocation per transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongHashMapBenchmark {
+
+    private static final int TXNS = 1024;
+
+    @Param({"16", "256"})
+    int outstanding;
+
+    private final Object m_value = new Object();
+    private Map<Long, Object> m_boxed;
+    private LongHashMap<Object> m_primitive;
+    private long m_nextTxnId;
+
+    @Setup
+    public void setup() {
+        m_boxed = new HashMap<Long, Object>();
+        m_primitive = new LongHashMap<Object>();
+        // Txn ids carry the partition in the low bits, keep them large and spaced
+        m_nextTxnId = 1L << 40;
+        for (int i = 0; i < outstanding; i++) {
+            m_boxed.put(m_nextTxnId, m_value);
+            m_primitive.put(m_nextTxnId, m_value);
+            m_nextTxnId += 1 << 14;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TXNS)
+    public void boxedHashMap(Blackhole bh) {
+        final long window = outstanding * (1L << 14);
+        for (int i = 0; i < TXNS; i++) {
+            final long txnId = m_nextTxnId;
+            m_nextTxnId += 1 << 14;
+            m_boxed.put(txnId, m_value);
+            bh.consume(m_boxed.get(txnId));
+            bh.consume(m_boxed.get(txnId - window));
+            bh.consume(m_boxed.remove(txnId - window));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TXNS)
+    public void longHashMap(Blackhole bh) {
+        final long window = outstanding * (1L << 14);
+        for (int i = 0; i < TXNS; i++) {
+            final long txnId = m_nextTxnId;
+            m_nextTxnId += 1 << 14;
+            m_primitive.put(txnId, m_value);
+            bh.consume(m_primitive.get(txnId));
+            bh.consume(m_primitive.get(txnId - window));
+            bh.consume(m_primitive.remove(txnId - window));
+        }
+    }
+}
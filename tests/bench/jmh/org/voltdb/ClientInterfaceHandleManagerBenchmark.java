@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.voltcore.network.MockConnection;
+
+/*
+ * Handle bookkeeping for one connection with a window of outstanding
+ * transactions spread over the partitions, answered in order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientInterfaceHandleManagerBenchmark {
+
+    private static final int OUTSTANDING = 256;
+
+    @Param({"1", "16"})
+    int partitions;
+
+    private ClientInterfaceHandleManager m_cihm;
+    private final long m_handles[] = new long[OUTSTANDING];
+
+    @Setup
+    public void setup() {
+        m_cihm = new ClientInterfaceHandleManager(false, new MockConnection(), null, AdmissionControlGroup.getDummy());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OUTSTANDING)
+    public void getAndFind(Blackhole bh) {
+        final long now = System.nanoTime();
+        for (int i = 0; i < OUTSTANDING; i++) {
+            m_handles[i] = m_cihm.getHandle(true, i % partitions, i, 128, now, "Insert", 0, false, false);
+        }
+        for (int i = 0; i < OUTSTANDING; i++) {
+            bh.consume(m_cihm.findHandle(m_handles[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OUTSTANDING)
+    public void getAndRemove(Blackhole bh) {
+        final long now = System.nanoTime();
+        for (int i = 0; i < OUTSTANDING; i++) {
+            m_handles[i] = m_cihm.getHandle(true, i % partitions, i, 128, now, "Insert", 0, true, false);
+        }
+        for (int i = 0; i < OUTSTANDING; i++) {
+            bh.consume(m_cihm.removeHandle(m_handles[i]));
+        }
+    }
+
+    // Single partition reads served locally, tracked by handle rather than per partition
+    @Benchmark
+    @OperationsPerInvocation(OUTSTANDING)
+    public void getAndFindShortCircuit(Blackhole bh) {
+        final long now = System.nanoTime();
+        for (int i = 0; i < OUTSTANDING; i++) {
+            m_handles[i] = m_cihm.getHandle(true, i % partitions, i, 128, now, "Select", 0, true, true);
+        }
+        for (int i = 0; i < OUTSTANDING; i++) {
+            bh.consume(m_cihm.findHandle(m_handles[i]));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.catalog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.VoltType;
+
+/**
+ * Catalog update costs on a large schema: parsing the text and binary
+ * encodings, copying a catalog and diffing a copy with a small change,
+ * which is what every catalog update does on each node.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+
+    private static final int COLUMNS = 10;
+
+    @Param({"5000"})
+    int tables;
+
+    private Catalog m_catalog;
+    private String m_commands;
+    private byte[] m_bytes;
+    private int m_change = 0;
+
+    @Setup
+    public void setup() {
+        m_catalog = buildCatalog(tables);
+        m_commands = m_catalog.serialize();
+        m_bytes = m_catalog.serializeBinary();
+    }
+
+    static Catalog buildCatalog(int tables) {
+        Catalog catalog = new Catalog();
+        Database db = catalog.getClusters().add("cluster").getDatabases().add("database");
+        StringBuilder plan = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            plan.append("eJztV8tyozAQ/BedORjwpmp9U6QJKJYlIonEri2XfiC1");
+        }
+        for (int t = 0; t < tables; t++) {
+            String name = "T" + t;
+            Table table = db.getTables().add(name);
+            table.setSignature(name + "|bivs");
+            for (int c = 0; c < COLUMNS; c++) {
+                Column column = table.getColumns().add("C" + c);
+                column.setIndex(c);
+                column.setName("C" + c);
+                column.setType(VoltType.BIGINT.getValue());
+                column.setSize(8);
+                column.setNullable(c > 0);
+            }
+            Column key = table.getColumns().get("C0");
+            table.setPartitioncolumn(key);
+
+            Index index = table.getIndexes().add(name + "_PK");
+            index.setUnique(true);
+            index.setCountable(true);
+            ColumnRef ref = index.getColumns().add("C0");
+            ref.setColumn(key);
+            ref.setIndex(0);
+
+            Procedure proc = db.getProcedures().add(name + ".insert");
+            proc.setSinglepartition(true);
+            proc.setPartitiontable(table);
+            proc.setPartitioncolumn(key);
+            Statement stmt = proc.getStatements().add("sql");
+            stmt.setSqltext("INSERT INTO " + name + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);");
+            stmt.setTablesupdated(name);
+            PlanFragment fragment = stmt.getFragments().add("0");
+            fragment.setPlannodetree(plan.toString());
+            fragment.setPlanhash(Integer.toHexString(name.hashCode()));
+        }
+        return catalog;
+    }
+
+    @Benchmark
+    public Catalog parseText() {
+        Catalog catalog = new Catalog();
+        catalog.execute(m_commands);
+        return catalog;
+    }
+
+    @Benchmark
+    public Catalog parseBinary() {
+        return Catalog.deserializeBinary(m_bytes);
+    }
+
+    @Benchmark
+    public String serializeText() {
+        return m_catalog.serialize();
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return m_catalog.serializeBinary();
+    }
+
+    /**
+     * Copy and change one table, like CatalogContext.update() applying a diff.
+     */
+    @Benchmark
+    public Catalog copyAndChangeOneTable() {
+        Catalog copy = m_catalog.deepCopy();
+        Table table = copy.getClusters().get("cluster").getDatabases().get("database")
+            .getTables().get("T" + (m_change++ % tables));
+        table.setEstimatedtuplecount(m_change);
+        return copy;
+    }
+
+    /**
+     * Copy every object, what deepCopy() used to cost.
+     */
+    @Benchmark
+    public Catalog copyEverything() {
+        Catalog copy = m_catalog.deepCopy();
+        copy.m_clusters.materializeAll();
+        return copy;
+    }
+
+    @Benchmark
+    public String diffOneTableChange() {
+        Catalog copy = copyAndChangeOneTable();
+        return new CatalogDiffEngine(m_catalog, copy).commands();
+    }
+}
@@ -0,0 +1,116 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Compress and decompress serialized VoltTable blocks the size of a snapshot chunk
+ * with each codec. The compression ratio is printed during setup since JMH only
+ * reports times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionCodecBenchmark {
+
+    @Param({"SNAPPY", "LZ4", "DEFLATE"})
+    String codecName;
+
+    @Param({"2097152"})
+    int blockSize;
+
+    private CompressionCodec m_codec;
+    private ByteBuffer m_block;
+    private ByteBuffer m_compressed;
+    private ByteBuffer m_uncompressed;
+
+    private static VoltTable table(int size) {
+        final Random r = new Random(0);
+        final String names[] = new String[64];
+        for (int ii = 0; ii < names.length; ii++) {
+            names[ii] = "customer name " + r.nextInt(100000);
+        }
+        VoltTable table = new VoltTable(
+                new ColumnInfo("ID", VoltType.BIGINT),
+                new ColumnInfo("NAME", VoltType.STRING),
+                new ColumnInfo("BALANCE", VoltType.FLOAT),
+                new ColumnInfo("UPDATED", VoltType.TIMESTAMP),
+                new ColumnInfo("STATUS", VoltType.TINYINT));
+        long id = 0;
+        long ts = 1420070400000000L;
+        while (table.getSerializedSize() < size) {
+            ts += r.nextInt(1000);
+            table.addRow(id++, names[r.nextInt(names.length)], r.nextInt(100000) / 100.0, ts, r.nextInt(3));
+        }
+        return table;
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        m_codec = CompressionCodec.forName(codecName);
+        final ByteBuffer serialized = table(blockSize).getBuffer();
+        m_block = ByteBuffer.allocateDirect(serialized.remaining());
+        m_block.put(serialized);
+        m_block.flip();
+        m_compressed = ByteBuffer.allocateDirect(m_codec.maxCompressedLength(m_block.remaining()));
+        m_uncompressed = ByteBuffer.allocateDirect(m_block.remaining());
+        final int compressedSize = m_codec.compress(m_block, m_compressed);
+        System.out.printf("%n%s: %d bytes -> %d bytes, ratio %.2f%n",
+                codecName, m_block.remaining(), compressedSize, m_block.remaining() / (double)compressedSize);
+    }
+
+    @Benchmark
+    public int compress() throws IOException {
+        m_compressed.clear();
+        return m_codec.compress(m_block, m_compressed);
+    }
+
+    @Benchmark
+    public int uncompress() throws IOException {
+        m_uncompressed.clear();
+        return m_codec.uncompress(m_compressed, m_uncompressed);
+    }
+}
@@ -0,0 +1,109 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool.BBContainer;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistentBinaryDequeBenchmark {
+
+    private static final int BATCH = 64;
+
+    @Param({"1024", "65536"})
+    int objectSize;
+
+    @Param({"true", "false"})
+    boolean compress;
+
+    private File m_dir;
+    private PersistentBinaryDeque m_pbd;
+    private ByteBuffer m_payload;
+
+    @Setup
+    public void setup() throws IOException {
+        m_dir = Files.createTempDirectory("pbdbench").toFile();
+        m_pbd = new PersistentBinaryDeque("bench", m_dir, new VoltLogger("HOST"));
+        m_payload = ByteBuffer.allocateDirect(objectSize);
+        // half random so compression has something to do
+        Random r = new Random(0);
+        while (m_payload.remaining() >= 16) {
+            m_payload.putLong(r.nextLong());
+            m_payload.putLong(0);
+        }
+        m_payload.clear();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        m_pbd.closeAndDelete();
+        m_dir.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long offerPoll() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            // the deque discards what it is offered, don't let it free the payload
+            m_pbd.offer(new BBContainer(m_payload.duplicate()) {
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                }
+            }, compress);
+        }
+        long bytes = 0;
+        for (int i = 0; i < BATCH; i++) {
+            BBContainer cont = m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            bytes += cont.b().remaining();
+            cont.discard();
+        }
+        return bytes;
+    }
+}
@@ -27,8 +27,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
@@ -168,4 +171,135 @@ public class TestHostMessenger {
         hm3.waitForGroupJoin(2);
     }
 
+    @Test
+    public void testBatchedMessages() throws Exception {
+        HostMessenger hm1 = createHostMessenger(0, StartAction.CREATE);
+        final HostMessenger hm2 = createHostMessenger(1, StartAction.CREATE, false);
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        Thread hm2Start = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    hm2.start();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    exception.set(e);
+                }
+            }
+        };
+        hm2Start.start();
+        hm2Start.join();
+        if (exception.get() != null) {
+            fail(exception.get().toString());
+        }
+        hm1.waitForGroupJoin(2);
+
+        Mailbox sender = hm1.createMailbox();
+        Mailbox r1 = hm2.createMailbox();
+        Mailbox r2 = hm2.createMailbox();
+
+        // Runs of messages to the same destinations share a route in a batch,
+        // switching destinations and sending to both forces new routes.
+        final int messageCount = 20000;
+        for (int ii = 0; ii < messageCount; ii++) {
+            byte payload[] = new byte[] { (byte)ii, (byte)(ii >> 8), (byte)(ii >> 16) };
+            BinaryPayloadMessage message = new BinaryPayloadMessage(new byte[0], payload);
+            if (ii % 100 == 0) {
+                sender.send(new long[] { r1.getHSId(), r2.getHSId() }, message);
+            } else {
+                sender.send((ii / 10) % 2 == 0 ? r1.getHSId() : r2.getHSId(), message);
+            }
+        }
+
+        for (int ii = 0; ii < messageCount; ii++) {
+            final boolean toR1 = ii % 100 == 0 || (ii / 10) % 2 == 0;
+            final boolean toR2 = ii % 100 == 0 || (ii / 10) % 2 == 1;
+            if (toR1) {
+                checkPayload((BinaryPayloadMessage)r1.recvBlocking(10000), ii, sender.getHSId());
+            }
+            if (toR2) {
+                checkPayload((BinaryPayloadMessage)r2.recvBlocking(10000), ii, sender.getHSId());
+            }
+        }
+        assertEquals(null, r1.recv());
+        assertEquals(null, r2.recv());
+    }
+
+    /*
+     * A burst of large messages sent while the network thread is busy adds up to more
+     * than a receiver accepts in one frame, batches have to be sealed along the way
+     * for it to arrive.
+     */
+    @Test
+    public void testBatchesSealedUnderFrameLimit() throws Exception {
+        HostMessenger hm1 = createHostMessenger(0, StartAction.CREATE);
+        final HostMessenger hm2 = createHostMessenger(1, StartAction.CREATE, false);
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        Thread hm2Start = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    hm2.start();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    exception.set(e);
+                }
+            }
+        };
+        hm2Start.start();
+        hm2Start.join();
+        if (exception.get() != null) {
+            fail(exception.get().toString());
+        }
+        hm1.waitForGroupJoin(2);
+
+        Mailbox sender = hm1.createMailbox();
+        Mailbox receiver = hm2.createMailbox();
+
+        // Hold the sending network thread in the middle of writing a message
+        final CountDownLatch flattening = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        BinaryPayloadMessage stall = new BinaryPayloadMessage(new byte[0], new byte[3]) {
+            @Override
+            public void flattenToBuffer(ByteBuffer buf) {
+                flattening.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                super.flattenToBuffer(buf);
+            }
+        };
+        sender.send(receiver.getHSId(), stall);
+        assertTrue(flattening.await(10, TimeUnit.SECONDS));
+
+        final int payloadSize = ForeignHost.BATCH_MAX_BYTES / 3 * 2;
+        final int messageCount = (60 * 1024 * 1024) / payloadSize + 1;
+        for (int ii = 1; ii <= messageCount; ii++) {
+            byte payload[] = new byte[payloadSize];
+            payload[0] = (byte)ii;
+            payload[1] = (byte)(ii >> 8);
+            payload[2] = (byte)(ii >> 16);
+            sender.send(receiver.getHSId(), new BinaryPayloadMessage(new byte[0], payload));
+        }
+        release.countDown();
+
+        checkPayload((BinaryPayloadMessage)receiver.recvBlocking(10000), 0, sender.getHSId());
+        for (int ii = 1; ii <= messageCount; ii++) {
+            BinaryPayloadMessage message = (BinaryPayloadMessage)receiver.recvBlocking(10000);
+            checkPayload(message, ii, sender.getHSId());
+            assertEquals(payloadSize, message.m_payload.length);
+        }
+        assertEquals(null, receiver.recv());
+    }
+
+    private static void checkPayload(BinaryPayloadMessage message, int expected, long source) {
+        assertTrue(message != null);
+        assertEquals(source, message.m_sourceHSId);
+        final int value = (message.m_payload[0] & 0xff) | ((message.m_payload[1] & 0xff) << 8) |
+                ((message.m_payload[2] & 0xff) << 16);
+        assertEquals(expected, value);
+    }
+
 }
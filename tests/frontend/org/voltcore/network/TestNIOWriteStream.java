@@ -61,8 +61,13 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.TestCase;
 
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.EstTimeUpdater;
+import org.voltcore.utils.GatheringDeferredSerialization;
+import org.voltcore.utils.SharedDirectBufferPool;
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
 import org.voltdb.AdmissionControlGroup;
 
 public class TestNIOWriteStream extends TestCase {
@@ -121,6 +126,7 @@ public class TestNIOWriteStream extends TestCase {
         private boolean didOversizeWrite = false;
         private boolean wrotePartial = false;
         public boolean m_open = true;
+        public int gatheringWrites = 0;
 
         public int m_behavior;
         public static int SINK = 0;     // accept all data
@@ -203,8 +209,33 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            if (!m_open) throw new IOException();
+            if (closeAfter > 0 && ++writeCount >= closeAfter) {
+                m_open = false;
+            }
+            gatheringWrites++;
+
+            if (m_behavior == SINK) {
+                // like a socket that only has room for the first buffer
+                int remaining = srcs[offset].remaining();
+                srcs[offset].position(srcs[offset].limit());
+                return remaining;
+            }
+            else if (m_behavior == FULL) {
+                return 0;
+            }
+            else if (m_behavior == PARTIAL) {
+                if (wrotePartial) {
+                    return 0;
+                } else {
+                    wrotePartial = true;
+                }
+                int half = srcs[offset].remaining() / 2;
+                srcs[offset].position(srcs[offset].position() + half);
+                return half;
+            }
+            assert(false);
+            return -1;
         }
     }
 
@@ -389,6 +420,74 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    private static GatheringDeferredSerialization gatheringMessage(final SharedBuffer pooled) {
+        return new GatheringDeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer buf) {
+                fail();
+            }
+
+            @Override
+            public void cancel() {}
+
+            @Override
+            public int getSerializedSize() {
+                return 3 + 100 + 2;
+            }
+
+            @Override
+            public BBContainer[] serializeToContainers() {
+                ByteBuffer region = pooled.b().duplicate();
+                region.limit(100);
+                return new BBContainer[] {
+                        DBBPool.wrapBB(ByteBuffer.wrap(new byte[] { 1, 2, 3 })),
+                        pooled.containerFor(region.slice()),
+                        DBBPool.wrapBB(ByteBuffer.wrap(new byte[] { 4, 5 })) };
+            }
+        };
+    }
+
+    public void testGatheringSerialization() throws IOException {
+        SharedDirectBufferPool bufferPool = new SharedDirectBufferPool(1);
+        SharedBuffer pooled = bufferPool.acquire(100);
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        wstream.enqueue(gatheringMessage(pooled));
+        assertTrue(port.checkWriteSet());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(105, wstream.drainTo(channel));
+        assertTrue(channel.gatheringWrites > 0);
+        assertTrue(wstream.isEmpty());
+        // the pooled buffer went straight to the channel and was released once written
+        assertEquals(0, pooled.refCount());
+        wstream.shutdown();
+    }
+
+    public void testPartialGatheringWrite() throws IOException {
+        SharedDirectBufferPool bufferPool = new SharedDirectBufferPool(1);
+        SharedBuffer pooled = bufferPool.acquire(100);
+        MockChannel channel = new MockChannel(MockChannel.PARTIAL, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        wstream.enqueue(gatheringMessage(pooled));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        int wrote = wstream.drainTo(channel);
+        assertEquals(1, wrote);
+        assertFalse(wstream.isEmpty());
+        assertEquals(1, pooled.refCount());
+
+        // buffers the first write didn't reach must still be intact
+        channel.m_behavior = MockChannel.SINK;
+        wrote += wstream.drainTo(channel);
+        assertEquals(105, wrote);
+        assertTrue(wstream.isEmpty());
+        assertEquals(0, pooled.refCount());
+        wstream.shutdown();
+    }
+
     public void testLastWriteDelta() throws Exception {
         EstTimeUpdater.pause = true;
         Thread.sleep(10);
@@ -0,0 +1,116 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestConcurrentLongHashMap extends TestCase {
+
+    public void testPutGetRemove() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<String>(4, 0);
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-1, "minus one"));
+        assertNull(map.put(Long.MAX_VALUE, "max"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals(3, map.size());
+        assertEquals("uno", map.get(1));
+        assertEquals("minus one", map.get(-1));
+        assertTrue(map.containsKey(Long.MAX_VALUE));
+        assertFalse(map.containsKey(2));
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals(2, map.size());
+
+        long keys[] = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new long[] { -1, Long.MAX_VALUE }, keys));
+
+        try {
+            map.put(5, null);
+            fail();
+        } catch (NullPointerException expected) {}
+    }
+
+    /*
+     * Compare against a HashMap through growth and many removes, which exercises
+     * the backward shift deletion across wrapped probe runs
+     */
+    public void testRandomOperations() {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(2, 0);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        Random r = new Random(42);
+        for (int ii = 0; ii < 200000; ii++) {
+            final long key = r.nextInt(2000);
+            if (r.nextBoolean()) {
+                assertEquals(expected.put(key, (long)ii), map.put(key, (long)ii));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    public void testConcurrentSequentialHandles() throws Exception {
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread threads[] = new Thread[4];
+        for (int tt = 0; tt < threads.length; tt++) {
+            final long base = tt * 1000000L;
+            threads[tt] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (long handle = base; handle < base + 50000; handle++) {
+                            map.put(handle, handle);
+                            if (handle - 100 >= base) {
+                                assertEquals(Long.valueOf(handle - 100), map.remove(handle - 100));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            };
+            threads[tt].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+        assertEquals(threads.length * 100, map.size());
+    }
+}
@@ -0,0 +1,123 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+public class TestHashedWheelTimer extends TestCase {
+
+    private static class LatchTimeout extends HashedWheelTimer.Timeout {
+        final long m_scheduledNanos = System.nanoTime();
+        final long m_delayNanos;
+        final CountDownLatch m_latch;
+        final AtomicLong m_earliest;
+
+        LatchTimeout(long delayNanos, CountDownLatch latch, AtomicLong earliest) {
+            m_delayNanos = delayNanos;
+            m_latch = latch;
+            m_earliest = earliest;
+        }
+
+        @Override
+        protected void expire(long nowNanos) {
+            final long early = (m_scheduledNanos + m_delayNanos) - System.nanoTime();
+            if (early > m_earliest.get()) {
+                m_earliest.set(early);
+            }
+            m_latch.countDown();
+        }
+    }
+
+    public void testExpiresNoEarlierThanDeadline() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test timer", TimeUnit.MILLISECONDS.toNanos(1), 16);
+        timer.start();
+        try {
+            final int count = 1000;
+            final CountDownLatch latch = new CountDownLatch(count);
+            final AtomicLong earliest = new AtomicLong(Long.MIN_VALUE);
+            for (int ii = 0; ii < count; ii++) {
+                // up to 50ms, several revolutions of a 16 slot wheel
+                timer.schedule(new LatchTimeout(TimeUnit.MICROSECONDS.toNanos(ii * 50), latch, earliest),
+                        TimeUnit.MICROSECONDS.toNanos(ii * 50));
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertTrue(earliest.get() <= 0);
+            assertTrue(timer.getMaxTickLagNanos() >= 0);
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    public void testWakesFromIdle() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test timer", TimeUnit.MILLISECONDS.toNanos(1), 1024);
+        timer.start();
+        try {
+            final AtomicInteger expired = new AtomicInteger();
+            for (int round = 0; round < 3; round++) {
+                final CountDownLatch latch = new CountDownLatch(1);
+                timer.schedule(new HashedWheelTimer.Timeout() {
+                    @Override
+                    protected void expire(long nowNanos) {
+                        expired.incrementAndGet();
+                        latch.countDown();
+                    }
+                }, 0);
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+                // let the timer go idle again
+                Thread.sleep(20);
+            }
+            assertEquals(3, expired.get());
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    public void testExceptionInCallbackDoesNotStopTimer() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test timer", TimeUnit.MILLISECONDS.toNanos(1), 64);
+        timer.start();
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(new HashedWheelTimer.Timeout() {
+                @Override
+                protected void expire(long nowNanos) {
+                    throw new RuntimeException("expected");
+                }
+            }, 0);
+            timer.schedule(new HashedWheelTimer.Timeout() {
+                @Override
+                protected void expire(long nowNanos) {
+                    latch.countDown();
+                }
+            }, TimeUnit.MILLISECONDS.toNanos(5));
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            timer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class TestLongHashMap extends TestCase {
+
+    public void testPutGetRemove() {
+        LongHashMap<String> map = new LongHashMap<String>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-1, "minus one"));
+        assertNull(map.put(Long.MIN_VALUE, "min"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals(3, map.size());
+        assertEquals("uno", map.get(1));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertTrue(map.containsKey(-1));
+        assertFalse(map.containsKey(0));
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertEquals(2, map.size());
+
+        long keys[] = map.keys();
+        Arrays.sort(keys);
+        assertTrue(Arrays.equals(new long[] { Long.MIN_VALUE, -1 }, keys));
+        assertEquals(2, map.values().size());
+        assertTrue(map.values().contains("minus one"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(-1));
+        assertEquals(0, map.keys().length);
+
+        try {
+            map.put(5, null);
+            fail();
+        } catch (NullPointerException expected) {}
+    }
+
+    /*
+     * Txn ids and handles are sequential with the partition in the low bits, slide
+     * a window over them the way the schedulers do while the table grows
+     */
+    public void testSlidingWindowOfTxnIds() {
+        LongHashMap<Long> map = new LongHashMap<Long>();
+        final long step = 1 << 14;
+        final long base = (1L << 40) + 3;
+        for (long ii = 0; ii < 100000; ii++) {
+            final long txnId = base + ii * step;
+            assertNull(map.put(txnId, ii));
+            if (ii >= 300) {
+                assertEquals(Long.valueOf(ii - 300), map.remove(txnId - 300 * step));
+            }
+        }
+        assertEquals(300, map.size());
+        for (long ii = 100000 - 300; ii < 100000; ii++) {
+            assertEquals(Long.valueOf(ii), map.get(base + ii * step));
+        }
+    }
+
+    public void testRandomOperations() {
+        LongHashMap<Long> map = new LongHashMap<Long>(0);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        Random r = new Random(7);
+        for (int ii = 0; ii < 200000; ii++) {
+            final long key = r.nextInt(1000);
+            if (r.nextBoolean()) {
+                assertEquals(expected.put(key, (long)ii), map.put(key, (long)ii));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        // Removing while walking the key snapshot
+        for (long key : map.keys()) {
+            assertEquals(expected.remove(key), map.remove(key));
+        }
+        assertTrue(map.isEmpty());
+        assertTrue(expected.isEmpty());
+    }
+}
@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
+
+public class TestSharedDirectBufferPool extends TestCase {
+
+    public void testSizeClasses() {
+        SharedDirectBufferPool pool = new SharedDirectBufferPool(4);
+        SharedBuffer small = pool.acquire(10);
+        assertTrue(small.b().isDirect());
+        assertEquals(0, small.b().position());
+        assertEquals(10, small.b().limit());
+        assertEquals(1 << 16, small.b().capacity());
+
+        SharedBuffer odd = pool.acquire((1 << 17) + 1);
+        assertEquals(1 << 18, odd.b().capacity());
+
+        // too big to pool, allocated to size
+        SharedBuffer huge = pool.acquire((1 << 24) + 1);
+        assertEquals((1 << 24) + 1, huge.b().capacity());
+        small.release();
+        odd.release();
+        huge.release();
+        assertEquals(3, pool.getAllocationCount());
+    }
+
+    public void testReuseAfterLastRelease() {
+        SharedDirectBufferPool pool = new SharedDirectBufferPool(4);
+        SharedBuffer buffer = pool.acquire(100);
+        ByteBuffer b = buffer.b();
+        buffer.retain();
+        buffer.retain();
+        assertEquals(3, buffer.refCount());
+
+        buffer.release();
+        buffer.release();
+        // still referenced, a new buffer has to be allocated
+        SharedBuffer other = pool.acquire(100);
+        assertNotSame(b, other.b());
+        assertEquals(2, pool.getAllocationCount());
+
+        buffer.release();
+        assertEquals(0, buffer.refCount());
+        SharedBuffer reused = pool.acquire(200);
+        assertSame(b, reused.b());
+        assertEquals(200, reused.b().limit());
+        assertEquals(1, pool.getReuseCount());
+        other.release();
+        reused.release();
+    }
+
+    public void testContainerReleasesReference() {
+        SharedDirectBufferPool pool = new SharedDirectBufferPool(4);
+        SharedBuffer buffer = pool.acquire(100);
+        ByteBuffer region = buffer.b().duplicate();
+        region.limit(50);
+        BBContainer cont = buffer.retain().containerFor(region.slice());
+        assertEquals(50, cont.b().remaining());
+        buffer.release();
+        assertEquals(1, buffer.refCount());
+        cont.discard();
+        assertEquals(0, buffer.refCount());
+        assertSame(buffer.b(), pool.acquire(100).b());
+    }
+
+    public void testPoolIsBounded() {
+        SharedDirectBufferPool pool = new SharedDirectBufferPool(1);
+        SharedBuffer first = pool.acquire(100);
+        SharedBuffer second = pool.acquire(100);
+        first.release();
+        second.release();
+        pool.acquire(100);
+        pool.acquire(100);
+        assertEquals(1, pool.getReuseCount());
+        assertEquals(3, pool.getAllocationCount());
+    }
+}
@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+public class TestThreadLocalDBBPool extends TestCase {
+
+    public void testSizeClasses() {
+        ThreadLocalDBBPool pool = new ThreadLocalDBBPool(1024 * 1024);
+        BBContainer c = pool.acquire(1);
+        assertEquals(256, c.b().capacity());
+        assertEquals(1, c.b().limit());
+        assertTrue(c.b().isDirect());
+        c.discard();
+
+        c = pool.acquire(257);
+        assertEquals(512, c.b().capacity());
+        c.discard();
+
+        c = pool.acquire(128 * 1024);
+        assertEquals(128 * 1024, c.b().capacity());
+        c.discard();
+
+        // too large to pool, allocated with the exact size
+        c = pool.acquire(128 * 1024 + 1);
+        assertEquals(128 * 1024 + 1, c.b().capacity());
+        c.discard();
+    }
+
+    public void testReuseOnOwningThread() {
+        ThreadLocalDBBPool pool = new ThreadLocalDBBPool(1024 * 1024);
+        final long outstanding = ThreadLocalDBBPool.getOutstandingBytes();
+        BBContainer c = pool.acquire(1000);
+        ByteBuffer first = c.b();
+        assertEquals(outstanding + 1024, ThreadLocalDBBPool.getOutstandingBytes());
+        c.discard();
+        assertEquals(outstanding, ThreadLocalDBBPool.getOutstandingBytes());
+
+        final long hits = ThreadLocalDBBPool.getHitCount();
+        c = pool.acquire(600);
+        assertSame(first, c.b());
+        assertEquals(0, c.b().position());
+        assertEquals(600, c.b().limit());
+        assertEquals(hits + 1, ThreadLocalDBBPool.getHitCount());
+        c.discard();
+    }
+
+    public void testReturnFromOtherThread() throws Exception {
+        ThreadLocalDBBPool pool = new ThreadLocalDBBPool(1024 * 1024);
+        final BBContainer c = pool.acquire(4096);
+        ByteBuffer first = c.b();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                c.discard();
+            }
+        };
+        t.start();
+        t.join();
+
+        BBContainer again = pool.acquire(4096);
+        assertSame(first, again.b());
+        again.discard();
+    }
+
+    public void testPooledBytesLimit() throws Exception {
+        ThreadLocalDBBPool pool = new ThreadLocalDBBPool(1024);
+        BBContainer a = pool.acquire(1024);
+        BBContainer b = pool.acquire(1024);
+        ByteBuffer first = a.b();
+        a.discard();
+        // over the limit, dropped instead of pooled
+        b.discard();
+        BBContainer c = pool.acquire(1024);
+        BBContainer d = pool.acquire(1024);
+        assertSame(first, c.b());
+        assertNotSame(first, d.b());
+        c.discard();
+        d.discard();
+
+        final AtomicReference<BBContainer> other = new AtomicReference<BBContainer>();
+        final BBContainer e = pool.acquire(1024);
+        final BBContainer f = pool.acquire(1024);
+        ByteBuffer returned = e.b();
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                e.discard();
+                f.discard();
+                other.set(ThreadLocalDBBPool.allocate(1024));
+            }
+        };
+        t.start();
+        t.join();
+        // the other thread has a pool of its own
+        assertNotSame(returned, other.get().b());
+        other.get().discard();
+        // only the buffer within the limit made it back to the owner
+        BBContainer g = pool.acquire(1024);
+        BBContainer h = pool.acquire(1024);
+        assertSame(returned, g.b());
+        assertNotSame(returned, h.b());
+        g.discard();
+        h.discard();
+    }
+}
@@ -0,0 +1,153 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.SharedDirectBufferPool;
+import org.voltcore.utils.SharedDirectBufferPool.SharedBuffer;
+import org.voltdb.client.ClientResponse;
+
+/**
+ * Measures the bytes copied and the time taken to get result tables from the EE's
+ * output buffer into buffers that can be written to a client socket, with tables
+ * copied to the heap (the default) and with tables copied to pooled direct buffers
+ * (EE_DIRECT_RESULT_THRESHOLD). Mirrors what ExecutionEngineJNI and the client
+ * interface's response serialization do, without needing a server.
+ *
+ * Usage: ResultCopyMicrobench [rows per table] [tables per response] [iterations]
+ */
+public class ResultCopyMicrobench {
+
+    private static long m_bytesCopied = 0;
+
+    static ByteBuffer eeOutput(int rowsPerTable, int tableCount) {
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("VALUE", VoltType.FLOAT));
+        for (int i = 0; i < rowsPerTable; i++) {
+            table.addRow(i, "name of row " + i, i * 1.5);
+        }
+        ByteBuffer tableData = PrivateVoltTableFactory.getTableDataReference(table);
+        ByteBuffer output = ByteBuffer.allocateDirect(tableCount * (tableData.remaining() + 12));
+        for (int i = 0; i < tableCount; i++) {
+            output.putInt(1);
+            output.putInt(i);
+            output.putInt(tableData.remaining());
+            output.put(tableData.duplicate());
+        }
+        output.flip();
+        return output;
+    }
+
+    static VoltTable[] heapResults(ByteBuffer eeOutput, int tableCount) {
+        byte data[] = new byte[eeOutput.remaining()];
+        eeOutput.duplicate().get(data);
+        m_bytesCopied += data.length;
+        ByteBuffer fullBacking = ByteBuffer.wrap(data);
+        VoltTable results[] = new VoltTable[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(nextTable(fullBacking), true);
+        }
+        return results;
+    }
+
+    static VoltTable[] pooledResults(SharedDirectBufferPool pool, ByteBuffer eeOutput, int tableCount) {
+        SharedBuffer pooled = pool.acquire(eeOutput.remaining());
+        ByteBuffer fullBacking = pooled.b();
+        fullBacking.put(eeOutput.duplicate());
+        fullBacking.flip();
+        m_bytesCopied += fullBacking.remaining();
+        VoltTable results[] = new VoltTable[tableCount];
+        for (int i = 0; i < tableCount; i++) {
+            results[i] = PrivateVoltTableFactory.createVoltTableFromPooledBuffer(nextTable(fullBacking), pooled.retain());
+        }
+        pooled.release();
+        return results;
+    }
+
+    private static ByteBuffer nextTable(ByteBuffer fullBacking) {
+        fullBacking.getInt();
+        fullBacking.getInt();
+        final int tableSize = fullBacking.getInt();
+        final ByteBuffer tableBacking = fullBacking.slice();
+        fullBacking.position(fullBacking.position() + tableSize);
+        tableBacking.limit(tableSize);
+        return tableBacking;
+    }
+
+    static void writeResponse(VoltTable results[], ByteBuffer networkBuffer) {
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, results, null, 42);
+        final int size = response.getSerializedSize() + 4;
+        BBContainer containers[] = response.flattenToContainers(true);
+        if (containers == null) {
+            networkBuffer.clear();
+            networkBuffer.putInt(size - 4);
+            response.flattenToBuffer(networkBuffer);
+            m_bytesCopied += size;
+            return;
+        }
+        // only heap segments get copied into network buffers, direct ones go to the socket
+        for (BBContainer cont : containers) {
+            if (!cont.b().isDirect()) {
+                networkBuffer.clear();
+                networkBuffer.put(cont.b());
+                m_bytesCopied += cont.b().limit();
+            }
+            cont.discard();
+        }
+    }
+
+    private static void run(String name, boolean pooled, ByteBuffer eeOutput, int tableCount, int iterations) {
+        SharedDirectBufferPool pool = new SharedDirectBufferPool(4);
+        ByteBuffer networkBuffer = ByteBuffer.allocateDirect(eeOutput.remaining() + 1024);
+        for (int warmup = 0; warmup < 2; warmup++) {
+            m_bytesCopied = 0;
+            final long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                VoltTable results[] = pooled ?
+                        pooledResults(pool, eeOutput, tableCount) : heapResults(eeOutput, tableCount);
+                writeResponse(results, networkBuffer);
+            }
+            final long elapsed = System.nanoTime() - start;
+            if (warmup == 1) {
+                System.out.printf("%-8s %12d bytes copied/response %10.1f us/response%n",
+                        name, m_bytesCopied / iterations, elapsed / 1000.0 / iterations);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        final int rowsPerTable = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int tableCount = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        ByteBuffer eeOutput = eeOutput(rowsPerTable, tableCount);
+        System.out.println("Result region is " + eeOutput.remaining() + " bytes in " + tableCount + " tables");
+        run("heap", false, eeOutput, tableCount, iterations);
+        run("pooled", true, eeOutput, tableCount, iterations);
+    }
+}
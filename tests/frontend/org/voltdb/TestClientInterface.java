@@ -555,6 +555,36 @@ public class TestClientInterface {
         when(m_volt.getMode()).thenReturn(OperationMode.RUNNING);
     }
 
+    @Test
+    public void testInternalClientSession() throws Exception {
+        InternalClientSession session = m_ci.createInternalClientSession("", false, "test");
+        final LinkedTransferQueue<ClientResponse> sessionResponses = new LinkedTransferQueue<ClientResponse>();
+        SimpleClientResponseAdapter.Callback cb = new SimpleClientResponseAdapter.Callback() {
+            @Override
+            public void handleResponse(ClientResponse response) {
+                sessionResponses.offer(response);
+            }
+        };
+
+        // goes straight to the partition master, no response yet
+        assertTrue(session.callProcedure(cb, 1000, "hello", 1));
+        checkInitMsgSent("hello", 1, true, true);
+        assertTrue(sessionResponses.isEmpty());
+
+        // errors from handleRead come back through the callback
+        assertTrue(session.callProcedure(cb, 1000, "hellooooo", 1));
+        ClientResponse resp = sessionResponses.poll();
+        assertNotNull(resp);
+        assertEquals(ClientResponse.UNEXPECTED_FAILURE, resp.getStatus());
+
+        // admin procedures need an admin session
+        assertTrue(session.callProcedure(cb, 1000, "@Pause"));
+        assertEquals(ClientResponse.UNEXPECTED_FAILURE, sessionResponses.poll().getStatus());
+
+        session.close();
+        assertFalse(session.callProcedure(cb, 1000, "hello", 1));
+    }
+
     @Test
     public void testInvalidProcedure() throws IOException {
         ByteBuffer msg = createMsg("hellooooo", 1);
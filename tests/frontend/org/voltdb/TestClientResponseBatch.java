@@ -0,0 +1,131 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.voltcore.network.Connection;
+import org.voltcore.network.WriteStream;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.GatheringDeferredSerialization;
+
+public class TestClientResponseBatch {
+
+    /** A length prefixed response holding a single int */
+    static class FakeResponse implements GatheringDeferredSerialization {
+        final int m_value;
+        final boolean m_empty;
+
+        FakeResponse(int value, boolean empty) {
+            m_value = value;
+            m_empty = empty;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            buf.putInt(buf.capacity() - 4);
+            buf.putInt(m_value);
+        }
+
+        @Override
+        public BBContainer[] serializeToContainers() {
+            return null;
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_empty ? DeferredSerialization.EMPTY_MESSAGE_LENGTH : 8;
+        }
+    }
+
+    WriteStream m_writeStream;
+    ClientInterfaceHandleManager m_cihm;
+
+    @Before
+    public void setUp() {
+        Connection connection = mock(Connection.class);
+        m_writeStream = mock(WriteStream.class);
+        doReturn(m_writeStream).when(connection).writeStream();
+        m_cihm = new ClientInterfaceHandleManager(false, connection, null, AdmissionControlGroup.getDummy());
+    }
+
+    @Test
+    public void testResponsesShareOneEnqueue() throws Exception {
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(1, false));
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(2, true));
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(3, false));
+
+        ArgumentCaptor<DeferredSerialization> captor = ArgumentCaptor.forClass(DeferredSerialization.class);
+        verify(m_writeStream, times(1)).fastEnqueue(captor.capture());
+        DeferredSerialization ds = captor.getValue();
+
+        // the empty response is skipped
+        assertEquals(16, ds.getSerializedSize());
+        assertNull(((GatheringDeferredSerialization)ds).serializeToContainers());
+        ByteBuffer buf = ByteBuffer.allocate(16);
+        ds.serialize(buf);
+        buf.flip();
+        assertEquals(4, buf.getInt());
+        assertEquals(1, buf.getInt());
+        assertEquals(4, buf.getInt());
+        assertEquals(3, buf.getInt());
+    }
+
+    @Test
+    public void testSealedBatchStartsANewOne() throws Exception {
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(1, false));
+        ArgumentCaptor<DeferredSerialization> captor = ArgumentCaptor.forClass(DeferredSerialization.class);
+        verify(m_writeStream, times(1)).fastEnqueue(captor.capture());
+        // the network thread picks it up
+        assertEquals(8, captor.getValue().getSerializedSize());
+
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(2, false));
+        verify(m_writeStream, times(2)).fastEnqueue(captor.capture());
+        assertNotSame(captor.getAllValues().get(0), captor.getAllValues().get(2));
+        assertEquals(8, captor.getAllValues().get(2).getSerializedSize());
+    }
+
+    @Test
+    public void testAllEmpty() throws Exception {
+        ClientResponseBatch.deliver(m_cihm, new FakeResponse(1, true));
+        ArgumentCaptor<DeferredSerialization> captor = ArgumentCaptor.forClass(DeferredSerialization.class);
+        verify(m_writeStream).fastEnqueue(captor.capture());
+        assertEquals(DeferredSerialization.EMPTY_MESSAGE_LENGTH, captor.getValue().getSerializedSize());
+    }
+}
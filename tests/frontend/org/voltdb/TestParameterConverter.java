@@ -26,6 +26,7 @@ package org.voltdb;
 
 import junit.framework.TestCase;
 
+import org.voltdb.common.Constants;
 import org.voltdb.types.TimestampType;
 import org.voltdb.utils.Encoder;
 
@@ -144,4 +145,23 @@ public class TestParameterConverter extends TestCase
         assertEquals(null, ParameterConverter.tryToMakeCompatible(String.class, VoltType.NULL_STRING_OR_VARBINARY));
         assertEquals(null, ParameterConverter.tryToMakeCompatible(BigDecimal.class, VoltType.NULL_DECIMAL));
     }
+
+    public void testPassThrough()
+    {
+        // values that tryToMakeCompatible would return unchanged skip it
+        assertTrue(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(long.class), 5L));
+        assertTrue(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(int.class), 5));
+        assertTrue(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(double.class), 5.0));
+        assertTrue(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(String.class), "abc"));
+        assertTrue(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(byte[].class), new byte[1]));
+        assertEquals(5L, ParameterConverter.tryToMakeCompatible(long.class, 5L));
+
+        // anything needing a conversion or a null substitution does not
+        assertFalse(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(long.class), 5));
+        assertFalse(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(int.class), "5"));
+        assertFalse(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(long.class), null));
+        assertFalse(ParameterConverter.passesThrough(ParameterConverter.passThroughClassFor(String.class), Constants.CSV_NULL));
+        assertNull(ParameterConverter.passThroughClassFor(TimestampType.class));
+        assertFalse(ParameterConverter.passesThrough(null, new TimestampType(0)));
+    }
 }
@@ -0,0 +1,130 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Procedure;
+
+public class TestProcedureLatencyStats extends TestCase {
+
+    private static Procedure makeProcedure() {
+        Catalog catalog = new Catalog();
+        catalog.execute("add / clusters cluster\n" +
+                        "add /clusters#cluster databases database\n" +
+                        "add /clusters#cluster/databases#database procedures TestProc\n");
+        Procedure proc = catalog.getClusters().get("cluster").getDatabases().get("database").getProcedures().get("TestProc");
+        proc.setClassname("org.voltdb.TestProc");
+        return proc;
+    }
+
+    private static VoltTable getStats(ProcedureLatencyStats stats, boolean interval) {
+        ArrayList<ColumnInfo> columns = stats.getColumnSchema();
+        VoltTable table = new VoltTable(columns.toArray(new ColumnInfo[columns.size()]));
+        for (Object[] row : stats.getStatsRows(interval, System.currentTimeMillis())) {
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    private static void assertApprox(long expected, long actual) {
+        // histograms keep two significant digits
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(expected - actual) <= expected / 50);
+    }
+
+    public void testPercentiles() {
+        ProcedureLatencyStats stats = new ProcedureLatencyStats(0, 3, makeProcedure());
+        // nothing recorded yet, no row
+        assertEquals(0, getStats(stats, false).getRowCount());
+
+        // 1..1000 us of execution, 10x that of queue wait
+        for (int i = 1; i <= 1000; i++) {
+            stats.recordInvocation(i * 1000L, i * 10000L);
+        }
+        VoltTable table = getStats(stats, false);
+        assertEquals(1, table.getRowCount());
+        table.advanceRow();
+        assertEquals(3, table.getLong("PARTITION_ID"));
+        assertEquals("org.voltdb.TestProc", table.getString("PROCEDURE"));
+        assertEquals(1000, table.getLong("INVOCATIONS"));
+        assertApprox(500000, table.getLong("EXECUTION_P50"));
+        assertApprox(950000, table.getLong("EXECUTION_P95"));
+        assertApprox(990000, table.getLong("EXECUTION_P99"));
+        assertApprox(999000, table.getLong("EXECUTION_P999"));
+        assertApprox(1000000, table.getLong("EXECUTION_MAX"));
+        assertApprox(5000000, table.getLong("QUEUE_WAIT_P50"));
+        assertApprox(9900000, table.getLong("QUEUE_WAIT_P99"));
+    }
+
+    public void testRecordingStartsWithFirstRequest() {
+        ProcedureLatencyStats stats = new ProcedureLatencyStats(0, 0, makeProcedure());
+        // no histograms until someone asks, invocations before that aren't counted
+        stats.recordInvocation(1000000L, 1000L);
+        assertEquals(0, getStats(stats, false).getRowCount());
+
+        stats.recordInvocation(2000000L, 1000L);
+        VoltTable table = getStats(stats, false);
+        table.advanceRow();
+        assertEquals(1, table.getLong("INVOCATIONS"));
+        assertApprox(2000000, table.getLong("EXECUTION_MAX"));
+    }
+
+    public void testInterval() {
+        ProcedureLatencyStats stats = new ProcedureLatencyStats(0, 0, makeProcedure());
+        assertEquals(0, getStats(stats, true).getRowCount());
+        for (int i = 0; i < 100; i++) {
+            stats.recordInvocation(10000000L, -1);
+        }
+        VoltTable table = getStats(stats, true);
+        table.advanceRow();
+        assertEquals(100, table.getLong("INVOCATIONS"));
+        assertApprox(10000000, table.getLong("EXECUTION_P50"));
+        // queue wait wasn't known
+        assertEquals(0, table.getLong("QUEUE_WAIT_P50"));
+
+        // no invocations since the last interval, no row
+        assertEquals(0, getStats(stats, true).getRowCount());
+
+        // the interval only sees the fast invocations, the total still sees the slow ones
+        for (int i = 0; i < 100; i++) {
+            stats.recordInvocation(1000000L, 1000L);
+        }
+        table = getStats(stats, true);
+        table.advanceRow();
+        assertEquals(100, table.getLong("INVOCATIONS"));
+        assertApprox(1000000, table.getLong("EXECUTION_P99"));
+        assertApprox(1000000, table.getLong("EXECUTION_MAX"));
+        assertApprox(1000, table.getLong("QUEUE_WAIT_P50"));
+
+        table = getStats(stats, false);
+        table.advanceRow();
+        assertEquals(200, table.getLong("INVOCATIONS"));
+        assertApprox(10000000, table.getLong("EXECUTION_P99"));
+    }
+}
@@ -77,6 +77,7 @@ public class TestStatsAgent {
     public void tearDown() throws Exception {
         MockStatsSource.delay = 0;
         StatsAgent.OPS_COLLECTION_TIMEOUT = 60 * 1000;
+        StatsAgent.OPS_RESPONSE_CHUNK_BYTES = 1024 * 1024;
         m_mvoltdb.shutdown(null);
         VoltDB.replaceVoltDBInstanceForTest(null);
     }
@@ -124,6 +125,99 @@ public class TestStatsAgent {
         return ParameterSet.fromArrayWithCopy(blah);
     }
 
+    private Object[][] registerTableStats(int rowCount) {
+        MockStatsSource.columns = Arrays.asList(new VoltTable.ColumnInfo[] {
+                new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("TUPLE_COUNT", VoltType.BIGINT)
+        });
+        Object[][] rows = new Object[rowCount][];
+        for (int ii = 0; ii < rowCount; ii++) {
+            rows[ii] = new Object[] { "T" + ii, (long)((ii * 7) % rowCount) };
+        }
+        m_mvoltdb.getStatsAgent().registerStatsSource(StatsSelector.TABLE, 0, new MockStatsSource(rows));
+        return rows;
+    }
+
+    private ClientResponseImpl collect(Object... params) throws Exception {
+        m_mvoltdb.getStatsAgent().performOpsAction(m_mockConnection, 32, OpsSelector.STATISTICS,
+                ParameterSet.fromArrayWithCopy(params));
+        return responses.take();
+    }
+
+    @Test
+    public void testFilterAndTopN() throws Exception {
+        registerTableStats(10);
+
+        ClientResponseImpl response = collect("TABLE", 0, -1L, 3, "TUPLE_COUNT", null);
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        VoltTable result = response.getResults()[0];
+        assertEquals(3, result.getRowCount());
+        long expected = 9;
+        while (result.advanceRow()) {
+            assertEquals(expected--, result.getLong("TUPLE_COUNT"));
+        }
+
+        response = collect("TABLE", 0, -1L, 0, null, "TABLE_NAME=T4");
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        result = response.getResults()[0];
+        assertEquals(1, result.getRowCount());
+        result.advanceRow();
+        assertEquals(8, result.getLong("TUPLE_COUNT"));
+
+        response = collect("TABLE", 0, -1L, 5, null);
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+        assertEquals("Fifth argument to @Statistics must name the STRING column to order the top-N by",
+                response.getStatusString());
+    }
+
+    @Test
+    public void testDeltaCursor() throws Exception {
+        Object[][] rows = registerTableStats(10);
+
+        ClientResponseImpl response = collect("TABLE", 0, 0L);
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        assertEquals(10, response.getResults()[0].getRowCount());
+        long cursor = Long.parseLong(response.getAppStatusString());
+
+        // nothing changed, nothing comes back
+        Thread.sleep(5);
+        response = collect("TABLE", 0, cursor);
+        assertEquals(0, response.getResults()[0].getRowCount());
+        cursor = Long.parseLong(response.getAppStatusString());
+
+        Thread.sleep(5);
+        rows[3][1] = 1000L;
+        response = collect("TABLE", 0, cursor);
+        VoltTable result = response.getResults()[0];
+        assertEquals(1, result.getRowCount());
+        result.advanceRow();
+        assertEquals("T3", result.getString("TABLE_NAME"));
+        assertEquals(1000, result.getLong("TUPLE_COUNT"));
+
+        // an older cursor still sees the change
+        response = collect("TABLE", 0, cursor);
+        assertEquals(1, response.getResults()[0].getRowCount());
+
+        response = collect("PROCEDUREPROFILE", 0, 0L);
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, response.getStatus());
+    }
+
+    @Test
+    public void testChunkedResponse() throws Exception {
+        registerTableStats(500);
+        StatsAgent.OPS_RESPONSE_CHUNK_BYTES = 256;
+
+        ClientResponseImpl response = collect("TABLE", 0);
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        VoltTable result = response.getResults()[0];
+        assertEquals(500, result.getRowCount());
+        Set<String> names = new HashSet<String>();
+        while (result.advanceRow()) {
+            names.add(result.getString("TABLE_NAME"));
+        }
+        assertEquals(500, names.size());
+    }
+
     @Test
     public void testInvalidStatisticsSubselector() throws Exception {
         createAndRegisterStats();
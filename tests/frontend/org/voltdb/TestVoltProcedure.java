@@ -214,6 +214,43 @@ public class TestVoltProcedure extends TestCase {
         }
     }
 
+    // Public, so they run through the MethodHandle instead of reflection
+    public static class HandleLongProcedure extends NullProcedureWrapper {
+        public VoltTable[] run(long arg1) {
+            arg = arg1;
+            return new VoltTable[0];
+        }
+
+        public static long arg;
+    }
+
+    public static class HandleStaticLongProcedure extends NullProcedureWrapper {
+        public static VoltTable[] run(long arg1) {
+            arg = arg1;
+            return new VoltTable[0];
+        }
+
+        public static long arg;
+    }
+
+    public static class HandleNPEProcedure extends NullProcedureWrapper {
+        public VoltTable[] run(String arg) {
+            return new VoltTable[arg.length()];
+        }
+    }
+
+    public static class HandleAbortProcedure extends NullProcedureWrapper {
+        public VoltTable[] run(String arg) {
+            throw new VoltAbortException("aborted by " + arg);
+        }
+    }
+
+    static class AbortProcedure extends NullProcedureWrapper {
+        public static VoltTable[] run(String arg) {
+            throw new VoltAbortException("aborted by " + arg);
+        }
+    }
+
     static class NullProcedureWrapper extends VoltProcedure {
         VoltTable runQueryStatement(SQLStmt stmt, Object... params) {
             assert false;
@@ -398,6 +435,48 @@ public class TestVoltProcedure extends TestCase {
         assertTrue(r.getStatusString().contains("java.lang.ArrayIndexOutOfBoundsException"));
     }
 
+    public void testMethodHandleInvoke() {
+        ProcedureRunner runner = runner(HandleLongProcedure.class);
+        assertNotNull(runner.m_procHandle);
+        runner.setupTransaction(null);
+        ClientResponse r = runner.call(Integer.valueOf(-1000));
+        assertEquals(ClientResponse.SUCCESS, r.getStatus());
+        assertEquals(-1000L, HandleLongProcedure.arg);
+
+        runner = runner(HandleStaticLongProcedure.class);
+        assertNotNull(runner.m_procHandle);
+        runner.setupTransaction(null);
+        r = runner.call(Long.valueOf(7));
+        assertEquals(ClientResponse.SUCCESS, r.getStatus());
+        assertEquals(7L, HandleStaticLongProcedure.arg);
+
+        // package private procedures keep the reflective path
+        assertNull(runner(LongProcedure.class).m_procHandle);
+    }
+
+    public void testMethodHandleNullPointerException() {
+        ProcedureRunner runner = runner(HandleNPEProcedure.class);
+        assertNotNull(runner.m_procHandle);
+        runner.setupTransaction(null);
+        ClientResponse r = runner.call((Object) null);
+        ClientResponse reflected = call(NPEProcedure.class);
+        assertEquals(ClientResponse.UNEXPECTED_FAILURE, r.getStatus());
+        assertEquals(reflected.getStatus(), r.getStatus());
+        assertTrue(r.getStatusString().contains("java.lang.NullPointerException"));
+        assertTrue(r.getStatusString().contains(HandleNPEProcedure.class.getSimpleName()));
+    }
+
+    public void testMethodHandleUserAbort() {
+        ProcedureRunner runner = runner(HandleAbortProcedure.class);
+        assertNotNull(runner.m_procHandle);
+        runner.setupTransaction(null);
+        ClientResponse r = runner.call("test");
+        ClientResponse reflected = callWithArgs(AbortProcedure.class, "test");
+        assertEquals(ClientResponse.USER_ABORT, reflected.getStatus());
+        assertEquals(reflected.getStatus(), r.getStatus());
+        assertTrue(r.getStatusString().contains("aborted by test"));
+    }
+
     public void testProcedureStatsCollector() {
         NullProcedureWrapper wrapper = new LongProcedure();
         ProcedureRunner runner = new ProcedureRunner(
@@ -431,6 +510,12 @@ public class TestVoltProcedure extends TestCase {
     }
 
     private ClientResponse callWithArgs(Class<? extends NullProcedureWrapper> procedure, Object... args) {
+        ProcedureRunner runner = runner(procedure);
+        runner.setupTransaction(null);
+        return runner.call(args);
+    }
+
+    private ProcedureRunner runner(Class<? extends NullProcedureWrapper> procedure) {
         NullProcedureWrapper wrapper = null;
         try {
             wrapper = procedure.newInstance();
@@ -442,9 +527,7 @@ public class TestVoltProcedure extends TestCase {
         ProcedureRunner runner = new ProcedureRunner(
                 wrapper, site, null,
                 VoltDB.instance().getCatalogContext().database.getProcedures().get(LongProcedure.class.getName()), null);
-
-        runner.setupTransaction(null);
-        return runner.call(args);
+        return runner;
     }
 
     private class MockStatsAgent extends StatsAgent {
@@ -454,6 +537,10 @@ public class TestVoltProcedure extends TestCase {
 
         @Override
         public void registerStatsSource(StatsSelector selector, long catalogId, StatsSource source) {
+            // The runner also registers its PROCEDURELATENCY source, keep the PROCEDURE one
+            if (selector != StatsSelector.PROCEDURE) {
+                return;
+            }
             m_source = source;
             m_selector = selector;
             m_catalogId = catalogId;
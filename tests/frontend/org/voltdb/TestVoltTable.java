@@ -24,6 +24,7 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -31,7 +32,10 @@ import java.util.Arrays;
 import junit.framework.TestCase;
 
 import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.types.TimestampType;
 import org.voltdb.types.VoltDecimalHelper;
 import org.voltdb.utils.CompressionService;
@@ -966,6 +970,46 @@ public class TestVoltTable extends TestCase {
         assertTrue(t1.equals(t2));
     }
 
+    public void testStreamedJSONMatchesString() throws Exception {
+        VoltTable t1 = new VoltTable(new ColumnInfo("id", VoltType.BIGINT),
+                new ColumnInfo("name", VoltType.STRING),
+                new ColumnInfo("bin", VoltType.VARBINARY));
+        t1.addRow(1L, "one \"quoted\"", new byte[] { 1, 2 });
+        t1.addRow(null, null, null);
+        VoltTable t2 = new VoltTable(new ColumnInfo("f", VoltType.FLOAT));
+        for (int i = 0; i < 100; i++) {
+            t2.addRow(i * 0.5);
+        }
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS,
+                (byte) 3, "app", new VoltTable[] { t1, t2 }, null);
+
+        StringWriter table = new StringWriter();
+        t1.toJSONString(new JSONWriter(table));
+        assertEquals(t1.toJSONString(), table.toString());
+
+        // what a whole response looked like when each table was stringified on its own
+        JSONStringer js = new JSONStringer();
+        js.object();
+        js.key(ClientResponseImpl.JSON_STATUS_KEY).value(ClientResponse.SUCCESS);
+        js.key(ClientResponseImpl.JSON_APPSTATUS_KEY).value(3);
+        js.key(ClientResponseImpl.JSON_STATUSSTRING_KEY).value(null);
+        js.key(ClientResponseImpl.JSON_APPSTATUSSTRING_KEY).value("app");
+        js.key(ClientResponseImpl.JSON_RESULTS_KEY).array().value(t1).value(t2).endArray();
+        js.endObject();
+        assertEquals(js.toString(), response.toJSONString());
+
+        StringWriter out = new StringWriter();
+        HTTPClientInterface.writeJSONResponse(out, response, null);
+        assertEquals(js.toString(), out.toString());
+
+        out = new StringWriter();
+        HTTPClientInterface.writeJSONResponse(out, response, "cb");
+        assertEquals("cb( " + js.toString() + " )", out.toString());
+
+        // and the streamed table still parses back to the original
+        assertEquals(t1, VoltTable.fromJSONString(table.toString()));
+    }
+
     /**
      * Java won't let you pass >255 args to a method. Verify it's possible to
      * make a big table using vararg methods and arrays.
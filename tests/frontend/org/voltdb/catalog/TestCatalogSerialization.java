@@ -56,4 +56,71 @@ public class TestCatalogSerialization extends TestCase {
         assertTrue(catalog1.equals(catalog2));
         assertTrue(catalog1.equals(catalog3));
     }
+
+    public void testBinary() throws IOException
+    {
+        Catalog catalog1 = TPCCProjectBuilder.getTPCCSchemaCatalog();
+        String commands = catalog1.serialize();
+
+        byte[] bytes = catalog1.serializeBinary();
+        assertTrue(bytes.length < commands.length());
+
+        Catalog catalog2 = Catalog.deserializeBinary(bytes);
+        assertEquals(commands, catalog2.serialize());
+        assertTrue(catalog1.equals(catalog2));
+
+        // references are resolved in the new catalog
+        Column partitionColumn = getTable(catalog2, "STOCK").getPartitioncolumn();
+        assertEquals("S_W_ID", partitionColumn.getTypeName());
+        assertTrue(partitionColumn.getCatalog() == catalog2);
+
+        bytes[0]++;
+        try {
+            Catalog.deserializeBinary(bytes);
+            fail();
+        } catch (CatalogException expected) {}
+    }
+
+    public void testCopyOnWrite() throws IOException
+    {
+        Catalog catalog1 = TPCCProjectBuilder.getTPCCSchemaCatalog();
+        String commands = catalog1.serialize();
+        boolean replicated = getTable(catalog1, "WAREHOUSE").getIsreplicated();
+
+        // changes to a copy don't show in the original
+        Catalog copy = catalog1.deepCopy();
+        assertTrue(copy.getClusters().m_copySource != null);
+        getTable(copy, "WAREHOUSE").setIsreplicated(!replicated);
+        assertEquals(replicated, getTable(catalog1, "WAREHOUSE").getIsreplicated());
+        assertEquals(commands, catalog1.serialize());
+        assertFalse(catalog1.equals(copy));
+
+        // unchanged parts of the copy are still shared and skipped by the diff
+        assertTrue(getTable(copy, "STOCK").getColumns().sharesItemsWith(getTable(catalog1, "STOCK").getColumns()));
+        Catalog unshared = new Catalog();
+        unshared.execute(copy.serialize());
+        String diff = new CatalogDiffEngine(catalog1, copy).commands();
+        assertEquals(new CatalogDiffEngine(catalog1, unshared).commands(), diff);
+        assertTrue(diff.contains("isreplicated"));
+
+        // changes to the original don't show in a copy, or a copy of a copy
+        Catalog copy2 = catalog1.deepCopy();
+        Catalog copy3 = copy2.deepCopy();
+        getTable(catalog1, "STOCK").getColumns().delete("S_QUANTITY");
+        getTable(catalog1, "ITEM").setIsreplicated(!getTable(catalog1, "ITEM").getIsreplicated());
+        assertEquals(commands, copy2.serialize());
+        assertEquals(commands, copy3.serialize());
+
+        // nor do changes to the copy in between
+        Catalog copy4 = copy2.deepCopy();
+        getTable(copy2, "DISTRICT").getColumns().add("D_EXTRA");
+        assertEquals(commands, copy3.serialize());
+        assertEquals(commands, copy4.serialize());
+        assertNotNull(getTable(copy2, "DISTRICT").getColumns().get("D_EXTRA"));
+    }
+
+    private static Table getTable(Catalog catalog, String name)
+    {
+        return catalog.getClusters().get("cluster").getDatabases().get("database").getTables().get(name);
+    }
 }
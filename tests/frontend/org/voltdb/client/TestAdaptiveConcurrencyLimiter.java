@@ -0,0 +1,106 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import junit.framework.TestCase;
+
+public class TestAdaptiveConcurrencyLimiter extends TestCase {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    // keep the limiter saturated and complete one transaction at a time with the given round trip
+    private static void drive(AdaptiveConcurrencyLimiter limiter, int rttMillis, int responses) throws Exception {
+        for (int i = 0; i < responses; i++) {
+            while (limiter.getInflight() < limiter.getLimits()[1]) {
+                limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, false);
+            }
+            limiter.transactionResponseReceived(System.nanoTime(), rttMillis, false);
+        }
+    }
+
+    public void testGrowsAtSteadyLatency() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000);
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getLimits()[1]);
+        drive(limiter, 2, 500);
+        assertEquals(1000, limiter.getLimits()[1]);
+        assertEquals(Integer.MAX_VALUE, limiter.getLimits()[0]);
+    }
+
+    public void testShrinksWhenLatencyRises() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000);
+        drive(limiter, 2, 1000);
+        final int before = limiter.getLimits()[1];
+        drive(limiter, 20, 200);
+        assertTrue(limiter.getLimits()[1] < before / 4);
+    }
+
+    public void testBacksOffOnTimeout() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000);
+        drive(limiter, 2, 100);
+        final int before = limiter.getLimits()[1];
+        drive(limiter, -1, 5);
+        assertTrue(limiter.getLimits()[1] < before);
+    }
+
+    public void testNoGrowthWhenIdle() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1000);
+        for (int i = 0; i < 100; i++) {
+            limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, false);
+            limiter.transactionResponseReceived(System.nanoTime(), 1, false);
+        }
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getLimits()[1]);
+    }
+
+    public void testBlocksAtLimit() throws Exception {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2);
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, false);
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, false);
+        // backpressure exempt work isn't counted
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, true);
+        assertEquals(2, limiter.getInflight());
+
+        try {
+            limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
+                    System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50), false);
+            fail();
+        } catch (TimeoutException expected) {}
+
+        Thread responder = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {}
+                limiter.transactionResponseReceived(System.nanoTime(), 1, false);
+            }
+        };
+        responder.start();
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT, false);
+        responder.join();
+        assertEquals(2, limiter.getInflight());
+    }
+}
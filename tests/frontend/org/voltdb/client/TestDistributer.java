@@ -30,11 +30,13 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import junit.framework.TestCase;
 
@@ -406,6 +408,114 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testCallbackExecutorOrdered() throws Exception {
+        MockVolt volt0 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            // Without client affinity no partition is known, so ordered callbacks all run in order on one thread
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false, null /* subject */, 2, true);
+            dist.createConnection("localhost", "", "", 20000, ClientAuthHashScheme.HASH_SHA1);
+
+            final List<Long> handles = new ArrayList<Long>();
+            final AtomicBoolean wrongThread = new AtomicBoolean(false);
+            ProcedureCallback cb = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) throws Exception {
+                    if (!Thread.currentThread().getName().contains("Callback")) {
+                        wrongThread.set(true);
+                    }
+                    synchronized (handles) {
+                        handles.add(((ClientResponseImpl)clientResponse).getClientHandle());
+                    }
+                }
+            };
+            for (int handle = 1; handle <= 100; handle++) {
+                dist.queue(new ProcedureInvocation(handle, "i1", new Integer(1)), cb, true, System.nanoTime(), 0);
+            }
+            dist.drain();
+
+            assertFalse(wrongThread.get());
+            assertEquals(100, handles.size());
+            for (int ii = 0; ii < 100; ii++) {
+                assertEquals(ii + 1, handles.get(ii).longValue());
+            }
+
+            long queued = 0;
+            for (Map<String, ClientStats> connStats : dist.getStatsSnapshot().values()) {
+                for (ClientStats stats : connStats.values()) {
+                    queued += stats.m_callbacksQueued;
+                    assertEquals(0, stats.getCallbackQueueDepth());
+                    assertTrue(stats.getMaxCallbackQueueDepth() >= 1);
+                }
+            }
+            assertEquals(100, queued);
+            dist.shutdown();
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testSyncCallFromCallbackExecutor() throws Exception {
+        MockVolt volt0 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            for (boolean ordered : new boolean[] { false, true }) {
+                ClientConfig config = new ClientConfig();
+                config.setCallbackExecutor(1, ordered);
+                final Client client = ClientFactory.createClient(config);
+                client.createConnection("localhost", 20000);
+
+                // a sync call or drain from a callback is refused instead of waiting on itself
+                final AtomicReference<Throwable> syncCallError = new AtomicReference<Throwable>();
+                final AtomicReference<Throwable> drainError = new AtomicReference<Throwable>();
+                final CountDownLatch called = new CountDownLatch(1);
+                client.callProcedure(new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        try {
+                            client.callProcedure("Foo", new Integer(1));
+                        } catch (Throwable t) {
+                            syncCallError.set(t);
+                        }
+                        try {
+                            client.drain();
+                        } catch (Throwable t) {
+                            drainError.set(t);
+                        }
+                        called.countDown();
+                    }
+                }, "Bar", new Integer(2));
+                assertTrue(called.await(10, TimeUnit.SECONDS));
+                assertTrue(syncCallError.get() instanceof IOException);
+                assertTrue(syncCallError.get().getMessage().contains("deadlocking"));
+                assertTrue(drainError.get() instanceof RuntimeException);
+                assertTrue(drainError.get().getMessage().contains("deadlocking"));
+
+                // other threads still can
+                client.callProcedure("Foo", new Integer(1));
+                client.drain();
+                client.close();
+            }
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testQueue() throws Exception {
 
@@ -25,7 +25,9 @@ package org.voltdb.client;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 
 import junit.framework.TestCase;
 
@@ -456,4 +458,64 @@ public class TestHashinatorLite extends TestCase {
         assertTrue(hash1 < partitionCount);
         assertTrue(hash1 >= 0);
     }
+
+    /*
+     * The batch lookups and the token index they use have to agree with one value at a
+     * time lookups and with a search of the ring, including on uneven rings.
+     */
+    @Test
+    public void testBatchHash() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            int partitionCount = r.nextInt(100) + 1;
+            byte[] configBytes = ElasticHashinator.getConfigureBytes(partitionCount, 256 << r.nextInt(6));
+            ElasticHashinator h2 = (ElasticHashinator)TheHashinator.getHashinator(
+                    HashinatorType.ELASTIC.hashinatorClass, configBytes, false);
+            // move some tokens to random places to make the ring uneven
+            TreeMap<Integer, Integer> moved = new TreeMap<Integer, Integer>();
+            for (int j = 0; j < 50; j++) {
+                moved.put(r.nextInt(), r.nextInt(partitionCount));
+            }
+            h2 = h2.addTokens(moved);
+            HashinatorLite h1 = new HashinatorLite(HashinatorLiteType.ELASTIC, h2.getConfigBytes(), false);
+
+            for (int j = 0; j < 1000; j++) {
+                int hash = j < 3 ? new int[] { Integer.MIN_VALUE, Integer.MAX_VALUE, 0 }[j] : r.nextInt();
+                int expected = h2.getTokens().floorEntry(hash).getValue();
+                assertEquals(expected, h2.partitionForToken(hash));
+                assertEquals(expected, h1.partitionForToken(hash));
+            }
+            for (Map.Entry<Integer, Integer> e : h2.getTokens().entrySet()) {
+                assertEquals(e.getValue().intValue(), h1.partitionForToken(e.getKey()));
+                assertEquals(e.getValue().intValue(), h2.partitionForToken(e.getKey()));
+            }
+
+            testBatchHash(h1, h2, VoltType.BIGINT, new Object[] { r.nextLong(), null, "1234", Long.MIN_VALUE });
+            testBatchHash(h1, h2, VoltType.STRING, new Object[] { "a", Long.toString(r.nextLong()), null, "" });
+            testBatchHash(h1, h2, VoltType.INTEGER, new Object[] { r.nextInt(), 7, VoltType.NULL_INTEGER });
+
+            long longs[] = new long[] { r.nextLong(), r.nextLong(), Long.MIN_VALUE, 0 };
+            int partitions[] = new int[longs.length];
+            h2.pHashinateLongs(longs, longs.length, partitions);
+            for (int j = 0; j < longs.length; j++) {
+                assertEquals(h2.pHashinateLong(longs[j]), partitions[j]);
+            }
+        }
+
+        HashinatorLite legacy = new HashinatorLite(7);
+        testBatchHash(legacy, TheHashinator.getHashinator(HashinatorType.LEGACY.hashinatorClass,
+                    LegacyHashinator.getConfigureBytes(7), false),
+                VoltType.BIGINT, new Object[] { r.nextLong(), null, "1234", (byte)3 });
+    }
+
+    private void testBatchHash(HashinatorLite h1, TheHashinator h2, VoltType type, Object[] values) {
+        int lite[] = new int[values.length];
+        int std[] = new int[values.length];
+        h1.getHashedPartitionsForParameters(type.getValue(), values, values.length, lite);
+        h2.getHashedPartitionsForParameters(type, values, values.length, std);
+        for (int i = 0; i < values.length; i++) {
+            int expected = h1.getHashedPartitionForParameter(type.getValue(), values[i]);
+            assertEquals(expected, lite[i]);
+            assertEquals(expected, std[i]);
+        }
+    }
 }
@@ -0,0 +1,154 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestWeightedTinyLFUCache {
+
+    // weight is the length of the value
+    private static final WeightedTinyLFUCache.Weigher<String, String> LENGTH_WEIGHER =
+            new WeightedTinyLFUCache.Weigher<String, String>() {
+                @Override
+                public int weigh(String key, String value) {
+                    return value.length();
+                }
+            };
+
+    private static String valueOfWeight(int weight) {
+        StringBuilder sb = new StringBuilder(weight);
+        for (int i = 0; i < weight; i++) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testBoundedByWeight() {
+        WeightedTinyLFUCache<String, String> cache =
+                new WeightedTinyLFUCache<String, String>(1000, 100, LENGTH_WEIGHER);
+        for (int i = 0; i < 500; i++) {
+            cache.put("key" + i, valueOfWeight(10 + (i % 50)));
+            assertTrue(cache.weightedSize() <= 1000);
+        }
+        assertTrue(cache.evictionCount() > 0);
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    public void testOversizedValueNotCached() {
+        WeightedTinyLFUCache<String, String> cache =
+                new WeightedTinyLFUCache<String, String>(100, 10, LENGTH_WEIGHER);
+        cache.put("small", valueOfWeight(10));
+        cache.put("huge", valueOfWeight(101));
+        assertNull(cache.peek("huge"));
+        assertNotNull(cache.peek("small"));
+    }
+
+    @Test
+    public void testHotEntriesSurviveScan() {
+        WeightedTinyLFUCache<String, String> cache =
+                new WeightedTinyLFUCache<String, String>(10000, 200, LENGTH_WEIGHER);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, valueOfWeight(20));
+        }
+        // Make the small entries popular.
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get("hot" + i));
+            }
+        }
+        // A stream of big one-off entries shouldn't flush them out.
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold" + i, valueOfWeight(500));
+        }
+        int survivors = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.peek("hot" + i) != null) {
+                survivors++;
+            }
+        }
+        assertEquals(50, survivors);
+        assertTrue(cache.weightedSize() <= 10000);
+    }
+
+    @Test
+    public void testHitMissCounts() {
+        WeightedTinyLFUCache<String, String> cache =
+                new WeightedTinyLFUCache<String, String>(1000, 10, LENGTH_WEIGHER);
+        cache.put("a", "aaa");
+        assertEquals("aaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.peek("b"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        // replacing a value adjusts the weight
+        cache.put("a", "aaaaa");
+        assertEquals(5, cache.weightedSize());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final WeightedTinyLFUCache<String, String> cache =
+                new WeightedTinyLFUCache<String, String>(5000, 500, LENGTH_WEIGHER);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String key = "key" + ((i * 31 + seed) % 700);
+                            String value = cache.get(key);
+                            if (value == null) {
+                                cache.put(key, valueOfWeight(1 + (i % 40)));
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException(failure.get());
+        }
+        assertTrue(cache.weightedSize() <= 5000);
+    }
+}
@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTaskerQueue.WaitStrategy;
+import org.voltdb.rejoin.TaskLog;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    // Task that remembers which producer offered it and in what order
+    static class NumberedTask extends SiteTasker {
+        final int m_producer;
+        final int m_sequence;
+
+        NumberedTask(int producer, int sequence) {
+            m_producer = producer;
+            m_sequence = sequence;
+        }
+
+        @Override
+        public void run(SiteProcedureConnection siteConnection) {
+        }
+
+        @Override
+        public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog) {
+        }
+    }
+
+    private static SiteTaskerQueue createQueue(WaitStrategy strategy, int ringCapacity) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(strategy,
+                TimeUnit.MICROSECONDS.toNanos(20), TimeUnit.MICROSECONDS.toNanos(20),
+                TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(500),
+                ringCapacity);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        return queue;
+    }
+
+    public void testPollOrder() {
+        for (int ringCapacity : new int[] { 0, 4 }) {
+            SiteTaskerQueue queue = createQueue(WaitStrategy.BLOCKING, ringCapacity);
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+            // more tasks than the ring holds, the rest go through the overflow
+            for (int i = 0; i < 10; i++) {
+                assertTrue(queue.offer(new NumberedTask(0, i)));
+            }
+            assertFalse(queue.isEmpty());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i, ((NumberedTask)queue.poll()).m_sequence);
+            }
+            // tasks offered while the overflow is in use must stay behind it
+            for (int i = 10; i < 13; i++) {
+                queue.offer(new NumberedTask(0, i));
+            }
+            for (int i = 5; i < 13; i++) {
+                assertEquals(i, ((NumberedTask)queue.poll()).m_sequence);
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+        }
+    }
+
+    public void testTakeWakesUp() throws Exception {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            for (int ringCapacity : new int[] { 0, 16 }) {
+                final SiteTaskerQueue queue = createQueue(strategy, ringCapacity);
+                final CountDownLatch taken = new CountDownLatch(1);
+                Thread consumer = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            queue.take();
+                            taken.countDown();
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                };
+                consumer.start();
+                // give the consumer time to get past spinning
+                Thread.sleep(20);
+                queue.offer(new NumberedTask(0, 0));
+                assertTrue(strategy + " did not wake up", taken.await(10, TimeUnit.SECONDS));
+                consumer.join();
+            }
+        }
+    }
+
+    public void testTakeInterrupted() throws Exception {
+        // a site thread has to be interruptible at shutdown whatever it is waiting in
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            final SiteTaskerQueue queue = createQueue(strategy, 0);
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            Thread consumer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            };
+            consumer.start();
+            Thread.sleep(20);
+            consumer.interrupt();
+            assertTrue(strategy + " was not interrupted", interrupted.await(10, TimeUnit.SECONDS));
+            consumer.join();
+        }
+    }
+
+    public void testManyProducers() throws Exception {
+        final int producers = 4;
+        final int tasksPerProducer = 50000;
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            for (int ringCapacity : new int[] { 0, 64 }) {
+                final SiteTaskerQueue queue = createQueue(strategy, ringCapacity);
+                List<Thread> threads = new ArrayList<Thread>();
+                for (int p = 0; p < producers; p++) {
+                    final int producer = p;
+                    Thread t = new Thread() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < tasksPerProducer; i++) {
+                                queue.offer(new NumberedTask(producer, i));
+                                if (i % 1000 == 0) {
+                                    Thread.yield();
+                                }
+                            }
+                        }
+                    };
+                    threads.add(t);
+                    t.start();
+                }
+
+                // every producer's tasks must come out in the order it offered them
+                int[] expected = new int[producers];
+                for (int i = 0; i < producers * tasksPerProducer; i++) {
+                    NumberedTask task = (NumberedTask)queue.take();
+                    assertEquals(strategy + " reordered tasks", expected[task.m_producer]++, task.m_sequence);
+                }
+                for (Thread t : threads) {
+                    t.join();
+                }
+                assertTrue(queue.isEmpty());
+            }
+        }
+    }
+}
@@ -277,4 +277,56 @@ public class TestSpSchedulerDedupe extends TestCase
         dut.deliver(replresp);
         verify(mbox, times(1)).send(eq(primary_hsid), eq(resp));
     }
+
+    @Test
+    public void testConcurrentReadOnlySysProcFragmentsShareSpHandle() throws Exception
+    {
+        long txnidA = TxnEgo.makeZero(0).getTxnId();
+        long txnidB = TxnEgo.makeZero(0).makeNext().getTxnId();
+        long coordA = 1111l;
+        long coordB = 2222l;
+
+        createObjs();
+        dut.setLeaderState(true);
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(dut_hsid);
+        replicas.add(2l);
+        dut.updateReplicas(replicas, null);
+        FragmentTaskMessage taskA = createFrag(txnidA, true, coordA);
+        taskA.setFragmentTaskType(FragmentTaskMessage.SYS_PROC_PER_SITE);
+        FragmentTaskMessage taskB = createFrag(txnidB, true, coordB);
+        taskB.setFragmentTaskType(FragmentTaskMessage.SYS_PROC_PER_SITE);
+        dut.deliver(taskA);
+        dut.deliver(taskB);
+        // read only fragments don't advance the SP handle, both get the same one
+        ArgumentCaptor<FragmentTaskMessage> replmsg = ArgumentCaptor.forClass(FragmentTaskMessage.class);
+        verify(mbox, times(2)).send(eq(new long[] {2}), replmsg.capture());
+        FragmentTaskMessage replA = replmsg.getAllValues().get(0);
+        FragmentTaskMessage replB = replmsg.getAllValues().get(1);
+        assertEquals(txnidA, replA.getTxnId());
+        assertEquals(txnidB, replB.getTxnId());
+        assertEquals(replA.getSpHandle(), replB.getSpHandle());
+
+        // interleave the responses, each txn completes only once both of its sites respond
+        dut.deliver(createFragResponse(replB, dut_hsid));
+        dut.deliver(createFragResponse(replA, 2l));
+        verify(mbox, times(0)).send(anyLong(), (VoltMessage)anyObject());
+        dut.deliver(createFragResponse(replA, dut_hsid));
+        ArgumentCaptor<FragmentResponseMessage> respA = ArgumentCaptor.forClass(FragmentResponseMessage.class);
+        verify(mbox, times(1)).send(eq(coordA), respA.capture());
+        assertEquals(txnidA, respA.getValue().getTxnId());
+        verify(mbox, times(0)).send(eq(coordB), (VoltMessage)anyObject());
+        dut.deliver(createFragResponse(replB, 2l));
+        ArgumentCaptor<FragmentResponseMessage> respB = ArgumentCaptor.forClass(FragmentResponseMessage.class);
+        verify(mbox, times(1)).send(eq(coordB), respB.capture());
+        assertEquals(txnidB, respB.getValue().getTxnId());
+        verify(mbox, times(1)).send(eq(coordA), (VoltMessage)anyObject());
+    }
+
+    private FragmentResponseMessage createFragResponse(FragmentTaskMessage task, long sourceHSId)
+    {
+        FragmentResponseMessage resp = new FragmentResponseMessage(task, sourceHSId);
+        resp.m_sourceHSId = sourceHSId;
+        return resp;
+    }
 }
@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -40,6 +41,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
@@ -824,4 +826,154 @@ public class TestJDBCDriver {
             }
         }
     }
+
+    @Test
+    public void testAsyncBatch() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.ASYNC_BATCH, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        try {
+            PreparedStatement ins = myconn.prepareStatement("INSERT INTO BLAST_IT VALUES(?, ?);");
+            for (int i = 0; i < 100; i++) {
+                ins.setInt(1, i);
+                ins.setInt(2, i);
+                ins.addBatch();
+            }
+            int[] counts = ins.executeBatch();
+            assertEquals(100, counts.length);
+            for (int count : counts) {
+                assertEquals(1, count);
+            }
+
+            // a failure in the middle doesn't stop the rest of the batch
+            for (int i = 99; i < 110; i++) {
+                ins.setInt(1, i);
+                ins.setInt(2, i);
+                ins.addBatch();
+            }
+            try {
+                ins.executeBatch();
+                fail("Expected a constraint violation");
+            } catch (BatchUpdateException e) {
+                counts = e.getUpdateCounts();
+                assertEquals(11, counts.length);
+                assertEquals(Statement.EXECUTE_FAILED, counts[0]);
+                for (int i = 1; i < counts.length; i++) {
+                    assertEquals(1, counts[i]);
+                }
+            }
+
+            ResultSet rs = myconn.createStatement().executeQuery("SELECT COUNT(*) FROM BLAST_IT;");
+            assertTrue(rs.next());
+            assertEquals(110, rs.getLong(1));
+        } finally {
+            myconn.createStatement().executeUpdate("DELETE FROM BLAST_IT;");
+            myconn.close();
+            myconn = null;
+        }
+    }
+
+    @Test
+    public void testAsyncAutoCommit() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.ASYNC_AUTOCOMMIT, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        try {
+            // updates are only asynchronous once the client knows the procedure is single partition
+            JDBC4ClientConnection nativeConn = ((JDBC4Connection) myconn).NativeConnection;
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!nativeConn.isSinglePartitionProcedure("BLAST_IT.insert")) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+
+            CallableStatement ins = myconn.prepareCall("{call BLAST_IT.insert(?, ?)}");
+            for (int i = 0; i < 100; i++) {
+                ins.setInt(1, i);
+                ins.setInt(2, i);
+                assertEquals(Statement.SUCCESS_NO_INFO, ins.executeUpdate());
+            }
+            // the query waits for the updates and sees all of them
+            ResultSet rs = myconn.createStatement().executeQuery("SELECT COUNT(*) FROM BLAST_IT;");
+            assertTrue(rs.next());
+            assertEquals(100, rs.getLong(1));
+
+            // the failure of an asynchronous update is thrown by the next call
+            ins.setInt(1, 0);
+            ins.setInt(2, 0);
+            assertEquals(Statement.SUCCESS_NO_INFO, ins.executeUpdate());
+            try {
+                myconn.createStatement().executeQuery("SELECT COUNT(*) FROM BLAST_IT;");
+                fail("Expected the deferred constraint violation");
+            } catch (SQLException e) {
+                assertEquals(SQLError.GENERAL_ERROR, e.getSQLState());
+                assertTrue(e.getMessage().contains("violation of constraint"));
+            }
+        } finally {
+            myconn.createStatement().executeUpdate("DELETE FROM BLAST_IT;");
+            myconn.close();
+            myconn = null;
+        }
+    }
+
+    @Test
+    public void testAsyncAutoCommitThenAsyncBatch() throws Exception
+    {
+        Properties props = new Properties();
+        props.setProperty(JDBC4Connection.ASYNC_AUTOCOMMIT, "true");
+        props.setProperty(JDBC4Connection.ASYNC_BATCH, "true");
+        myconn = getJdbcConnection("jdbc:voltdb://localhost:21212", props);
+        try {
+            JDBC4ClientConnection nativeConn = ((JDBC4Connection) myconn).NativeConnection;
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!nativeConn.isSinglePartitionProcedure("BLAST_IT.insert")) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+
+            CallableStatement ins = myconn.prepareCall("{call BLAST_IT.insert(?, ?)}");
+            for (int i = 0; i < 100; i++) {
+                ins.setInt(1, i);
+                ins.setInt(2, i);
+                assertEquals(Statement.SUCCESS_NO_INFO, ins.executeUpdate());
+            }
+
+            // the batch waits for the inserts, so every update finds its row
+            PreparedStatement upd = myconn.prepareStatement("UPDATE BLAST_IT SET A2 = ? WHERE A1 = ?;");
+            for (int i = 0; i < 100; i++) {
+                upd.setInt(1, -i);
+                upd.setInt(2, i);
+                upd.addBatch();
+            }
+            int[] counts = upd.executeBatch();
+            assertEquals(100, counts.length);
+            for (int count : counts) {
+                assertEquals(1, count);
+            }
+
+            // a failed asynchronous update is thrown by the next batch, which doesn't run
+            ins.setInt(1, 0);
+            ins.setInt(2, 0);
+            assertEquals(Statement.SUCCESS_NO_INFO, ins.executeUpdate());
+            upd.setInt(1, 1);
+            upd.setInt(2, 1);
+            upd.addBatch();
+            try {
+                upd.executeBatch();
+                fail("Expected the deferred constraint violation");
+            } catch (SQLException e) {
+                assertTrue(e.getMessage().contains("violation of constraint"));
+            }
+
+            ResultSet rs = myconn.createStatement().executeQuery("SELECT COUNT(*) FROM BLAST_IT WHERE A2 <= 0;");
+            assertTrue(rs.next());
+            assertEquals(100, rs.getLong(1));
+        } finally {
+            myconn.createStatement().executeUpdate("DELETE FROM BLAST_IT;");
+            myconn.close();
+            myconn = null;
+        }
+    }
 }
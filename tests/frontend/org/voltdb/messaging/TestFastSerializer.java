@@ -51,6 +51,7 @@
 package org.voltdb.messaging;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import junit.framework.TestCase;
 
@@ -86,6 +87,31 @@ public class TestFastSerializer extends TestCase {
         assertEquals(42, fs.getBytes()[huge.length-1]);
     }
 
+    public void testPooledGrowth() throws IOException {
+        FastSerializer pooledOut = FastSerializer.pooled(256);
+        try {
+            for (int ii = 0; ii < 1024; ii++) {
+                pooledOut.writeInt(ii);
+            }
+            ByteBuffer buf = pooledOut.getBBContainer().b();
+            assertTrue(buf.isDirect());
+            assertEquals(4096, buf.remaining());
+            for (int ii = 0; ii < 1024; ii++) {
+                assertEquals(ii, buf.getInt());
+            }
+        } finally {
+            pooledOut.discard();
+        }
+
+        // grows past the largest pooled size
+        pooledOut = FastSerializer.pooled(256);
+        try {
+            testHM(pooledOut);
+        } finally {
+            pooledOut.discard();
+        }
+    }
+
     public void testHugeMessageBigEndian() throws IOException {
         testHMLE(heapOut);
         testHMLE(directOut);
@@ -25,6 +25,8 @@ package org.voltdb.planner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.voltdb.AdHocQueryTester;
 import org.voltdb.CatalogContext;
@@ -64,6 +66,53 @@ public class TestAdHocPlans extends AdHocQueryTester {
         runAllAdHocSPtests(0, 1, 2, 3);
     }
 
+    public void testConcurrentPlanning() throws Exception {
+        final String[] queries = new String[] {
+                "SELECT * FROM PARTED1 WHERE PARTVAL = 1;",
+                "SELECT * FROM PARTED3 WHERE PARTVAL != 2;",
+                "SELECT * FROM REPPED1 WHERE REPPEDVAL = 3;",
+                "SELECT COUNT(*) FROM PARTED1;",
+        };
+        // Plan everything once serially for the expected results.
+        final String[] expected = new String[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            expected[i] = m_pt.planSqlCore(queries[i], StatementPartitioning.inferPartitioning()).explainedPlan;
+        }
+
+        final int threadCount = PlannerTool.POOL_SIZE + 2;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            int q = (i + offset) % queries.length;
+                            CompiledPlan plan = m_pt.planSqlCore(queries[q], StatementPartitioning.inferPartitioning());
+                            assertEquals(expected[q], plan.explainedPlan);
+                        }
+                    }
+                    catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException(failure.get());
+        }
+        assertTrue(m_pt.getPlannerCount() <= PlannerTool.POOL_SIZE);
+    }
+
     /**
      * For planner-only testing, most of the args are ignored.
      */
@@ -44,6 +44,7 @@ import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltType;
 import org.voltdb.client.Client;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.compiler.PlannerTool;
 import org.voltdb.compiler.VoltProjectBuilder;
 import org.voltdb.iv2.MpInitiator;
 import org.voltdb.join.BalancePartitionsStatistics;
@@ -195,16 +196,25 @@ public class TestStatisticsSuite extends SaveRestoreBase {
             // to check specifically for this error, otherwise things that
             // crash the cluster also turn into ProcCallExceptions and don't
             // trigger failure (ENG-2347)
-            assertEquals("Incorrect number of arguments to @Statistics (expects 2, received 0)",
+            assertEquals("Incorrect number of arguments to @Statistics (expects 2 to 6, received 0)",
                          ex.getMessage());
         }
         try {
             // extra stuff
+            client.callProcedure("@Statistics", "table", 0, 0L, 10, "TUPLE_COUNT", "TABLE_NAME=T", "OHHAI");
+            fail();
+        }
+        catch (ProcCallException ex) {
+            assertEquals("Incorrect number of arguments to @Statistics (expects 2 to 6, received 7)",
+                         ex.getMessage());
+        }
+        try {
+            // delta cursor that isn't a number
             client.callProcedure("@Statistics", "table", 0, "OHHAI");
             fail();
         }
         catch (ProcCallException ex) {
-            assertEquals("Incorrect number of arguments to @Statistics (expects 2, received 3)",
+            assertEquals("Third argument to @Statistics must be a BIGINT delta cursor, instead was OHHAI",
                          ex.getMessage());
         }
         try {
@@ -429,7 +439,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING MEMORY STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[16];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -444,6 +454,8 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[11] = new ColumnInfo("POOLEDMEMORY", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PHYSICALMEMORY", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("JAVAMAXHEAP", VoltType.INTEGER);
+        expectedSchema[14] = new ColumnInfo("BUFFERPOOLHITPERCENT", VoltType.FLOAT);
+        expectedSchema[15] = new ColumnInfo("BUFFERPOOLOUTSTANDING", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -468,11 +480,17 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING CPU STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[4];
+        ColumnInfo[] expectedSchema = new ColumnInfo[10];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
         expectedSchema[3] = new ColumnInfo("PERCENT_USED", VoltType.BIGINT);
+        expectedSchema[4] = new ColumnInfo("PERCENT_USER", VoltType.BIGINT);
+        expectedSchema[5] = new ColumnInfo("PERCENT_SYSTEM", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("IO_READ_BYTES", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("IO_WRITE_BYTES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -493,6 +511,31 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         validateRowSeenAtAllHosts(results[0], "HOSTNAME", results[0].getString("HOSTNAME"), true);
     }
 
+    public void testThreadCpuStatistics() throws Exception {
+        System.out.println("\n\nTESTING THREADCPU STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("THREAD_NAME", VoltType.STRING);
+        expectedSchema[4] = new ColumnInfo("THREAD_ID", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("PERCENT_USER", VoltType.BIGINT);
+        expectedSchema[6] = new ColumnInfo("PERCENT_SYSTEM", VoltType.BIGINT);
+        expectedSchema[7] = new ColumnInfo("VOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        expectedSchema[8] = new ColumnInfo("INVOLUNTARY_CONTEXT_SWITCHES", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        // give time for a couple of procfs samples
+        Thread.sleep(2500);
+        VoltTable[] results = client.callProcedure("@Statistics", "threadcpu", 0).getResults();
+        System.out.println("Thread cpu statistics table: " + results[0].toString());
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        validateSchema(results[0], expectedTable);
+    }
+
     public void testProcedureStatistics() throws Exception {
         System.out.println("\n\nTESTING PROCEDURE STATS\n\n\n");
         Client client  = getFullyConnectedClient();
@@ -640,7 +683,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[11];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -650,6 +693,8 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("MESSAGES_PER_BATCH", VoltType.FLOAT);
+        expectedSchema[10] = new ColumnInfo("BATCH_BYTES_SAVED", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -712,7 +757,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING PLANNER STATS\n\n\n");
         Client client  = getClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[20];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -727,6 +772,12 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[11] = new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("PLANNER_ID", VoltType.INTEGER);
+        expectedSchema[15] = new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER);
+        expectedSchema[16] = new ColumnInfo("CACHE1_BYTES", VoltType.BIGINT);
+        expectedSchema[17] = new ColumnInfo("CACHE2_BYTES", VoltType.BIGINT);
+        expectedSchema[18] = new ColumnInfo("CACHE1_EVICTIONS", VoltType.BIGINT);
+        expectedSchema[19] = new ColumnInfo("CACHE2_EVICTIONS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -788,7 +839,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
                 globalPlanners++;
             }
         }
-        assertTrue("Global planner sites not 1, value was: " + globalPlanners, globalPlanners == 1);
+        // Each pooled ad hoc planner that did work reports its own row.
+        assertTrue("Global planner sites not between 1 and " + PlannerTool.POOL_SIZE + ", value was: " + globalPlanners,
+                globalPlanners >= 1 && globalPlanners <= PlannerTool.POOL_SIZE);
         assertTrue("Failed total CACHE1_LEVEL > 0, value was: " + cache1_level, cache1_level > 0);
         assertTrue("Failed total CACHE1_LEVEL < 1,000,000, value was: " + cache1_level, cache1_level < 1000000);
         assertTrue("Failed total CACHE2_LEVEL >= 0, value was: " + cache2_level, cache2_level >= 0);
@@ -979,7 +1032,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING STARVATION STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[10];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -990,6 +1043,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[7] = new ColumnInfo("MIN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MAX", VoltType.BIGINT);
         expectedSchema[9] = new ColumnInfo("STDDEV", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("SPIN_PERCENT", VoltType.FLOAT);
+        expectedSchema[11] = new ColumnInfo("YIELD_PERCENT", VoltType.FLOAT);
+        expectedSchema[12] = new ColumnInfo("PARK_PERCENT", VoltType.FLOAT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -0,0 +1,207 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.voltcore.messaging.Mailbox;
+import org.voltcore.messaging.VoltMessage;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.MockVoltDB;
+import org.voltdb.VoltDB;
+import org.voltdb.utils.CompressionCodec;
+import org.voltdb.utils.CompressionService;
+
+public class TestStreamSnapshotDataTarget {
+
+    private static final int SENDER_STREAMS = 4;
+
+    private MockVoltDB m_mvoltdb;
+    private final ExecutorService m_acker = Executors.newSingleThreadExecutor();
+
+    // type, block index and table id of each block, in the order they were handed to the mailbox
+    private final List<int[]> m_sent = new ArrayList<int[]>();
+    private final CountDownLatch m_releaseHashinator = new CountDownLatch(1);
+    private final AtomicReference<StreamSnapshotDataTarget> m_target =
+            new AtomicReference<StreamSnapshotDataTarget>();
+
+    @Before
+    public void setUp() throws Exception {
+        m_mvoltdb = new MockVoltDB();
+        VoltDB.replaceVoltDBInstanceForTest(m_mvoltdb);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_acker.shutdown();
+        m_mvoltdb.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+    }
+
+    private static int[] decode(RejoinDataMessage msg) throws Exception {
+        ByteBuffer block;
+        if (msg.getCodecId() == RejoinDataMessage.UNCOMPRESSED_ID) {
+            block = ByteBuffer.wrap(msg.getData());
+        } else {
+            ByteBuffer compressed = ByteBuffer.allocateDirect(msg.getData().length);
+            compressed.put(msg.getData());
+            compressed.flip();
+            block = ByteBuffer.allocateDirect(64 * 1024);
+            block.limit(CompressionService.decompressBuffer(CompressionCodec.forId(msg.getCodecId()),
+                                                            compressed, block));
+        }
+        int type = block.get(StreamSnapshotBase.typeOffset);
+        int blockIndex = block.getInt(StreamSnapshotBase.blockIndexOffset);
+        int tableId = type == StreamSnapshotMessageType.END.ordinal() ? -1 : block.getInt(StreamSnapshotBase.tableIdOffset);
+        return new int[] { type, blockIndex, tableId };
+    }
+
+    /**
+     * A mailbox that holds back the hashinator block until released, records
+     * every block and acks it from another thread.
+     */
+    private Mailbox createMailbox() {
+        Mailbox mb = mock(Mailbox.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                final int[] block = decode((RejoinDataMessage)invocation.getArguments()[1]);
+                if (block[0] == StreamSnapshotMessageType.HASHINATOR.ordinal()) {
+                    assertTrue(m_releaseHashinator.await(10, TimeUnit.SECONDS));
+                }
+                synchronized (m_sent) {
+                    m_sent.add(block);
+                }
+                m_acker.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (m_target.get() == null) {
+                            Thread.yield();
+                        }
+                        m_target.get().receiveAck(block[1]);
+                    }
+                });
+                return null;
+            }
+        }).when(mb).send(anyLong(), any(VoltMessage.class));
+        return mb;
+    }
+
+    private static Callable<BBContainer> createChunk(final int rows) {
+        return new Callable<BBContainer>() {
+            @Override
+            public BBContainer call() {
+                ByteBuffer buf = ByteBuffer.allocate(StreamSnapshotBase.contentOffset + 8 + 1024);
+                buf.putInt(StreamSnapshotBase.contentOffset, 0); // partition id
+                buf.putInt(StreamSnapshotBase.contentOffset + 4, rows);
+                return DBBPool.wrapBB(buf);
+            }
+        };
+    }
+
+    private int sentCount() {
+        synchronized (m_sent) {
+            return m_sent.size();
+        }
+    }
+
+    @Test
+    public void testControlBlocksOrderedAcrossSenderStreams() throws Exception {
+        StreamSnapshotDataTarget.SnapshotSender sender =
+                new StreamSnapshotDataTarget.SnapshotSender(createMailbox());
+        StreamSnapshotAckReceiver ackReceiver = new StreamSnapshotAckReceiver(mock(Mailbox.class));
+        Map<Integer, byte[]> schemas = new HashMap<Integer, byte[]>();
+        schemas.put(1, new byte[] { 1, 2, 3 });
+        schemas.put(2, new byte[] { 4, 5, 6 });
+        StreamSnapshotDataTarget target =
+                new StreamSnapshotDataTarget(1, new byte[] { 7, 8, 9 }, schemas, sender, ackReceiver);
+        m_target.set(target);
+        sender.start("Test sender", SENDER_STREAMS);
+
+        // the site thread doesn't wait for the control blocks ahead of its data
+        final int[] tables = { 1, 1, 2, 1, 2, 2, 1 };
+        for (int tableId : tables) {
+            target.write(createChunk(10), tableId);
+        }
+        // with the hashinator block stuck in one stream, nothing else may go out
+        Thread.sleep(200);
+        assertEquals(0, sentCount());
+
+        m_releaseHashinator.countDown();
+        final int blocks = 1 + schemas.size() + tables.length;
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (sentCount() < blocks) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        Set<Integer> blockIndexes = new HashSet<Integer>();
+        Set<Integer> schemasSeen = new HashSet<Integer>();
+        synchronized (m_sent) {
+            assertEquals(StreamSnapshotMessageType.HASHINATOR.ordinal(), m_sent.get(0)[0]);
+            for (int[] block : m_sent) {
+                blockIndexes.add(block[1]);
+                if (block[0] == StreamSnapshotMessageType.SCHEMA.ordinal()) {
+                    schemasSeen.add(block[2]);
+                } else if (block[0] == StreamSnapshotMessageType.DATA.ordinal()) {
+                    assertTrue("data of table " + block[2] + " sent before its schema",
+                               schemasSeen.contains(block[2]));
+                }
+            }
+        }
+        assertEquals(blocks, blockIndexes.size());
+
+        target.close();
+        synchronized (m_sent) {
+            assertEquals(blocks + 1, m_sent.size());
+            assertEquals(StreamSnapshotMessageType.END.ordinal(), m_sent.get(blocks)[0]);
+        }
+        assertEquals(10 * tables.length, target.getProgress().rowsAcked);
+    }
+}
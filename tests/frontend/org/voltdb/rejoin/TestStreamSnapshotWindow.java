@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.rejoin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestStreamSnapshotWindow {
+
+    private static final long MB = 1024 * 1024;
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Ack blocks of blockBytes spaced so the link delivers bytesPerSecond,
+     * each taking rtt to come back, for the given number of round trips.
+     */
+    private static long drive(StreamSnapshotWindow window, long now, long blockBytes,
+                              double bytesPerSecond, long rtt, int roundTrips)
+    {
+        final long spacing = (long)(blockBytes / bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+        final long end = now + roundTrips * rtt;
+        while (now < end) {
+            now += spacing;
+            window.onAck(blockBytes, rtt, now);
+        }
+        return now;
+    }
+
+    @Test
+    public void testStartsAtMinimum() {
+        StreamSnapshotWindow window = new StreamSnapshotWindow(4 * MB, 256 * MB);
+        assertEquals(4 * MB, window.getWindowBytes());
+        assertEquals(0, window.getMinRttNanos());
+        window.onAck(2 * MB, RTT, 1);
+        assertEquals(4 * MB, window.getWindowBytes());
+        assertEquals(RTT, window.getMinRttNanos());
+    }
+
+    @Test
+    public void testConvergesToBandwidthDelayProduct() {
+        StreamSnapshotWindow window = new StreamSnapshotWindow(MB, 1024 * MB);
+        // 10 Gb/s with a 10ms round trip is a 12.5MB bandwidth-delay product
+        final double rate = 10e9 / 8;
+        drive(window, 0, 256 * 1024, rate, RTT, 200);
+        final double bdp = rate * RTT / TimeUnit.SECONDS.toNanos(1);
+        assertEquals(rate, window.getBytesPerSecond(), rate * 0.05);
+        assertEquals(bdp * StreamSnapshotWindow.WINDOW_GAIN, window.getWindowBytes(), bdp * 0.1);
+    }
+
+    @Test
+    public void testClampedToBounds() {
+        StreamSnapshotWindow window = new StreamSnapshotWindow(MB, 8 * MB);
+        drive(window, 0, 256 * 1024, 10e9 / 8, RTT, 100);
+        assertEquals(8 * MB, window.getWindowBytes());
+
+        window = new StreamSnapshotWindow(4 * MB, 8 * MB);
+        drive(window, 0, 4096, 1e6, RTT, 100);
+        assertEquals(4 * MB, window.getWindowBytes());
+    }
+
+    @Test
+    public void testShrinksWhenLinkSlowsDown() {
+        StreamSnapshotWindow window = new StreamSnapshotWindow(MB, 1024 * MB);
+        long now = drive(window, 0, 256 * 1024, 10e9 / 8, RTT, 200);
+        final long fast = window.getWindowBytes();
+        drive(window, now, 256 * 1024, 1e9 / 8, RTT, 200);
+        assertTrue(window.getWindowBytes() < fast / 5);
+    }
+
+    @Test
+    public void testMinRttExpires() {
+        StreamSnapshotWindow window = new StreamSnapshotWindow(MB, 1024 * MB);
+        window.onAck(MB, RTT, 1);
+        window.onAck(MB, 5 * RTT, 2);
+        assertEquals(RTT, window.getMinRttNanos());
+        assertEquals(5 * RTT, window.getLastRttNanos());
+        // the route got longer, after the expiry the new round trip is the minimum
+        window.onAck(MB, 5 * RTT, 3 + StreamSnapshotWindow.MIN_RTT_EXPIRY_NANOS);
+        assertEquals(5 * RTT, window.getMinRttNanos());
+    }
+
+    @Test
+    public void testProgressEstimate() {
+        StreamSnapshotStats.Progress p = new StreamSnapshotStats.Progress(
+                0, 0, false, 10000, 50 * MB, 100 * MB, 50 * MB, 1000, 3000, 4, 8 * MB, 2 * MB,
+                5e6, RTT, 0, 2);
+        assertEquals(25.0, p.getPercentageComplete(), 0.001);
+        assertEquals(30000, p.getEstimatedRemaining());
+        assertEquals(5.0, p.getMegabytesPerSecond(), 0.001);
+
+        p = new StreamSnapshotStats.Progress(
+                0, 0, false, 10000, 0, 0, 0, 0, 3000, 0, 8 * MB, 0, 0, 0, 0, 2);
+        assertEquals(-1, p.getEstimatedRemaining());
+
+        p = new StreamSnapshotStats.Progress(
+                0, 0, true, 10000, 0, 0, 0, 4000, 0, 0, 8 * MB, 0, 0, 0, 0, 0);
+        assertEquals(100.0, p.getPercentageComplete(), 0.001);
+        assertEquals(0, p.getEstimatedRemaining());
+    }
+}
@@ -0,0 +1,158 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestCompressionCodec {
+
+    private static final int SIZES[] = new int[] { 0, 1, 12, 13, 100, 65535, 65536 * 3 + 7, 1024 * 1024 * 2 };
+
+    private static byte[] compressible(Random r, int size) {
+        //16 byte rows of a slowly increasing key and one of a few values, roughly what a table block looks like
+        final ByteBuffer buf = ByteBuffer.allocate(size);
+        long row = 0;
+        while (buf.remaining() >= 16) {
+            buf.putLong(row++ / 4);
+            buf.putLong(r.nextInt(4) * 0x0101010101010101L);
+        }
+        return buf.array();
+    }
+
+    private static byte[] random(Random r, int size) {
+        final byte data[] = new byte[size];
+        r.nextBytes(data);
+        return data;
+    }
+
+    private static ByteBuffer direct(byte data[]) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+        buf.put(data);
+        buf.flip();
+        return buf;
+    }
+
+    private static void checkRoundTrip(CompressionCodec codec, byte data[]) throws IOException {
+        final byte compressed[] = codec.compress(data);
+        assertTrue(compressed.length <= codec.maxCompressedLength(data.length));
+        assertArrayEquals(data, codec.uncompress(compressed));
+
+        //Offset into the middle of an array
+        if (data.length > 2) {
+            final byte middle[] = codec.compress(data, 1, data.length - 2);
+            assertArrayEquals(Arrays.copyOfRange(data, 1, data.length - 1), codec.uncompress(middle));
+        }
+
+        //Direct buffers with non-zero positions, positions stay put and the limit marks the end
+        final ByteBuffer input = ByteBuffer.allocateDirect(data.length + 3);
+        input.position(3);
+        input.put(data);
+        input.position(3);
+        final ByteBuffer output = ByteBuffer.allocateDirect(codec.maxCompressedLength(data.length) + 5);
+        output.position(5);
+        final int written = codec.compress(input, output);
+        assertEquals(3, input.position());
+        assertEquals(5, output.position());
+        assertEquals(5 + written, output.limit());
+        assertEquals(data.length, codec.uncompressedLength(output));
+
+        final ByteBuffer uncompressed = ByteBuffer.allocateDirect(data.length + 7);
+        uncompressed.position(7);
+        assertEquals(data.length, codec.uncompress(output, uncompressed));
+        assertEquals(7, uncompressed.position());
+        assertEquals(direct(data), uncompressed);
+
+        //Heap buffers decode what direct buffers encoded
+        final ByteBuffer heapCompressed = ByteBuffer.allocate(written);
+        heapCompressed.put(output.duplicate());
+        heapCompressed.flip();
+        final ByteBuffer heapOutput = ByteBuffer.allocate(data.length);
+        codec.uncompress(heapCompressed, heapOutput);
+        assertEquals(ByteBuffer.wrap(data), heapOutput);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final Random r = new Random(42);
+        for (CompressionCodec codec : CompressionCodec.all()) {
+            for (int size : SIZES) {
+                checkRoundTrip(codec, compressible(r, size));
+                checkRoundTrip(codec, random(r, size));
+            }
+        }
+    }
+
+    @Test
+    public void testCompressibleDataShrinks() throws Exception {
+        final byte data[] = compressible(new Random(0), 1024 * 256);
+        for (CompressionCodec codec : CompressionCodec.all()) {
+            assertTrue(codec.compress(data).length < data.length / 2);
+        }
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        for (CompressionCodec codec : CompressionCodec.all()) {
+            assertSame(codec, CompressionCodec.forId(codec.getId()));
+            assertSame(codec, CompressionCodec.forName(codec.getName().toLowerCase()));
+        }
+        assertSame(CompressionCodec.SNAPPY, CompressionCodec.forId(0));
+        try {
+            CompressionCodec.forId(CompressionCodec.all().length);
+            fail();
+        } catch (IOException expected) {}
+        try {
+            CompressionCodec.forName("bogus");
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    @Test
+    public void testCorruptBlock() throws Exception {
+        final byte data[] = compressible(new Random(1), 1024 * 64);
+        for (CompressionCodec codec : new CompressionCodec[] { CompressionCodec.LZ4, CompressionCodec.DEFLATE }) {
+            final byte compressed[] = codec.compress(data);
+            try {
+                codec.uncompress(Arrays.copyOf(compressed, compressed.length / 2));
+                fail();
+            } catch (IOException expected) {}
+            //Claimed length doesn't match what the block decodes to
+            compressed[3]++;
+            try {
+                codec.uncompress(compressed);
+                fail();
+            } catch (IOException expected) {}
+        }
+    }
+}
@@ -31,9 +31,12 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.After;
 import org.junit.Before;
@@ -635,6 +638,29 @@ public class TestPersistentBinaryDeque {
         assertTrue(names.first().equals("pbd_nonce.5.pbd"));
     }
 
+    @Test
+    public void testOfferWithEachCodecThenReopen() throws Exception {
+        System.out.println("Running testOfferWithEachCodecThenReopen");
+        //Switch codecs part way through, each object has to come back with the codec it was written with
+        final CompressionCodec codecs[] = CompressionCodec.all();
+        for (int ii = 0; ii < 96; ii++) {
+            m_pbd.setCompressionCodec(codecs[ii % codecs.length]);
+            m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(ii)));
+        }
+        m_pbd.sync();
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        assertEquals(96, m_pbd.getNumObjects());
+        for (int ii = 0; ii < 96; ii++) {
+            ByteBuffer defaultBuffer = getFilledBuffer(ii);
+            BBContainer retval = m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertTrue(defaultBuffer.equals(retval.b()));
+            retval.discard();
+        }
+        assertNull(m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
     @Test
     public void testOfferCloseReopenOfferSmall() throws Exception {
         System.out.println("Running testOfferCloseReopenOfferSmall");
@@ -792,6 +818,110 @@ public class TestPersistentBinaryDeque {
 
     }
 
+    @Test
+    public void testConcurrentOfferAndPoll() throws Exception {
+        System.out.println("Running testConcurrentOfferAndPoll");
+        final int count = 96;
+        final AtomicReference<Throwable> writerError = new AtomicReference<Throwable>();
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int ii = 0; ii < count; ii++) {
+                        m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(ii)));
+                    }
+                } catch (Throwable t) {
+                    writerError.set(t);
+                }
+            }
+        };
+        writer.start();
+
+        //Drain while the writer is appending and rolling over segments
+        int polled = 0;
+        while (polled < count) {
+            BBContainer cont = m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            if (cont == null) {
+                assertNull(writerError.get());
+                Thread.yield();
+                continue;
+            }
+            try {
+                ByteBuffer buffer = cont.b();
+                assertEquals(1024 * 1024 * 2, buffer.remaining());
+                while (buffer.remaining() > 15) {
+                    assertEquals(polled, buffer.getLong());
+                    buffer.getLong();
+                }
+            } finally {
+                cont.discard();
+            }
+            polled++;
+        }
+        writer.join();
+        assertNull(writerError.get());
+        assertNull(m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+        assertEquals(0, m_pbd.getNumObjects());
+
+        //Consumed segments are deleted as they are rolled past, leaving the write segment
+        assertEquals(1, getSortedDirectoryListing().size());
+    }
+
+    @Test
+    public void testCorruptObject() throws Exception {
+        System.out.println("Running testCorruptObject");
+        for (int ii = 0; ii < 10; ii++) {
+            m_pbd.offer(DBBPool.wrapBB(getFilledSmallBuffer(ii)));
+        }
+        m_pbd.sync();
+        m_pbd.close();
+
+        //Flip a byte in the payload of the sixth object, small objects aren't compressed
+        final int objectSize = PBDSegment.m_objectHeaderBytes + PBDSegment.m_checksumBytes + 1024;
+        final long corruptOffset = PBDSegment.m_segmentHeaderBytes + 5 * objectSize + objectSize - 100;
+        RandomAccessFile ras = new RandomAccessFile(new File(TEST_DIR, "pbd_nonce.0.pbd"), "rw");
+        try {
+            ras.seek(corruptOffset);
+            final int b = ras.read();
+            ras.seek(corruptOffset);
+            ras.write(b ^ 0xff);
+        } finally {
+            ras.close();
+        }
+
+        //Polling stops at the corrupt object
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        for (int ii = 0; ii < 5; ii++) {
+            BBContainer cont = m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEquals(ii, cont.b().getLong(0));
+            cont.discard();
+        }
+        try {
+            m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            fail();
+        } catch (IOException expected) {}
+        m_pbd.close();
+
+        //Recovery truncates the deque at the corrupt object
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        final AtomicInteger parsed = new AtomicInteger();
+        m_pbd.parseAndTruncate(new BinaryDequeTruncator() {
+            @Override
+            public ByteBuffer parse(BBContainer bbc) {
+                assertEquals(parsed.getAndIncrement(), bbc.b().getLong(0));
+                return null;
+            }
+        });
+        assertEquals(5, parsed.get());
+        assertEquals(5, m_pbd.getNumObjects());
+        for (int ii = 0; ii < 5; ii++) {
+            BBContainer cont = m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEquals(ii, cont.b().getLong(0));
+            cont.discard();
+        }
+        assertNull(m_pbd.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
     @Before
     public void setUp() throws Exception {
         if (TEST_DIR.exists()) {
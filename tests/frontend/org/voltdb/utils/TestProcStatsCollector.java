@@ -0,0 +1,174 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestProcStatsCollector {
+
+    // A command name with spaces and parentheses, which is why fields are counted from the last ')'
+    private static final String STAT =
+            "4242 (java (site) 1) S 1 4242 4242 0 -1 4194560 123 0 0 0 %d %d 0 0 20 0 42 0 100 5000000000 %d";
+    private static final String STATUS =
+            "Name:\tjava\nState:\tS (sleeping)\nVmPeak:\t 9000 kB\nVmRSS:\t   %d kB\nThreads:\t42\n" +
+            "voluntary_ctxt_switches:\t%d\nnonvoluntary_ctxt_switches:\t%d\n";
+    private static final String IO =
+            "rchar: 100\nwchar: 200\nsyscr: 3\nsyscw: 4\nread_bytes: %d\nwrite_bytes: %d\ncancelled_write_bytes: 0\n";
+
+    private File m_dir;
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(contents.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            fos.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("procstats", "");
+        m_dir.delete();
+        m_dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    @Test
+    public void testParseFields() throws Exception {
+        final byte stat[] = String.format(STAT, 150, 25, 777).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(150, ProcStatsCollector.statField(stat, stat.length, 14));
+        assertEquals(25, ProcStatsCollector.statField(stat, stat.length, 15));
+        assertEquals(777, ProcStatsCollector.statField(stat, stat.length, 24));
+        assertEquals(-1, ProcStatsCollector.statField(stat, stat.length, 25));
+        // The state field isn't a number
+        assertEquals(-1, ProcStatsCollector.statField(stat, stat.length, 3));
+
+        final byte status[] = String.format(STATUS, 2048, 11, 3).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(2048, ProcStatsCollector.statusField(status, status.length,
+                "VmRSS:".getBytes(StandardCharsets.US_ASCII)));
+        // Must match at the start of the line, not the tail of nonvoluntary_ctxt_switches
+        assertEquals(11, ProcStatsCollector.statusField(status, status.length,
+                "voluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(3, ProcStatsCollector.statusField(status, status.length,
+                "nonvoluntary_ctxt_switches:".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(-1, ProcStatsCollector.statusField(status, status.length,
+                "VmSwap:".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testSampleAndHistory() throws Exception {
+        write(new File(m_dir, "stat"), String.format(STAT, 100, 50, 0));
+        write(new File(m_dir, "status"), String.format(STATUS, 1024, 10, 2));
+        write(new File(m_dir, "io"), String.format(IO, 4096, 8192));
+        write(new File(m_dir, "task/77/stat"), String.format(STAT, 30, 10, 0));
+        write(new File(m_dir, "task/77/status"), String.format(STATUS, 1024, 5, 1));
+
+        final ProcStatsCollector collector = new ProcStatsCollector(m_dir, 4);
+        assertTrue(collector.isAvailable());
+        assertNull(collector.getLatest());
+        collector.registerThread(77, "Site 0:0");
+        // A thread that has already exited is dropped
+        collector.registerThread(78, "Site 0:1");
+
+        ProcStatsCollector.Sample first = collector.sample();
+        assertNotNull(first);
+        assertSame(first, collector.getLatest());
+        assertNull(collector.getPrevious(1));
+        assertEquals(1024 * 1024, first.rss);
+        assertEquals(1000, first.userMs);
+        assertEquals(500, first.systemMs);
+        assertEquals(10, first.voluntaryContextSwitches);
+        assertEquals(2, first.involuntaryContextSwitches);
+        assertEquals(4096, first.readBytes);
+        assertEquals(8192, first.writeBytes);
+        assertEquals(1, first.threads.length);
+        assertEquals("Site 0:0", first.getThread(77).name);
+        assertEquals(300, first.getThread(77).userMs);
+        assertEquals(5, first.getThread(77).voluntaryContextSwitches);
+        assertNull(first.getThread(78));
+
+        // io is optional
+        new File(m_dir, "io").delete();
+        write(new File(m_dir, "stat"), String.format(STAT, 200, 50, 0));
+        ProcStatsCollector.Sample second = collector.sample();
+        assertEquals(-1, second.readBytes);
+        assertEquals(2000, second.userMs);
+        assertSame(second, collector.getLatest());
+        assertSame(first, collector.getPrevious(1));
+
+        // Older samples fall out of the ring
+        collector.sample();
+        collector.sample();
+        collector.sample();
+        assertNull(collector.getPrevious(3));
+        assertNotNull(collector.getPrevious(2));
+    }
+
+    @Test
+    public void testPercent() {
+        assertEquals(50.0, ProcStatsCollector.percent(1000, 1500, 1000), 0.0);
+        assertEquals(0.0, ProcStatsCollector.percent(1000, 1500, 0), 0.0);
+        assertEquals(0.0, ProcStatsCollector.percent(-1, 1500, 1000), 0.0);
+    }
+
+    @Test
+    public void testRealProcfs() throws Exception {
+        final ProcStatsCollector collector = ProcStatsCollector.instance;
+        if (!collector.isAvailable()) {
+            return;
+        }
+        assertTrue(collector.readRSS() > 0);
+        final boolean registered = collector.registerCurrentThread("test");
+        try {
+            ProcStatsCollector.Sample sample = collector.sample();
+            assertNotNull(sample);
+            assertTrue(sample.rss > 0);
+            assertTrue(sample.userMs >= 0);
+            if (registered) {
+                assertEquals(1, sample.threads.length);
+                assertEquals("test", sample.threads[0].name);
+            }
+        } finally {
+            collector.unregisterCurrentThread();
+        }
+    }
+}
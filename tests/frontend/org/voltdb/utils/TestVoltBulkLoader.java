@@ -179,6 +179,45 @@ public class TestVoltBulkLoader extends TestCase {
         test_Interface(mySchema, myData, myBatchSize, expectedFailures, 0);
     }
 
+    //Test rows handed over in batches with insertRows(), valid and invalid rows mixed.
+    public void testInsertRows() throws Exception {
+        String mySchema =
+                "create table BLAH ("
+                + "clm_integer integer not null, "
+                + // column that is partitioned on
+                "clm_tinyint tinyint default 0, "
+                + "clm_smallint smallint default 0, "
+                + "clm_bigint bigint default 0, "
+                + "clm_string varchar(20) default null, "
+                + "clm_decimal decimal default null, "
+                + "clm_float float default null, "
+                + "clm_timestamp timestamp default null, "
+                + "PRIMARY KEY(clm_integer) "
+                + "); ";
+        int myBatchSize = 200;
+        TimestampType currentTime = new TimestampType();
+        Object [][] myData = {
+            {1,1,1,11111111,"first",1.10,1.11,currentTime},
+            {2,2,2,222222,"second",2.20,2.22,currentTime},
+            //empty line
+            {},
+            //wrong number of columns
+            {3,3},
+            //partition column can't be converted, the rest of its insertRows() batch is
+            //routed one row at a time
+            {"three",3,3,333333,"third",3.30,3.33,currentTime},
+            {4,"NLL",4,444444,"fourth",4.40,4.44,currentTime},
+            {5,5,5,5555555,"fifth",5.50,5.55,currentTime},
+            //constraint violation
+            {1,1,1,11111111,"first",1.10,1.11,currentTime},
+            {6,6,6,666666,"sixth",6.60,6.66,currentTime},
+            {7,7,7,7777777,"seventh",7.70,7.77,currentTime}
+        };
+        Integer[] failures = {3,4,5,6,8};
+        ArrayList<Integer> expectedFailures = new ArrayList<Integer>(Arrays.asList(failures));
+        test_Interface(mySchema, myData, myBatchSize, expectedFailures, 0, 4);
+    }
+
     //Test batch option that splits.
     public void testBatchOptionThatSplits() throws Exception {
         String mySchema =
@@ -1001,6 +1040,17 @@ public class TestVoltBulkLoader extends TestCase {
 
     public void test_Interface(String my_schema, Object[][] my_data,
             int my_batchSize, ArrayList<Integer> expectedFailList, int flushInterval) throws Exception {
+        test_Interface(my_schema, my_data, my_batchSize, expectedFailList, flushInterval, 0);
+    }
+
+    /**
+     * @param rowsPerInsert  0 to insert the rows one by one with insertRow(), otherwise
+     *                       hand them to insertRows() this many at a time and check that
+     *                       exactly the rows that didn't fail were inserted
+     */
+    public void test_Interface(String my_schema, Object[][] my_data,
+            int my_batchSize, ArrayList<Integer> expectedFailList, int flushInterval,
+            int rowsPerInsert) throws Exception {
         try{
             pathToCatalog = Configuration.getPathToCatalogForTest("vbl.jar");
             pathToDeployment = Configuration.getPathToCatalogForTest("vbl.xml");
@@ -1046,13 +1096,27 @@ public class TestVoltBulkLoader extends TestCase {
 
             int rowCnt=1;
             try{
-                for (Object[] nextRow : my_data) {
-                    Integer rowId = new Integer(rowCnt);
-                    bulkLoader.insertRow(rowId, nextRow);
-                    rowCnt++;
-                    if (flushInterval <= 0 && (rnd.nextInt() % 30 == 0)) {
-                        //  Randomly inject a flush if no timer flush is involved.
-                        bulkLoader.flush();
+                if (rowsPerInsert > 0) {
+                    for (int first = 0; first < my_data.length; first += rowsPerInsert) {
+                        int count = Math.min(rowsPerInsert, my_data.length - first);
+                        Object[] rowIds = new Object[count];
+                        Object[][] rows = new Object[count][];
+                        for (int i = 0; i < count; i++) {
+                            rowIds[i] = new Integer(rowCnt++);
+                            rows[i] = my_data[first + i];
+                        }
+                        bulkLoader.insertRows(rowIds, rows);
+                    }
+                }
+                else {
+                    for (Object[] nextRow : my_data) {
+                        Integer rowId = new Integer(rowCnt);
+                        bulkLoader.insertRow(rowId, nextRow);
+                        rowCnt++;
+                        if (flushInterval <= 0 && (rnd.nextInt() % 30 == 0)) {
+                            //  Randomly inject a flush if no timer flush is involved.
+                            bulkLoader.flush();
+                        }
                     }
                 }
             }
@@ -1079,6 +1143,23 @@ public class TestVoltBulkLoader extends TestCase {
             bulkLoader.close();
             assertEquals(rowCnt, bulkLoader.getCompletedRowCount());
             assertTrue(testCallback.failureRowListMatches(expectedFailList));
+
+            if (rowsPerInsert > 0) {
+                ArrayList<Integer> expectedKeys = new ArrayList<Integer>();
+                for (int i = 0; i < my_data.length; i++) {
+                    if (!expectedFailList.contains(i + 1)) {
+                        expectedKeys.add((Integer)my_data[i][0]);
+                    }
+                }
+                Collections.sort(expectedKeys);
+                VoltTable keys = client1.callProcedure("@AdHoc",
+                        "SELECT clm_integer FROM BLAH ORDER BY clm_integer;").getResults()[0];
+                ArrayList<Integer> insertedKeys = new ArrayList<Integer>();
+                while (keys.advanceRow()) {
+                    insertedKeys.add((int)keys.getLong(0));
+                }
+                assertEquals(expectedKeys, insertedKeys);
+            }
         }
         finally {
             if (client1 != null) client1.close();